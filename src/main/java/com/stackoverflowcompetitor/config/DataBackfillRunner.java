@@ -0,0 +1,77 @@
+package com.stackoverflowcompetitor.config;
+
+import com.stackoverflowcompetitor.repository.AnswerRepository;
+import com.stackoverflowcompetitor.repository.QuestionRepository;
+import com.stackoverflowcompetitor.repository.TagRepository;
+import com.stackoverflowcompetitor.service.MediaService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+
+/**
+ * One-off data migrations for columns that are derived from other tables, or whose format changed.
+ * Each step is switched off by default and is meant to be enabled for a single start-up after a schema change.
+ */
+@Component
+@Slf4j
+public class DataBackfillRunner implements ApplicationRunner {
+
+    @Autowired
+    private QuestionRepository questionRepository;
+
+    @Autowired
+    private AnswerRepository answerRepository;
+
+    @Autowired
+    private TagRepository tagRepository;
+
+    @Autowired
+    private MediaService mediaService;
+
+    @Value("${app.backfill.vote-counts:false}")
+    private boolean backfillVoteCounts;
+
+    @Value("${app.backfill.answer-paths:false}")
+    private boolean backfillAnswerPaths;
+
+    @Value("${app.backfill.tag-counts:false}")
+    private boolean backfillTagCounts;
+
+    @Value("${app.backfill.media-urls:false}")
+    private boolean backfillMediaUrls;
+
+    @Override
+    @Transactional
+    public void run(ApplicationArguments args) throws IOException {
+        if (backfillVoteCounts) {
+            log.info("Backfilling vote counters from the vote table");
+            int questions = questionRepository.recalculateVoteCounts();
+            int answers = answerRepository.recalculateVoteCounts();
+            log.info("Recalculated vote counters for {} questions and {} answers", questions, answers);
+        }
+        if (backfillAnswerPaths) {
+            log.info("Backfilling materialized paths of the answer hierarchy");
+            int updated = answerRepository.backfillRootPaths();
+            int level;
+            while ((level = answerRepository.backfillChildPaths()) > 0) {
+                updated += level;
+            }
+            log.info("Backfilled paths for {} answers", updated);
+        }
+        if (backfillTagCounts) {
+            log.info("Backfilling tag question counters from question_tag");
+            int tags = tagRepository.recalculateQuestionCounts();
+            log.info("Recalculated question counters for {} tags", tags);
+        }
+        if (backfillMediaUrls) {
+            log.info("Backfilling media URLs of answers stored before /media/{id}");
+            mediaService.migrateLegacyMediaUrls();
+        }
+    }
+}
@@ -2,6 +2,7 @@ package com.stackoverflowcompetitor.config;
 
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpMethod;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.ProviderManager;
 import org.springframework.security.authentication.dao.DaoAuthenticationProvider;
@@ -42,7 +43,10 @@ public class SecurityConfig {
     public SecurityFilterChain securityFilterChain(HttpSecurity http) throws Exception {
         http
                 .authorizeHttpRequests(authorize -> authorize
-                        .requestMatchers("/auth/register","/auth/login","/questions/top-voted","/questions/getAllQuestions","/questions/by-tag","/questions/search","answers/search").permitAll()
+                        .requestMatchers("/auth/register","/auth/login","/questions/top-voted","/questions/hot","/questions/top-voted/cursor","/questions/all/cursor","/questions/getAllQuestions","/questions/export","/questions/by-tag","/questions/by-tags","/questions/search","answers/search","/search","/search/suggestions","/tags/suggest").permitAll()
+                        .requestMatchers(HttpMethod.GET, "/questions/{questionId:\\d+}",
+                                "/answers/{answerId:\\d+}/replies", "/answers/{answerId:\\d+}/reply-count", "/media/{id}",
+                                "/media/{id}/info", "/media/{id}/thumbnail").permitAll()
                         .anyRequest().authenticated()
                 )
                 .csrf(csrf -> csrf.disable())
@@ -1,7 +1,10 @@
 package com.stackoverflowcompetitor.controller;
 
+import com.stackoverflowcompetitor.dto.AnswerNode;
+import com.stackoverflowcompetitor.dto.CursorPage;
 import com.stackoverflowcompetitor.model.Answer;
 import com.stackoverflowcompetitor.service.AnswerService;
+import com.stackoverflowcompetitor.util.Constants;
 import jakarta.validation.ValidationException;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -11,8 +14,6 @@ import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 import org.springframework.web.server.ResponseStatusException;
 
-import java.util.List;
-
 
 @RestController
 @RequestMapping("/answers")
@@ -27,16 +28,18 @@ public class AnswerController {
      *
      * @param questionId (the ID of the question being answered)
      * @param media     (the media to be posted)
+     * @param uploadId  (a completed chunked upload to attach instead of media)
      * @param content     (the content to be posted)
      * @return (the posted answer)
      */
     @PostMapping("/question/{questionId}")
     public ResponseEntity<Answer> answerQuestion(@PathVariable Long questionId,
                                                  @RequestParam("content") String content,
-                                                 @RequestParam(value = "media", required = false) MultipartFile media) {
+                                                 @RequestParam(value = "media", required = false) MultipartFile media,
+                                                 @RequestParam(value = "uploadId", required = false) String uploadId) {
         log.info("Answering question with ID: {}", questionId);
         try {
-            Answer postedAnswer = answerService.answerQuestion(questionId, content, media);
+            Answer postedAnswer = answerService.answerQuestion(questionId, content, media, uploadId);
             return ResponseEntity.ok(postedAnswer);
         } catch (ResponseStatusException | ValidationException e) {
             throw e;
@@ -50,6 +53,7 @@ public class AnswerController {
      *
      * @param answerId   (the ID of the parent answer)
      * @param media      (the media to be posted)
+     * @param uploadId   (a completed chunked upload to attach instead of media)
      * @param content    (the content to be posted)
      * @param questionID (the ID of the question associated with the answer)
      * @return (the posted reply)
@@ -58,10 +62,11 @@ public class AnswerController {
     public ResponseEntity<Answer> answerToAnswer(@PathVariable Long answerId,
                                                  @RequestParam("content") String content,
                                                  @RequestParam(value = "media", required = false) MultipartFile media,
+                                                 @RequestParam(value = "uploadId", required = false) String uploadId,
                                                  @PathVariable Long questionID) {
         log.info("Replying to answer with ID: {} for question ID: {}", answerId, questionID);
         try {
-            Answer postedReply = answerService.answerToAnswer(answerId, content, media, questionID);
+            Answer postedReply = answerService.answerToAnswer(answerId, content, media, uploadId, questionID);
             return ResponseEntity.ok(postedReply);
         } catch (ResponseStatusException | ValidationException e) {
             throw e;
@@ -71,16 +76,58 @@ public class AnswerController {
     }
 
     /**
-     * Retrieves answers based in searchTerm.
+     * Retrieves an answer with its nested replies.
+     *
+     * @param answerId (the ID of the answer)
+     * @param maxDepth (how many levels of replies to include below the answer)
+     * @return (the answer and its reply tree)
+     */
+    @GetMapping("/{answerId:\\d+}/replies")
+    public ResponseEntity<AnswerNode> getReplies(@PathVariable Long answerId,
+                                                 @RequestParam(defaultValue = "" + Constants.MAX_REPLY_DEPTH) int maxDepth) {
+        log.info("Fetching replies of answer: {}, maxDepth: {}", answerId, maxDepth);
+        try {
+            return ResponseEntity.ok(answerService.getReplySubtree(answerId, maxDepth));
+        } catch (ResponseStatusException | ValidationException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "An error occurred while getting the replies", e);
+        }
+    }
+
+    /**
+     * Counts all replies under an answer.
+     *
+     * @param answerId (the ID of the answer)
+     * @return (the number of replies at any depth)
+     */
+    @GetMapping("/{answerId:\\d+}/reply-count")
+    public ResponseEntity<Long> countReplies(@PathVariable Long answerId) {
+        log.info("Counting replies of answer: {}", answerId);
+        try {
+            return ResponseEntity.ok(answerService.countReplies(answerId));
+        } catch (ResponseStatusException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "An error occurred while counting the replies", e);
+        }
+    }
+
+    /**
+     * Retrieves answers based in searchTerm, most relevant first.
      * @param searchTerm (the searchTerm)
-     * @return (the list of answers)
+     * @param cursor     (the nextCursor of the previous page, absent for the first page)
+     * @param limit      (the number of answers per page)
+     * @return (the page of answers and the cursor of the next page)
      */
 
     @GetMapping("/search")
-    public ResponseEntity<List<Answer>> searchAnswers(@RequestParam String searchTerm) {
+    public ResponseEntity<CursorPage<Answer>> searchAnswers(@RequestParam String searchTerm,
+                                                            @RequestParam(required = false) String cursor,
+                                                            @RequestParam(defaultValue = "" + Constants.DEFAULT_SEARCH_LIMIT) int limit) {
         log.info("Fetching answers by term: {}", searchTerm);
         try {
-            List<Answer> answers = answerService.searchAnswers(searchTerm);
+            CursorPage<Answer> answers = answerService.searchAnswers(searchTerm, cursor, limit);
             return ResponseEntity.ok(answers);
         } catch (ValidationException e) {
             throw e;
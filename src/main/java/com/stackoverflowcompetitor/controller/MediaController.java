@@ -0,0 +1,286 @@
+package com.stackoverflowcompetitor.controller;
+
+import com.stackoverflowcompetitor.dto.MediaInfo;
+import com.stackoverflowcompetitor.dto.UploadStatus;
+import com.stackoverflowcompetitor.service.MediaProcessor;
+import com.stackoverflowcompetitor.service.MediaService;
+import com.stackoverflowcompetitor.service.MediaService.StoredMedia;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.validation.ValidationException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpRange;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/**
+ * Serves stored media. Stored files never change under an id, so responses are cacheable for a year and
+ * revalidated through the ETag (the id) or Last-Modified. A single byte range is honoured, e.g. for seeking in
+ * videos; several ranges get the whole file. Bodies of at least {@link #SENDFILE_MIN_SIZE} bytes are handed to
+ * Tomcat's sendfile, which copies the file region to the socket without it passing through the JVM; smaller ones,
+ * or all of them on containers without sendfile, are written with {@link FileChannel#transferTo}.
+ * Only types that cannot run script are shown inline ({@link MediaService#isInline}); anything else is sent as
+ * an application/octet-stream attachment, and every response carries a sandboxing Content-Security-Policy.
+ * Large files are uploaded in chunks through the /media/uploads endpoints; an answer then refers to the upload.
+ * Images also get a thumbnail and their metadata, made in the background by {@link MediaProcessor}.
+ */
+@RestController
+@RequestMapping("/media")
+@Slf4j
+public class MediaController {
+
+    static final String CACHE_CONTROL = "public, max-age=31536000, immutable";
+    // Tomcat's DefaultServlet threshold: below it a plain write is cheaper than setting up sendfile
+    static final long SENDFILE_MIN_SIZE = 48 * 1024;
+    static final String CHUNK_CHECKSUM = "X-Chunk-Crc32c";
+
+    // Request attributes of Tomcat's sendfile support (org.apache.catalina.Globals)
+    private static final String SENDFILE_SUPPORTED = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    @Autowired
+    private MediaService mediaService;
+
+    @Autowired
+    private MediaProcessor mediaProcessor;
+
+    /**
+     * Gets a stored media file, or the part of it given by the Range header.
+     *
+     * @param id (the last segment of the answer's media URL)
+     */
+    @GetMapping("/{id}")
+    public void getMedia(@PathVariable String id, HttpServletRequest request, HttpServletResponse response) {
+        try {
+            StoredMedia media = mediaService.find(id)
+                    .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Media not found with id: " + id));
+            serve(media, request, response);
+        } catch (ResponseStatusException e) {
+            throw e;
+        } catch (Exception e) {
+            log.error("Error serving media with id: {}", id);
+            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "An error occurred while serving media", e);
+        }
+    }
+
+    /**
+     * Gets what processing found out about a stored file: its dimensions and format, and its thumbnail's URL for
+     * images. While processing is queued or running, only the status is set.
+     *
+     * @param id (the last segment of the answer's media URL)
+     */
+    @GetMapping("/{id}/info")
+    public ResponseEntity<MediaInfo> getMediaInfo(@PathVariable String id) {
+        try {
+            return mediaProcessor.info(id)
+                    .map(ResponseEntity::ok)
+                    .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Media not found with id: " + id));
+        } catch (ResponseStatusException e) {
+            throw e;
+        } catch (Exception e) {
+            log.error("Error getting info of media with id: {}", id);
+            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "An error occurred while getting media info", e);
+        }
+    }
+
+    /**
+     * Gets the JPEG thumbnail of a stored image, once processing made it.
+     *
+     * @param id (the last segment of the answer's media URL)
+     */
+    @GetMapping("/{id}/thumbnail")
+    public void getThumbnail(@PathVariable String id, HttpServletRequest request, HttpServletResponse response) {
+        try {
+            StoredMedia thumbnail = mediaProcessor.thumbnail(id)
+                    .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Thumbnail not found for media with id: " + id));
+            serve(thumbnail, request, response);
+        } catch (ResponseStatusException e) {
+            throw e;
+        } catch (Exception e) {
+            log.error("Error serving thumbnail of media with id: {}", id);
+            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "An error occurred while serving the thumbnail", e);
+        }
+    }
+
+    /**
+     * Starts a chunked upload.
+     *
+     * @param size     (the size of the file in bytes)
+     * @param filename (the name of the file)
+     * @return (the upload id, chunk size and chunks to send)
+     */
+    @PostMapping("/uploads")
+    public ResponseEntity<UploadStatus> startUpload(@RequestParam long size,
+                                                    @RequestParam(required = false) String filename) {
+        log.info("Starting an upload of {} bytes", size);
+        try {
+            return ResponseEntity.ok(mediaService.startUpload(size, filename));
+        } catch (ResponseStatusException | ValidationException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "An error occurred while starting the upload", e);
+        }
+    }
+
+    /**
+     * Sends one chunk of an upload as the raw request body. A chunk can be sent again, e.g. after a failure.
+     *
+     * @param uploadId (the upload id)
+     * @param index    (the chunk number, from 0)
+     * @param checksum (the CRC32C of the chunk, in hex)
+     * @return (the chunks still missing)
+     */
+    @PutMapping("/uploads/{uploadId}/chunks/{index}")
+    public ResponseEntity<UploadStatus> appendChunk(@PathVariable String uploadId, @PathVariable int index,
+                                                    @RequestHeader(CHUNK_CHECKSUM) String checksum,
+                                                    HttpServletRequest request) {
+        try {
+            return ResponseEntity.ok(mediaService.appendChunk(uploadId, index, checksum, request.getInputStream()));
+        } catch (ResponseStatusException | ValidationException e) {
+            throw e;
+        } catch (Exception e) {
+            log.error("Error writing chunk {} of upload {}", index, uploadId);
+            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "An error occurred while writing the chunk", e);
+        }
+    }
+
+    /**
+     * Gets the progress of an upload, to resume it.
+     *
+     * @param uploadId (the upload id)
+     * @return (the chunks still missing)
+     */
+    @GetMapping("/uploads/{uploadId}")
+    public ResponseEntity<UploadStatus> uploadStatus(@PathVariable String uploadId) {
+        try {
+            return ResponseEntity.ok(mediaService.uploadStatus(uploadId));
+        } catch (ResponseStatusException | ValidationException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "An error occurred while getting the upload", e);
+        }
+    }
+
+    /**
+     * Completes an upload once every chunk was sent.
+     *
+     * @param uploadId (the upload id)
+     * @return (the upload, with the URL of the stored file)
+     */
+    @PostMapping("/uploads/{uploadId}/complete")
+    public ResponseEntity<UploadStatus> completeUpload(@PathVariable String uploadId) {
+        log.info("Completing upload {}", uploadId);
+        try {
+            return ResponseEntity.ok(mediaService.completeUpload(uploadId));
+        } catch (ResponseStatusException | ValidationException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "An error occurred while completing the upload", e);
+        }
+    }
+
+    private static void serve(StoredMedia media, HttpServletRequest request, HttpServletResponse response) throws IOException {
+        response.setHeader(HttpHeaders.CACHE_CONTROL, CACHE_CONTROL);
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+        if (new ServletWebRequest(request, response).checkNotModified(media.etag(), media.lastModified())) {
+            return;
+        }
+        if (MediaService.isInline(media.contentType())) {
+            response.setContentType(media.contentType().toString());
+        } else {
+            response.setContentType(MediaType.APPLICATION_OCTET_STREAM_VALUE);
+            response.setHeader(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment().build().toString());
+        }
+        response.setHeader("X-Content-Type-Options", "nosniff");
+        // Should a document still be rendered, it gets a unique origin and no scripts
+        response.setHeader("Content-Security-Policy", "sandbox");
+
+        long start = 0;
+        long length = media.size();
+        HttpRange range = requestedRange(request, media);
+        if (range != null) {
+            start = range.getRangeStart(media.size());
+            if (start >= media.size()) {
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + media.size());
+                response.setStatus(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE.value());
+                return;
+            }
+            length = range.getRangeEnd(media.size()) - start + 1;
+            response.setStatus(HttpStatus.PARTIAL_CONTENT.value());
+            response.setHeader(HttpHeaders.CONTENT_RANGE,
+                    "bytes " + start + "-" + (start + length - 1) + "/" + media.size());
+        }
+        response.setContentLengthLong(length);
+        if (!HttpMethod.HEAD.matches(request.getMethod())) {
+            send(media, start, length, request, response);
+        }
+    }
+
+    /**
+     * Returns the single range asked for, or null to send the whole file: when there is no Range header, it
+     * holds several ranges, or If-Range names another version.
+     */
+    private static HttpRange requestedRange(HttpServletRequest request, StoredMedia media) {
+        String header = request.getHeader(HttpHeaders.RANGE);
+        if (header == null) {
+            return null;
+        }
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        if (ifRange != null && !ifRange.equals(media.etag())) {
+            return null;
+        }
+        List<HttpRange> ranges;
+        try {
+            ranges = HttpRange.parseRanges(header);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+        return ranges.size() == 1 ? ranges.get(0) : null;
+    }
+
+    private static void send(StoredMedia media, long start, long length, HttpServletRequest request,
+                             HttpServletResponse response) throws IOException {
+        if (length >= SENDFILE_MIN_SIZE && Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORTED))) {
+            request.setAttribute(SENDFILE_FILENAME, media.path().toRealPath().toString());
+            request.setAttribute(SENDFILE_START, start);
+            request.setAttribute(SENDFILE_END, start + length);
+            return;
+        }
+        try (FileChannel file = FileChannel.open(media.path(), StandardOpenOption.READ)) {
+            WritableByteChannel out = Channels.newChannel(response.getOutputStream());
+            long position = start;
+            long end = start + length;
+            while (position < end) {
+                long transferred = file.transferTo(position, end - position, out);
+                if (transferred <= 0) {
+                    break;
+                }
+                position += transferred;
+            }
+        }
+    }
+}
@@ -1,16 +1,25 @@
 package com.stackoverflowcompetitor.controller;
 
+import com.stackoverflowcompetitor.dto.CursorPage;
+import com.stackoverflowcompetitor.dto.QuestionDetail;
+import com.stackoverflowcompetitor.dto.QuestionSummary;
+import com.stackoverflowcompetitor.dto.TaggedQuestions;
 import com.stackoverflowcompetitor.model.Question;
 import com.stackoverflowcompetitor.service.QuestionService;
+import com.stackoverflowcompetitor.util.Constants;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.ValidationException;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.async.WebAsyncTask;
 import org.springframework.web.server.ResponseStatusException;
 
 import java.util.List;
@@ -23,6 +32,9 @@ public class QuestionController {
     @Autowired
     private QuestionService questionService;
 
+    @Value("${app.questions.export-timeout-ms:3600000}")
+    private long exportTimeoutMs;
+
     /**
      * Posts a new question.
      *
@@ -52,45 +64,139 @@ public class QuestionController {
      * @return the top-voted questions
      */
     @GetMapping("/top-voted")
-    public ResponseEntity<Page<Question>> getTopVotedQuestions(
+    public ResponseEntity<Page<QuestionSummary>> getTopVotedQuestions(
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "5") int size) {
         log.info("Fetching top-voted questions, page: {}, size: {}", page, size);
         try {
             Pageable pageable = PageRequest.of(page, size);
-            Page<Question> topVotedQuestions = questionService.getTopVotedQuestions(pageable);
+            Page<QuestionSummary> topVotedQuestions = questionService.getTopVotedQuestions(pageable);
             return ResponseEntity.ok(topVotedQuestions);
         } catch (Exception e) {
             throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "An error occurred while getting top voted questions", e);
         }
     }
     /**
-     * Retrieves questions by tag name.
+     * Retrieves the top-voted questions with keyset pagination.
+     *
+     * @param cursor (the nextCursor of the previous page, absent for the first page)
+     * @param size   (the number of questions per page)
+     * @return (the page of questions and the cursor of the next page)
+     */
+    @GetMapping("/top-voted/cursor")
+    public ResponseEntity<CursorPage<QuestionSummary>> getTopVotedQuestionsByCursor(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "5") int size) {
+        log.info("Fetching top-voted questions, cursor: {}, size: {}", cursor, size);
+        try {
+            return ResponseEntity.ok(questionService.getTopVotedQuestions(cursor, size));
+        } catch (ValidationException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "An error occurred while getting top voted questions", e);
+        }
+    }
+
+    /**
+     * Retrieves the hot questions, ranked by votes and answers with a decay on age.
+     *
+     * @param page (the page number to retrieve)
+     * @param size (the number of questions per page)
+     * @return the hot questions
+     */
+    @GetMapping("/hot")
+    public ResponseEntity<Page<QuestionSummary>> getHotQuestions(
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "5") int size) {
+        log.info("Fetching hot questions, page: {}, size: {}", page, size);
+        try {
+            Page<QuestionSummary> hotQuestions = questionService.getHotQuestions(PageRequest.of(page, size));
+            return ResponseEntity.ok(hotQuestions);
+        } catch (Exception e) {
+            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "An error occurred while getting hot questions", e);
+        }
+    }
+
+    /**
+     * Retrieves questions by tag name with keyset pagination, along with the number of questions with the tag.
      *
-     * @param tag (the name of the tag)
-     * @return (the list of questions associated with the tag)
+     * @param tag    (the name of the tag)
+     * @param sort   (newest or score)
+     * @param cursor (the nextCursor of the previous page, absent for the first page)
+     * @param size   (the number of questions per page)
+     * @return (the tag the page was read from, its question count, the page of questions and the cursor of the next page)
      */
     @GetMapping("/by-tag")
-    public ResponseEntity<List<Question>> getQuestionsByTag(@RequestParam String tag) {
-        log.info("Fetching questions by tag: {}", tag);
+    public ResponseEntity<TaggedQuestions> getQuestionsByTag(@RequestParam String tag,
+                                                             @RequestParam(defaultValue = Constants.SORT_NEWEST) String sort,
+                                                             @RequestParam(required = false) String cursor,
+                                                             @RequestParam(defaultValue = "5") int size) {
+        log.info("Fetching questions by tag: {}, sort: {}, cursor: {}, size: {}", tag, sort, cursor, size);
         try {
-            List<Question> questions = questionService.findByTagName(tag);
-            return ResponseEntity.ok(questions);
+            return ResponseEntity.ok(questionService.findByTag(tag, sort, cursor, size));
+        } catch (ValidationException e) {
+            throw e;
         } catch (Exception e) {
             throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "An error occurred getting a question by tag", e);
         }
     }
 
+    /**
+     * Retrieves questions by a combination of tags with keyset pagination, newest first.
+     *
+     * @param all    (tags every question must have, comma-separated)
+     * @param any    (tags of which a question must have at least one, comma-separated)
+     * @param none   (tags no question may have, comma-separated)
+     * @param cursor (the nextCursor of the previous page, absent for the first page)
+     * @param size   (the number of questions per page)
+     * @return (the page of questions and the cursor of the next page)
+     */
+    @GetMapping("/by-tags")
+    public ResponseEntity<CursorPage<QuestionSummary>> getQuestionsByTags(@RequestParam(defaultValue = "") List<String> all,
+                                                                          @RequestParam(defaultValue = "") List<String> any,
+                                                                          @RequestParam(defaultValue = "") List<String> none,
+                                                                          @RequestParam(required = false) String cursor,
+                                                                          @RequestParam(defaultValue = "5") int size) {
+        log.info("Fetching questions by tags, all: {}, any: {}, none: {}, cursor: {}", all, any, none, cursor);
+        try {
+            return ResponseEntity.ok(questionService.findByTags(all, any, none, cursor, size));
+        } catch (ValidationException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "An error occurred getting questions by tags", e);
+        }
+    }
+
+    /**
+     * Retrieves all questions with keyset pagination, newest first.
+     *
+     * @param cursor (the nextCursor of the previous page, absent for the first page)
+     * @param size   (the number of questions per page)
+     * @return (the page of questions and the cursor of the next page)
+     */
+    @GetMapping("/all/cursor")
+    public ResponseEntity<CursorPage<QuestionSummary>> getAllQuestionsByCursor(@RequestParam(required = false) String cursor,
+                                                                        @RequestParam(defaultValue = "5") int size) {
+        log.info("Fetching all questions, cursor: {}, size: {}", cursor, size);
+        try {
+            return ResponseEntity.ok(questionService.getAllQuestions(cursor, size));
+        } catch (ValidationException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "An error occurred while getting all the question", e);
+        }
+    }
+
     /**
      * Retrieves all questions.
      *
      * @return (the list of all questions)
      */
     @GetMapping("/getAllQuestions")
-    public ResponseEntity<List<Question>> getAllQuestions() {
+    public ResponseEntity<List<QuestionSummary>> getAllQuestions() {
         log.info("Fetching all questions");
         try {
-            List<Question> questions = questionService.getAllQuestions();
+            List<QuestionSummary> questions = questionService.getAllQuestions();
             return ResponseEntity.ok(questions);
         } catch (Exception e) {
             throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "An error occurred while getting all the question", e);
@@ -98,16 +204,55 @@ public class QuestionController {
     }
 
     /**
-     * Retrieves questions based in searchTerm.
+     * Streams all questions as newline-delimited JSON, one question per line. The export runs asynchronously
+     * with its own timeout, app.questions.export-timeout-ms, since the container's default (30 seconds on
+     * Tomcat) would cut a large table off mid-stream.
+     *
+     * @return (the task writing the response)
+     */
+    @GetMapping(value = "/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public WebAsyncTask<Void> exportQuestions(HttpServletResponse response) {
+        log.info("Exporting all questions");
+        return new WebAsyncTask<>(exportTimeoutMs, () -> {
+            response.setContentType(MediaType.APPLICATION_NDJSON_VALUE);
+            questionService.exportQuestions(response.getOutputStream());
+            return null;
+        });
+    }
+
+    /**
+     * Retrieves a question with all its answers and replies.
+     *
+     * @param questionId (the ID of the question)
+     * @return (the question and its answer tree)
+     */
+    @GetMapping("/{questionId:\\d+}")
+    public ResponseEntity<QuestionDetail> getQuestion(@PathVariable Long questionId) {
+        log.info("Fetching question: {}", questionId);
+        try {
+            return ResponseEntity.ok(questionService.getQuestionDetail(questionId));
+        } catch (ResponseStatusException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "An error occurred while getting the question", e);
+        }
+    }
+
+    /**
+     * Retrieves questions based in searchTerm, most relevant first.
      * @param searchTerm (the searchTerm)
-     * @return (the list of questions)
+     * @param cursor     (the nextCursor of the previous page, absent for the first page)
+     * @param limit      (the number of questions per page)
+     * @return (the page of questions and the cursor of the next page)
      */
 
     @GetMapping("/search")
-    public ResponseEntity<List<Question>> searchQuestions(@RequestParam String searchTerm) {
+    public ResponseEntity<CursorPage<QuestionSummary>> searchQuestions(@RequestParam String searchTerm,
+                                                                       @RequestParam(required = false) String cursor,
+                                                                       @RequestParam(defaultValue = "" + Constants.DEFAULT_SEARCH_LIMIT) int limit) {
         log.info("Fetching questions by term: {}", searchTerm);
         try {
-            List<Question> questions = questionService.searchQuestions(searchTerm);
+            CursorPage<QuestionSummary> questions = questionService.searchQuestions(searchTerm, cursor, limit);
             return ResponseEntity.ok(questions);
         }catch (ValidationException e) {
             throw e;
@@ -0,0 +1,68 @@
+package com.stackoverflowcompetitor.controller;
+
+import com.stackoverflowcompetitor.dto.CursorPage;
+import com.stackoverflowcompetitor.dto.SearchResult;
+import com.stackoverflowcompetitor.dto.Suggestions;
+import com.stackoverflowcompetitor.service.QuestionService;
+import com.stackoverflowcompetitor.util.Constants;
+import jakarta.validation.ValidationException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+
+@RestController
+@RequestMapping("/search")
+@Slf4j
+public class SearchController {
+
+    @Autowired
+    private QuestionService questionService;
+
+    /**
+     * Searches questions and answers together, most relevant first, one result per question.
+     *
+     * @param searchTerm (the searchTerm)
+     * @param cursor     (the nextCursor of the previous page, absent for the first page)
+     * @param limit      (the number of questions per page)
+     * @return (the page of questions with their matched snippets and the cursor of the next page)
+     */
+    @GetMapping
+    public ResponseEntity<CursorPage<SearchResult>> search(@RequestParam String searchTerm,
+                                                           @RequestParam(required = false) String cursor,
+                                                           @RequestParam(defaultValue = "" + Constants.DEFAULT_SEARCH_LIMIT) int limit) {
+        log.info("Searching questions and answers by term: {}", searchTerm);
+        try {
+            return ResponseEntity.ok(questionService.search(searchTerm, cursor, limit));
+        } catch (ValidationException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "An error occurred while searching", e);
+        }
+    }
+
+    /**
+     * Suggests known tag names and title words close to a possibly misspelled term.
+     *
+     * @param term  (the term as typed)
+     * @param limit (the maximum number of tags and of title words)
+     * @return (the suggested tags and title words, closest first)
+     */
+    @GetMapping("/suggestions")
+    public ResponseEntity<Suggestions> suggest(@RequestParam String term,
+                                               @RequestParam(defaultValue = "" + Constants.DEFAULT_SUGGESTION_LIMIT) int limit) {
+        log.info("Suggesting terms close to: {}", term);
+        try {
+            return ResponseEntity.ok(questionService.suggest(term, limit));
+        } catch (ValidationException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "An error occurred while suggesting terms", e);
+        }
+    }
+}
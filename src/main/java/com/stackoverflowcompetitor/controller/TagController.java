@@ -0,0 +1,46 @@
+package com.stackoverflowcompetitor.controller;
+
+import com.stackoverflowcompetitor.dto.TagSuggestion;
+import com.stackoverflowcompetitor.service.TagService;
+import com.stackoverflowcompetitor.util.Constants;
+import jakarta.validation.ValidationException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/tags")
+@Slf4j
+public class TagController {
+
+    @Autowired
+    private TagService tagService;
+
+    /**
+     * Suggests tags as their name is typed.
+     *
+     * @param prefix (the start of the tag name, ignoring case)
+     * @param limit  (the maximum number of tags)
+     * @return (the tags starting with the prefix, with the most questions first)
+     */
+    @GetMapping("/suggest")
+    public ResponseEntity<List<TagSuggestion>> suggest(@RequestParam String prefix,
+                                                       @RequestParam(defaultValue = "" + Constants.DEFAULT_SUGGESTION_LIMIT) int limit) {
+        log.info("Suggesting tags starting with: {}", prefix);
+        try {
+            return ResponseEntity.ok(tagService.suggest(prefix, limit));
+        } catch (ValidationException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "An error occurred while suggesting tags", e);
+        }
+    }
+}
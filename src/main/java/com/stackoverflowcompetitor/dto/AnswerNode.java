@@ -0,0 +1,17 @@
+package com.stackoverflowcompetitor.dto;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * An answer or reply in the question detail tree; {@code replies} is filled while the tree is built.
+ */
+public record AnswerNode(Long id, String content, String mediaUrl, long score, long upvoteCount, long downvoteCount,
+                         String author, Date createdTime, List<AnswerNode> replies) {
+
+    public AnswerNode(Long id, String content, String mediaUrl, long score, long upvoteCount, long downvoteCount,
+                      String author, Date createdTime) {
+        this(id, content, mediaUrl, score, upvoteCount, downvoteCount, author, createdTime, new ArrayList<>());
+    }
+}
@@ -0,0 +1,13 @@
+package com.stackoverflowcompetitor.dto;
+
+/**
+ * Processing status of a stored file and, once processed, the dimensions and format of the image and the URL of
+ * its thumbnail.
+ */
+public record MediaInfo(String id, MediaStatus status, Integer width, Integer height, String format,
+                        String thumbnailUrl, String error) {
+
+    public static MediaInfo of(String id, MediaStatus status) {
+        return new MediaInfo(id, status, null, null, null, null, null);
+    }
+}
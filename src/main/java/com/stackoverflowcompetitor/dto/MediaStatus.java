@@ -0,0 +1,15 @@
+package com.stackoverflowcompetitor.dto;
+
+/**
+ * Where a stored file is in background processing.
+ */
+public enum MediaStatus {
+    QUEUED,
+    PROCESSING,
+    DONE,
+    FAILED,
+    // Not an image any available reader decodes
+    UNSUPPORTED,
+    // The queue was full; asking for the media info queues it again
+    SKIPPED
+}
@@ -0,0 +1,11 @@
+package com.stackoverflowcompetitor.dto;
+
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Read model of the question page: the question with its whole answer tree.
+ */
+public record QuestionDetail(Long id, String title, String content, long score, long upvoteCount, long downvoteCount,
+                             String author, List<String> tags, Date createdTime, List<AnswerNode> answers) {
+}
@@ -0,0 +1,11 @@
+package com.stackoverflowcompetitor.dto;
+
+import java.util.Date;
+
+/**
+ * One line of the NDJSON question export, selected straight from the question columns so that no association
+ * is loaded while the export result set is still streaming.
+ */
+public record QuestionExport(Long id, String title, String content, long score, long upvoteCount,
+                             long downvoteCount, Date createdTime, Date modifiedTime) {
+}
@@ -0,0 +1,25 @@
+package com.stackoverflowcompetitor.dto;
+
+import com.stackoverflowcompetitor.repository.QuestionSummaryView;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Read model returned by the question list endpoints instead of the {@code Question} entity graph.
+ */
+public record QuestionSummary(Long id, String title, String excerpt, List<String> tags, long score,
+                              long answerCount, String author) {
+
+    public static QuestionSummary from(QuestionSummaryView view) {
+        return new QuestionSummary(view.getId(), view.getTitle(), view.getExcerpt(), tagsOf(view.getTagNames()),
+                view.getScore(), view.getAnswerCount(), view.getAuthor());
+    }
+
+    /**
+     * Splits the comma-separated tag names produced by GROUP_CONCAT.
+     */
+    public static List<String> tagsOf(String tagNames) {
+        return tagNames == null ? List.of() : Arrays.asList(tagNames.split(","));
+    }
+}
@@ -0,0 +1,15 @@
+package com.stackoverflowcompetitor.dto;
+
+import java.util.List;
+
+/**
+ * One question in the unified search results. {@code answerId} is the answer that matched best, or null when
+ * the question's own title or content did; {@code snippet} is the part of that text around the match and
+ * {@code highlights} are the [start, end) character ranges of the query within the snippet.
+ */
+public record SearchResult(QuestionSummary question, Long answerId, double score, String snippet,
+                           List<Highlight> highlights) {
+
+    public record Highlight(int start, int end) {
+    }
+}
@@ -0,0 +1,10 @@
+package com.stackoverflowcompetitor.dto;
+
+import java.util.List;
+
+/**
+ * Spelling suggestions for a search term: known tag names and question title words within a few edits of it,
+ * closest first.
+ */
+public record Suggestions(String term, List<String> tags, List<String> titleWords) {
+}
@@ -0,0 +1,7 @@
+package com.stackoverflowcompetitor.dto;
+
+/**
+ * A tag whose name starts with the typed prefix, with the number of questions tagged with it.
+ */
+public record TagSuggestion(String name, long questionCount) {
+}
@@ -0,0 +1,10 @@
+package com.stackoverflowcompetitor.dto;
+
+import java.util.List;
+
+/**
+ * A page of the questions with a tag, and the total number of questions with it. The tag is the one the page
+ * was read from, which is the closest known tag when the requested one had no questions.
+ */
+public record TaggedQuestions(String tag, long questionCount, List<QuestionSummary> content, String nextCursor) {
+}
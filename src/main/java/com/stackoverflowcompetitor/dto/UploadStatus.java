@@ -0,0 +1,11 @@
+package com.stackoverflowcompetitor.dto;
+
+import java.util.List;
+
+/**
+ * Progress of a chunked upload: chunk {@code i} covers bytes {@code i * chunkSize} up to the next chunk or the
+ * end of the file. The media URL is set once the upload is complete.
+ */
+public record UploadStatus(String uploadId, long size, int chunkSize, int chunkCount, List<Integer> missingChunks,
+                           String mediaUrl) {
+}
@@ -2,11 +2,19 @@ package com.stackoverflowcompetitor.model;
 
 import com.fasterxml.jackson.annotation.JsonBackReference;
 import com.fasterxml.jackson.annotation.JsonManagedReference;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.stackoverflowcompetitor.util.AnswerPathUtil;
 import jakarta.persistence.*;
 import lombok.Data;
 import java.util.List;
 
 @Entity
+@Table(indexes = {
+        @Index(name = "idx_answer_score_id", columnList = "score, id"),
+        @Index(name = "idx_answer_path", columnList = "path"),
+        @Index(name = "idx_answer_modified_time", columnList = "modified_time"),
+        @Index(name = "idx_answer_media_url", columnList = "media_url")
+})
 @Data
 public class Answer extends DateTimeCreation{
 
@@ -19,6 +27,28 @@ public class Answer extends DateTimeCreation{
 
     private String mediaUrl;
 
+    // Materialized path of the reply hierarchy (see AnswerPathUtil); depth is 0 for answers to the question
+    @Column(length = AnswerPathUtil.MAX_PATH_LENGTH)
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private String path;
+
+    @Column(nullable = false)
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private int depth;
+
+    // Denormalized vote counters, maintained by VoteService so listings never aggregate the vote table
+    @Column(nullable = false)
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private long score;
+
+    @Column(nullable = false)
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private long upvoteCount;
+
+    @Column(nullable = false)
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private long downvoteCount;
+
     @ManyToOne
     @JoinColumn(name = "user_id", nullable = false)
     @JsonBackReference(value = "user-answers")
@@ -2,11 +2,17 @@ package com.stackoverflowcompetitor.model;
 
 import com.fasterxml.jackson.annotation.JsonBackReference;
 import com.fasterxml.jackson.annotation.JsonManagedReference;
+import com.fasterxml.jackson.annotation.JsonProperty;
 import jakarta.persistence.*;
 import lombok.Data;
 import java.util.List;
 
 @Entity
+@Table(indexes = {
+        @Index(name = "idx_question_score_id", columnList = "score, id"),
+        @Index(name = "idx_question_created_id", columnList = "created_time, id"),
+        @Index(name = "idx_question_modified_time", columnList = "modified_time")
+})
 @Data
 public class Question extends DateTimeCreation{
 
@@ -20,7 +26,20 @@ public class Question extends DateTimeCreation{
     @Column(nullable = false, length = 2000)
     private String content;
 
-    @ManyToOne
+    // Denormalized vote counters, maintained by VoteService so listings never aggregate the vote table
+    @Column(nullable = false)
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private long score;
+
+    @Column(nullable = false)
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private long upvoteCount;
+
+    @Column(nullable = false)
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private long downvoteCount;
+
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "user_id", nullable = false)
     @JsonBackReference(value = "user-questions")
     private User user;
@@ -29,7 +48,8 @@ public class Question extends DateTimeCreation{
     @JoinTable(
             name = "question_tag",
             joinColumns = @JoinColumn(name = "question_id"),
-            inverseJoinColumns = @JoinColumn(name = "tag_id"))
+            inverseJoinColumns = @JoinColumn(name = "tag_id"),
+            indexes = @Index(name = "idx_question_tag_tag_question", columnList = "tag_id, question_id"))
     private List<Tag> tags;
 
     @OneToMany(mappedBy = "question", cascade = CascadeType.ALL, orphanRemoval = true)
@@ -1,6 +1,7 @@
 package com.stackoverflowcompetitor.model;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
 import jakarta.persistence.*;
 import lombok.Data;
 import java.util.List;
@@ -16,6 +17,11 @@ public class Tag extends DateTimeCreation{
     @Column(nullable = false, unique = true, length = 15)
     private String name;
 
+    // Denormalized number of questions with this tag, maintained by QuestionService so listings never count question_tag
+    @Column(nullable = false)
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private long questionCount;
+
     @ManyToMany(mappedBy = "tags")
     @JsonIgnore
     private List<Question> questions;
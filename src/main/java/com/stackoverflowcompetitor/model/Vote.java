@@ -5,10 +5,14 @@ import jakarta.persistence.*;
 import lombok.Data;
 
 @Entity
+@Table(uniqueConstraints = {
+        @UniqueConstraint(name = "uk_vote_user_question", columnNames = {"user_id", "question_id"}),
+        @UniqueConstraint(name = "uk_vote_user_answer", columnNames = {"user_id", "answer_id"})
+})
 @Data
 public class Vote extends DateTimeCreation{
     @Id
-    @GeneratedValue(strategy = GenerationType.AUTO)
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
 
     @Column(columnDefinition = "TINYINT(1)", nullable = false)
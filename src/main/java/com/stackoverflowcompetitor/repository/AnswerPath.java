@@ -0,0 +1,10 @@
+package com.stackoverflowcompetitor.repository;
+
+/**
+ * Id of an answer and its materialized path, which is null until the answer-paths backfill reaches it. Selecting
+ * the id as well tells such an answer apart from one that does not exist.
+ */
+public interface AnswerPath {
+    Long getId();
+    String getPath();
+}
@@ -0,0 +1,9 @@
+package com.stackoverflowcompetitor.repository;
+
+/**
+ * Id of an answer and of the question it belongs to, used to group answer search hits by question.
+ */
+public interface AnswerQuestion {
+    Long getId();
+    Long getQuestionId();
+}
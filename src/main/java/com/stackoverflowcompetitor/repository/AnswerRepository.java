@@ -1,15 +1,91 @@
 package com.stackoverflowcompetitor.repository;
 
 import com.stackoverflowcompetitor.model.Answer;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.Date;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface AnswerRepository extends JpaRepository<Answer, Long> {
-    @Query("SELECT a FROM Answer a WHERE LOWER(a.content) LIKE LOWER(CONCAT('%', :searchTerm, '%'))")
-    List<Answer> searchAnswerByContent(@Param("searchTerm") String searchTerm);
+    @Query("SELECT a FROM Answer a WHERE LOWER(a.content) LIKE LOWER(CONCAT('%', :searchTerm, '%')) ORDER BY a.id DESC")
+    List<Answer> searchAnswerByContent(@Param("searchTerm") String searchTerm, Pageable pageable);
+
+    @Modifying
+    @Query("UPDATE Answer a SET a.upvoteCount = a.upvoteCount + :upvoteDelta, " +
+            "a.downvoteCount = a.downvoteCount + :downvoteDelta, " +
+            "a.score = a.score + :upvoteDelta - :downvoteDelta " +
+            "WHERE a.id = :answerId")
+    int applyVoteDelta(@Param("answerId") Long answerId,
+                       @Param("upvoteDelta") long upvoteDelta,
+                       @Param("downvoteDelta") long downvoteDelta);
+
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "" + Integer.MIN_VALUE))
+    @Query("SELECT a.id AS id, '' AS title, a.content AS content FROM Answer a ORDER BY a.id")
+    Stream<SearchDocument> streamSearchDocuments();
+
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "" + Integer.MIN_VALUE))
+    @Query("SELECT a.id AS id, '' AS title, a.content AS content FROM Answer a WHERE a.modifiedTime >= :since ORDER BY a.id")
+    Stream<SearchDocument> streamSearchDocumentsModifiedSince(@Param("since") Date since);
+
+    @Query("SELECT a.id AS id, '' AS title, a.content AS content FROM Answer a WHERE a.id IN :ids")
+    List<SearchDocument> findSearchDocumentsByIdIn(@Param("ids") Collection<Long> ids);
+
+    @Query("SELECT a.id AS id, a.question.id AS questionId FROM Answer a WHERE a.id IN :ids")
+    List<AnswerQuestion> findQuestionIdsByIdIn(@Param("ids") Collection<Long> ids);
+
+    @Query("SELECT a.mediaUrl AS mediaUrl, COUNT(a) AS referenceCount FROM Answer a " +
+            "WHERE a.mediaUrl IN :mediaUrls GROUP BY a.mediaUrl")
+    List<MediaReference> countByMediaUrlIn(@Param("mediaUrls") Collection<String> mediaUrls);
+
+    // Media URLs written before /media/{id}: the stored file's path
+    @Query("SELECT DISTINCT a.mediaUrl FROM Answer a WHERE a.mediaUrl NOT LIKE '/media/%'")
+    List<String> findLegacyMediaUrls();
+
+    @Modifying
+    @Query("UPDATE Answer a SET a.mediaUrl = :mediaUrl WHERE a.mediaUrl = :legacyUrl")
+    int updateMediaUrl(@Param("legacyUrl") String legacyUrl, @Param("mediaUrl") String mediaUrl);
+
+    @Query("SELECT a.id AS id, a.path AS path FROM Answer a WHERE a.id = :answerId")
+    Optional<AnswerPath> findPathById(@Param("answerId") Long answerId);
+
+    @Query("SELECT a.id AS id, a.parentAnswer.id AS parentAnswerId, a.content AS content, a.mediaUrl AS mediaUrl, " +
+            "a.score AS score, a.upvoteCount AS upvoteCount, a.downvoteCount AS downvoteCount, " +
+            "u.username AS author, a.createdTime AS createdTime " +
+            "FROM Answer a JOIN a.user u " +
+            "WHERE a.path >= :path AND a.path < :pathEnd AND a.depth <= :maxDepth ORDER BY a.path")
+    List<AnswerRow> findSubtree(@Param("path") String path, @Param("pathEnd") String pathEnd, @Param("maxDepth") int maxDepth);
+
+    @Query("SELECT COUNT(a) FROM Answer a WHERE a.path > :path AND a.path < :pathEnd")
+    long countDescendants(@Param("path") String path, @Param("pathEnd") String pathEnd);
+
+    @Modifying
+    @Query(value = "UPDATE answer SET path = CONCAT(LPAD(id, 10, '0'), '/'), depth = 0 " +
+            "WHERE parent_answer_id IS NULL AND path IS NULL", nativeQuery = true)
+    int backfillRootPaths();
+
+    // Fills one level of the hierarchy per call; repeat until it updates nothing
+    @Modifying
+    @Query(value = "UPDATE answer c JOIN answer p ON c.parent_answer_id = p.id " +
+            "SET c.path = CONCAT(p.path, LPAD(c.id, 10, '0'), '/'), c.depth = p.depth + 1 " +
+            "WHERE c.path IS NULL AND p.path IS NOT NULL", nativeQuery = true)
+    int backfillChildPaths();
+
+    @Modifying
+    @Query(value = "UPDATE answer a SET " +
+            "a.upvote_count = (SELECT COUNT(*) FROM vote v WHERE v.answer_id = a.id AND v.is_upvote = 1), " +
+            "a.downvote_count = (SELECT COUNT(*) FROM vote v WHERE v.answer_id = a.id AND v.is_upvote = 0), " +
+            "a.score = a.upvote_count - a.downvote_count", nativeQuery = true)
+    int recalculateVoteCounts();
 }
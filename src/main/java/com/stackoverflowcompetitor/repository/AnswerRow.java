@@ -0,0 +1,18 @@
+package com.stackoverflowcompetitor.repository;
+
+import java.util.Date;
+
+/**
+ * Flat answer row used to rebuild a reply subtree in memory.
+ */
+public interface AnswerRow {
+    Long getId();
+    Long getParentAnswerId();
+    String getContent();
+    String getMediaUrl();
+    long getScore();
+    long getUpvoteCount();
+    long getDownvoteCount();
+    String getAuthor();
+    Date getCreatedTime();
+}
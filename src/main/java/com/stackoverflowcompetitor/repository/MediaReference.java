@@ -0,0 +1,9 @@
+package com.stackoverflowcompetitor.repository;
+
+/**
+ * A media URL and the number of answers referring to it, used to find stored media no answer uses.
+ */
+public interface MediaReference {
+    String getMediaUrl();
+    long getReferenceCount();
+}
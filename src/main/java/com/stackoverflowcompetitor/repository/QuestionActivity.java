@@ -0,0 +1,16 @@
+package com.stackoverflowcompetitor.repository;
+
+import java.util.Date;
+
+/**
+ * Projection of the per-question signals used by the hot ranking.
+ */
+public interface QuestionActivity {
+    Long getId();
+
+    long getScore();
+
+    Date getCreatedTime();
+
+    long getAnswerCount();
+}
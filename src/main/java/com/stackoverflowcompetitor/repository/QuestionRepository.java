@@ -1,25 +1,149 @@
 package com.stackoverflowcompetitor.repository;
 
+import com.stackoverflowcompetitor.dto.QuestionExport;
 import com.stackoverflowcompetitor.model.Question;
+import com.stackoverflowcompetitor.util.Constants;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.Date;
 import java.util.List;
+import java.util.stream.Stream;
 
 @Repository
 public interface QuestionRepository extends JpaRepository<Question, Long> {
-    @Query("SELECT q FROM Question q " +
-            "LEFT JOIN q.votes v " +
-            "GROUP BY q " +
-            "ORDER BY SUM(CASE WHEN v.isUpvote = true THEN 1 ELSE 0 END) - SUM(CASE WHEN v.isUpvote = false THEN 1 ELSE 0 END) DESC")
+    String SUMMARY_SELECT = "SELECT q.id AS id, q.title AS title, LEFT(q.content, " + Constants.EXCERPT_LENGTH + ") AS excerpt, " +
+            "q.score AS score, u.username AS author, " +
+            "(SELECT COUNT(*) FROM answer a WHERE a.question_id = q.id) AS answerCount, " +
+            "(SELECT GROUP_CONCAT(t.name ORDER BY t.name SEPARATOR ',') FROM question_tag qt " +
+            "JOIN tag t ON t.id = qt.tag_id WHERE qt.question_id = q.id) AS tagNames " +
+            "FROM question q JOIN user u ON u.id = q.user_id ";
+
+    @Query(value = SUMMARY_SELECT + "WHERE q.id IN (:ids)", nativeQuery = true)
+    List<QuestionSummaryView> findSummariesByIdIn(@Param("ids") Collection<Long> ids);
+
+    @Query(value = SUMMARY_SELECT + "ORDER BY q.id", nativeQuery = true)
+    List<QuestionSummaryView> findAllSummaries();
+
+    // One row per answer or reply, parents before their replies since a reply is always created after its parent
+    @Query(value = "SELECT q.id AS questionId, q.title AS title, q.content AS questionContent, q.score AS questionScore, " +
+            "q.upvote_count AS questionUpvoteCount, q.downvote_count AS questionDownvoteCount, " +
+            "qu.username AS questionAuthor, q.created_time AS questionCreatedTime, tg.tag_names AS tagNames, " +
+            "a.id AS answerId, a.parent_answer_id AS parentAnswerId, a.content AS answerContent, a.media_url AS mediaUrl, " +
+            "a.score AS answerScore, a.upvote_count AS answerUpvoteCount, a.downvote_count AS answerDownvoteCount, " +
+            "au.username AS answerAuthor, a.created_time AS answerCreatedTime " +
+            "FROM question q JOIN user qu ON qu.id = q.user_id " +
+            "LEFT JOIN (SELECT qt.question_id, GROUP_CONCAT(t.name ORDER BY t.name SEPARATOR ',') AS tag_names " +
+            "FROM question_tag qt JOIN tag t ON t.id = qt.tag_id WHERE qt.question_id = :id GROUP BY qt.question_id) tg " +
+            "ON tg.question_id = q.id " +
+            "LEFT JOIN answer a ON a.question_id = q.id " +
+            "LEFT JOIN user au ON au.id = a.user_id " +
+            "WHERE q.id = :id ORDER BY a.created_time, a.id", nativeQuery = true)
+    List<QuestionTreeRow> findQuestionTree(@Param("id") Long id);
+
+    @Query(value = "SELECT q FROM Question q ORDER BY q.score DESC, q.id DESC",
+            countQuery = "SELECT COUNT(q) FROM Question q")
     Page<Question> findTopVotedQuestions(Pageable pageable);
 
-    List<Question> findByTags_Name(String tagName);
+    // A fetch size of Integer.MIN_VALUE makes MySQL Connector/J stream rows instead of buffering the whole result.
+    // Only columns are selected: no other statement may run on the connection while the rows stream, so loading
+    // an association (an EAGER one included) mid-stream would fail.
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "" + Integer.MIN_VALUE))
+    @Query("SELECT new com.stackoverflowcompetitor.dto.QuestionExport(q.id, q.title, q.content, q.score, " +
+            "q.upvoteCount, q.downvoteCount, q.createdTime, q.modifiedTime) FROM Question q ORDER BY q.id")
+    Stream<QuestionExport> streamExports();
+
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "" + Integer.MIN_VALUE))
+    @Query("SELECT q.id AS id, q.title AS title, q.content AS content FROM Question q ORDER BY q.id")
+    Stream<SearchDocument> streamSearchDocuments();
+
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "" + Integer.MIN_VALUE))
+    @Query("SELECT q.id AS id, q.title AS title, q.content AS content FROM Question q WHERE q.modifiedTime >= :since ORDER BY q.id")
+    Stream<SearchDocument> streamSearchDocumentsModifiedSince(@Param("since") Date since);
+
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "" + Integer.MIN_VALUE))
+    @Query("SELECT q.title FROM Question q")
+    Stream<String> streamTitles();
+
+    @Query("SELECT q.id AS id, q.title AS title, q.content AS content FROM Question q WHERE q.id IN :ids")
+    List<SearchDocument> findSearchDocumentsByIdIn(@Param("ids") Collection<Long> ids);
+
+    @Query("SELECT q.id FROM Question q ORDER BY q.score DESC, q.id DESC")
+    List<Long> findTopVotedQuestionIds(Pageable pageable);
+
+    @Query("SELECT q.id AS id, q.score AS score FROM Question q")
+    List<QuestionScore> findAllScores();
+
+    @Query("SELECT q.id AS id, q.score AS score, q.createdTime AS createdTime, COUNT(a) AS answerCount " +
+            "FROM Question q LEFT JOIN q.answers a GROUP BY q.id, q.score, q.createdTime")
+    List<QuestionActivity> findAllActivity();
+
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "" + Integer.MIN_VALUE))
+    @Query("SELECT q.id AS questionId, t.name AS tagName FROM Question q JOIN q.tags t")
+    Stream<QuestionTag> streamQuestionTags();
+
+    // Used until the tag index is loaded; the tag lists are never empty, an unused filter is disabled by its flag
+    @Query("SELECT q.id FROM Question q WHERE q.id < :before " +
+            "AND (:filterAll = false OR (SELECT COUNT(DISTINCT t.id) FROM q.tags t WHERE t.name IN :all) = :allCount) " +
+            "AND (:filterAny = false OR EXISTS (SELECT t.id FROM q.tags t WHERE t.name IN :any)) " +
+            "AND NOT EXISTS (SELECT t.id FROM q.tags t WHERE t.name IN :none) ORDER BY q.id DESC")
+    List<Long> findIdsByTagsBefore(@Param("filterAll") boolean filterAll, @Param("all") Collection<String> all,
+                                   @Param("allCount") long allCount, @Param("filterAny") boolean filterAny,
+                                   @Param("any") Collection<String> any, @Param("none") Collection<String> none,
+                                   @Param("before") long before, Pageable pageable);
+
+    // Keyset pagination: each query reads only the requested rows from its index and never counts
+
+    List<Question> findAllByOrderByScoreDescIdDesc(Pageable pageable);
+
+    @Query("SELECT q FROM Question q WHERE q.score <= :score AND (q.score < :score OR q.id < :id) " +
+            "ORDER BY q.score DESC, q.id DESC")
+    List<Question> findTopVotedAfter(@Param("score") long score, @Param("id") Long id, Pageable pageable);
+
+    List<Question> findAllByOrderByCreatedTimeDescIdDesc(Pageable pageable);
+
+    @Query("SELECT q FROM Question q WHERE q.createdTime <= :createdTime AND (q.createdTime < :createdTime OR q.id < :id) " +
+            "ORDER BY q.createdTime DESC, q.id DESC")
+    List<Question> findNewestAfter(@Param("createdTime") Date createdTime, @Param("id") Long id, Pageable pageable);
+
+    List<Question> findByTags_NameOrderByIdDesc(String tagName, Pageable pageable);
+
+    @Query("SELECT q FROM Question q JOIN q.tags t WHERE t.name = :tagName AND q.id < :id ORDER BY q.id DESC")
+    List<Question> findByTagNameBefore(@Param("tagName") String tagName, @Param("id") Long id, Pageable pageable);
+
+    @Query("SELECT q FROM Question q JOIN q.tags t WHERE t.name = :tagName ORDER BY q.score DESC, q.id DESC")
+    List<Question> findByTagNameOrderByScore(@Param("tagName") String tagName, Pageable pageable);
+
+    @Query("SELECT q FROM Question q JOIN q.tags t WHERE t.name = :tagName " +
+            "AND q.score <= :score AND (q.score < :score OR q.id < :id) ORDER BY q.score DESC, q.id DESC")
+    List<Question> findByTagNameAfterScore(@Param("tagName") String tagName, @Param("score") long score,
+                                           @Param("id") Long id, Pageable pageable);
+
+    @Query("SELECT q FROM Question q WHERE LOWER(q.title) LIKE LOWER(CONCAT('%', :searchTerm, '%')) OR LOWER(q.content) LIKE LOWER(CONCAT('%', :searchTerm, '%')) ORDER BY q.id DESC")
+    List<Question> searchQuestionsByTitleOrContent(@Param("searchTerm") String searchTerm, Pageable pageable);
+
+    @Modifying
+    @Query("UPDATE Question q SET q.upvoteCount = q.upvoteCount + :upvoteDelta, " +
+            "q.downvoteCount = q.downvoteCount + :downvoteDelta, " +
+            "q.score = q.score + :upvoteDelta - :downvoteDelta " +
+            "WHERE q.id = :questionId")
+    int applyVoteDelta(@Param("questionId") Long questionId,
+                       @Param("upvoteDelta") long upvoteDelta,
+                       @Param("downvoteDelta") long downvoteDelta);
 
-    @Query("SELECT q FROM Question q WHERE LOWER(q.title) LIKE LOWER(CONCAT('%', :searchTerm, '%')) OR LOWER(q.content) LIKE LOWER(CONCAT('%', :searchTerm, '%'))")
-    List<Question> searchQuestionsByTitleOrContent(@Param("searchTerm") String searchTerm);
+    @Modifying
+    @Query(value = "UPDATE question q SET " +
+            "q.upvote_count = (SELECT COUNT(*) FROM vote v WHERE v.question_id = q.id AND v.is_upvote = 1), " +
+            "q.downvote_count = (SELECT COUNT(*) FROM vote v WHERE v.question_id = q.id AND v.is_upvote = 0), " +
+            "q.score = q.upvote_count - q.downvote_count", nativeQuery = true)
+    int recalculateVoteCounts();
 }
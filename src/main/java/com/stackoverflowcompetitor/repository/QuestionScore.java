@@ -0,0 +1,10 @@
+package com.stackoverflowcompetitor.repository;
+
+/**
+ * Projection of a question's id and denormalized score, used to rebuild in-memory rankings.
+ */
+public interface QuestionScore {
+    Long getId();
+
+    long getScore();
+}
@@ -0,0 +1,14 @@
+package com.stackoverflowcompetitor.repository;
+
+/**
+ * Flat row behind the question list endpoints; tag names arrive comma-separated from GROUP_CONCAT.
+ */
+public interface QuestionSummaryView {
+    Long getId();
+    String getTitle();
+    String getExcerpt();
+    long getScore();
+    long getAnswerCount();
+    String getAuthor();
+    String getTagNames();
+}
@@ -0,0 +1,10 @@
+package com.stackoverflowcompetitor.repository;
+
+/**
+ * One row of question_tag with the tag's name, used to load the in-memory tag index.
+ */
+public interface QuestionTag {
+    Long getQuestionId();
+
+    String getTagName();
+}
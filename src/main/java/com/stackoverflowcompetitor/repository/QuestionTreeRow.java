@@ -0,0 +1,28 @@
+package com.stackoverflowcompetitor.repository;
+
+import java.util.Date;
+
+/**
+ * One row of the question detail query: the question columns repeated on every row, joined with one of
+ * its answers or replies. The answer columns are null when the question has no answers.
+ */
+public interface QuestionTreeRow {
+    Long getQuestionId();
+    String getTitle();
+    String getQuestionContent();
+    long getQuestionScore();
+    long getQuestionUpvoteCount();
+    long getQuestionDownvoteCount();
+    String getQuestionAuthor();
+    Date getQuestionCreatedTime();
+    String getTagNames();
+    Long getAnswerId();
+    Long getParentAnswerId();
+    String getAnswerContent();
+    String getMediaUrl();
+    Long getAnswerScore();
+    Long getAnswerUpvoteCount();
+    Long getAnswerDownvoteCount();
+    String getAnswerAuthor();
+    Date getAnswerCreatedTime();
+}
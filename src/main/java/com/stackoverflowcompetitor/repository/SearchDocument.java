@@ -0,0 +1,10 @@
+package com.stackoverflowcompetitor.repository;
+
+/**
+ * Id and searchable text of a question or answer, streamed to build the search index.
+ */
+public interface SearchDocument {
+    Long getId();
+    String getTitle();
+    String getContent();
+}
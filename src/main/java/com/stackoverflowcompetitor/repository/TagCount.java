@@ -0,0 +1,9 @@
+package com.stackoverflowcompetitor.repository;
+
+/**
+ * Name of a tag and its question counter, used to rank tag suggestions.
+ */
+public interface TagCount {
+    String getName();
+    long getQuestionCount();
+}
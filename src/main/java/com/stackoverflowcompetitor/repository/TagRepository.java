@@ -1,9 +1,39 @@
 package com.stackoverflowcompetitor.repository;
 
 import com.stackoverflowcompetitor.model.Tag;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
 @Repository
 public interface TagRepository extends JpaRepository<Tag, Long> {
+
+    @Query("SELECT t.name FROM Tag t")
+    List<String> findAllNames();
+
+    @Query("SELECT t.name AS name, t.questionCount AS questionCount FROM Tag t")
+    List<TagCount> findAllWithQuestionCounts();
+
+    @Query("SELECT t.name AS name, t.questionCount AS questionCount FROM Tag t " +
+            "WHERE t.name LIKE CONCAT(:prefix, '%') ORDER BY t.questionCount DESC, t.name")
+    List<TagCount> findByNamePrefixWithQuestionCounts(@Param("prefix") String prefix, Pageable pageable);
+
+    @Query("SELECT t.questionCount FROM Tag t WHERE t.name = :name")
+    Optional<Long> findQuestionCountByName(@Param("name") String name);
+
+    @Modifying
+    @Query("UPDATE Tag t SET t.questionCount = t.questionCount + 1 WHERE t.id IN :ids")
+    int incrementQuestionCounts(@Param("ids") Collection<Long> ids);
+
+    @Modifying
+    @Query(value = "UPDATE tag t SET t.question_count = " +
+            "(SELECT COUNT(*) FROM question_tag qt WHERE qt.tag_id = t.id)", nativeQuery = true)
+    int recalculateQuestionCounts();
 }
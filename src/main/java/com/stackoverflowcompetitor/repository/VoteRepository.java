@@ -1,14 +1,53 @@
 package com.stackoverflowcompetitor.repository;
 
 
-import com.stackoverflowcompetitor.model.Answer;
-import com.stackoverflowcompetitor.model.Question;
-import com.stackoverflowcompetitor.model.User;
 import com.stackoverflowcompetitor.model.Vote;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+/**
+ * Votes are toggled with native statements that rely on the (user, question) and (user, answer) unique keys,
+ * so create/flip/reset never needs a read beforehand.
+ * The upserts return 1 when a vote was inserted, 2 when an existing vote was flipped and 0 when the target does not exist.
+ */
 public interface VoteRepository extends JpaRepository<Vote, Long> {
-    Vote findByUserAndQuestion(User user, Question question);
-    Vote findByUserAndAnswer(User user, Answer answer);
+
+    @Modifying
+    @Query(value = "DELETE FROM vote WHERE user_id = :userId AND question_id = :questionId AND is_upvote = :isUpvote",
+            nativeQuery = true)
+    int deleteQuestionVote(@Param("userId") Long userId,
+                           @Param("questionId") Long questionId,
+                           @Param("isUpvote") boolean isUpvote);
+
+    @Modifying
+    @Query(value = "INSERT INTO vote (is_upvote, user_id, question_id, created_time, modified_time) " +
+            "SELECT :isUpvote, :userId, q.id, NOW(6), NOW(6) FROM question q WHERE q.id = :questionId " +
+            "ON DUPLICATE KEY UPDATE vote.id = LAST_INSERT_ID(vote.id), vote.is_upvote = :isUpvote, vote.modified_time = NOW(6)",
+            nativeQuery = true)
+    int upsertQuestionVote(@Param("userId") Long userId,
+                           @Param("questionId") Long questionId,
+                           @Param("isUpvote") boolean isUpvote);
+
+    @Modifying
+    @Query(value = "DELETE FROM vote WHERE user_id = :userId AND answer_id = :answerId AND is_upvote = :isUpvote",
+            nativeQuery = true)
+    int deleteAnswerVote(@Param("userId") Long userId,
+                         @Param("answerId") Long answerId,
+                         @Param("isUpvote") boolean isUpvote);
+
+    @Modifying
+    @Query(value = "INSERT INTO vote (is_upvote, user_id, answer_id, created_time, modified_time) " +
+            "SELECT :isUpvote, :userId, a.id, NOW(6), NOW(6) FROM answer a WHERE a.id = :answerId " +
+            "ON DUPLICATE KEY UPDATE vote.id = LAST_INSERT_ID(vote.id), vote.is_upvote = :isUpvote, vote.modified_time = NOW(6)",
+            nativeQuery = true)
+    int upsertAnswerVote(@Param("userId") Long userId,
+                         @Param("answerId") Long answerId,
+                         @Param("isUpvote") boolean isUpvote);
+
+    // Id of the row touched by the last upsert on this connection (LAST_INSERT_ID(vote.id) covers the flip case)
+    @Query(value = "SELECT LAST_INSERT_ID()", nativeQuery = true)
+    Long lastInsertId();
 }
 
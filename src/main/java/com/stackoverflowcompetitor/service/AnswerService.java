@@ -1,23 +1,35 @@
 package com.stackoverflowcompetitor.service;
 
 import com.stackoverflowcompetitor.common.AuthenticatedUserDetails;
+import com.stackoverflowcompetitor.dto.AnswerNode;
+import com.stackoverflowcompetitor.dto.CursorPage;
 import com.stackoverflowcompetitor.model.Answer;
 import com.stackoverflowcompetitor.model.Question;
 import com.stackoverflowcompetitor.model.User;
 import com.stackoverflowcompetitor.repository.AnswerRepository;
+import com.stackoverflowcompetitor.repository.AnswerRow;
 import com.stackoverflowcompetitor.repository.QuestionRepository;
+import com.stackoverflowcompetitor.util.AnswerPathUtil;
 import com.stackoverflowcompetitor.util.Constants;
+import com.stackoverflowcompetitor.util.TransactionUtil;
 import com.stackoverflowcompetitor.util.ValidationUtil;
 import jakarta.validation.ValidationException;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.multipart.MultipartFile;
 import org.springframework.web.server.ResponseStatusException;
 
 import java.io.IOException;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 
 @Service
@@ -36,7 +48,14 @@ public class AnswerService {
     @Autowired
     private MediaService mediaService;
 
-    public Answer answerQuestion(Long questionId, String content, MultipartFile media) throws IOException {
+    @Autowired
+    private HotQuestionRanking hotQuestionRanking;
+
+    @Autowired
+    private SearchIndex searchIndex;
+
+    @Transactional
+    public Answer answerQuestion(Long questionId, String content, MultipartFile media, String uploadId) throws IOException {
         log.info("In answerQuestion method");
         try {
             if(ValidationUtil.validateLength(content, Constants.MIN_CONTENT_LENGTH, Constants.MAX_CONTENT_LENGTH)){
@@ -46,10 +65,7 @@ public class AnswerService {
             Question question = questionRepository.findById(questionId)
                     .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Question not found with id: " + questionId));
 
-            String mediaUrl = null;
-            if (media != null && !media.isEmpty()) {
-                mediaUrl = mediaService.uploadFile(media);
-            }
+            String mediaUrl = mediaUrl(media, uploadId);
 
             Answer answer = new Answer();
             answer.setContent(content);
@@ -60,7 +76,12 @@ public class AnswerService {
             answer.setUser(user);
 
             log.info("Saving answer for question ID: {}", questionId);
-            return answerRepository.save(answer);
+            Answer savedAnswer = answerRepository.save(answer);
+            savedAnswer.setPath(AnswerPathUtil.rootPath(savedAnswer.getId()));
+            savedAnswer.setDepth(0);
+            hotQuestionRanking.addAnswer(questionId);
+            searchIndex.addAnswer(savedAnswer.getId(), questionId, savedAnswer.getContent());
+            return savedAnswer;
         }catch (IOException e) {
             log.error("Error uploading media for question ID: {}", questionId);
             throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Failed to upload media", e);
@@ -72,7 +93,8 @@ public class AnswerService {
         }
     }
 
-    public Answer answerToAnswer(Long answerId, String content, MultipartFile media, Long questionID) throws IOException {
+    @Transactional
+    public Answer answerToAnswer(Long answerId, String content, MultipartFile media, String uploadId, Long questionID) throws IOException {
         log.info("In answerToAnswer method");
         try {
             if(ValidationUtil.validateLength(content, Constants.MIN_CONTENT_LENGTH, Constants.MAX_CONTENT_LENGTH)){
@@ -87,14 +109,16 @@ public class AnswerService {
                 throw new ResponseStatusException(HttpStatus.CONFLICT, "Question ID mismatch");
             }
 
+            if (parentAnswer.getDepth() >= Constants.MAX_REPLY_DEPTH) {
+                log.error("Reply depth limit reached under answer ID: {}", answerId);
+                throw new ValidationException("Replies can be nested at most " + Constants.MAX_REPLY_DEPTH + " levels deep");
+            }
+
             log.info("Finding question with ID: {}", questionID);
             Question question = questionRepository.findById(questionID)
                     .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Question not found with id: " + questionID));
 
-            String mediaUrl = null;
-            if (media != null && !media.isEmpty()) {
-                mediaUrl = mediaService.uploadFile(media);
-            }
+            String mediaUrl = mediaUrl(media, uploadId);
 
             Answer reply = new Answer();
             reply.setContent(content);
@@ -106,7 +130,17 @@ public class AnswerService {
             reply.setUser(user);
 
             log.info("Saving reply for answer ID: {} and question ID: {}", answerId, questionID);
-            return answerRepository.save(reply);
+            Answer savedReply = answerRepository.save(reply);
+            savedReply.setDepth(parentAnswer.getDepth() + 1);
+            if (parentAnswer.getPath() != null) {
+                savedReply.setPath(AnswerPathUtil.childPath(parentAnswer.getPath(), savedReply.getId()));
+            } else {
+                // The backfill fills this in once the parent has a path
+                log.warn("Parent answer ID: {} has no path yet", answerId);
+            }
+            hotQuestionRanking.addAnswer(questionID);
+            searchIndex.addAnswer(savedReply.getId(), questionID, savedReply.getContent());
+            return savedReply;
         } catch (IOException e) {
             log.error("Error uploading media for answer ID: {}", answerId, e);
             throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Failed to upload media", e);
@@ -118,14 +152,78 @@ public class AnswerService {
         }
     }
 
-    public List<Answer> searchAnswers(String searchTerm) {
+    /**
+     * Returns an answer with its replies down to {@code maxDepth} levels below it, read with one range scan of
+     * the path index.
+     */
+    public AnswerNode getReplySubtree(Long answerId, int maxDepth) {
+        log.info("In getReplySubtree method, answerId: {}", answerId);
+        try {
+            if (maxDepth < 0 || maxDepth > Constants.MAX_REPLY_DEPTH) {
+                log.error("Invalid maxDepth: {}", maxDepth);
+                throw new ValidationException("maxDepth must be between 0 and " + Constants.MAX_REPLY_DEPTH);
+            }
+            String path = findPath(answerId);
+            int depth = path.length() / AnswerPathUtil.SEGMENT_LENGTH - 1;
+            List<AnswerRow> rows = answerRepository.findSubtree(path, AnswerPathUtil.subtreeEnd(path), depth + maxDepth);
+
+            // Rows are in path order, so every parent is linked before its replies
+            Map<Long, AnswerNode> nodesById = new HashMap<>();
+            AnswerNode root = null;
+            for (AnswerRow row : rows) {
+                AnswerNode node = new AnswerNode(row.getId(), row.getContent(), row.getMediaUrl(), row.getScore(),
+                        row.getUpvoteCount(), row.getDownvoteCount(), row.getAuthor(), row.getCreatedTime());
+                nodesById.put(row.getId(), node);
+                AnswerNode parent = row.getParentAnswerId() == null ? null : nodesById.get(row.getParentAnswerId());
+                if (root == null) {
+                    root = node;
+                } else if (parent != null) {
+                    parent.replies().add(node);
+                }
+            }
+            return root;
+        } catch (ValidationException | ResponseStatusException e) {
+            throw e;
+        } catch (Exception e) {
+            log.error("Error getting replies of answer ID: {}", answerId);
+            throw e;
+        }
+    }
+
+    /**
+     * Counts all replies under an answer at any depth.
+     */
+    public long countReplies(Long answerId) {
+        log.info("In countReplies method, answerId: {}", answerId);
+        try {
+            String path = findPath(answerId);
+            return answerRepository.countDescendants(path, AnswerPathUtil.subtreeEnd(path));
+        } catch (ResponseStatusException e) {
+            throw e;
+        } catch (Exception e) {
+            log.error("Error counting replies of answer ID: {}", answerId);
+            throw e;
+        }
+    }
+
+    public CursorPage<Answer> searchAnswers(String searchTerm, String cursor, int limit) {
         log.info("In searchAnswers method");
         try {
             if(ValidationUtil.validateLength(searchTerm, Constants.MIN_SEARCH_STRING_LENGTH, Constants.MAX_SEARCH_STRING_LENGTH)){
                 log.error("Invalid searchTerm length");
                 throw new ValidationException("searchTerm length must be between " + Constants.MIN_SEARCH_STRING_LENGTH + " and " + Constants.MAX_SEARCH_STRING_LENGTH + " characters");
             }
-            return answerRepository.searchAnswerByContent(searchTerm);
+            if (ValidationUtil.validateRange(limit, Constants.MIN_PAGE_SIZE, Constants.MAX_PAGE_SIZE)) {
+                log.error("Invalid limit: {}", limit);
+                throw new ValidationException("Page size must be between " + Constants.MIN_PAGE_SIZE + " and " + Constants.MAX_PAGE_SIZE);
+            }
+            if (searchIndex.isReady()) {
+                CursorPage<Long> ids = searchIndex.searchAnswers(searchTerm, cursor, limit);
+                return new CursorPage<>(findAllInOrder(ids.content()), ids.nextCursor());
+            }
+            // Unranked and single-page until the index is loaded
+            log.warn("Search index not loaded yet, falling back to a LIKE scan");
+            return new CursorPage<>(answerRepository.searchAnswerByContent(searchTerm, PageRequest.of(0, limit)), null);
         } catch (ValidationException e) {
             throw e;
         }
@@ -134,4 +232,44 @@ public class AnswerService {
             throw e;
         }
     }
+
+    /**
+     * Loads answers by primary key and returns them in the order of the given ids.
+     */
+    private List<Answer> findAllInOrder(List<Long> ids) {
+        Map<Long, Answer> answersById = answerRepository.findAllById(ids).stream()
+                .collect(Collectors.toMap(Answer::getId, Function.identity()));
+        return ids.stream()
+                .map(answersById::get)
+                .filter(Objects::nonNull)
+                .toList();
+    }
+
+    private String findPath(Long answerId) {
+        String path = answerRepository.findPathById(answerId)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Answer not found with id: " + answerId))
+                .getPath();
+        if (path == null) {
+            log.error("Answer ID: {} has no path, the answer-paths backfill has not run", answerId);
+            throw new ResponseStatusException(HttpStatus.CONFLICT, "Reply hierarchy of answer " + answerId + " is not available yet");
+        }
+        return path;
+    }
+
+    /**
+     * Stores the attached file, or takes the file of a completed chunked upload, which is forgotten once the
+     * answer is committed, so a failed answer can be posted again with the same upload.
+     */
+    private String mediaUrl(MultipartFile media, String uploadId) throws IOException {
+        boolean hasMedia = media != null && !media.isEmpty();
+        if (hasMedia && uploadId != null) {
+            throw new ValidationException("Attach either a media file or an upload, not both");
+        }
+        if (uploadId != null) {
+            String mediaUrl = mediaService.completedUpload(uploadId);
+            TransactionUtil.afterCommit(() -> mediaService.forgetUpload(uploadId));
+            return mediaUrl;
+        }
+        return hasMedia ? mediaService.uploadFile(media) : null;
+    }
 }
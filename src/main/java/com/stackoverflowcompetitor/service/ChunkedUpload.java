@@ -0,0 +1,235 @@
+package com.stackoverflowcompetitor.service;
+
+import jakarta.validation.ValidationException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.zip.CRC32C;
+
+/**
+ * A file being uploaded in fixed-size chunks, in any order and possibly in parallel. The file is created at its
+ * final size, and each chunk is written at its own offset, so a chunk that failed is simply sent again. A chunk
+ * counts as received only once its CRC32C matches the one the client sent; a chunk being sent again counts as
+ * missing until then, since its bytes are overwritten, and only one write of a chunk runs at a time. Chunk writes
+ * share a lock that finishing the upload takes exclusively, so no chunk is written into a finished file.
+ */
+class ChunkedUpload {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final String id;
+    private final Long ownerId;
+    private final String filename;
+    private final long size;
+    private final int chunkSize;
+    private final int chunkCount;
+    private final Path file;
+    private final FileChannel channel;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    // Held while the upload is completed, so a concurrent completion waits for its result
+    private final Lock completion = new ReentrantLock();
+    // Guarded by lock; set once the file is finished or discarded
+    private boolean closed;
+
+    // Guarded by this
+    private final BitSet received;
+    private final BitSet writing;
+    private String mediaUrl;
+    private volatile long lastActivity;
+
+    ChunkedUpload(String id, Long ownerId, String filename, long size, int chunkSize, Path file, long now) throws IOException {
+        this.id = id;
+        this.ownerId = ownerId;
+        this.filename = filename;
+        this.size = size;
+        this.chunkSize = chunkSize;
+        this.chunkCount = (int) ((size + chunkSize - 1) / chunkSize);
+        this.file = file;
+        this.received = new BitSet(chunkCount);
+        this.writing = new BitSet(chunkCount);
+        this.lastActivity = now;
+        // Sets the length up front: sparse where the filesystem allows it, so disk is used as chunks arrive
+        try (RandomAccessFile sized = new RandomAccessFile(file.toFile(), "rw")) {
+            sized.setLength(size);
+        }
+        this.channel = FileChannel.open(file, StandardOpenOption.WRITE);
+    }
+
+    /**
+     * Writes the chunk at its offset, reading the body until it ends.
+     *
+     * @throws ValidationException if the index is out of range, the body is not exactly the chunk's length
+     *                             or its CRC32C differs from {@code expectedCrc}
+     */
+    void writeChunk(int index, long expectedCrc, InputStream body, long now) throws IOException {
+        if (index < 0 || index >= chunkCount) {
+            throw new ValidationException("Chunk index must be between 0 and " + (chunkCount - 1));
+        }
+        long offset = (long) index * chunkSize;
+        long length = Math.min(chunkSize, size - offset);
+        lock.readLock().lock();
+        try {
+            if (closed) {
+                throw new ValidationException("Upload " + id + " is already complete");
+            }
+            lastActivity = now;
+            synchronized (this) {
+                if (writing.get(index)) {
+                    throw new ValidationException("Chunk " + index + " is already being written");
+                }
+                writing.set(index);
+                received.clear(index);
+            }
+            boolean verified = false;
+            try {
+                write(index, offset, length, expectedCrc, body);
+                verified = true;
+            } finally {
+                synchronized (this) {
+                    writing.clear(index);
+                    received.set(index, verified);
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Returns normally only once the whole chunk is written and its CRC32C matches
+    private void write(int index, long offset, long length, long expectedCrc, InputStream body) throws IOException {
+        CRC32C crc = new CRC32C();
+        ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        ReadableByteChannel in = Channels.newChannel(body);
+        long read = 0;
+        while (true) {
+            buffer.clear();
+            // One byte over the chunk's length is enough to tell an oversized body
+            buffer.limit((int) Math.min(buffer.capacity(), length - read + 1));
+            int n = in.read(buffer);
+            if (n < 0) {
+                break;
+            }
+            if (read + n > length) {
+                throw new ValidationException("Chunk " + index + " must be " + length + " bytes");
+            }
+            buffer.flip();
+            crc.update(buffer);
+            buffer.rewind();
+            while (buffer.hasRemaining()) {
+                read += channel.write(buffer, offset + read);
+            }
+        }
+        if (read != length) {
+            throw new ValidationException("Chunk " + index + " must be " + length + " bytes");
+        }
+        if (crc.getValue() != expectedCrc) {
+            throw new ValidationException("Checksum mismatch for chunk " + index);
+        }
+    }
+
+    /**
+     * Waits for chunk writes in progress, checks every chunk was received and closes the file.
+     *
+     * @return the file, now complete
+     */
+    Path finish() throws IOException {
+        lock.writeLock().lock();
+        try {
+            if (closed) {
+                throw new ValidationException("Upload " + id + " is already complete");
+            }
+            synchronized (this) {
+                if (received.cardinality() < chunkCount) {
+                    throw new ValidationException("Upload " + id + " is missing chunks " + missingChunks());
+                }
+            }
+            channel.force(false);
+            channel.close();
+            closed = true;
+            return file;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Closes and deletes the partial file.
+     */
+    void discard() throws IOException {
+        lock.writeLock().lock();
+        try {
+            closed = true;
+            channel.close();
+            Files.deleteIfExists(file);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    synchronized List<Integer> missingChunks() {
+        List<Integer> missing = new ArrayList<>();
+        for (int index = received.nextClearBit(0); index < chunkCount; index = received.nextClearBit(index + 1)) {
+            missing.add(index);
+        }
+        return missing;
+    }
+
+    synchronized boolean isComplete() {
+        return mediaUrl != null;
+    }
+
+    synchronized String getMediaUrl() {
+        return mediaUrl;
+    }
+
+    synchronized void setMediaUrl(String mediaUrl) {
+        this.mediaUrl = mediaUrl;
+    }
+
+    Lock getCompletionLock() {
+        return completion;
+    }
+
+    String getId() {
+        return id;
+    }
+
+    Long getOwnerId() {
+        return ownerId;
+    }
+
+    String getFilename() {
+        return filename;
+    }
+
+    long getSize() {
+        return size;
+    }
+
+    int getChunkSize() {
+        return chunkSize;
+    }
+
+    int getChunkCount() {
+        return chunkCount;
+    }
+
+    long getLastActivity() {
+        return lastActivity;
+    }
+}
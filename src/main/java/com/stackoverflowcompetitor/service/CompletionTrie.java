@@ -0,0 +1,318 @@
+package com.stackoverflowcompetitor.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Radix trie of weighted words answering "the heaviest words starting with this prefix". Chains of single-child
+ * nodes are merged into one edge, and every node keeps the ids of the {@code topSize} heaviest words below it,
+ * so a completion walks the prefix and copies one list, whatever the number of words under it. A heavier weight
+ * moves the word up the lists on its path; a lighter one recomputes those lists from the children's, since a
+ * word below may have to take its place. Ties are broken alphabetically.
+ * Words are compared as given; callers normalize case.
+ */
+public class CompletionTrie {
+
+    private static final Node[] NO_CHILDREN = new Node[0];
+    private static final int[] NO_WORDS = new int[0];
+
+    private final int topSize;
+    private final Node root = new Node("");
+    // Word ids index these; ids are never reused
+    private final List<String> words = new ArrayList<>();
+    private long[] weights = new long[16];
+    private final Map<String, Integer> ids = new HashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Comparator<Integer> heaviestFirst = Comparator.<Integer>comparingLong(id -> -weights[id])
+            .thenComparing(words::get);
+
+    /**
+     * @param topSize (the most completions a lookup can return)
+     */
+    public CompletionTrie(int topSize) {
+        this.topSize = topSize;
+    }
+
+    /**
+     * Adds the word with the given weight, or replaces the weight of a word already present.
+     */
+    public void put(String word, long weight) {
+        lock.writeLock().lock();
+        try {
+            boolean added = !ids.containsKey(word);
+            int id = idOf(word);
+            boolean increased = added || weight >= weights[id];
+            weights[id] = weight;
+            List<Node> path = insert(word, id);
+            for (int i = path.size() - 1; i >= 0; i--) {
+                if (increased) {
+                    path.get(i).promote(id);
+                } else {
+                    path.get(i).recomputeTop();
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Adds or reweighs many words at once, computing each node's list once instead of once per word below it.
+     */
+    public void putAll(Map<String, Long> weightsByWord) {
+        lock.writeLock().lock();
+        try {
+            weightsByWord.forEach((word, weight) -> {
+                int id = idOf(word);
+                weights[id] = weight;
+                insert(word, id);
+            });
+            recomputeTops(root);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Adds {@code delta} to the weight of the word, adding the word first if needed.
+     */
+    public void addWeight(String word, long delta) {
+        lock.writeLock().lock();
+        try {
+            Integer id = ids.get(word);
+            put(word, (id == null ? 0 : weights[id]) + delta);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Returns up to {@code limit} (at most the top size) words starting with the prefix, heaviest first.
+     */
+    public List<Completion> complete(String prefix, int limit) {
+        lock.readLock().lock();
+        try {
+            Node node = find(prefix);
+            if (node == null) {
+                return List.of();
+            }
+            int count = Math.min(limit, node.top.length);
+            List<Completion> completions = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                int id = node.top[i];
+                completions.add(new Completion(words.get(id), weights[id]));
+            }
+            return completions;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return words.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * A word of the trie and its weight.
+     */
+    public record Completion(String word, long weight) {
+    }
+
+    private int idOf(String word) {
+        Integer id = ids.get(word);
+        if (id == null) {
+            id = words.size();
+            words.add(word);
+            ids.put(word, id);
+            if (id == weights.length) {
+                weights = Arrays.copyOf(weights, weights.length * 2);
+            }
+        }
+        return id;
+    }
+
+    private static void recomputeTops(Node node) {
+        for (Node child : node.children) {
+            recomputeTops(child);
+        }
+        node.recomputeTop();
+    }
+
+    /**
+     * Returns the highest node whose path starts with the prefix, or null if no word does.
+     */
+    private Node find(String prefix) {
+        Node node = root;
+        int matched = 0;
+        while (matched < prefix.length()) {
+            Node child = node.child(prefix.charAt(matched));
+            if (child == null) {
+                return null;
+            }
+            int common = commonLength(child.edge, prefix, matched);
+            if (matched + common == prefix.length()) {
+                return child;
+            }
+            if (common < child.edge.length()) {
+                return null;
+            }
+            matched += common;
+            node = child;
+        }
+        return node;
+    }
+
+    /**
+     * Marks the word's node, splitting an edge or adding one where the path ends, and returns the path from the
+     * root to it.
+     */
+    private List<Node> insert(String word, int id) {
+        List<Node> path = new ArrayList<>();
+        Node node = root;
+        path.add(node);
+        int matched = 0;
+        while (matched < word.length()) {
+            Node child = node.child(word.charAt(matched));
+            if (child == null) {
+                child = new Node(word.substring(matched));
+                node.addChild(child);
+                matched = word.length();
+            } else {
+                int common = commonLength(child.edge, word, matched);
+                if (common < child.edge.length()) {
+                    child = node.split(child, common);
+                }
+                matched += common;
+            }
+            node = child;
+            path.add(node);
+        }
+        node.word = id;
+        return path;
+    }
+
+    // Length of the common prefix of the edge and of the text from offset
+    private static int commonLength(String edge, String text, int offset) {
+        int length = Math.min(edge.length(), text.length() - offset);
+        int common = 0;
+        while (common < length && edge.charAt(common) == text.charAt(offset + common)) {
+            common++;
+        }
+        return common;
+    }
+
+    private final class Node {
+
+        private String edge;
+        // Sorted by the first character of their edge
+        private Node[] children = NO_CHILDREN;
+        private int word = -1;
+        // Ids of the heaviest words in this subtree, heaviest first
+        private int[] top = NO_WORDS;
+
+        Node(String edge) {
+            this.edge = edge;
+        }
+
+        Node child(char first) {
+            int index = indexOf(first);
+            return index >= 0 ? children[index] : null;
+        }
+
+        void addChild(Node child) {
+            int insertAt = -indexOf(child.edge.charAt(0)) - 1;
+            Node[] grown = new Node[children.length + 1];
+            System.arraycopy(children, 0, grown, 0, insertAt);
+            grown[insertAt] = child;
+            System.arraycopy(children, insertAt, grown, insertAt + 1, children.length - insertAt);
+            children = grown;
+        }
+
+        /**
+         * Puts a new node after the first {@code length} characters of the child's edge, returning it.
+         */
+        Node split(Node child, int length) {
+            int index = indexOf(child.edge.charAt(0));
+            Node middle = new Node(child.edge.substring(0, length));
+            child.edge = child.edge.substring(length);
+            middle.children = new Node[]{child};
+            middle.top = child.top;
+            children[index] = middle;
+            return middle;
+        }
+
+        /**
+         * Moves the word, whose weight has grown, to its place in the list, keeping the list sorted and bounded.
+         */
+        void promote(int id) {
+            int at = 0;
+            while (at < top.length && top[at] != id) {
+                at++;
+            }
+            int[] promoted;
+            if (at < top.length) {
+                promoted = top.clone();
+            } else if (top.length < topSize) {
+                promoted = Arrays.copyOf(top, top.length + 1);
+            } else if (heaviestFirst.compare(id, top[top.length - 1]) < 0) {
+                promoted = top.clone();
+                at = top.length - 1;
+            } else {
+                return;
+            }
+            while (at > 0 && heaviestFirst.compare(id, promoted[at - 1]) < 0) {
+                promoted[at] = promoted[at - 1];
+                at--;
+            }
+            promoted[at] = id;
+            top = promoted;
+        }
+
+        void recomputeTop() {
+            List<Integer> candidates = new ArrayList<>();
+            if (word >= 0) {
+                candidates.add(word);
+            }
+            for (Node child : children) {
+                for (int id : child.top) {
+                    candidates.add(id);
+                }
+            }
+            candidates.sort(heaviestFirst);
+            int count = Math.min(topSize, candidates.size());
+            int[] recomputed = new int[count];
+            for (int i = 0; i < count; i++) {
+                recomputed[i] = candidates.get(i);
+            }
+            top = recomputed;
+        }
+
+        private int indexOf(char first) {
+            int low = 0;
+            int high = children.length - 1;
+            while (low <= high) {
+                int middle = (low + high) >>> 1;
+                char label = children[middle].edge.charAt(0);
+                if (label < first) {
+                    low = middle + 1;
+                } else if (label > first) {
+                    high = middle - 1;
+                } else {
+                    return middle;
+                }
+            }
+            return -(low + 1);
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package com.stackoverflowcompetitor.service;
+
+import com.stackoverflowcompetitor.repository.QuestionRepository;
+import com.stackoverflowcompetitor.repository.TagRepository;
+import com.stackoverflowcompetitor.util.TextTokenizer;
+import com.stackoverflowcompetitor.util.TransactionUtil;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+/**
+ * Typo-tolerant lookup of tag names and question title words. Each dictionary is a {@link FuzzyTrie} over the
+ * lower-cased words, so finding the words within one or two edits of a misspelling only looks at a small part
+ * of the dictionary. Loaded at start-up and kept current by QuestionService; each instance only
+ * sees its own writes, call {@link #reload()} to resynchronize with the database.
+ */
+@Service
+@Slf4j
+public class FuzzyLookup {
+
+    @Autowired
+    private QuestionRepository questionRepository;
+
+    @Autowired
+    private TagRepository tagRepository;
+
+    private volatile Dictionary tags = new Dictionary();
+    // Titles posted while it reloads are replayed into the reloaded dictionary
+    private final ReloadableState<Dictionary> titleWords = new ReloadableState<>(new Dictionary());
+    private volatile boolean ready;
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    public void reload() {
+        log.info("Loading fuzzy lookup dictionaries");
+        long started = System.currentTimeMillis();
+        Dictionary loadedTags = new Dictionary();
+        tagRepository.findAllNames().forEach(loadedTags::add);
+        Dictionary loadedTitleWords = titleWords.reload(() -> {
+            Dictionary dictionary = new Dictionary();
+            try (Stream<String> titles = questionRepository.streamTitles()) {
+                titles.forEach(title -> TextTokenizer.tokenize(title).forEach(dictionary::add));
+            }
+            return dictionary;
+        });
+        tags = loadedTags;
+        ready = true;
+        log.info("Fuzzy lookup loaded with {} tags and {} title words in {} ms", loadedTags.size(),
+                loadedTitleWords.size(), System.currentTimeMillis() - started);
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * Adds the words of a newly posted question's title once the surrounding transaction commits.
+     */
+    public void addTitle(String title) {
+        TransactionUtil.afterCommit(() -> {
+            List<String> words = TextTokenizer.tokenize(title);
+            titleWords.write(dictionary -> words.forEach(dictionary::add));
+        });
+    }
+
+    /**
+     * Returns up to {@code limit} tag names within {@code maxDistance} edits of the given name, ignoring case,
+     * closest first.
+     */
+    public List<String> closestTags(String name, int maxDistance, int limit) {
+        return tags.closest(name, maxDistance, limit);
+    }
+
+    /**
+     * Returns up to {@code limit} title words within {@code maxDistance} edits of the given word, ignoring
+     * case, closest first and then the most used.
+     */
+    public List<String> closestTitleWords(String word, int maxDistance, int limit) {
+        return titleWords.get().closest(word, maxDistance, limit);
+    }
+
+    /**
+     * The number of edits to tolerate for a word of this length: none up to 2 characters, one up to 5, then two.
+     * Shorter words allowing more edits would match most of the dictionary.
+     */
+    public static int maxEditsFor(String word) {
+        int length = word.length();
+        return length <= 2 ? 0 : length <= 5 ? 1 : 2;
+    }
+
+    /**
+     * Words in a trie, lower-cased, with how often each was added and the spelling it was first added with.
+     */
+    private static final class Dictionary {
+
+        private final FuzzyTrie tree = new FuzzyTrie();
+        private final Map<String, String> spellings = new ConcurrentHashMap<>();
+        private final Map<String, Integer> counts = new ConcurrentHashMap<>();
+
+        void add(String word) {
+            String key = word.toLowerCase(Locale.ROOT);
+            spellings.putIfAbsent(key, word);
+            counts.merge(key, 1, Integer::sum);
+            tree.add(key);
+        }
+
+        List<String> closest(String word, int maxDistance, int limit) {
+            String key = word.toLowerCase(Locale.ROOT);
+            // Closer words rank first, so the wider and much slower search is only needed if these are too few
+            List<FuzzyTrie.Match> matches = tree.search(key, Math.min(1, maxDistance));
+            for (int distance = 2; distance <= maxDistance && matches.size() < limit; distance++) {
+                matches = tree.search(key, distance);
+            }
+            return matches.stream()
+                    .sorted(Comparator.comparingInt(FuzzyTrie.Match::distance)
+                            .thenComparing(match -> -counts.getOrDefault(match.word(), 0))
+                            .thenComparing(FuzzyTrie.Match::word))
+                    .limit(limit)
+                    .map(match -> spellings.getOrDefault(match.word(), match.word()))
+                    .toList();
+        }
+
+        int size() {
+            return tree.size();
+        }
+    }
+}
@@ -0,0 +1,180 @@
+package com.stackoverflowcompetitor.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Trie of words searched for the words within a few edits of a query. The search walks the trie carrying one
+ * row of the edit-distance table per character, which simulates a Levenshtein automaton over the dictionary:
+ * words sharing a prefix share the rows computed for it, and a branch is abandoned as soon as every entry of
+ * its row exceeds the allowed distance, so a lookup touches a small part of the trie. Edits are insertions,
+ * deletions, substitutions and transpositions of adjacent characters ("sprnig" is one edit from "spring").
+ * Words are compared as given; callers normalize case.
+ */
+public class FuzzyTrie {
+
+    private static final char[] NO_LABELS = new char[0];
+    private static final Node[] NO_CHILDREN = new Node[0];
+
+    private final Node root = new Node();
+    private int size;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /**
+     * Adds the word unless it is already present.
+     *
+     * @return whether the word was added
+     */
+    public boolean add(String word) {
+        lock.writeLock().lock();
+        try {
+            Node node = root;
+            node.maxLength = Math.max(node.maxLength, word.length());
+            for (int i = 0; i < word.length(); i++) {
+                node = node.childOrAdd(word.charAt(i));
+                node.maxLength = Math.max(node.maxLength, word.length());
+            }
+            if (node.word != null) {
+                return false;
+            }
+            node.word = word;
+            size++;
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the words within {@code maxDistance} edits of the query, in trie order.
+     */
+    public List<Match> search(String query, int maxDistance) {
+        Search search = new Search(query.toCharArray(), maxDistance);
+        lock.readLock().lock();
+        try {
+            if (root.word != null && query.length() <= maxDistance) {
+                search.matches.add(new Match(root.word, query.length()));
+            }
+            for (int i = 0; i < root.labels.length; i++) {
+                search.walk(root.children[i], root.labels[i], (char) 0, 1);
+            }
+            return search.matches;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * A word of the trie and its distance to the query.
+     */
+    public record Match(String word, int distance) {
+    }
+
+    /**
+     * State of one lookup: row {@code d} of the table holds the distances between the first {@code d}
+     * characters of the current trie path and every prefix of the query. Only the band of cells within
+     * {@code maxDistance} of the diagonal is computed; the cells next to it are set to a value over the limit,
+     * which every cell outside it is known to be.
+     */
+    private static final class Search {
+
+        private final char[] query;
+        private final int maxDistance;
+        private final int overLimit;
+        private int[][] rows;
+        private int[] rowMins;
+        private final List<Match> matches = new ArrayList<>();
+
+        Search(char[] query, int maxDistance) {
+            this.query = query;
+            this.maxDistance = maxDistance;
+            this.overLimit = maxDistance + 1;
+            rows = new int[query.length + maxDistance + 2][];
+            rowMins = new int[rows.length];
+            rows[0] = new int[query.length + 2];
+            for (int j = 0; j <= query.length; j++) {
+                rows[0][j] = j;
+            }
+            rows[0][query.length + 1] = overLimit;
+        }
+
+        void walk(Node node, char label, char previousLabel, int depth) {
+            // Rows deeper than the query plus the allowed insertions are entirely over the limit
+            if (depth >= rows.length || node.maxLength < query.length - maxDistance) {
+                return;
+            }
+            if (rows[depth] == null) {
+                rows[depth] = new int[query.length + 2];
+            }
+            int[] above = rows[depth - 1];
+            int[] row = rows[depth];
+            int[] twoAbove = depth >= 2 ? rows[depth - 2] : null;
+            int from = Math.max(1, depth - maxDistance);
+            int to = Math.min(query.length, depth + maxDistance);
+            row[0] = depth;
+            row[from - 1] = from == 1 ? depth : overLimit;
+            int rowMin = row[from - 1];
+            for (int j = from; j <= to; j++) {
+                int cost = query[j - 1] == label ? 0 : 1;
+                int value = Math.min(above[j - 1] + cost, Math.min(above[j], row[j - 1]) + 1);
+                if (twoAbove != null && j >= 2 && query[j - 1] == previousLabel && query[j - 2] == label) {
+                    value = Math.min(value, twoAbove[j - 2] + 1);
+                }
+                row[j] = value;
+                rowMin = Math.min(rowMin, value);
+            }
+            row[to + 1] = overLimit;
+            rowMins[depth] = rowMin;
+            if (node.word != null && to == query.length && row[query.length] <= maxDistance) {
+                matches.add(new Match(node.word, row[query.length]));
+            }
+            // The next row is built from this one, or from the one above through a transposition
+            if (Math.min(rowMin, rowMins[depth - 1] + 1) <= maxDistance) {
+                for (int i = 0; i < node.labels.length; i++) {
+                    walk(node.children[i], node.labels[i], label, depth + 1);
+                }
+            }
+        }
+    }
+
+    private static final class Node {
+
+        // Sorted, with children[i] under labels[i]
+        private char[] labels = NO_LABELS;
+        private Node[] children = NO_CHILDREN;
+        private String word;
+        // Length of the longest word in this subtree, to skip subtrees too short to match
+        private int maxLength;
+
+        Node childOrAdd(char label) {
+            int index = Arrays.binarySearch(labels, label);
+            if (index >= 0) {
+                return children[index];
+            }
+            int insertAt = -index - 1;
+            char[] grownLabels = new char[labels.length + 1];
+            Node[] grownChildren = new Node[children.length + 1];
+            System.arraycopy(labels, 0, grownLabels, 0, insertAt);
+            System.arraycopy(children, 0, grownChildren, 0, insertAt);
+            grownLabels[insertAt] = label;
+            grownChildren[insertAt] = new Node();
+            System.arraycopy(labels, insertAt, grownLabels, insertAt + 1, labels.length - insertAt);
+            System.arraycopy(children, insertAt, grownChildren, insertAt + 1, children.length - insertAt);
+            labels = grownLabels;
+            children = grownChildren;
+            return grownChildren[insertAt];
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package com.stackoverflowcompetitor.service;
+
+import com.stackoverflowcompetitor.repository.QuestionActivity;
+import com.stackoverflowcompetitor.repository.QuestionRepository;
+import com.stackoverflowcompetitor.util.TransactionUtil;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+/**
+ * In-memory "hot" ranking of questions.
+ * The hot value is log10 of the net score plus a smaller log10 boost for answers, plus the creation time divided by
+ * {@link #DECAY_SECONDS}. Because age enters as a constant offset per question, newer questions outrank older ones
+ * without anybody being rescored as time passes: a value only changes when its own question gets a vote or an answer,
+ * and each change is one O(log n) skip-list move. Activity recorded while it reloads is replayed into the reloaded
+ * ranking ({@link ReloadableState}).
+ */
+@Service
+@Slf4j
+public class HotQuestionRanking {
+
+    // A question needs 10x the votes to keep its place against one posted this much later
+    static final double DECAY_SECONDS = 45000;
+    static final double ANSWER_WEIGHT = 0.5;
+    private static final long EPOCH_SECONDS = 1704067200L; // 2024-01-01T00:00:00Z
+
+    private static final Comparator<Entry> RANKING = Comparator.comparingDouble(Entry::hot).reversed()
+            .thenComparing(Comparator.comparingLong(Entry::id).reversed());
+
+    @Autowired
+    private QuestionRepository questionRepository;
+
+    private final ReloadableState<Ranking> state = new ReloadableState<>(new Ranking());
+    private volatile boolean ready;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void reload() {
+        log.info("Loading hot question ranking");
+        Ranking loaded = state.reload(() -> {
+            Ranking ranking = new Ranking();
+            for (QuestionActivity questionActivity : questionRepository.findAllActivity()) {
+                Activity activity = new Activity(questionActivity.getScore(), questionActivity.getAnswerCount(),
+                        toSeconds(questionActivity.getCreatedTime()));
+                ranking.activities().put(questionActivity.getId(), activity);
+                ranking.entries().add(new Entry(activity.hot(), questionActivity.getId()));
+            }
+            return ranking;
+        });
+        ready = true;
+        log.info("Hot question ranking loaded with {} questions", loaded.activities().size());
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    public int size() {
+        return state.get().activities().size();
+    }
+
+    public void addQuestion(Long questionId, Date createdTime) {
+        long createdSeconds = toSeconds(createdTime);
+        TransactionUtil.afterCommit(() -> state.write(ranking -> update(ranking, questionId, createdSeconds, 0, 0)));
+    }
+
+    public void adjustScore(Long questionId, long scoreDelta) {
+        TransactionUtil.afterCommit(() -> {
+            long nowSeconds = nowSeconds();
+            state.write(ranking -> update(ranking, questionId, nowSeconds, scoreDelta, 0));
+        });
+    }
+
+    public void addAnswer(Long questionId) {
+        TransactionUtil.afterCommit(() -> {
+            long nowSeconds = nowSeconds();
+            state.write(ranking -> update(ranking, questionId, nowSeconds, 0, 1));
+        });
+    }
+
+    /**
+     * Returns the ids of the questions at the given rank range, hottest first.
+     */
+    public List<Long> hotQuestionIds(long offset, int limit) {
+        List<Long> ids = new ArrayList<>(limit);
+        Iterator<Entry> iterator = state.get().entries().iterator();
+        for (long skipped = 0; skipped < offset && iterator.hasNext(); skipped++) {
+            iterator.next();
+        }
+        while (ids.size() < limit && iterator.hasNext()) {
+            ids.add(iterator.next().id());
+        }
+        return ids;
+    }
+
+    static double hotScore(long score, long answerCount, long createdSeconds) {
+        double order = Math.log10(Math.max(Math.abs(score), 1));
+        double answers = ANSWER_WEIGHT * Math.log10(1 + Math.max(answerCount, 0));
+        return Math.signum(score) * order + answers + (createdSeconds - EPOCH_SECONDS) / DECAY_SECONDS;
+    }
+
+    private static void update(Ranking ranking, Long questionId, long createdSecondsIfNew, long scoreDelta,
+                               long answerDelta) {
+        // compute() serializes updates per question, so its entry is always replaced exactly once
+        ranking.activities().compute(questionId, (id, old) -> {
+            Activity updated = old == null
+                    ? new Activity(scoreDelta, answerDelta, createdSecondsIfNew)
+                    : new Activity(old.score() + scoreDelta, old.answerCount() + answerDelta, old.createdSeconds());
+            if (old != null) {
+                ranking.entries().remove(new Entry(old.hot(), id));
+            }
+            ranking.entries().add(new Entry(updated.hot(), id));
+            return updated;
+        });
+    }
+
+    private static long toSeconds(Date date) {
+        return date == null ? nowSeconds() : date.getTime() / 1000;
+    }
+
+    private static long nowSeconds() {
+        return System.currentTimeMillis() / 1000;
+    }
+
+    private record Activity(long score, long answerCount, long createdSeconds) {
+        double hot() {
+            return hotScore(score, answerCount, createdSeconds);
+        }
+    }
+
+    private record Entry(double hot, long id) {
+    }
+
+    private record Ranking(ConcurrentSkipListSet<Entry> entries, Map<Long, Activity> activities) {
+        Ranking() {
+            this(new ConcurrentSkipListSet<>(RANKING), new ConcurrentHashMap<>());
+        }
+    }
+}
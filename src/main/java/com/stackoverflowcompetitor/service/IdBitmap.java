@@ -0,0 +1,462 @@
+package com.stackoverflowcompetitor.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Compressed set of non-negative ids in the layout of Roaring bitmaps: ids are grouped by their high bits into
+ * chunks of 65536, and each chunk is stored as a sorted array of its low 16 bits while it holds at most 4096 ids
+ * (2 bytes per id), or as a 65536-bit bitmap (8 KB) once it holds more. Sparse and dense id ranges both stay
+ * small, and intersections, unions and differences work chunk by chunk, a bitmap pair one 64-bit word at a time.
+ * Not thread-safe. The set operations return new bitmaps and leave their operands unchanged, but the result may
+ * share chunks with them, so it must be used before its operands are modified.
+ */
+public class IdBitmap {
+
+    private static final int ARRAY_MAX = 4096;
+    private static final int WORDS = 1024;
+
+    // Sorted high bits, with chunks[i] holding the ids whose high bits are keys[i]
+    private long[] keys = new long[0];
+    private Chunk[] chunks = new Chunk[0];
+    private int size;
+
+    public static IdBitmap of(long... ids) {
+        IdBitmap bitmap = new IdBitmap();
+        for (long id : ids) {
+            bitmap.add(id);
+        }
+        return bitmap;
+    }
+
+    /**
+     * @return whether the id was added, i.e. was not already present
+     */
+    public boolean add(long id) {
+        if (id < 0) {
+            throw new IllegalArgumentException("Ids must not be negative: " + id);
+        }
+        long key = id >>> 16;
+        char low = (char) id;
+        int index = Arrays.binarySearch(keys, 0, size, key);
+        if (index < 0) {
+            index = -index - 1;
+            insertChunk(index, key, new ArrayChunk());
+        }
+        Chunk chunk = chunks[index];
+        int before = chunk.cardinality();
+        chunks[index] = chunk.add(low);
+        return chunks[index].cardinality() > before;
+    }
+
+    public boolean contains(long id) {
+        int index = id < 0 ? -1 : Arrays.binarySearch(keys, 0, size, id >>> 16);
+        return index >= 0 && chunks[index].contains((char) id);
+    }
+
+    public long cardinality() {
+        long cardinality = 0;
+        for (int i = 0; i < size; i++) {
+            cardinality += chunks[i].cardinality();
+        }
+        return cardinality;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public IdBitmap and(IdBitmap other) {
+        IdBitmap result = new IdBitmap();
+        int i = 0;
+        int j = 0;
+        while (i < size && j < other.size) {
+            if (keys[i] < other.keys[j]) {
+                i++;
+            } else if (keys[i] > other.keys[j]) {
+                j++;
+            } else {
+                result.appendIfNotEmpty(keys[i], chunks[i].and(other.chunks[j]));
+                i++;
+                j++;
+            }
+        }
+        return result;
+    }
+
+    public IdBitmap or(IdBitmap other) {
+        IdBitmap result = new IdBitmap();
+        int i = 0;
+        int j = 0;
+        while (i < size || j < other.size) {
+            if (j == other.size || (i < size && keys[i] < other.keys[j])) {
+                result.appendIfNotEmpty(keys[i], chunks[i]);
+                i++;
+            } else if (i == size || keys[i] > other.keys[j]) {
+                result.appendIfNotEmpty(other.keys[j], other.chunks[j]);
+                j++;
+            } else {
+                result.appendIfNotEmpty(keys[i], chunks[i].or(other.chunks[j]));
+                i++;
+                j++;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the ids of this bitmap that are not in the other.
+     */
+    public IdBitmap andNot(IdBitmap other) {
+        IdBitmap result = new IdBitmap();
+        int j = 0;
+        for (int i = 0; i < size; i++) {
+            while (j < other.size && other.keys[j] < keys[i]) {
+                j++;
+            }
+            boolean overlaps = j < other.size && other.keys[j] == keys[i];
+            result.appendIfNotEmpty(keys[i], overlaps ? chunks[i].andNot(other.chunks[j]) : chunks[i]);
+        }
+        return result;
+    }
+
+    /**
+     * Returns up to {@code limit} ids lower than {@code before}, highest first, for keyset pagination from the
+     * newest id down.
+     */
+    public List<Long> idsBefore(long before, int limit) {
+        List<Long> ids = new ArrayList<>(Math.min(limit, 1024));
+        if (before <= 0) {
+            return ids;
+        }
+        long last = before - 1;
+        int index = Arrays.binarySearch(keys, 0, size, last >>> 16);
+        int low;
+        if (index >= 0) {
+            low = (char) last;
+        } else {
+            index = -index - 2;
+            low = 0xFFFF;
+        }
+        for (; index >= 0 && ids.size() < limit; index--, low = 0xFFFF) {
+            chunks[index].collectDescending(keys[index] << 16, low, limit, ids);
+        }
+        return ids;
+    }
+
+    // Result chunks are appended in key order; a chunk an operation leaves unchanged is shared, not copied
+    private void appendIfNotEmpty(long key, Chunk chunk) {
+        if (chunk.cardinality() > 0) {
+            insertChunk(size, key, chunk);
+        }
+    }
+
+    private void insertChunk(int index, long key, Chunk chunk) {
+        if (size == keys.length) {
+            int grown = Math.max(4, size * 2);
+            keys = Arrays.copyOf(keys, grown);
+            chunks = Arrays.copyOf(chunks, grown);
+        }
+        System.arraycopy(keys, index, keys, index + 1, size - index);
+        System.arraycopy(chunks, index, chunks, index + 1, size - index);
+        keys[index] = key;
+        chunks[index] = chunk;
+        size++;
+    }
+
+    /**
+     * The low 16 bits of the ids sharing the same high bits. Set operations never modify their operands, since
+     * an unchanged chunk may be shared by several bitmaps; {@link #add} may modify the chunk it is called on.
+     */
+    private abstract static class Chunk {
+
+        abstract int cardinality();
+
+        abstract boolean contains(char low);
+
+        /**
+         * Adds the value, returning the chunk to use from now on (a bitmap once an array outgrows 4096 values).
+         */
+        abstract Chunk add(char low);
+
+        abstract Chunk and(Chunk other);
+
+        abstract Chunk or(Chunk other);
+
+        abstract Chunk andNot(Chunk other);
+
+        /**
+         * Appends {@code high | value} for the values from {@code from} down, until the list holds {@code limit}.
+         */
+        abstract void collectDescending(long high, int from, int limit, List<Long> ids);
+    }
+
+    private static final class ArrayChunk extends Chunk {
+
+        private char[] values;
+        private int cardinality;
+
+        ArrayChunk() {
+            this(new char[4], 0);
+        }
+
+        ArrayChunk(char[] values, int cardinality) {
+            this.values = values;
+            this.cardinality = cardinality;
+        }
+
+        @Override
+        int cardinality() {
+            return cardinality;
+        }
+
+        @Override
+        boolean contains(char low) {
+            return Arrays.binarySearch(values, 0, cardinality, low) >= 0;
+        }
+
+        @Override
+        Chunk add(char low) {
+            int index = Arrays.binarySearch(values, 0, cardinality, low);
+            if (index >= 0) {
+                return this;
+            }
+            if (cardinality == ARRAY_MAX) {
+                return toBitmap().add(low);
+            }
+            index = -index - 1;
+            if (cardinality == values.length) {
+                values = Arrays.copyOf(values, Math.min(ARRAY_MAX, Math.max(4, cardinality * 2)));
+            }
+            System.arraycopy(values, index, values, index + 1, cardinality - index);
+            values[index] = low;
+            cardinality++;
+            return this;
+        }
+
+        @Override
+        Chunk and(Chunk other) {
+            char[] result = new char[cardinality];
+            int count = 0;
+            if (other instanceof ArrayChunk array) {
+                // Branch-free merge: on unrelated id sets which side advances is a coin flip the CPU cannot predict
+                char[] otherValues = array.values;
+                int i = 0;
+                int j = 0;
+                while (i < cardinality && j < array.cardinality) {
+                    char value = values[i];
+                    char otherValue = otherValues[j];
+                    result[count] = value;
+                    count += value == otherValue ? 1 : 0;
+                    i += value <= otherValue ? 1 : 0;
+                    j += value >= otherValue ? 1 : 0;
+                }
+            } else {
+                long[] words = ((BitmapChunk) other).words;
+                for (int i = 0; i < cardinality; i++) {
+                    char value = values[i];
+                    result[count] = value;
+                    count += (int) (words[value >>> 6] >>> value) & 1;
+                }
+            }
+            return new ArrayChunk(result, count);
+        }
+
+        @Override
+        Chunk or(Chunk other) {
+            if (other instanceof BitmapChunk) {
+                return other.or(this);
+            }
+            ArrayChunk array = (ArrayChunk) other;
+            char[] merged = new char[cardinality + array.cardinality];
+            int count = 0;
+            int i = 0;
+            int j = 0;
+            while (i < cardinality || j < array.cardinality) {
+                if (j == array.cardinality || (i < cardinality && values[i] < array.values[j])) {
+                    merged[count++] = values[i++];
+                } else if (i == cardinality || values[i] > array.values[j]) {
+                    merged[count++] = array.values[j++];
+                } else {
+                    merged[count++] = values[i++];
+                    j++;
+                }
+            }
+            ArrayChunk union = new ArrayChunk(merged, count);
+            return count > ARRAY_MAX ? union.toBitmap() : union;
+        }
+
+        @Override
+        Chunk andNot(Chunk other) {
+            char[] result = new char[cardinality];
+            int count = 0;
+            if (other instanceof ArrayChunk array) {
+                char[] otherValues = array.values;
+                int i = 0;
+                int j = 0;
+                while (i < cardinality && j < array.cardinality) {
+                    char value = values[i];
+                    char otherValue = otherValues[j];
+                    result[count] = value;
+                    count += value < otherValue ? 1 : 0;
+                    i += value <= otherValue ? 1 : 0;
+                    j += value >= otherValue ? 1 : 0;
+                }
+                System.arraycopy(values, i, result, count, cardinality - i);
+                count += cardinality - i;
+            } else {
+                long[] words = ((BitmapChunk) other).words;
+                for (int i = 0; i < cardinality; i++) {
+                    char value = values[i];
+                    result[count] = value;
+                    count += (int) (~words[value >>> 6] >>> value) & 1;
+                }
+            }
+            return new ArrayChunk(result, count);
+        }
+
+        @Override
+        void collectDescending(long high, int from, int limit, List<Long> ids) {
+            int index = Arrays.binarySearch(values, 0, cardinality, (char) from);
+            index = index >= 0 ? index : -index - 2;
+            for (; index >= 0 && ids.size() < limit; index--) {
+                ids.add(high | values[index]);
+            }
+        }
+
+        BitmapChunk toBitmap() {
+            long[] words = new long[WORDS];
+            for (int i = 0; i < cardinality; i++) {
+                words[values[i] >>> 6] |= 1L << values[i];
+            }
+            return new BitmapChunk(words, cardinality);
+        }
+    }
+
+    private static final class BitmapChunk extends Chunk {
+
+        private final long[] words;
+        private int cardinality;
+
+        BitmapChunk(long[] words, int cardinality) {
+            this.words = words;
+            this.cardinality = cardinality;
+        }
+
+        @Override
+        int cardinality() {
+            return cardinality;
+        }
+
+        @Override
+        boolean contains(char low) {
+            return (words[low >>> 6] & (1L << low)) != 0;
+        }
+
+        @Override
+        Chunk add(char low) {
+            if (!contains(low)) {
+                words[low >>> 6] |= 1L << low;
+                cardinality++;
+            }
+            return this;
+        }
+
+        @Override
+        Chunk and(Chunk other) {
+            if (other instanceof ArrayChunk) {
+                return other.and(this);
+            }
+            long[] result = new long[WORDS];
+            long[] otherWords = ((BitmapChunk) other).words;
+            int count = 0;
+            for (int i = 0; i < WORDS; i++) {
+                result[i] = words[i] & otherWords[i];
+                count += Long.bitCount(result[i]);
+            }
+            return compact(result, count);
+        }
+
+        @Override
+        Chunk or(Chunk other) {
+            long[] result = words.clone();
+            int count = cardinality;
+            if (other instanceof ArrayChunk array) {
+                for (int i = 0; i < array.cardinality; i++) {
+                    char low = array.values[i];
+                    if ((result[low >>> 6] & (1L << low)) == 0) {
+                        result[low >>> 6] |= 1L << low;
+                        count++;
+                    }
+                }
+            } else {
+                long[] otherWords = ((BitmapChunk) other).words;
+                count = 0;
+                for (int i = 0; i < WORDS; i++) {
+                    result[i] |= otherWords[i];
+                    count += Long.bitCount(result[i]);
+                }
+            }
+            return new BitmapChunk(result, count);
+        }
+
+        @Override
+        Chunk andNot(Chunk other) {
+            long[] result = words.clone();
+            int count = cardinality;
+            if (other instanceof ArrayChunk array) {
+                for (int i = 0; i < array.cardinality; i++) {
+                    char low = array.values[i];
+                    if ((result[low >>> 6] & (1L << low)) != 0) {
+                        result[low >>> 6] &= ~(1L << low);
+                        count--;
+                    }
+                }
+            } else {
+                long[] otherWords = ((BitmapChunk) other).words;
+                count = 0;
+                for (int i = 0; i < WORDS; i++) {
+                    result[i] &= ~otherWords[i];
+                    count += Long.bitCount(result[i]);
+                }
+            }
+            return compact(result, count);
+        }
+
+        @Override
+        void collectDescending(long high, int from, int limit, List<Long> ids) {
+            int index = from >>> 6;
+            // Keep the bits up to and including from in its word
+            long word = words[index] & (-1L >>> (63 - (from & 63)));
+            while (ids.size() < limit) {
+                if (word != 0) {
+                    int bit = 63 - Long.numberOfLeadingZeros(word);
+                    ids.add(high | ((long) index << 6) | bit);
+                    word &= ~(1L << bit);
+                } else if (--index >= 0) {
+                    word = words[index];
+                } else {
+                    return;
+                }
+            }
+        }
+
+        // A bitmap left with few values goes back to being an array
+        private static Chunk compact(long[] words, int count) {
+            if (count > ARRAY_MAX) {
+                return new BitmapChunk(words, count);
+            }
+            char[] values = new char[count];
+            int next = 0;
+            for (int i = 0; i < WORDS; i++) {
+                long word = words[i];
+                while (word != 0) {
+                    values[next++] = (char) ((i << 6) | Long.numberOfTrailingZeros(word));
+                    word &= word - 1;
+                }
+            }
+            return new ArrayChunk(values, count);
+        }
+    }
+}
@@ -0,0 +1,483 @@
+package com.stackoverflowcompetitor.service;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Immutable on-disk copy of a {@link TextIndex}, read through a memory mapping. The file holds three
+ * sections, with every integer written as an unsigned LEB128 varint:
+ * <ul>
+ *     <li>documents by increasing id: id gap, word count, text length in bytes, lower-cased text (UTF-8)</li>
+ *     <li>word dictionary, sorted by term: term length, term (UTF-8), document count, then per document the
+ *     id gap and the term frequency</li>
+ *     <li>trigram dictionary, sorted by trigram: trigram gap, document count, then per document the id gap</li>
+ * </ul>
+ * followed by a fixed-size footer with the section offsets, counts, document id range, format version and
+ * magic number. Segments never share a document, so loading several is a union and merging them is a k-way
+ * merge of their sorted sections, streamed from the mappings without decoding a whole segment at once.
+ */
+public final class IndexSegment {
+
+    static final int MAGIC = 0x53514958;
+    static final int VERSION = 1;
+    static final int FOOTER_BYTES = 4 * Long.BYTES + 5 * Integer.BYTES;
+
+    private final Path file;
+    private final ByteBuffer buffer;
+    private final int termsOffset;
+    private final int trigramsOffset;
+    private final int footerOffset;
+    private final int documentCount;
+    private final int termCount;
+    private final int trigramCount;
+    private final long minDocumentId;
+    private final long maxDocumentId;
+
+    private IndexSegment(Path file, ByteBuffer buffer) throws IOException {
+        this.file = file;
+        this.buffer = buffer;
+        footerOffset = buffer.limit() - FOOTER_BYTES;
+        long terms = buffer.getLong(footerOffset);
+        long trigrams = buffer.getLong(footerOffset + Long.BYTES);
+        minDocumentId = buffer.getLong(footerOffset + 2 * Long.BYTES);
+        maxDocumentId = buffer.getLong(footerOffset + 3 * Long.BYTES);
+        int counts = footerOffset + 4 * Long.BYTES;
+        documentCount = buffer.getInt(counts);
+        termCount = buffer.getInt(counts + Integer.BYTES);
+        trigramCount = buffer.getInt(counts + 2 * Integer.BYTES);
+        int version = buffer.getInt(counts + 3 * Integer.BYTES);
+        int magic = buffer.getInt(counts + 4 * Integer.BYTES);
+        if (magic != MAGIC || version != VERSION || terms < 0 || terms > trigrams || trigrams > footerOffset) {
+            throw new IOException("Not a readable search index segment: " + file);
+        }
+        termsOffset = (int) terms;
+        trigramsOffset = (int) trigrams;
+    }
+
+    /**
+     * Maps a segment file. The mapping stays valid after the file is deleted.
+     */
+    public static IndexSegment open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < FOOTER_BYTES || size > Integer.MAX_VALUE) {
+                throw new IOException("Not a readable search index segment: " + file);
+            }
+            return new IndexSegment(file, channel.map(FileChannel.MapMode.READ_ONLY, 0, size));
+        }
+    }
+
+    /**
+     * Writes the whole index as a new segment file. Only call it on an index no other thread is adding to.
+     */
+    public static void write(Path target, TextIndex index) throws IOException {
+        InvertedIndex words = index.words();
+        TrigramIndex text = index.text();
+        try (Writer writer = new Writer(target)) {
+            for (long documentId : text.sortedDocumentIds()) {
+                writer.document(documentId, words.documentLength(documentId),
+                        text.text(documentId).getBytes(StandardCharsets.UTF_8));
+            }
+            writer.beginTerms();
+            long[] documentIds = new long[16];
+            int[] frequencies = new int[16];
+            for (String term : words.sortedTerms()) {
+                InvertedIndex.PostingList list = words.postingList(term);
+                if (list.size() > documentIds.length) {
+                    documentIds = new long[list.size()];
+                    frequencies = new int[list.size()];
+                }
+                for (int i = 0; i < list.size(); i++) {
+                    documentIds[i] = list.documentId(i);
+                    frequencies[i] = list.frequency(i);
+                }
+                writer.term(term, documentIds, frequencies, list.size());
+            }
+            writer.beginTrigrams();
+            for (long trigram : text.sortedTrigrams()) {
+                long[] postings = text.postingList(trigram).toArray();
+                writer.trigram(trigram, postings, postings.length);
+            }
+            writer.finish();
+        }
+    }
+
+    /**
+     * Writes the union of the given segments as one new segment file.
+     */
+    public static void merge(List<IndexSegment> segments, Path target) throws IOException {
+        try (Writer writer = new Writer(target)) {
+            List<DocumentCursor> documents = new ArrayList<>();
+            for (IndexSegment segment : segments) {
+                DocumentCursor cursor = segment.new DocumentCursor();
+                if (cursor.next()) {
+                    documents.add(cursor);
+                }
+            }
+            while (!documents.isEmpty()) {
+                DocumentCursor lowest = documents.get(0);
+                for (DocumentCursor cursor : documents) {
+                    if (cursor.documentId < lowest.documentId) {
+                        lowest = cursor;
+                    }
+                }
+                writer.document(lowest.documentId, lowest.length, lowest.text);
+                if (!lowest.next()) {
+                    documents.remove(lowest);
+                }
+            }
+
+            writer.beginTerms();
+            List<TermCursor> terms = new ArrayList<>();
+            for (IndexSegment segment : segments) {
+                TermCursor cursor = segment.new TermCursor();
+                if (cursor.next()) {
+                    terms.add(cursor);
+                }
+            }
+            Postings merged = new Postings();
+            while (!terms.isEmpty()) {
+                String term = terms.get(0).term;
+                for (TermCursor cursor : terms) {
+                    if (cursor.term.compareTo(term) < 0) {
+                        term = cursor.term;
+                    }
+                }
+                List<TermCursor> matching = new ArrayList<>();
+                for (TermCursor cursor : terms) {
+                    if (cursor.term.equals(term)) {
+                        matching.add(cursor);
+                    }
+                }
+                merged.mergeOf(matching);
+                writer.term(term, merged.documentIds, merged.frequencies, merged.count);
+                for (TermCursor cursor : matching) {
+                    if (!cursor.next()) {
+                        terms.remove(cursor);
+                    }
+                }
+            }
+
+            writer.beginTrigrams();
+            List<TrigramCursor> trigrams = new ArrayList<>();
+            for (IndexSegment segment : segments) {
+                TrigramCursor cursor = segment.new TrigramCursor();
+                if (cursor.next()) {
+                    trigrams.add(cursor);
+                }
+            }
+            while (!trigrams.isEmpty()) {
+                long trigram = trigrams.get(0).trigram;
+                for (TrigramCursor cursor : trigrams) {
+                    trigram = Math.min(trigram, cursor.trigram);
+                }
+                List<TrigramCursor> matching = new ArrayList<>();
+                for (TrigramCursor cursor : trigrams) {
+                    if (cursor.trigram == trigram) {
+                        matching.add(cursor);
+                    }
+                }
+                merged.mergeOf(matching);
+                writer.trigram(trigram, merged.documentIds, merged.count);
+                for (TrigramCursor cursor : matching) {
+                    if (!cursor.next()) {
+                        trigrams.remove(cursor);
+                    }
+                }
+            }
+            writer.finish();
+        }
+    }
+
+    /**
+     * Adds every document of this segment to the index, which must not already contain any of them.
+     */
+    public void loadInto(TextIndex index) {
+        InvertedIndex words = index.words();
+        TrigramIndex text = index.text();
+        DocumentCursor documents = new DocumentCursor();
+        while (documents.next()) {
+            words.addDocumentLength(documents.documentId, documents.length);
+            text.putText(documents.documentId, new String(documents.text, StandardCharsets.UTF_8));
+        }
+        TermCursor terms = new TermCursor();
+        while (terms.next()) {
+            words.addPostings(terms.term, terms.documentIds, terms.frequencies, terms.count);
+        }
+        TrigramCursor trigrams = new TrigramCursor();
+        while (trigrams.next()) {
+            text.addPostings(trigrams.trigram, trigrams.documentIds, trigrams.count);
+        }
+    }
+
+    public Path file() {
+        return file;
+    }
+
+    public int sizeInBytes() {
+        return buffer.limit();
+    }
+
+    public int documentCount() {
+        return documentCount;
+    }
+
+    public int termCount() {
+        return termCount;
+    }
+
+    public int trigramCount() {
+        return trigramCount;
+    }
+
+    public long minDocumentId() {
+        return minDocumentId;
+    }
+
+    public long maxDocumentId() {
+        return maxDocumentId;
+    }
+
+    private static long readVarLong(ByteBuffer in) {
+        long value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = in.get();
+            value |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while (b < 0);
+        return value;
+    }
+
+    private ByteBuffer section(int from, int to) {
+        return buffer.duplicate().limit(to).position(from);
+    }
+
+    /**
+     * Document ids with a frequency each (unused for trigrams), decoded into reusable arrays.
+     */
+    private static class Postings {
+
+        long[] documentIds = new long[16];
+        int[] frequencies = new int[16];
+        int count;
+
+        void read(ByteBuffer in, boolean withFrequencies) {
+            count = (int) readVarLong(in);
+            ensureCapacity(count);
+            long documentId = 0;
+            for (int i = 0; i < count; i++) {
+                documentId += readVarLong(in);
+                documentIds[i] = documentId;
+                frequencies[i] = withFrequencies ? (int) readVarLong(in) : 0;
+            }
+        }
+
+        // the sources hold disjoint sorted ids, so this is a k-way merge by id
+        void mergeOf(List<? extends Postings> sources) {
+            int total = 0;
+            for (Postings source : sources) {
+                total += source.count;
+            }
+            ensureCapacity(total);
+            int[] positions = new int[sources.size()];
+            for (count = 0; count < total; count++) {
+                int lowest = -1;
+                for (int s = 0; s < sources.size(); s++) {
+                    Postings source = sources.get(s);
+                    if (positions[s] < source.count && (lowest < 0
+                            || source.documentIds[positions[s]] < sources.get(lowest).documentIds[positions[lowest]])) {
+                        lowest = s;
+                    }
+                }
+                Postings source = sources.get(lowest);
+                documentIds[count] = source.documentIds[positions[lowest]];
+                frequencies[count] = source.frequencies[positions[lowest]];
+                positions[lowest]++;
+            }
+        }
+
+        private void ensureCapacity(int capacity) {
+            if (capacity > documentIds.length) {
+                documentIds = Arrays.copyOf(documentIds, Math.max(capacity, documentIds.length * 2));
+                frequencies = Arrays.copyOf(frequencies, documentIds.length);
+            }
+        }
+    }
+
+    private final class DocumentCursor {
+
+        private final ByteBuffer in = section(0, termsOffset);
+        long documentId;
+        int length;
+        byte[] text;
+
+        boolean next() {
+            if (!in.hasRemaining()) {
+                return false;
+            }
+            documentId += readVarLong(in);
+            length = (int) readVarLong(in);
+            text = new byte[(int) readVarLong(in)];
+            in.get(text);
+            return true;
+        }
+    }
+
+    private final class TermCursor extends Postings {
+
+        private final ByteBuffer in = section(termsOffset, trigramsOffset);
+        String term;
+
+        boolean next() {
+            if (!in.hasRemaining()) {
+                return false;
+            }
+            byte[] bytes = new byte[(int) readVarLong(in)];
+            in.get(bytes);
+            term = new String(bytes, StandardCharsets.UTF_8);
+            read(in, true);
+            return true;
+        }
+    }
+
+    private final class TrigramCursor extends Postings {
+
+        private final ByteBuffer in = section(trigramsOffset, footerOffset);
+        long trigram;
+
+        boolean next() {
+            if (!in.hasRemaining()) {
+                return false;
+            }
+            trigram += readVarLong(in);
+            read(in, false);
+            return true;
+        }
+    }
+
+    /**
+     * Streams the sections to a temporary file and moves it into place once the footer is written and
+     * synced, so a crash never leaves a partial segment under the final name.
+     */
+    private static final class Writer implements Closeable {
+
+        private final Path target;
+        private final Path temporary;
+        private final FileOutputStream file;
+        private final DataOutputStream out;
+        private long previousDocumentId;
+        private long previousTrigram;
+        private long minDocumentId = Long.MAX_VALUE;
+        private long maxDocumentId = Long.MIN_VALUE;
+        private int documentCount;
+        private int termCount;
+        private int trigramCount;
+        private long termsOffset = -1;
+        private long trigramsOffset = -1;
+        private boolean finished;
+
+        Writer(Path target) throws IOException {
+            this.target = target;
+            this.temporary = target.resolveSibling(target.getFileName() + ".tmp");
+            this.file = new FileOutputStream(temporary.toFile());
+            this.out = new DataOutputStream(new BufferedOutputStream(file, 1 << 16));
+        }
+
+        void document(long documentId, int length, byte[] text) throws IOException {
+            writeVarLong(documentId - previousDocumentId);
+            writeVarLong(length);
+            writeVarLong(text.length);
+            out.write(text);
+            previousDocumentId = documentId;
+            minDocumentId = Math.min(minDocumentId, documentId);
+            maxDocumentId = Math.max(maxDocumentId, documentId);
+            documentCount++;
+        }
+
+        void beginTerms() {
+            termsOffset = out.size();
+        }
+
+        void term(String term, long[] documentIds, int[] frequencies, int count) throws IOException {
+            byte[] bytes = term.getBytes(StandardCharsets.UTF_8);
+            writeVarLong(bytes.length);
+            out.write(bytes);
+            writeVarLong(count);
+            long previous = 0;
+            for (int i = 0; i < count; i++) {
+                writeVarLong(documentIds[i] - previous);
+                writeVarLong(frequencies[i]);
+                previous = documentIds[i];
+            }
+            termCount++;
+        }
+
+        void beginTrigrams() {
+            trigramsOffset = out.size();
+        }
+
+        void trigram(long trigram, long[] documentIds, int count) throws IOException {
+            writeVarLong(trigram - previousTrigram);
+            writeVarLong(count);
+            long previous = 0;
+            for (int i = 0; i < count; i++) {
+                writeVarLong(documentIds[i] - previous);
+                previous = documentIds[i];
+            }
+            previousTrigram = trigram;
+            trigramCount++;
+        }
+
+        void finish() throws IOException {
+            // DataOutputStream.size() stops counting at Integer.MAX_VALUE, which is also the mapping limit
+            if (out.size() >= Integer.MAX_VALUE - FOOTER_BYTES) {
+                throw new IOException("Search index segment would exceed 2 GB: " + target);
+            }
+            out.writeLong(termsOffset);
+            out.writeLong(trigramsOffset);
+            out.writeLong(documentCount == 0 ? 0 : minDocumentId);
+            out.writeLong(documentCount == 0 ? 0 : maxDocumentId);
+            out.writeInt(documentCount);
+            out.writeInt(termCount);
+            out.writeInt(trigramCount);
+            out.writeInt(VERSION);
+            out.writeInt(MAGIC);
+            out.flush();
+            file.getFD().sync();
+            out.close();
+            Files.move(temporary, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            finished = true;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (!finished) {
+                out.close();
+                Files.deleteIfExists(temporary);
+            }
+        }
+
+        private void writeVarLong(long value) throws IOException {
+            while ((value & ~0x7FL) != 0) {
+                out.write((int) (value & 0x7F | 0x80));
+                value >>>= 7;
+            }
+            out.write((int) value);
+        }
+    }
+}
@@ -0,0 +1,496 @@
+package com.stackoverflowcompetitor.service;
+
+import com.stackoverflowcompetitor.util.TextTokenizer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.LongToDoubleFunction;
+
+/**
+ * Word-level inverted index: for every term, the sorted ids of the documents containing it and how often it
+ * occurs in each. A query matches the documents that contain all of its terms; the posting lists are
+ * intersected smallest first, so a query costs roughly the size of its rarest term's list.
+ * Matches can be ranked by BM25, keeping only the requested page in a bounded heap.
+ */
+public class InvertedIndex {
+
+    static final double K1 = 1.2;
+    static final double B = 0.75;
+
+    private static final Comparator<Hit> RANKING = Comparator.comparingDouble(Hit::score)
+            .thenComparingLong(Hit::documentId).reversed();
+
+    private final Map<String, PostingList> postings = new HashMap<>();
+    private final LengthTable documentLengths = new LengthTable();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private int documentCount;
+    private long totalLength;
+
+    /**
+     * Indexes a document under the terms of all the given fields. Documents are normally added in increasing
+     * id order, which keeps every posting list append-only.
+     */
+    public void add(long documentId, String... fields) {
+        Map<String, Integer> termFrequencies = new HashMap<>();
+        int length = 0;
+        for (String field : fields) {
+            for (String token : TextTokenizer.tokenize(field)) {
+                termFrequencies.merge(token, 1, Integer::sum);
+                length++;
+            }
+        }
+        lock.writeLock().lock();
+        try {
+            termFrequencies.forEach((term, frequency) ->
+                    postings.computeIfAbsent(term, t -> new PostingList()).add(documentId, frequency));
+            if (documentLengths.add(documentId, length)) {
+                documentCount++;
+            }
+            totalLength += length;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the ids of the documents containing every term of the query, in increasing id order.
+     */
+    public long[] search(String query) {
+        List<String> terms = new ArrayList<>(new LinkedHashSet<>(TextTokenizer.tokenize(query)));
+        if (terms.isEmpty()) {
+            return new long[0];
+        }
+        lock.readLock().lock();
+        try {
+            List<PostingList> lists = postingListsOf(terms);
+            if (lists == null) {
+                return new long[0];
+            }
+            lists.sort(Comparator.comparingInt(PostingList::size));
+            long[] matches = Arrays.copyOf(lists.get(0).documentIds, lists.get(0).size);
+            int matchCount = matches.length;
+            for (int i = 1; i < lists.size() && matchCount > 0; i++) {
+                matchCount = lists.get(i).retainAll(matches, matchCount);
+            }
+            return Arrays.copyOf(matches, matchCount);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns up to {@code limit} documents containing every term of the query, ranked by BM25 plus the
+     * optional boost, best first with ties broken by the higher id. When {@code after} is given, only
+     * documents ranked strictly after it are considered, which is how the next page is read.
+     * Matches are scored while the posting lists are walked and only the best {@code limit} are kept in a
+     * bounded heap, so a common term never materializes its whole match set.
+     */
+    public List<Hit> topK(String query, int limit, Hit after, LongToDoubleFunction boost) {
+        List<String> terms = new ArrayList<>(new LinkedHashSet<>(TextTokenizer.tokenize(query)));
+        if (terms.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+        TopHits top = new TopHits(limit, after);
+        lock.readLock().lock();
+        try {
+            List<PostingList> lists = postingListsOf(terms);
+            if (lists == null) {
+                return List.of();
+            }
+            lists.sort(Comparator.comparingInt(PostingList::size));
+            double averageLength = averageLength();
+            double[] idf = idfs(lists);
+
+            PostingList smallest = lists.get(0);
+            int[] positions = new int[lists.size()];
+            for (int d = 0; d < smallest.size; d++) {
+                long documentId = smallest.documentIds[d];
+                positions[0] = d;
+                boolean matchesAll = true;
+                for (int i = 1; i < lists.size() && matchesAll; i++) {
+                    PostingList list = lists.get(i);
+                    positions[i] = list.gallop(documentId, positions[i]);
+                    matchesAll = positions[i] < list.size && list.documentIds[positions[i]] == documentId;
+                }
+                if (!matchesAll) {
+                    continue;
+                }
+                double lengthNorm = K1 * (1 - B + B * documentLengths.get(documentId) / averageLength);
+                double score = 0;
+                for (int i = 0; i < lists.size(); i++) {
+                    int frequency = lists.get(i).frequencies[positions[i]];
+                    score += idf[i] * frequency * (K1 + 1) / (frequency + lengthNorm);
+                }
+                if (boost != null) {
+                    score += boost.applyAsDouble(documentId);
+                }
+                top.offer(documentId, score);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return top.ranked();
+    }
+
+    /**
+     * Ranks documents already known to match, such as the substring matches of the trigram index, the same
+     * way as {@link #topK(String, int, Hit, LongToDoubleFunction)}. A query word missing from a candidate, or
+     * from the whole index, adds nothing to its score, so candidates without any whole-word match rank by
+     * boost and then newest first.
+     *
+     * @param candidates document ids in increasing order
+     */
+    public List<Hit> topK(String query, long[] candidates, int limit, Hit after, LongToDoubleFunction boost) {
+        if (candidates.length == 0 || limit <= 0) {
+            return List.of();
+        }
+        TopHits top = new TopHits(limit, after);
+        lock.readLock().lock();
+        try {
+            List<PostingList> lists = new ArrayList<>();
+            for (String term : new LinkedHashSet<>(TextTokenizer.tokenize(query))) {
+                PostingList list = postings.get(term);
+                if (list != null) {
+                    lists.add(list);
+                }
+            }
+            double averageLength = averageLength();
+            double[] idf = idfs(lists);
+            int[] positions = new int[lists.size()];
+            for (long documentId : candidates) {
+                double score = 0;
+                double lengthNorm = -1;
+                for (int i = 0; i < lists.size(); i++) {
+                    PostingList list = lists.get(i);
+                    positions[i] = list.gallop(documentId, positions[i]);
+                    if (positions[i] < list.size && list.documentIds[positions[i]] == documentId) {
+                        if (lengthNorm < 0) {
+                            lengthNorm = K1 * (1 - B + B * documentLengths.get(documentId) / averageLength);
+                        }
+                        int frequency = list.frequencies[positions[i]];
+                        score += idf[i] * frequency * (K1 + 1) / (frequency + lengthNorm);
+                    }
+                }
+                if (boost != null) {
+                    score += boost.applyAsDouble(documentId);
+                }
+                top.offer(documentId, score);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return top.ranked();
+    }
+
+    private double averageLength() {
+        return documentCount == 0 ? 1 : Math.max(1, (double) totalLength / documentCount);
+    }
+
+    private double[] idfs(List<PostingList> lists) {
+        double[] idf = new double[lists.size()];
+        for (int i = 0; i < lists.size(); i++) {
+            idf[i] = idf(lists.get(i).size);
+        }
+        return idf;
+    }
+
+    private List<PostingList> postingListsOf(List<String> terms) {
+        List<PostingList> lists = new ArrayList<>(terms.size());
+        for (String term : terms) {
+            PostingList list = postings.get(term);
+            if (list == null) {
+                return null;
+            }
+            lists.add(list);
+        }
+        return lists;
+    }
+
+    private double idf(int documentFrequency) {
+        return Math.log(1 + (documentCount - documentFrequency + 0.5) / (documentFrequency + 0.5));
+    }
+
+    /**
+     * Returns the number of documents containing the (already tokenized) term.
+     */
+    public int documentFrequency(String term) {
+        lock.readLock().lock();
+        try {
+            PostingList list = postings.get(term);
+            return list == null ? 0 : list.size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int documentCount() {
+        lock.readLock().lock();
+        try {
+            return documentCount;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int termCount() {
+        lock.readLock().lock();
+        try {
+            return postings.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Bulk access for IndexSegment. The exports read without copying, so only use them on an instance that
+    // no other thread is adding to.
+
+    String[] sortedTerms() {
+        lock.readLock().lock();
+        try {
+            String[] terms = postings.keySet().toArray(new String[0]);
+            Arrays.sort(terms);
+            return terms;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    PostingList postingList(String term) {
+        lock.readLock().lock();
+        try {
+            return postings.get(term);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    int documentLength(long documentId) {
+        lock.readLock().lock();
+        try {
+            return documentLengths.get(documentId);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    void addDocumentLength(long documentId, int length) {
+        lock.writeLock().lock();
+        try {
+            if (documentLengths.add(documentId, length)) {
+                documentCount++;
+            }
+            totalLength += length;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    void addPostings(String term, long[] documentIds, int[] frequencies, int count) {
+        lock.writeLock().lock();
+        try {
+            PostingList list = postings.computeIfAbsent(term, t -> new PostingList());
+            for (int i = 0; i < count; i++) {
+                list.add(documentIds[i], frequencies[i]);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * A ranked match: the document and its relevance score.
+     */
+    public record Hit(long documentId, double score) {
+    }
+
+    /**
+     * The best {@code limit} hits ranked after {@code after}, kept worst-first so the worst is the one evicted.
+     */
+    private static final class TopHits {
+
+        private final int limit;
+        private final Hit after;
+        private final PriorityQueue<Hit> worstFirst;
+
+        TopHits(int limit, Hit after) {
+            this.limit = limit;
+            this.after = after;
+            this.worstFirst = new PriorityQueue<>(Math.min(limit, 1024), RANKING.reversed());
+        }
+
+        void offer(long documentId, double score) {
+            if (after != null && compare(score, documentId, after) <= 0) {
+                return;
+            }
+            if (worstFirst.size() < limit) {
+                worstFirst.add(new Hit(documentId, score));
+            } else if (compare(score, documentId, worstFirst.peek()) < 0) {
+                worstFirst.poll();
+                worstFirst.add(new Hit(documentId, score));
+            }
+        }
+
+        List<Hit> ranked() {
+            List<Hit> hits = new ArrayList<>(worstFirst);
+            hits.sort(RANKING);
+            return hits;
+        }
+
+        // RANKING.compare(new Hit(documentId, score), hit), without allocating the Hit
+        private static int compare(double score, long documentId, Hit hit) {
+            int byScore = Double.compare(hit.score(), score);
+            return byScore != 0 ? byScore : Long.compare(hit.documentId(), documentId);
+        }
+    }
+
+    /**
+     * Token count per document, in an open-addressing table of primitives so that scoring a match does not
+     * box its id.
+     */
+    static final class LengthTable {
+
+        private static final long EMPTY = Long.MIN_VALUE;
+
+        private long[] keys = newKeys(16);
+        private int[] values = new int[16];
+        private int size;
+
+        int get(long documentId) {
+            int slot = find(keys, documentId);
+            return keys[slot] == EMPTY ? 0 : values[slot];
+        }
+
+        /**
+         * Adds to the length of the document and returns whether it was not present before.
+         */
+        boolean add(long documentId, int length) {
+            int slot = find(keys, documentId);
+            if (keys[slot] != EMPTY) {
+                values[slot] += length;
+                return false;
+            }
+            keys[slot] = documentId;
+            values[slot] = length;
+            if (++size * 2 > keys.length) {
+                grow();
+            }
+            return true;
+        }
+
+        private void grow() {
+            long[] oldKeys = keys;
+            int[] oldValues = values;
+            keys = newKeys(oldKeys.length * 2);
+            values = new int[keys.length];
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] != EMPTY) {
+                    int slot = find(keys, oldKeys[i]);
+                    keys[slot] = oldKeys[i];
+                    values[slot] = oldValues[i];
+                }
+            }
+        }
+
+        // ids are auto-increment values and postings are walked in id order, so hashing by the id itself keeps
+        // consecutive lookups in neighbouring slots
+        private static int find(long[] keys, long documentId) {
+            int mask = keys.length - 1;
+            int slot = Long.hashCode(documentId) & mask;
+            while (keys[slot] != EMPTY && keys[slot] != documentId) {
+                slot = (slot + 1) & mask;
+            }
+            return slot;
+        }
+
+        private static long[] newKeys(int capacity) {
+            long[] keys = new long[capacity];
+            Arrays.fill(keys, EMPTY);
+            return keys;
+        }
+    }
+
+    /**
+     * Document ids in increasing order with their term frequencies, stored in parallel growable arrays.
+     */
+    static final class PostingList {
+
+        private long[] documentIds = new long[2];
+        private int[] frequencies = new int[2];
+        private int size;
+
+        int size() {
+            return size;
+        }
+
+        long documentId(int index) {
+            return documentIds[index];
+        }
+
+        int frequency(int index) {
+            return frequencies[index];
+        }
+
+        void add(long documentId, int frequency) {
+            if (size > 0 && documentIds[size - 1] >= documentId) {
+                int position = Arrays.binarySearch(documentIds, 0, size, documentId);
+                if (position >= 0) {
+                    frequencies[position] += frequency;
+                    return;
+                }
+                insertAt(-position - 1, documentId, frequency);
+                return;
+            }
+            insertAt(size, documentId, frequency);
+        }
+
+        /**
+         * Keeps only the candidates present in this list, compacting them at the front of the array.
+         * Each lookup gallops forward from the previous match, since both sides are sorted.
+         */
+        int retainAll(long[] candidates, int candidateCount) {
+            int kept = 0;
+            int from = 0;
+            for (int i = 0; i < candidateCount && from < size; i++) {
+                from = gallop(candidates[i], from);
+                if (from < size && documentIds[from] == candidates[i]) {
+                    candidates[kept++] = candidates[i];
+                    from++;
+                }
+            }
+            return kept;
+        }
+
+        int gallop(long target, int from) {
+            int step = 1;
+            int low = from;
+            int high = from;
+            while (high < size && documentIds[high] < target) {
+                low = high + 1;
+                high = from + step;
+                step <<= 1;
+            }
+            int position = Arrays.binarySearch(documentIds, low, Math.min(high + 1, size), target);
+            return position >= 0 ? position : -position - 1;
+        }
+
+        private void insertAt(int position, long documentId, int frequency) {
+            if (size == documentIds.length) {
+                documentIds = Arrays.copyOf(documentIds, size + (size >> 1) + 1);
+                frequencies = Arrays.copyOf(frequencies, documentIds.length);
+            }
+            System.arraycopy(documentIds, position, documentIds, position + 1, size - position);
+            System.arraycopy(frequencies, position, frequencies, position + 1, size - position);
+            documentIds[position] = documentId;
+            frequencies[position] = frequency;
+            size++;
+        }
+    }
+}
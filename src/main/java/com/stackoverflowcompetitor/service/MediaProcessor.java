@@ -0,0 +1,320 @@
+package com.stackoverflowcompetitor.service;
+
+import com.stackoverflowcompetitor.dto.MediaInfo;
+import com.stackoverflowcompetitor.dto.MediaStatus;
+import com.stackoverflowcompetitor.service.MediaService.StoredMedia;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Properties;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Processes stored images in the background: reads their dimensions and format and writes a JPEG thumbnail,
+ * which, being re-encoded, carries none of the original's metadata (EXIF location and the like). Only the
+ * standard javax.imageio readers are used. Files are queued as MediaService stores them, on a bounded queue
+ * drained by app.media.processing.threads threads. When the queue is full, storing waits up to
+ * app.media.processing.enqueue-timeout-ms for room and otherwise skips processing; asking for the media info
+ * queues a skipped file again.
+ * Results are saved next to the thumbnail, so they outlive restarts; files queued or being processed are
+ * tracked in memory. Exposed as media.processing.queue.size, media.processing.active,
+ * media.processing.rejected and the media.processing.time timer.
+ */
+@Service
+@Slf4j
+public class MediaProcessor {
+
+    static final String THUMBNAIL_SUFFIX = ".thumb.jpg";
+    static final String INFO_SUFFIX = ".info";
+
+    @Autowired
+    private MediaService mediaService;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${app.media.processing.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.media.processing.threads:2}")
+    private int threads;
+
+    @Value("${app.media.processing.queue-capacity:100}")
+    private int queueCapacity;
+
+    @Value("${app.media.processing.enqueue-timeout-ms:100}")
+    private long enqueueTimeoutMs;
+
+    @Value("${app.media.processing.thumbnail-size:320}")
+    private int thumbnailSize;
+
+    // Larger images are not decoded, however small their file
+    @Value("${app.media.processing.max-pixels:50000000}")
+    private long maxPixels;
+
+    private ThreadPoolExecutor executor;
+    private final Map<String, MediaStatus> inFlight = new ConcurrentHashMap<>();
+    private Timer processingTimer;
+    private Counter rejected;
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+            Thread thread = new Thread(runnable, "media-processing");
+            thread.setDaemon(true);
+            return thread;
+        }, (task, pool) -> {
+            // Backpressure: the storing thread waits a little for room before giving up on the file
+            try {
+                if (!pool.isShutdown() && pool.getQueue().offer(task, enqueueTimeoutMs, TimeUnit.MILLISECONDS)) {
+                    return;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            throw new RejectedExecutionException("Media processing queue is full");
+        });
+        Gauge.builder("media.processing.queue.size", executor, pool -> pool.getQueue().size())
+                .description("Stored files waiting to be processed")
+                .register(meterRegistry);
+        Gauge.builder("media.processing.active", executor, ThreadPoolExecutor::getActiveCount)
+                .description("Stored files being processed")
+                .register(meterRegistry);
+        processingTimer = Timer.builder("media.processing.time")
+                .description("Time taken to read an image and write its thumbnail")
+                .register(meterRegistry);
+        rejected = Counter.builder("media.processing.rejected")
+                .description("Stored files not processed because the queue was full")
+                .register(meterRegistry);
+        log.info("Media processing enabled with {} threads and a queue of {}", threads, queueCapacity);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    @EventListener
+    public void onMediaStored(MediaStoredEvent event) {
+        submit(event.id());
+    }
+
+    /**
+     * Returns the processing status of a stored file, with the results once it is done. A stored image that was
+     * skipped or stored before processing was enabled is queued.
+     *
+     * @return (the status, or empty if nothing is stored under the id)
+     */
+    public Optional<MediaInfo> info(String id) throws IOException {
+        // Only ids of stored files get near the file system
+        Optional<StoredMedia> media = mediaService.find(id);
+        if (media.isEmpty()) {
+            return Optional.empty();
+        }
+        MediaStatus status = inFlight.get(id);
+        if (status != null) {
+            return Optional.of(MediaInfo.of(id, status));
+        }
+        MediaInfo saved = readInfo(id);
+        if (saved != null) {
+            return Optional.of(saved);
+        }
+        if (!isImage(media.get())) {
+            return Optional.of(MediaInfo.of(id, MediaStatus.UNSUPPORTED));
+        }
+        return Optional.of(MediaInfo.of(id, submit(id)));
+    }
+
+    /**
+     * Returns the thumbnail of a processed image.
+     */
+    public Optional<StoredMedia> thumbnail(String id) throws IOException {
+        if (mediaService.find(id).isEmpty()) {
+            return Optional.empty();
+        }
+        Path thumbnail = mediaService.derivedFile(id, THUMBNAIL_SUFFIX);
+        if (!Files.isRegularFile(thumbnail)) {
+            return Optional.empty();
+        }
+        return Optional.of(new StoredMedia(thumbnail, Files.size(thumbnail), Files.getLastModifiedTime(thumbnail).toMillis(),
+                "\"" + id + "-thumb\"", MediaType.IMAGE_JPEG));
+    }
+
+    /**
+     * Queues the file unless it is queued or processed already.
+     *
+     * @return (the resulting status)
+     */
+    MediaStatus submit(String id) {
+        if (executor == null) {
+            return MediaStatus.SKIPPED;
+        }
+        if (inFlight.putIfAbsent(id, MediaStatus.QUEUED) != null) {
+            return inFlight.getOrDefault(id, MediaStatus.DONE);
+        }
+        if (Files.exists(mediaService.derivedFile(id, INFO_SUFFIX))) {
+            inFlight.remove(id);
+            return MediaStatus.DONE;
+        }
+        try {
+            executor.execute(() -> processingTimer.record(() -> process(id)));
+            return MediaStatus.QUEUED;
+        } catch (RejectedExecutionException e) {
+            inFlight.remove(id);
+            rejected.increment();
+            log.warn("Media processing queue is full, skipping {}", id);
+            return MediaStatus.SKIPPED;
+        }
+    }
+
+    void process(String id) {
+        inFlight.put(id, MediaStatus.PROCESSING);
+        try {
+            Optional<StoredMedia> media = mediaService.find(id);
+            if (media.isPresent()) {
+                writeInfo(isImage(media.get()) ? processImage(id, media.get().path()) : MediaInfo.of(id, MediaStatus.UNSUPPORTED));
+            }
+        } catch (Exception e) {
+            log.error("Error processing media {}", id, e);
+        } finally {
+            inFlight.remove(id);
+        }
+    }
+
+    private MediaInfo processImage(String id, Path file) throws IOException {
+        try (ImageInputStream in = ImageIO.createImageInputStream(file.toFile())) {
+            Iterator<ImageReader> readers = in == null ? null : ImageIO.getImageReaders(in);
+            if (readers == null || !readers.hasNext()) {
+                return MediaInfo.of(id, MediaStatus.UNSUPPORTED);
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(in, true, true);
+                int width = reader.getWidth(0);
+                int height = reader.getHeight(0);
+                String format = reader.getFormatName().toLowerCase(Locale.ROOT);
+                if ((long) width * height > maxPixels) {
+                    return new MediaInfo(id, MediaStatus.FAILED, width, height, format, null,
+                            "Image has more than " + maxPixels + " pixels");
+                }
+                // Decodes every n-th pixel, keeping at least twice the thumbnail's resolution to scale down from
+                int sampling = Math.max(1, Math.max(width, height) / (2 * thumbnailSize));
+                ImageReadParam param = reader.getDefaultReadParam();
+                param.setSourceSubsampling(sampling, sampling, 0, 0);
+                writeThumbnail(reader.read(0, param), mediaService.derivedFile(id, THUMBNAIL_SUFFIX));
+                return new MediaInfo(id, MediaStatus.DONE, width, height, format,
+                        MediaService.MEDIA_URL_PREFIX + id + "/thumbnail", null);
+            } catch (IOException | RuntimeException e) {
+                return new MediaInfo(id, MediaStatus.FAILED, null, null, null, null, String.valueOf(e.getMessage()));
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    private void writeThumbnail(BufferedImage image, Path target) throws IOException {
+        double scale = Math.min(1, (double) thumbnailSize / Math.max(image.getWidth(), image.getHeight()));
+        int width = Math.max(1, (int) Math.round(image.getWidth() * scale));
+        int height = Math.max(1, (int) Math.round(image.getHeight() * scale));
+        // JPEG has no alpha channel, so transparent areas are drawn over white
+        BufferedImage thumbnail = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = thumbnail.createGraphics();
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            graphics.drawImage(image, 0, 0, width, height, Color.WHITE, null);
+        } finally {
+            graphics.dispose();
+        }
+        Path temporary = target.resolveSibling(target.getFileName() + ".tmp");
+        if (!ImageIO.write(thumbnail, "jpg", temporary.toFile())) {
+            throw new IOException("No JPEG writer available");
+        }
+        Files.move(temporary, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    private static boolean isImage(StoredMedia media) {
+        return "image".equals(media.contentType().getType());
+    }
+
+    private MediaInfo readInfo(String id) throws IOException {
+        Path file = mediaService.derivedFile(id, INFO_SUFFIX);
+        if (!Files.exists(file)) {
+            return null;
+        }
+        Properties properties = new Properties();
+        try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            properties.load(reader);
+        }
+        return new MediaInfo(id, MediaStatus.valueOf(properties.getProperty("status")),
+                integer(properties.getProperty("width")), integer(properties.getProperty("height")),
+                properties.getProperty("format"), properties.getProperty("thumbnailUrl"), properties.getProperty("error"));
+    }
+
+    private void writeInfo(MediaInfo info) throws IOException {
+        Properties properties = new Properties();
+        properties.setProperty("status", info.status().name());
+        if (info.width() != null) {
+            properties.setProperty("width", info.width().toString());
+            properties.setProperty("height", info.height().toString());
+        }
+        if (info.format() != null) {
+            properties.setProperty("format", info.format());
+        }
+        if (info.thumbnailUrl() != null) {
+            properties.setProperty("thumbnailUrl", info.thumbnailUrl());
+        }
+        if (info.error() != null) {
+            properties.setProperty("error", info.error());
+        }
+        Path file = mediaService.derivedFile(info.id(), INFO_SUFFIX);
+        Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        try (Writer writer = Files.newBufferedWriter(temporary, StandardCharsets.UTF_8)) {
+            properties.store(writer, "Media processing result");
+        }
+        Files.move(temporary, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    private static Integer integer(String value) {
+        return value == null ? null : Integer.valueOf(value);
+    }
+}
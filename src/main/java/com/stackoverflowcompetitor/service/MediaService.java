@@ -1,28 +1,683 @@
 package com.stackoverflowcompetitor.service;
+
+import com.stackoverflowcompetitor.common.AuthenticatedUserDetails;
+import com.stackoverflowcompetitor.dto.UploadStatus;
+import com.stackoverflowcompetitor.repository.AnswerRepository;
+import com.stackoverflowcompetitor.repository.MediaReference;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.validation.ValidationException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
 import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
 import org.springframework.web.multipart.MultipartFile;
-
+import org.springframework.web.server.ResponseStatusException;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileVisitOption;
+import java.nio.file.FileVisitResult;
 import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
+/**
+ * Stores uploaded media under app.media.upload-dir. The container has already buffered each part to a temp file
+ * by the time it gets here, so in streaming mode that file is not read back through the heap: when it sits on the
+ * same filesystem as the upload directory it is renamed to a hidden temp file in that directory, otherwise it is
+ * written there with {@link FileChannel#transferFrom}. Every file is then moved to its final name atomically, so it
+ * only appears under that name once complete, even when the container kept the part in memory.
+ * Answers refer to stored files as {@code /media/<id>}, the id being the file name ({@code <uuid>_<name>}).
+ * With app.media.content-addressed, files are stored once per content instead: under the SHA-256 of their bytes,
+ * in two levels of directories named after its first four hex digits, and the id is the hash. The hash is computed
+ * while the upload is written (or, when the buffered part was moved into place, by reading it once). A blob is
+ * deleted by the periodic sweep once no Answer.mediaUrl refers to it and it has not been uploaded for
+ * app.media.sweep-grace-ms, which leaves time for the answer of a recent upload to commit.
+ * Large files can also be uploaded in chunks ({@link ChunkedUpload}): start an upload, send its chunks in any
+ * order, resending those that failed, then complete it, which stores the file like a single upload. An answer
+ * then refers to it by upload id. Uploads in progress are kept in memory; those idle for
+ * app.media.uploads.expiry-ms are dropped, and a restart drops them all.
+ * Every stored file is announced with a {@link MediaStoredEvent}, for background processing.
+ */
 @Service
+@Slf4j
 public class MediaService {
 
-    // this can be read from resource repository
-    private static final String UPLOAD_DIR = "src/main/resources/static/media/";
+    public static final String MEDIA_URL_PREFIX = "/media/";
+
+    private static final String INCOMING_PREFIX = ".incoming-";
+    private static final String DERIVED_DIR = ".derived";
+    private static final Set<String> INLINE_TYPES = Set.of(
+            "image/png", "image/jpeg", "image/gif", "image/webp", "image/avif", "image/bmp",
+            "video/mp4", "video/webm", "video/ogg", "video/quicktime",
+            "audio/mpeg", "audio/mp4", "audio/ogg", "audio/wav", "audio/webm", "audio/flac",
+            "text/plain");
+    private static final long TRANSFER_CHUNK = 8L * 1024 * 1024;
+    private static final Pattern HASH = Pattern.compile("[0-9a-f]{64}");
+    private static final Pattern STORED_NAME =
+            Pattern.compile("[0-9a-f]{8}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{12}_[A-Za-z0-9._-]+");
+    private static final Pattern LEGACY_NAME =
+            Pattern.compile("([0-9a-f]{8}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{12})_(.*)");
+    private static final int SWEEP_BATCH_SIZE = 500;
+
+    @Autowired
+    private AnswerRepository answerRepository;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private AuthenticatedUserDetails authenticatedUserDetails;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Value("${app.media.upload-dir:data/media}")
+    private String uploadDir;
+
+    @Value("${app.media.streaming:true}")
+    private boolean streaming;
+
+    // Where the container buffers multipart files; Tomcat defaults to a directory under java.io.tmpdir
+    @Value("${spring.servlet.multipart.location:${java.io.tmpdir}}")
+    private String multipartLocation;
+
+    @Value("${app.media.content-addressed:false}")
+    private boolean contentAddressed;
+
+    @Value("${app.media.sweep-interval-ms:3600000}")
+    private long sweepIntervalMs;
+
+    @Value("${app.media.sweep-grace-ms:86400000}")
+    private long sweepGraceMs;
+
+    @Value("${app.media.uploads.chunk-size:8388608}")
+    private int uploadChunkSize;
+
+    @Value("${app.media.uploads.max-size:2147483648}")
+    private long maxUploadSize;
+
+    @Value("${app.media.uploads.max-per-user:4}")
+    private int maxUploadsPerUser;
+
+    @Value("${app.media.uploads.expiry-ms:86400000}")
+    private long uploadExpiryMs;
+
+    private Path directory;
+    private boolean moveBufferedParts;
+    private final Map<String, ChunkedUpload> uploads = new ConcurrentHashMap<>();
+    // Held while a blob is reused or deleted, so the sweep cannot delete a blob an upload has just matched
+    private final Object blobLock = new Object();
+    private ScheduledExecutorService scheduler;
+    private Counter deduplicated;
+    private Counter swept;
+
+    @PostConstruct
+    public void start() throws IOException {
+        directory = Paths.get(uploadDir);
+        Files.createDirectories(directory.resolve(DERIVED_DIR));
+        deleteIncomingFiles();
+        moveBufferedParts = streaming && sameFileStore(Paths.get(multipartLocation), directory);
+        log.info("Storing media in {} ({}{})", directory.toAbsolutePath(),
+                !streaming ? "copying" : moveBufferedParts ? "moving buffered parts" : "channel transfer",
+                contentAddressed ? ", content-addressed" : "");
+        if (!contentAddressed) {
+            return;
+        }
+        deduplicated = Counter.builder("media.blobs.deduplicated")
+                .description("Uploads whose content was already stored")
+                .register(meterRegistry);
+        swept = Counter.builder("media.blobs.swept")
+                .description("Blobs deleted because no answer refers to them")
+                .register(meterRegistry);
+        if (sweepIntervalMs > 0) {
+            scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "media-sweep");
+                thread.setDaemon(true);
+                return thread;
+            });
+            scheduler.scheduleWithFixedDelay(this::sweepQuietly, sweepIntervalMs, sweepIntervalMs,
+                    TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
 
     public String uploadFile(MultipartFile file) throws IOException {
         if (file.isEmpty()) {
             throw new IllegalArgumentException("File is empty");
         }
+        String id = contentAddressed ? storeBlob(file) : storeFile(file);
+        eventPublisher.publishEvent(new MediaStoredEvent(id));
+        return MEDIA_URL_PREFIX + id;
+    }
 
-        String originalFilename = file.getOriginalFilename();
-        String newFilename = UUID.randomUUID().toString() + "_" + originalFilename;
-        Files.copy(file.getInputStream(), Paths.get(UPLOAD_DIR + newFilename));
-        return UPLOAD_DIR + newFilename;
+    private String storeFile(MultipartFile file) throws IOException {
+        String newFilename = UUID.randomUUID().toString() + "_" + safeFilename(file.getOriginalFilename());
+        Path incoming = incomingFile();
+        try {
+            if (!streaming) {
+                try (InputStream in = file.getInputStream()) {
+                    Files.copy(in, incoming);
+                }
+            } else if (moveBufferedParts) {
+                // Renames the container's temp file (Part.write), or writes the part if it was kept in memory
+                file.transferTo(incoming.toAbsolutePath().toFile());
+            } else {
+                try (InputStream in = file.getInputStream()) {
+                    transfer(in, incoming);
+                }
+            }
+            Files.move(incoming, directory.resolve(newFilename), StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(incoming);
+        }
+        return newFilename;
+    }
+
+    /**
+     * Looks up a stored file by the id of its media URL. Ids name content that never changes: a hash, or a file
+     * name made unique by its UUID.
+     *
+     * @return (the file, or empty if the id is malformed or nothing is stored under it)
+     */
+    public Optional<StoredMedia> find(String id) throws IOException {
+        Path file;
+        if (HASH.matcher(id).matches()) {
+            file = blobPath(id);
+        } else if (STORED_NAME.matcher(id).matches()) {
+            file = directory.resolve(id);
+        } else {
+            return Optional.empty();
+        }
+        BasicFileAttributes attributes;
+        try {
+            attributes = Files.readAttributes(file, BasicFileAttributes.class);
+        } catch (NoSuchFileException e) {
+            return Optional.empty();
+        }
+        if (!attributes.isRegularFile()) {
+            return Optional.empty();
+        }
+        MediaType contentType = MediaTypeFactory.getMediaType(id).orElseGet(() -> sniffContentType(file));
+        return Optional.of(new StoredMedia(file, attributes.size(), attributes.lastModifiedTime().toMillis(),
+                "\"" + id + "\"", isInline(contentType) ? contentType : MediaType.APPLICATION_OCTET_STREAM));
+    }
+
+    /**
+     * Tells whether a stored file of this type may be shown in the browser. The type comes from the name the
+     * uploader chose, and media is served from the app's own origin, so only types that cannot run script are:
+     * raster images, audio, video and plain text. HTML, SVG, XML, PDF and the rest are downloaded instead.
+     */
+    public static boolean isInline(MediaType contentType) {
+        return INLINE_TYPES.contains(contentType.getType() + "/" + contentType.getSubtype());
+    }
+
+    /**
+     * A stored file, with what is needed to serve it.
+     */
+    public record StoredMedia(Path path, long size, long lastModified, String etag, MediaType contentType) {
+    }
+
+    /**
+     * Starts a chunked upload of {@code size} bytes for the current user.
+     */
+    public UploadStatus startUpload(long size, String filename) throws IOException {
+        if (size <= 0 || size > maxUploadSize) {
+            throw new ValidationException("Upload size must be between 1 and " + maxUploadSize + " bytes");
+        }
+        Long ownerId = authenticatedUserDetails.getAuthenticatedUser().getId();
+        long now = System.currentTimeMillis();
+        expireUploads(now);
+        long inProgress = uploads.values().stream()
+                .filter(upload -> upload.getOwnerId().equals(ownerId) && !upload.isComplete())
+                .count();
+        if (inProgress >= maxUploadsPerUser) {
+            throw new ValidationException("At most " + maxUploadsPerUser + " uploads can be in progress at once");
+        }
+        String uploadId = UUID.randomUUID().toString();
+        ChunkedUpload upload = new ChunkedUpload(uploadId, ownerId, safeFilename(filename), size, uploadChunkSize,
+                directory.resolve(INCOMING_PREFIX + uploadId), now);
+        uploads.put(uploadId, upload);
+        return status(upload);
+    }
+
+    /**
+     * Writes one chunk of an upload of the current user.
+     *
+     * @param checksum (the CRC32C of the chunk, in hex)
+     */
+    public UploadStatus appendChunk(String uploadId, int index, String checksum, InputStream body) throws IOException {
+        long expectedCrc;
+        try {
+            expectedCrc = Long.parseLong(checksum, 16);
+        } catch (NumberFormatException e) {
+            throw new ValidationException("Chunk checksum must be a CRC32C in hex");
+        }
+        if (expectedCrc < 0 || expectedCrc > 0xFFFFFFFFL) {
+            throw new ValidationException("Chunk checksum must be a CRC32C in hex");
+        }
+        ChunkedUpload upload = ownUpload(uploadId);
+        upload.writeChunk(index, expectedCrc, body, System.currentTimeMillis());
+        return status(upload);
+    }
+
+    public UploadStatus uploadStatus(String uploadId) {
+        return status(ownUpload(uploadId));
+    }
+
+    /**
+     * Stores an upload whose chunks have all been received, returning its status with the media URL. Completing
+     * an upload again, concurrently too, returns the same status.
+     */
+    public UploadStatus completeUpload(String uploadId) throws IOException {
+        ChunkedUpload upload = ownUpload(uploadId);
+        Lock completion = upload.getCompletionLock();
+        completion.lock();
+        try {
+            if (upload.isComplete()) {
+                return status(upload);
+            }
+            if (uploads.get(uploadId) != upload) {
+                // A concurrent completion failed and dropped the upload
+                throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Upload not found with id: " + uploadId);
+            }
+            String id = store(upload);
+            log.info("Completed chunked upload {} of {} bytes", uploadId, upload.getSize());
+            eventPublisher.publishEvent(new MediaStoredEvent(id));
+            return status(upload);
+        } finally {
+            completion.unlock();
+        }
+    }
+
+    private String store(ChunkedUpload upload) throws IOException {
+        Path file = upload.finish();
+        String id;
+        try {
+            if (contentAddressed) {
+                MessageDigest digest = sha256();
+                digest(file, digest);
+                id = placeBlob(file, digest);
+            } else {
+                id = UUID.randomUUID().toString() + "_" + upload.getFilename();
+                Files.move(file, directory.resolve(id), StandardCopyOption.ATOMIC_MOVE);
+            }
+            upload.setMediaUrl(MEDIA_URL_PREFIX + id);
+        } catch (IOException | RuntimeException e) {
+            uploads.remove(upload.getId());
+            throw e;
+        } finally {
+            Files.deleteIfExists(file);
+        }
+        return id;
+    }
+
+    /**
+     * Returns the media URL of a completed upload of the current user, for an answer to refer to.
+     */
+    public String completedUpload(String uploadId) {
+        ChunkedUpload upload = ownUpload(uploadId);
+        if (!upload.isComplete()) {
+            throw new ValidationException("Upload " + uploadId + " is not complete");
+        }
+        return upload.getMediaUrl();
+    }
+
+    /**
+     * Drops a completed upload once an answer refers to its file.
+     */
+    public void forgetUpload(String uploadId) {
+        uploads.remove(uploadId);
+    }
+
+    private ChunkedUpload ownUpload(String uploadId) {
+        ChunkedUpload upload = uploads.get(uploadId);
+        if (upload == null || !upload.getOwnerId().equals(authenticatedUserDetails.getAuthenticatedUser().getId())) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Upload not found with id: " + uploadId);
+        }
+        return upload;
+    }
+
+    private static UploadStatus status(ChunkedUpload upload) {
+        return new UploadStatus(upload.getId(), upload.getSize(), upload.getChunkSize(), upload.getChunkCount(),
+                upload.missingChunks(), upload.getMediaUrl());
     }
-}
 
+    private void expireUploads(long now) throws IOException {
+        for (ChunkedUpload upload : uploads.values()) {
+            if (now - upload.getLastActivity() > uploadExpiryMs && uploads.remove(upload.getId(), upload)) {
+                upload.discard();
+            }
+        }
+    }
+
+    // Uploads in progress are not kept across restarts, so their files are leftovers
+    private void deleteIncomingFiles() throws IOException {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, INCOMING_PREFIX + "*")) {
+            for (Path file : files) {
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+
+    /**
+     * Moves the files of answers written before media was served from /media/{id} into the upload directory, and
+     * points the answers at their media URL. Those answers hold the file's path: under
+     * src/main/resources/static/media, later under app.media.upload-dir. The stored name keeps the file's UUID
+     * and is sanitized like new uploads. A file already moved, e.g. by an interrupted run, only has its answers
+     * updated; answers whose file is gone are left as they are.
+     *
+     * @return (the number of answers updated)
+     */
+    public int migrateLegacyMediaUrls() throws IOException {
+        int updated = 0;
+        int missing = 0;
+        for (String legacyUrl : answerRepository.findLegacyMediaUrls()) {
+            Path legacy = Paths.get(legacyUrl);
+            Path filename = legacy.getFileName();
+            String id = legacyStoredName(legacyUrl, filename == null ? "" : filename.toString());
+            Path target = directory.resolve(id);
+            if (!Files.exists(target)) {
+                if (!Files.isRegularFile(legacy)) {
+                    log.warn("Media file {} not found, leaving its answers as they are", legacyUrl);
+                    missing++;
+                    continue;
+                }
+                // Not yet referenced under its new name, so it need not appear there atomically
+                Files.move(legacy, target);
+            }
+            updated += answerRepository.updateMediaUrl(legacyUrl, MEDIA_URL_PREFIX + id);
+        }
+        log.info("Migrated the media URL of {} answers, {} files not found", updated, missing);
+        return updated;
+    }
+
+    /**
+     * Path of a file derived from a stored file, such as its thumbnail, named after the stored file's id.
+     * Derived files of a blob are deleted with it.
+     */
+    public Path derivedFile(String id, String suffix) {
+        return directory.resolve(DERIVED_DIR).resolve(id + suffix);
+    }
+
+    /**
+     * Path of the blob with the given SHA-256, e.g. {@code ab/cd/abcd...} under the upload directory.
+     */
+    public Path blobPath(String hash) {
+        return directory.resolve(hash.substring(0, 2)).resolve(hash.substring(2, 4)).resolve(hash);
+    }
+
+    /**
+     * Deletes the blobs that no answer refers to and that were last uploaded before the grace period, along with
+     * uploads left incomplete by a crash.
+     *
+     * @return the number of blobs deleted
+     */
+    public int sweep() throws IOException {
+        if (!contentAddressed) {
+            return 0;
+        }
+        long cutoff = System.currentTimeMillis() - sweepGraceMs;
+        List<Path> candidates = new ArrayList<>();
+        Files.walkFileTree(directory, EnumSet.noneOf(FileVisitOption.class), 3, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attributes) throws IOException {
+                String name = file.getFileName().toString();
+                if (!attributes.isRegularFile() || attributes.lastModifiedTime().toMillis() >= cutoff) {
+                    return FileVisitResult.CONTINUE;
+                }
+                if (name.startsWith(INCOMING_PREFIX)) {
+                    Files.deleteIfExists(file);
+                } else if (HASH.matcher(name).matches() && file.equals(blobPath(name))) {
+                    candidates.add(file);
+                }
+                return FileVisitResult.CONTINUE;
+            }
+
+            // Uploads create and delete temp files while the walk runs; one gone by the time it is read is skipped
+            @Override
+            public FileVisitResult visitFileFailed(Path file, IOException e) throws IOException {
+                if (e instanceof NoSuchFileException) {
+                    return FileVisitResult.CONTINUE;
+                }
+                throw e;
+            }
+        });
+        int deleted = 0;
+        for (int from = 0; from < candidates.size(); from += SWEEP_BATCH_SIZE) {
+            int to = Math.min(candidates.size(), from + SWEEP_BATCH_SIZE);
+            deleted += deleteUnreferenced(candidates.subList(from, to), cutoff);
+        }
+        swept.increment(deleted);
+        log.info("Media sweep deleted {} of {} blobs older than the grace period", deleted, candidates.size());
+        return deleted;
+    }
+
+    private int deleteUnreferenced(List<Path> blobs, long cutoff) throws IOException {
+        Map<String, Path> byUrl = new HashMap<>();
+        for (Path blob : blobs) {
+            byUrl.put(MEDIA_URL_PREFIX + blob.getFileName(), blob);
+        }
+        for (MediaReference reference : answerRepository.countByMediaUrlIn(byUrl.keySet())) {
+            if (reference.getReferenceCount() > 0) {
+                byUrl.remove(reference.getMediaUrl());
+            }
+        }
+        int deleted = 0;
+        for (Path blob : byUrl.values()) {
+            synchronized (blobLock) {
+                // Uploading the same content again since the walk refreshes the time and keeps the blob
+                if (Files.exists(blob) && Files.getLastModifiedTime(blob).toMillis() < cutoff) {
+                    Files.delete(blob);
+                    deleteDerivedFiles(blob.getFileName().toString());
+                    deleted++;
+                }
+            }
+        }
+        return deleted;
+    }
+
+    private void deleteDerivedFiles(String id) throws IOException {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory.resolve(DERIVED_DIR), id + ".*")) {
+            for (Path file : files) {
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+
+    private void sweepQuietly() {
+        try {
+            sweep();
+        } catch (Exception e) {
+            log.error("Media sweep failed", e);
+        }
+    }
+
+    /**
+     * Writes the upload to a temp file, hashing it on the way, then moves it to its blob path unless the same
+     * content is stored already.
+     *
+     * @return the SHA-256 of the content, in hex
+     */
+    private String storeBlob(MultipartFile file) throws IOException {
+        Path incoming = incomingFile();
+        try {
+            MessageDigest digest = sha256();
+            if (moveBufferedParts) {
+                file.transferTo(incoming.toAbsolutePath().toFile());
+                digest(incoming, digest);
+            } else {
+                try (InputStream in = new DigestInputStream(file.getInputStream(), digest)) {
+                    transfer(in, incoming);
+                }
+            }
+            return placeBlob(incoming, digest);
+        } finally {
+            Files.deleteIfExists(incoming);
+        }
+    }
+
+    /**
+     * Moves the file to the blob path of its digest, or leaves it for the caller to delete if the same content
+     * is stored already.
+     *
+     * @return the SHA-256 of the content, in hex
+     */
+    private String placeBlob(Path incoming, MessageDigest digest) throws IOException {
+        String hash = HexFormat.of().formatHex(digest.digest());
+        Path blob = blobPath(hash);
+        synchronized (blobLock) {
+            if (Files.exists(blob)) {
+                Files.setLastModifiedTime(blob, FileTime.fromMillis(System.currentTimeMillis()));
+                deduplicated.increment();
+            } else {
+                Files.createDirectories(blob.getParent());
+                Files.move(incoming, blob, StandardCopyOption.ATOMIC_MOVE);
+            }
+        }
+        return hash;
+    }
+
+    private Path incomingFile() {
+        return directory.resolve(INCOMING_PREFIX + UUID.randomUUID());
+    }
+
+    // Blobs have no extension, so their type is told by the signature of the formats answers usually embed
+    private static MediaType sniffContentType(Path file) {
+        byte[] head = new byte[12];
+        int read;
+        try (InputStream in = Files.newInputStream(file)) {
+            read = in.readNBytes(head, 0, head.length);
+        } catch (IOException e) {
+            return MediaType.APPLICATION_OCTET_STREAM;
+        }
+        if (read >= 8 && startsWith(head, 0, 0x89, 'P', 'N', 'G')) {
+            return MediaType.IMAGE_PNG;
+        } else if (read >= 3 && startsWith(head, 0, 0xFF, 0xD8, 0xFF)) {
+            return MediaType.IMAGE_JPEG;
+        } else if (read >= 6 && startsWith(head, 0, 'G', 'I', 'F', '8')) {
+            return MediaType.IMAGE_GIF;
+        } else if (read >= 12 && startsWith(head, 0, 'R', 'I', 'F', 'F') && startsWith(head, 8, 'W', 'E', 'B', 'P')) {
+            return MediaType.parseMediaType("image/webp");
+        } else if (read >= 8 && startsWith(head, 4, 'f', 't', 'y', 'p')) {
+            return MediaType.parseMediaType("video/mp4");
+        } else if (read >= 4 && startsWith(head, 0, 0x1A, 0x45, 0xDF, 0xA3)) {
+            return MediaType.parseMediaType("video/webm");
+        } else if (read >= 4 && startsWith(head, 0, '%', 'P', 'D', 'F')) {
+            return MediaType.APPLICATION_PDF;
+        }
+        return MediaType.APPLICATION_OCTET_STREAM;
+    }
+
+    private static boolean startsWith(byte[] bytes, int offset, int... signature) {
+        for (int i = 0; i < signature.length; i++) {
+            if ((bytes[offset + i] & 0xFF) != signature[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void transfer(InputStream in, Path target) throws IOException {
+        try (ReadableByteChannel source = Channels.newChannel(in);
+             FileChannel out = FileChannel.open(target, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+            long position = 0;
+            long transferred;
+            while ((transferred = out.transferFrom(source, position, TRANSFER_CHUNK)) > 0) {
+                position += transferred;
+            }
+        }
+    }
+
+    private static void digest(Path file, MessageDigest digest) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(64 * 1024);
+        try (FileChannel in = FileChannel.open(file, StandardOpenOption.READ)) {
+            while (in.read(buffer) >= 0) {
+                buffer.flip();
+                digest.update(buffer);
+                buffer.clear();
+            }
+        }
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    // Keeps the last path segment of the client's name, with anything but letters, digits, '.', '-' and '_' replaced
+    private static String safeFilename(String originalFilename) {
+        String name = StringUtils.getFilename(StringUtils.cleanPath(originalFilename == null ? "" : originalFilename));
+        name = name == null ? "" : name.replaceAll("[^A-Za-z0-9._-]", "_");
+        return name.isEmpty() || name.chars().allMatch(c -> c == '.') ? "upload" : name;
+    }
+
+    // The first uploads kept the original name as sent; a name without a UUID gets one derived from its path,
+    // so that a rerun finds the file it moved
+    private static String legacyStoredName(String legacyUrl, String filename) {
+        if (STORED_NAME.matcher(filename).matches()) {
+            return filename;
+        }
+        Matcher legacyName = LEGACY_NAME.matcher(filename);
+        if (legacyName.matches()) {
+            return legacyName.group(1) + "_" + safeFilename(legacyName.group(2));
+        }
+        return UUID.nameUUIDFromBytes(legacyUrl.getBytes(StandardCharsets.UTF_8)) + "_" + safeFilename(filename);
+    }
+
+    private static boolean sameFileStore(Path first, Path second) {
+        try {
+            return Files.getFileStore(first).equals(Files.getFileStore(second));
+        } catch (IOException e) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,8 @@
+package com.stackoverflowcompetitor.service;
+
+/**
+ * Published by MediaService once a file is stored, with the id of its media URL. Uploading content that is
+ * already stored publishes it again.
+ */
+public record MediaStoredEvent(String id) {
+}
@@ -0,0 +1,176 @@
+package com.stackoverflowcompetitor.service;
+
+import com.stackoverflowcompetitor.repository.QuestionRepository;
+import com.stackoverflowcompetitor.repository.QuestionScore;
+import com.stackoverflowcompetitor.util.TransactionUtil;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.function.LongPredicate;
+
+/**
+ * In-memory ranking of questions by score, mirroring ORDER BY score DESC, id DESC.
+ * It is loaded once at start-up and then kept current by VoteService and QuestionService,
+ * so the top-voted page never has to sort the question table.
+ * Each instance only sees its own writes; call {@link #reload()} to resynchronize with the database.
+ * Votes cast while it reloads are replayed into the reloaded ranking ({@link ReloadableState}).
+ */
+@Service
+@Slf4j
+public class QuestionLeaderboard {
+
+    private static final Comparator<Entry> RANKING = Comparator.comparingLong(Entry::score).reversed()
+            .thenComparing(Comparator.comparingLong(Entry::id).reversed());
+
+    @Autowired
+    private QuestionRepository questionRepository;
+
+    private final ReloadableState<Ranking> state = new ReloadableState<>(new Ranking());
+    private volatile boolean ready;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void reload() {
+        log.info("Loading question leaderboard");
+        Ranking loaded = state.reload(() -> {
+            Ranking ranking = new Ranking();
+            for (QuestionScore questionScore : questionRepository.findAllScores()) {
+                ranking.scores().put(questionScore.getId(), questionScore.getScore());
+                ranking.entries().add(new Entry(questionScore.getScore(), questionScore.getId()));
+            }
+            return ranking;
+        });
+        ready = true;
+        log.info("Question leaderboard loaded with {} questions", loaded.scores().size());
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    public int size() {
+        return state.get().scores().size();
+    }
+
+    /**
+     * Adds a newly posted question with a score of zero, once the surrounding transaction commits.
+     */
+    public void addQuestion(Long questionId) {
+        TransactionUtil.afterCommit(() -> state.write(ranking -> adjust(ranking, questionId, 0)));
+    }
+
+    /**
+     * Moves a question by the given score change, once the surrounding transaction commits.
+     */
+    public void adjustScore(Long questionId, long scoreDelta) {
+        TransactionUtil.afterCommit(() -> state.write(ranking -> adjust(ranking, questionId, scoreDelta)));
+    }
+
+    /**
+     * Returns the ids of the questions at the given rank range, best first.
+     */
+    public List<Long> topQuestionIds(long offset, int limit) {
+        List<Long> ids = new ArrayList<>(limit);
+        Iterator<Entry> iterator = state.get().entries().iterator();
+        for (long skipped = 0; skipped < offset && iterator.hasNext(); skipped++) {
+            iterator.next();
+        }
+        while (ids.size() < limit && iterator.hasNext()) {
+            ids.add(iterator.next().id());
+        }
+        return ids;
+    }
+
+    /**
+     * Returns up to {@code limit} ids ranked strictly after the given (score, id) position.
+     * The skip list seeks straight to the position, so deep pages cost the same as the first.
+     */
+    public List<Long> questionIdsAfter(long score, long id, int limit) {
+        List<Long> ids = new ArrayList<>(limit);
+        Iterator<Entry> iterator = state.get().entries().tailSet(new Entry(score, id), false).iterator();
+        while (ids.size() < limit && iterator.hasNext()) {
+            ids.add(iterator.next().id());
+        }
+        return ids;
+    }
+
+    /**
+     * Returns up to {@code limit} ids the filter accepts, best first, ranked strictly after the given (score, id)
+     * position, or from the top when the position is null. The walk reads ranks until the page is full, so it
+     * suits filters that accept a sizable share of the questions; it gives up after {@code maxRanks} ranks.
+     *
+     * @return the ids, or empty if the page was still short after {@code maxRanks} ranks
+     */
+    public Optional<List<Long>> questionIdsAfter(long[] position, int limit, long maxRanks, LongPredicate filter) {
+        List<Long> ids = new ArrayList<>(limit);
+        ConcurrentSkipListSet<Entry> entries = state.get().entries();
+        Iterator<Entry> iterator = position == null
+                ? entries.iterator()
+                : entries.tailSet(new Entry(position[0], position[1]), false).iterator();
+        for (long ranks = 0; ids.size() < limit && iterator.hasNext(); ranks++) {
+            if (ranks == maxRanks) {
+                return Optional.empty();
+            }
+            long id = iterator.next().id();
+            if (filter.test(id)) {
+                ids.add(id);
+            }
+        }
+        return Optional.of(ids);
+    }
+
+    /**
+     * Returns the score the leaderboard currently ranks a question by, or null if it is unknown.
+     */
+    public Long scoreOf(Long questionId) {
+        return state.get().scores().get(questionId);
+    }
+
+    /**
+     * Compares the first {@code limit} ranks with the SQL ranking on the score column.
+     * With write-behind enabled the database lags behind, so a mismatch is only meaningful after a flush.
+     *
+     * @return (true if both rankings list the same ids in the same order)
+     */
+    public boolean isConsistentWithDatabase(int limit) {
+        List<Long> sqlRanking = questionRepository.findTopVotedQuestionIds(PageRequest.of(0, limit));
+        List<Long> memoryRanking = topQuestionIds(0, limit);
+        if (!sqlRanking.equals(memoryRanking)) {
+            log.warn("Leaderboard differs from the database: memory {} vs sql {}", memoryRanking, sqlRanking);
+            return false;
+        }
+        return true;
+    }
+
+    private static void adjust(Ranking ranking, Long questionId, long scoreDelta) {
+        // compute() serializes updates per question, so its entry is always replaced exactly once
+        ranking.scores().compute(questionId, (id, oldScore) -> {
+            long newScore = (oldScore == null ? 0 : oldScore) + scoreDelta;
+            if (oldScore != null) {
+                ranking.entries().remove(new Entry(oldScore, id));
+            }
+            ranking.entries().add(new Entry(newScore, id));
+            return newScore;
+        });
+    }
+
+    private record Entry(long score, long id) {
+    }
+
+    private record Ranking(ConcurrentSkipListSet<Entry> entries, Map<Long, Long> scores) {
+        Ranking() {
+            this(new ConcurrentSkipListSet<>(RANKING), new ConcurrentHashMap<>());
+        }
+    }
+}
@@ -1,36 +1,101 @@
 package com.stackoverflowcompetitor.service;
 
 import com.stackoverflowcompetitor.common.AuthenticatedUserDetails;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.stackoverflowcompetitor.dto.AnswerNode;
+import com.stackoverflowcompetitor.dto.CursorPage;
+import com.stackoverflowcompetitor.dto.QuestionDetail;
+import com.stackoverflowcompetitor.dto.QuestionExport;
+import com.stackoverflowcompetitor.dto.QuestionSummary;
+import com.stackoverflowcompetitor.dto.SearchResult;
+import com.stackoverflowcompetitor.dto.Suggestions;
+import com.stackoverflowcompetitor.dto.TaggedQuestions;
 import com.stackoverflowcompetitor.model.Question;
 import com.stackoverflowcompetitor.model.Tag;
 import com.stackoverflowcompetitor.model.User;
+import com.stackoverflowcompetitor.repository.AnswerRepository;
 import com.stackoverflowcompetitor.repository.QuestionRepository;
+import com.stackoverflowcompetitor.repository.QuestionSummaryView;
+import com.stackoverflowcompetitor.repository.QuestionTreeRow;
+import com.stackoverflowcompetitor.repository.SearchDocument;
 import com.stackoverflowcompetitor.repository.TagRepository;
 import com.stackoverflowcompetitor.util.Constants;
+import com.stackoverflowcompetitor.util.CursorUtil;
+import com.stackoverflowcompetitor.util.SnippetUtil;
 import com.stackoverflowcompetitor.util.ValidationUtil;
 import jakarta.validation.ValidationException;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.server.ResponseStatusException;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 @Slf4j
 public class QuestionService {
 
+    // A tag on at least 1 question in this many is paged by score by walking the leaderboard
+    private static final int TAG_SHARE_FOR_LEADERBOARD_WALK = 100;
+    // A walk reads at most this many ranks per id wanted before sorting the tag's questions instead
+    private static final int LEADERBOARD_WALK_RANKS_PER_ID = 4 * TAG_SHARE_FOR_LEADERBOARD_WALK;
+
     @Autowired
     private QuestionRepository questionRepository;
 
+    @Autowired
+    private AnswerRepository answerRepository;
+
     @Autowired
     private TagRepository tagRepository;
 
     @Autowired
     private AuthenticatedUserDetails authenticatedUserDetails;
 
+    @Autowired
+    private QuestionLeaderboard questionLeaderboard;
+
+    @Autowired
+    private HotQuestionRanking hotQuestionRanking;
+
+    @Autowired
+    private SearchIndex searchIndex;
+
+    @Autowired
+    private FuzzyLookup fuzzyLookup;
+
+    @Autowired
+    private TagAutocomplete tagAutocomplete;
+
+    @Autowired
+    private TagIndex tagIndex;
 
+    @Autowired
+    private ObjectMapper objectMapper;
+
+
+    @Transactional
     public Question postQuestion(Question question, List<Long> tagIds) {
         log.info("In a postQuestion method");
         try {
@@ -54,7 +119,17 @@ public class QuestionService {
             question.setUser(user);
 
             log.info("Saving question by user: {}", user.getUsername());
-            return questionRepository.save(question);
+            Question savedQuestion = questionRepository.save(question);
+            if (!tags.isEmpty()) {
+                tagRepository.incrementQuestionCounts(tags.stream().map(Tag::getId).toList());
+            }
+            questionLeaderboard.addQuestion(savedQuestion.getId());
+            hotQuestionRanking.addQuestion(savedQuestion.getId(), savedQuestion.getCreatedTime());
+            searchIndex.addQuestion(savedQuestion.getId(), savedQuestion.getTitle(), savedQuestion.getContent());
+            fuzzyLookup.addTitle(savedQuestion.getTitle());
+            tagAutocomplete.addQuestion(tags);
+            tagIndex.addQuestion(savedQuestion.getId(), tags);
+            return savedQuestion;
         } catch (ValidationException e) {
             throw e;
         } catch (Exception e) {
@@ -64,10 +139,14 @@ public class QuestionService {
     }
 
 
-    public Page<Question> getTopVotedQuestions(Pageable pageable) {
+    public Page<QuestionSummary> getTopVotedQuestions(Pageable pageable) {
         log.info("In a topVotedQuestions method");
         try {
-            return questionRepository.findTopVotedQuestions(pageable);
+            if (questionLeaderboard.isReady()) {
+                List<Long> ids = questionLeaderboard.topQuestionIds(pageable.getOffset(), pageable.getPageSize());
+                return new PageImpl<>(summarize(ids), pageable, questionLeaderboard.size());
+            }
+            return toSummaryPage(questionRepository.findTopVotedQuestions(pageable));
         } catch (Exception e) {
             log.error("Error in getting topVotedQuestions");
             throw e;
@@ -75,34 +154,286 @@ public class QuestionService {
     }
 
 
-    public List<Question> findByTagName(String tagName) {
-        log.info("In a findByTagName method");
+    public CursorPage<QuestionSummary> getTopVotedQuestions(String cursor, int size) {
+        log.info("In a getTopVotedQuestions method, cursor: {}", cursor);
         try {
-            return questionRepository.findByTags_Name(tagName);
+            validatePageSize(size);
+            long[] position = cursor == null ? null : CursorUtil.decode(cursor, 2);
+            if (questionLeaderboard.isReady()) {
+                List<Long> ids = position == null
+                        ? questionLeaderboard.topQuestionIds(0, size + 1)
+                        : questionLeaderboard.questionIdsAfter(position[0], position[1], size + 1);
+                if (ids.size() <= size) {
+                    return new CursorPage<>(summarize(ids), null);
+                }
+                List<Long> pageIds = ids.subList(0, size);
+                Long lastId = pageIds.get(size - 1);
+                Long lastScore = questionLeaderboard.scoreOf(lastId);
+                return new CursorPage<>(summarize(pageIds), CursorUtil.encode(lastScore == null ? 0 : lastScore, lastId));
+            }
+            Pageable limit = PageRequest.of(0, size + 1);
+            List<Question> questions = position == null
+                    ? questionRepository.findAllByOrderByScoreDescIdDesc(limit)
+                    : questionRepository.findTopVotedAfter(position[0], position[1], limit);
+            return toCursorPage(questions, size, question -> CursorUtil.encode(question.getScore(), question.getId()));
+        } catch (ValidationException e) {
+            throw e;
+        } catch (Exception e) {
+            log.error("Error in getting topVotedQuestions by cursor: {}", cursor);
+            throw e;
+        }
+    }
+
+    public CursorPage<QuestionSummary> getAllQuestions(String cursor, int size) {
+        log.info("In a getAllQuestions method, cursor: {}", cursor);
+        try {
+            validatePageSize(size);
+            Pageable limit = PageRequest.of(0, size + 1);
+            List<Question> questions;
+            if (cursor == null) {
+                questions = questionRepository.findAllByOrderByCreatedTimeDescIdDesc(limit);
+            } else {
+                long[] position = CursorUtil.decode(cursor, 2);
+                questions = questionRepository.findNewestAfter(new Date(position[0]), position[1], limit);
+            }
+            return toCursorPage(questions, size, question -> CursorUtil.encode(question.getCreatedTime().getTime(), question.getId()));
+        } catch (ValidationException e) {
+            throw e;
+        } catch (Exception e) {
+            log.error("Error in getting all questions by cursor: {}", cursor);
+            throw e;
+        }
+    }
+
+    /**
+     * Finds the questions tagged with every tag of {@code all}, at least one of {@code any} and none of
+     * {@code none}, newest first by id, with keyset pagination.
+     */
+    public CursorPage<QuestionSummary> findByTags(List<String> all, List<String> any, List<String> none,
+                                                  String cursor, int size) {
+        log.info("In a findByTags method, cursor: {}", cursor);
+        try {
+            validatePageSize(size);
+            all = tagNames(all);
+            any = tagNames(any);
+            none = tagNames(none);
+            if (all.isEmpty() && any.isEmpty()) {
+                log.error("No tag to match");
+                throw new ValidationException("At least one tag is required in all or any");
+            }
+            long before = cursor == null ? Long.MAX_VALUE : CursorUtil.decode(cursor, 1)[0];
+            List<Long> ids;
+            if (tagIndex.isReady()) {
+                ids = tagIndex.questionIds(all, any, none, before, size + 1);
+            } else {
+                log.warn("Tag index not loaded yet, filtering tags in the database");
+                // IN () is not valid SQL, so unused lists get a name no tag has, and the flags skip their filter
+                List<String> unused = List.of("");
+                ids = questionRepository.findIdsByTagsBefore(!all.isEmpty(), all.isEmpty() ? unused : all, all.size(),
+                        !any.isEmpty(), any.isEmpty() ? unused : any, none.isEmpty() ? unused : none,
+                        before, PageRequest.of(0, size + 1));
+            }
+            if (ids.size() <= size) {
+                return new CursorPage<>(summarize(ids), null);
+            }
+            List<Long> page = ids.subList(0, size);
+            return new CursorPage<>(summarize(page), CursorUtil.encode(page.get(size - 1)));
+        } catch (ValidationException e) {
+            throw e;
+        } catch (Exception e) {
+            log.error("Error in findByTags, all: {}, any: {}, none: {}", all, any, none);
+            throw e;
+        }
+    }
+
+    public Page<QuestionSummary> getHotQuestions(Pageable pageable) {
+        log.info("In a getHotQuestions method");
+        try {
+            if (hotQuestionRanking.isReady()) {
+                List<Long> ids = hotQuestionRanking.hotQuestionIds(pageable.getOffset(), pageable.getPageSize());
+                return new PageImpl<>(summarize(ids), pageable, hotQuestionRanking.size());
+            }
+            log.warn("Hot ranking not loaded yet, falling back to newest questions");
+            return toSummaryPage(questionRepository.findAll(PageRequest.of(pageable.getPageNumber(), pageable.getPageSize(),
+                    Sort.by(Sort.Direction.DESC, "createdTime"))));
+        } catch (Exception e) {
+            log.error("Error in getting hot questions");
+            throw e;
+        }
+    }
+
+
+    /**
+     * Loads a question with all its answers and replies using a single query and links the tree in memory.
+     */
+    public QuestionDetail getQuestionDetail(Long questionId) {
+        log.info("In a getQuestionDetail method, questionId: {}", questionId);
+        try {
+            List<QuestionTreeRow> rows = questionRepository.findQuestionTree(questionId);
+            if (rows.isEmpty()) {
+                log.error("Question not found with id: {}", questionId);
+                throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Question not found with id: " + questionId);
+            }
+            QuestionTreeRow first = rows.get(0);
+            return new QuestionDetail(first.getQuestionId(), first.getTitle(), first.getQuestionContent(),
+                    first.getQuestionScore(), first.getQuestionUpvoteCount(), first.getQuestionDownvoteCount(),
+                    first.getQuestionAuthor(), QuestionSummary.tagsOf(first.getTagNames()),
+                    first.getQuestionCreatedTime(), buildAnswerTree(rows));
+        } catch (ResponseStatusException e) {
+            throw e;
+        } catch (Exception e) {
+            log.error("Error in getting question detail: {}", questionId);
+            throw e;
+        }
+    }
+
+    /**
+     * Finds the questions with a tag, newest first or best scored first, with keyset pagination, along with the
+     * tag's question counter. When the tag has no questions the closest known tag name is used instead.
+     */
+    public TaggedQuestions findByTag(String tagName, String sort, String cursor, int size) {
+        log.info("In a findByTag method, sort: {}, cursor: {}", sort, cursor);
+        try {
+            validatePageSize(size);
+            boolean byScore = Constants.SORT_SCORE.equals(sort);
+            if (!byScore && !Constants.SORT_NEWEST.equals(sort)) {
+                log.error("Invalid sort: {}", sort);
+                throw new ValidationException("sort must be " + Constants.SORT_NEWEST + " or " + Constants.SORT_SCORE);
+            }
+            long[] position = cursor == null ? null : CursorUtil.decode(cursor, byScore ? 2 : 1);
+            String tag = tagName;
+            long questionCount = tagRepository.findQuestionCountByName(tag).orElse(0L);
+            if (questionCount == 0 && cursor == null && fuzzyLookup.isReady()) {
+                List<String> closest = fuzzyLookup.closestTags(tagName, FuzzyLookup.maxEditsFor(tagName), 1);
+                if (!closest.isEmpty() && !closest.get(0).equalsIgnoreCase(tagName)) {
+                    log.info("No questions tagged {}, using the closest tag {}", tagName, closest.get(0));
+                    tag = closest.get(0);
+                    questionCount = tagRepository.findQuestionCountByName(tag).orElse(0L);
+                }
+            }
+            Map<Long, Long> scores = new HashMap<>();
+            List<Long> ids = byScore
+                    ? idsOfTagByScore(tag, position, size + 1, scores)
+                    : idsOfTagNewest(tag, position == null ? Long.MAX_VALUE : position[0], size + 1);
+            String nextCursor = null;
+            if (ids.size() > size) {
+                ids = ids.subList(0, size);
+                Long lastId = ids.get(size - 1);
+                nextCursor = byScore ? CursorUtil.encode(scores.getOrDefault(lastId, 0L), lastId) : CursorUtil.encode(lastId);
+            }
+            return new TaggedQuestions(tag, questionCount, summarize(ids), nextCursor);
+        } catch (ValidationException e) {
+            throw e;
         } catch (Exception e) {
-            log.error("Error in findByTagName: {}", tagName);
+            log.error("Error in findByTag: {}", tagName);
             throw e;
         }
     }
 
-    public List<Question> getAllQuestions() {
+    private List<Long> idsOfTagNewest(String tag, long before, int limit) {
+        if (tagIndex.isReady()) {
+            return tagIndex.questionIds(List.of(tag), List.of(), List.of(), before, limit);
+        }
+        Pageable page = PageRequest.of(0, limit);
+        return idsOf(before == Long.MAX_VALUE
+                ? questionRepository.findByTags_NameOrderByIdDesc(tag, page)
+                : questionRepository.findByTagNameBefore(tag, before, page));
+    }
+
+    /**
+     * Walks the leaderboard keeping the tag's questions when the tag is on at least 1 in
+     * TAG_SHARE_FOR_LEADERBOARD_WALK questions, reading at most LEADERBOARD_WALK_RANKS_PER_ID ranks per id wanted.
+     * Sorts the tag's own questions by score when it is rarer, or when its questions are too sparse in the
+     * stretch walked to fill the page. Fills {@code scores} with the score of each returned id.
+     */
+    private List<Long> idsOfTagByScore(String tag, long[] position, int limit, Map<Long, Long> scores) {
+        if (tagIndex.isReady() && questionLeaderboard.isReady()) {
+            Optional<List<Long>> walked = Optional.empty();
+            if (tagIndex.questionCount(tag) * TAG_SHARE_FOR_LEADERBOARD_WALK >= questionLeaderboard.size()) {
+                walked = questionLeaderboard.questionIdsAfter(position, limit,
+                        (long) limit * LEADERBOARD_WALK_RANKS_PER_ID, id -> tagIndex.isTagged(id, tag));
+            }
+            List<Long> ids = walked.orElseGet(() -> idsOfTagSortedByScore(tag, position, limit));
+            ids.forEach(id -> scores.put(id, scoreOf(id)));
+            return ids;
+        }
+        Pageable page = PageRequest.of(0, limit);
+        List<Question> questions = position == null
+                ? questionRepository.findByTagNameOrderByScore(tag, page)
+                : questionRepository.findByTagNameAfterScore(tag, position[0], position[1], page);
+        questions.forEach(question -> scores.put(question.getId(), question.getScore()));
+        return idsOf(questions);
+    }
+
+    private List<Long> idsOfTagSortedByScore(String tag, long[] position, int limit) {
+        Comparator<Long> ranking = Comparator.<Long>comparingLong(id -> scoreOf(id)).reversed()
+                .thenComparing(Comparator.reverseOrder());
+        return tagIndex.questionIds(List.of(tag), List.of(), List.of(), Long.MAX_VALUE, Integer.MAX_VALUE).stream()
+                .filter(id -> position == null || scoreOf(id) < position[0]
+                        || (scoreOf(id) == position[0] && id < position[1]))
+                .sorted(ranking)
+                .limit(limit)
+                .toList();
+    }
+
+    private long scoreOf(Long questionId) {
+        Long score = questionLeaderboard.scoreOf(questionId);
+        return score == null ? 0 : score;
+    }
+
+    public List<QuestionSummary> getAllQuestions() {
         log.info("In a findAllQuestions method");
         try {
-            return questionRepository.findAll();
+            return questionRepository.findAllSummaries().stream().map(QuestionSummary::from).toList();
         } catch (Exception e) {
             log.error("Error in getting all questions");
             throw e;
         }
     }
 
-    public List<Question> searchQuestions(String searchTerm) {
+    /**
+     * Writes every question as one JSON line, reading their columns through a forward-only stream. No entity is
+     * loaded, so memory stays constant regardless of table size.
+     *
+     * @return the number of questions written
+     */
+    @Transactional(readOnly = true)
+    public long exportQuestions(OutputStream outputStream) throws IOException {
+        log.info("In an exportQuestions method");
+        long written = 0;
+        try (Stream<QuestionExport> questions = questionRepository.streamExports()) {
+            Iterator<QuestionExport> iterator = questions.iterator();
+            while (iterator.hasNext()) {
+                outputStream.write(objectMapper.writeValueAsBytes(iterator.next()));
+                outputStream.write('\n');
+                if (++written % Constants.EXPORT_FLUSH_ROWS == 0) {
+                    outputStream.flush();
+                }
+            }
+            outputStream.flush();
+            return written;
+        } catch (IOException e) {
+            log.error("Export stopped after {} questions", written);
+            throw e;
+        }
+    }
+
+    public CursorPage<QuestionSummary> searchQuestions(String searchTerm, String cursor, int limit) {
         log.info("In a searchQuestions method");
         try {
             if(ValidationUtil.validateLength(searchTerm, Constants.MIN_SEARCH_STRING_LENGTH, Constants.MAX_SEARCH_STRING_LENGTH)){
                 log.error("Invalid searchTerm length");
                 throw new ValidationException("searchTerm length must be between " + Constants.MIN_SEARCH_STRING_LENGTH + " and " + Constants.MAX_SEARCH_STRING_LENGTH + " characters");
             }
-            return questionRepository.searchQuestionsByTitleOrContent(searchTerm);
+            validatePageSize(limit);
+            if (searchIndex.isReady()) {
+                CursorPage<Long> ids = searchIndex.searchQuestions(searchTerm, cursor, limit);
+                return new CursorPage<>(summarize(ids.content()), ids.nextCursor());
+            }
+            // Unranked and single-page until the index is loaded
+            log.warn("Search index not loaded yet, falling back to a LIKE scan");
+            List<Question> questions = questionRepository.searchQuestionsByTitleOrContent(searchTerm, PageRequest.of(0, limit));
+            return new CursorPage<>(summarize(idsOf(questions)), null);
         } catch (ValidationException e) {
             throw e;
         }
@@ -111,4 +442,166 @@ public class QuestionService {
             throw e;
         }
     }
+
+    /**
+     * Searches questions and answers together and returns one page of questions, most relevant first, each with
+     * a snippet of the text that matched. Only the questions and answers on the page are read from the database.
+     */
+    public CursorPage<SearchResult> search(String searchTerm, String cursor, int limit) {
+        log.info("In a search method");
+        try {
+            if(ValidationUtil.validateLength(searchTerm, Constants.MIN_SEARCH_STRING_LENGTH, Constants.MAX_SEARCH_STRING_LENGTH)){
+                log.error("Invalid searchTerm length");
+                throw new ValidationException("searchTerm length must be between " + Constants.MIN_SEARCH_STRING_LENGTH + " and " + Constants.MAX_SEARCH_STRING_LENGTH + " characters");
+            }
+            validatePageSize(limit);
+            if (searchIndex.isReady()) {
+                CursorPage<SearchIndex.Match> matches = searchIndex.search(searchTerm, cursor, limit);
+                return new CursorPage<>(toSearchResults(matches.content(), searchTerm), matches.nextCursor());
+            }
+            // Questions only, unranked and single-page until the index is loaded
+            log.warn("Search index not loaded yet, falling back to a LIKE scan");
+            List<SearchIndex.Match> matches = questionRepository.searchQuestionsByTitleOrContent(searchTerm, PageRequest.of(0, limit))
+                    .stream().map(question -> new SearchIndex.Match(question.getId(), null, 0)).toList();
+            return new CursorPage<>(toSearchResults(matches, searchTerm), null);
+        } catch (ValidationException e) {
+            throw e;
+        } catch (Exception e) {
+            log.error("Error in searching questions and answers by text: {}", searchTerm);
+            throw e;
+        }
+    }
+
+    /**
+     * Returns the tag names and title words within a few edits of the term, closest first.
+     */
+    public Suggestions suggest(String term, int limit) {
+        log.info("In a suggest method");
+        try {
+            if(ValidationUtil.validateLength(term, Constants.MIN_SEARCH_STRING_LENGTH, Constants.MAX_SEARCH_STRING_LENGTH)){
+                log.error("Invalid term length");
+                throw new ValidationException("term length must be between " + Constants.MIN_SEARCH_STRING_LENGTH + " and " + Constants.MAX_SEARCH_STRING_LENGTH + " characters");
+            }
+            validatePageSize(limit);
+            if (!fuzzyLookup.isReady()) {
+                log.warn("Fuzzy lookup not loaded yet, no suggestions");
+                return new Suggestions(term, List.of(), List.of());
+            }
+            int maxEdits = FuzzyLookup.maxEditsFor(term);
+            return new Suggestions(term, fuzzyLookup.closestTags(term, maxEdits, limit),
+                    fuzzyLookup.closestTitleWords(term, maxEdits, limit));
+        } catch (ValidationException e) {
+            throw e;
+        } catch (Exception e) {
+            log.error("Error in suggesting terms for: {}", term);
+            throw e;
+        }
+    }
+
+    private List<SearchResult> toSearchResults(List<SearchIndex.Match> matches, String searchTerm) {
+        if (matches.isEmpty()) {
+            return List.of();
+        }
+        Map<Long, QuestionSummary> summariesById = summarize(matches.stream().map(SearchIndex.Match::questionId).toList())
+                .stream().collect(Collectors.toMap(QuestionSummary::id, Function.identity()));
+        List<Long> questionIds = matches.stream().filter(match -> match.answerId() == null).map(SearchIndex.Match::questionId).toList();
+        List<Long> answerIds = matches.stream().map(SearchIndex.Match::answerId).filter(Objects::nonNull).toList();
+        Map<Long, SearchDocument> questionTexts = questionIds.isEmpty() ? Map.of()
+                : questionRepository.findSearchDocumentsByIdIn(questionIds).stream()
+                .collect(Collectors.toMap(SearchDocument::getId, Function.identity()));
+        Map<Long, SearchDocument> answerTexts = answerIds.isEmpty() ? Map.of()
+                : answerRepository.findSearchDocumentsByIdIn(answerIds).stream()
+                .collect(Collectors.toMap(SearchDocument::getId, Function.identity()));
+
+        List<SearchResult> results = new ArrayList<>(matches.size());
+        for (SearchIndex.Match match : matches) {
+            QuestionSummary summary = summariesById.get(match.questionId());
+            if (summary == null) {
+                continue;
+            }
+            String text = null;
+            if (match.answerId() != null) {
+                SearchDocument answer = answerTexts.get(match.answerId());
+                text = answer == null ? null : answer.getContent();
+            } else if (questionTexts.containsKey(match.questionId())) {
+                SearchDocument question = questionTexts.get(match.questionId());
+                text = SnippetUtil.contains(question.getTitle(), searchTerm) ? question.getTitle() : question.getContent();
+            }
+            SnippetUtil.Snippet snippet = SnippetUtil.snippet(text, searchTerm, Constants.SNIPPET_LENGTH);
+            results.add(new SearchResult(summary, match.answerId(), match.score(), snippet.text(), snippet.highlights()));
+        }
+        return results;
+    }
+
+    /**
+     * Trims a result fetched with one extra row to the page size; the extra row only signals that another page exists.
+     */
+    private CursorPage<QuestionSummary> toCursorPage(List<Question> questions, int size, Function<Question, String> cursorOf) {
+        if (questions.size() <= size) {
+            return new CursorPage<>(summarize(idsOf(questions)), null);
+        }
+        List<Question> page = questions.subList(0, size);
+        return new CursorPage<>(summarize(idsOf(page)), cursorOf.apply(page.get(size - 1)));
+    }
+
+    private Page<QuestionSummary> toSummaryPage(Page<Question> page) {
+        return new PageImpl<>(summarize(idsOf(page.getContent())), page.getPageable(), page.getTotalElements());
+    }
+
+    // Lower-cased, without blanks or duplicates, e.g. from "java,,Java"
+    private static List<String> tagNames(List<String> names) {
+        return names.stream().map(String::trim).filter(name -> !name.isEmpty())
+                .map(name -> name.toLowerCase(Locale.ROOT)).distinct().toList();
+    }
+
+    private static List<Long> idsOf(List<Question> questions) {
+        return questions.stream().map(Question::getId).toList();
+    }
+
+    /**
+     * Links answers to their parents in two passes over the rows, so the cost is linear in the number of answers
+     * whatever the depth of the tree. Rows arrive ordered by creation time, which keeps siblings in that order.
+     */
+    private static List<AnswerNode> buildAnswerTree(List<QuestionTreeRow> rows) {
+        Map<Long, AnswerNode> nodesById = new HashMap<>();
+        for (QuestionTreeRow row : rows) {
+            if (row.getAnswerId() != null) {
+                nodesById.put(row.getAnswerId(), new AnswerNode(row.getAnswerId(), row.getAnswerContent(),
+                        row.getMediaUrl(), row.getAnswerScore(), row.getAnswerUpvoteCount(),
+                        row.getAnswerDownvoteCount(), row.getAnswerAuthor(), row.getAnswerCreatedTime()));
+            }
+        }
+        List<AnswerNode> roots = new ArrayList<>();
+        for (QuestionTreeRow row : rows) {
+            if (row.getAnswerId() == null) {
+                continue;
+            }
+            AnswerNode parent = row.getParentAnswerId() == null ? null : nodesById.get(row.getParentAnswerId());
+            (parent == null ? roots : parent.replies()).add(nodesById.get(row.getAnswerId()));
+        }
+        return roots;
+    }
+
+    private void validatePageSize(int size) {
+        if (ValidationUtil.validateRange(size, Constants.MIN_PAGE_SIZE, Constants.MAX_PAGE_SIZE)) {
+            log.error("Invalid page size: {}", size);
+            throw new ValidationException("Page size must be between " + Constants.MIN_PAGE_SIZE + " and " + Constants.MAX_PAGE_SIZE);
+        }
+    }
+
+    /**
+     * Loads the list read model for the given ids with a single query and returns it in the order of the ids.
+     */
+    private List<QuestionSummary> summarize(List<Long> ids) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        Map<Long, QuestionSummaryView> summariesById = questionRepository.findSummariesByIdIn(ids).stream()
+                .collect(Collectors.toMap(QuestionSummaryView::getId, Function.identity()));
+        return ids.stream()
+                .map(summariesById::get)
+                .filter(Objects::nonNull)
+                .map(QuestionSummary::from)
+                .toList();
+    }
 }
@@ -0,0 +1,92 @@
+package com.stackoverflowcompetitor.service;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Holds the live copy of an in-memory structure that is rebuilt from the database by a reload. A write that
+ * commits while a copy is loading goes to the live copy, which is about to be replaced, and the load may already
+ * have read past its row; so writes are also queued during a load and replayed into the loaded copy before it
+ * replaces the live one. Writes only share a read lock, so they still run concurrently; the swap takes the
+ * write lock once the queue is nearly drained. Replayed writes must not assume the loaded copy lacks them: a
+ * write committing just as the load starts can be both loaded and replayed, which only matters for deltas.
+ */
+final class ReloadableState<T> {
+
+    private volatile T current;
+    // Writes made since the running load started, or null when no load is running
+    private volatile Queue<Consumer<? super T>> pending;
+    private final ReadWriteLock swapLock = new ReentrantReadWriteLock();
+    private final Lock reloadLock = new ReentrantLock();
+
+    ReloadableState(T initial) {
+        current = initial;
+    }
+
+    /**
+     * Returns the live copy, for reads.
+     */
+    T get() {
+        return current;
+    }
+
+    /**
+     * Applies a write to the live copy and, while a load is running, to the loaded copy before it goes live.
+     */
+    void write(Consumer<? super T> write) {
+        swapLock.readLock().lock();
+        try {
+            write.accept(current);
+            Queue<Consumer<? super T>> queue = pending;
+            if (queue != null) {
+                queue.add(write);
+            }
+        } finally {
+            swapLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Builds a new copy with the loader and makes it live along with the writes made while it was loading.
+     * Reloads run one at a time; a failed load leaves the live copy in place.
+     *
+     * @return the copy that went live
+     */
+    T reload(Supplier<T> loader) {
+        reloadLock.lock();
+        try {
+            Queue<Consumer<? super T>> queue = new ConcurrentLinkedQueue<>();
+            pending = queue;
+            try {
+                T loaded = loader.get();
+                // Most of the backlog is replayed without holding up writes; the rest once they are locked out
+                replay(queue, loaded);
+                swapLock.writeLock().lock();
+                try {
+                    replay(queue, loaded);
+                    current = loaded;
+                } finally {
+                    swapLock.writeLock().unlock();
+                }
+                return loaded;
+            } finally {
+                pending = null;
+            }
+        } finally {
+            reloadLock.unlock();
+        }
+    }
+
+    private void replay(Queue<Consumer<? super T>> queue, T loaded) {
+        Consumer<? super T> write;
+        while ((write = queue.poll()) != null) {
+            write.accept(loaded);
+        }
+    }
+}
@@ -0,0 +1,361 @@
+package com.stackoverflowcompetitor.service;
+
+import com.stackoverflowcompetitor.dto.CursorPage;
+import com.stackoverflowcompetitor.repository.AnswerQuestion;
+import com.stackoverflowcompetitor.repository.AnswerRepository;
+import com.stackoverflowcompetitor.repository.QuestionRepository;
+import com.stackoverflowcompetitor.repository.SearchDocument;
+import com.stackoverflowcompetitor.util.Constants;
+import com.stackoverflowcompetitor.util.CursorUtil;
+import com.stackoverflowcompetitor.util.TransactionUtil;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalLong;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongToDoubleFunction;
+import java.util.stream.Stream;
+
+/**
+ * In-memory search over question titles and content and answer content, replacing the
+ * LIKE '%term%' scans. Loaded once at start-up by streaming both tables, then kept current by
+ * QuestionService and AnswerService. Each instance only sees its own writes; call {@link #reload()}
+ * to resynchronize with the database; documents posted while it reloads are replayed into the reloaded indexes
+ * ({@link ReloadableState}). When SearchSegmentStore is enabled, start-up instead restores
+ * the persisted segments and only streams the rows modified since they were last flushed.
+ * A trigram index finds the same matches as the LIKE scan; a word index ranks them by BM25. Question
+ * relevance is mixed with the vote score from the leaderboard, weighted by app.search.vote-weight
+ * (0 disables it). {@link #search} ranks both corpora at once and groups the answer hits by question.
+ * Result pages are cached by SearchResultCache, which the writes here invalidate.
+ */
+@Service
+@Slf4j
+public class SearchIndex {
+
+    static final String QUESTIONS = "questions";
+    static final String ANSWERS = "answers";
+    // Largest window a cursor may start from; clients can forge cursors, and the search widens past it when needed
+    static final int MAX_CURSOR_WINDOW = 64 * Constants.MAX_PAGE_SIZE;
+
+    private static final Comparator<Match> RANKING = Comparator.comparingDouble(Match::score)
+            .thenComparingLong(Match::questionId).reversed();
+
+    @Autowired
+    private QuestionRepository questionRepository;
+
+    @Autowired
+    private AnswerRepository answerRepository;
+
+    @Autowired
+    private QuestionLeaderboard questionLeaderboard;
+
+    @Autowired
+    private SearchSegmentStore segmentStore;
+
+    @Autowired
+    private SearchResultCache resultCache;
+
+    @Value("${app.search.vote-weight:0.5}")
+    private double voteWeight;
+
+    // Replays this much before the watermark, for rows whose commit was still in flight during the last flush
+    @Value("${app.search.segments.replay-overlap-ms:60000}")
+    private long replayOverlapMs;
+
+    @Value("${app.search.threads:4}")
+    private int searchThreads;
+
+    private final ReloadableState<Corpora> corpora = new ReloadableState<>(new Corpora());
+    private volatile boolean ready;
+    // Question of every answer seen since start-up; the rest are looked up when they first show up in a search
+    private final Map<Long, Long> answerQuestions = new ConcurrentHashMap<>();
+    private ExecutorService searchExecutor;
+
+    @PostConstruct
+    public void start() {
+        AtomicInteger threadCount = new AtomicInteger();
+        searchExecutor = Executors.newFixedThreadPool(searchThreads, runnable -> {
+            Thread thread = new Thread(runnable, "search-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void stop() {
+        searchExecutor.shutdownNow();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    public void reload() {
+        log.info("Loading search index");
+        long started = System.currentTimeMillis();
+        Corpora loaded = corpora.reload(() -> load(started));
+        resultCache.invalidateAll();
+        ready = true;
+        log.info("Search index loaded with {} questions ({} terms, {} trigrams) and {} answers ({} terms, {} trigrams) in {} ms",
+                loaded.questions().documentCount(), loaded.questions().termCount(), loaded.questions().trigramCount(),
+                loaded.answers().documentCount(), loaded.answers().termCount(), loaded.answers().trigramCount(),
+                System.currentTimeMillis() - started);
+    }
+
+    private Corpora load(long started) {
+        TextIndex loadedQuestions = new TextIndex();
+        TextIndex loadedAnswers = new TextIndex();
+        OptionalLong watermark = segmentStore.restore(Map.of(QUESTIONS, loadedQuestions, ANSWERS, loadedAnswers));
+        if (watermark.isPresent()) {
+            Date since = new Date(watermark.getAsLong() - replayOverlapMs);
+            int replayed = addAll(questionRepository.streamSearchDocumentsModifiedSince(since), loadedQuestions, QUESTIONS, true)
+                    + addAll(answerRepository.streamSearchDocumentsModifiedSince(since), loadedAnswers, ANSWERS, true);
+            log.info("Restored search index segments and replayed {} documents modified since {}", replayed, since);
+        } else {
+            // A failed restore leaves partially filled indexes behind
+            loadedQuestions = new TextIndex();
+            loadedAnswers = new TextIndex();
+            addAll(questionRepository.streamSearchDocuments(), loadedQuestions, QUESTIONS, false);
+            addAll(answerRepository.streamSearchDocuments(), loadedAnswers, ANSWERS, false);
+            segmentStore.writeBase(Map.of(QUESTIONS, loadedQuestions, ANSWERS, loadedAnswers), started);
+        }
+        return new Corpora(loadedQuestions, loadedAnswers);
+    }
+
+    /**
+     * Adds the streamed documents that the index does not contain yet; a replay also buffers them for the
+     * next segment flush.
+     */
+    private int addAll(Stream<SearchDocument> stream, TextIndex index, String corpus, boolean replay) {
+        int added = 0;
+        try (Stream<SearchDocument> documents = stream) {
+            for (SearchDocument document : (Iterable<SearchDocument>) documents::iterator) {
+                if (replay && index.contains(document.getId())) {
+                    continue;
+                }
+                String[] fields = fieldsOf(corpus, document.getTitle(), document.getContent());
+                index.add(document.getId(), fields);
+                if (replay) {
+                    segmentStore.buffer(corpus, document.getId(), fields);
+                }
+                added++;
+            }
+        }
+        return added;
+    }
+
+    // Answers have no title; the repositories select '' for it
+    private static String[] fieldsOf(String corpus, String title, String content) {
+        return QUESTIONS.equals(corpus) ? new String[]{title, content} : new String[]{content};
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * Indexes a newly posted question once the surrounding transaction commits.
+     */
+    public void addQuestion(Long questionId, String title, String content) {
+        TransactionUtil.afterCommit(() -> {
+            corpora.write(indexes -> addNew(indexes.questions(), questionId, title, content));
+            resultCache.invalidate(QUESTIONS, title, content);
+            segmentStore.buffer(QUESTIONS, questionId, title, content);
+        });
+    }
+
+    /**
+     * Indexes a newly posted answer or reply once the surrounding transaction commits.
+     */
+    public void addAnswer(Long answerId, Long questionId, String content) {
+        TransactionUtil.afterCommit(() -> {
+            answerQuestions.put(answerId, questionId);
+            corpora.write(indexes -> addNew(indexes.answers(), answerId, content));
+            resultCache.invalidate(ANSWERS, content);
+            segmentStore.buffer(ANSWERS, answerId, content);
+        });
+    }
+
+    // The reloaded indexes may already hold a replayed document
+    private static void addNew(TextIndex index, long documentId, String... fields) {
+        if (!index.contains(documentId)) {
+            index.add(documentId, fields);
+        }
+    }
+
+    /**
+     * Returns one page of the ids of the questions whose title or content contains the query, ignoring case,
+     * most relevant first.
+     *
+     * @param cursor the nextCursor of the previous page, or null for the first page
+     */
+    public CursorPage<Long> searchQuestions(String query, String cursor, int limit) {
+        return resultCache.get(QUESTIONS, query, cursor, limit,
+                () -> page(corpora.get().questions(), query, cursor, limit, questionBoost()));
+    }
+
+    /**
+     * Returns one page of the ids of the answers whose content contains the query, ignoring case,
+     * most relevant first.
+     *
+     * @param cursor the nextCursor of the previous page, or null for the first page
+     */
+    public CursorPage<Long> searchAnswers(String query, String cursor, int limit) {
+        return resultCache.get(ANSWERS, query, cursor, limit,
+                () -> page(corpora.get().answers(), query, cursor, limit, null));
+    }
+
+    /**
+     * Returns one page of the questions whose title or content, or the content of one of whose answers, contains
+     * the query, ignoring case. A question ranks by the best of its own score and the scores of its answers, and
+     * the match carries the answer when that is where the best score came from. Both corpora are ranked in
+     * parallel and only ids and scores are looked at, so nothing is loaded for hits outside the page.
+     *
+     * @param cursor the nextCursor of the previous page, or null for the first page
+     */
+    public CursorPage<Match> search(String query, String cursor, int limit) {
+        return resultCache.get(SearchResultCache.UNIFIED, query, cursor, limit, () -> rank(query, cursor, limit));
+    }
+
+    private CursorPage<Match> rank(String query, String cursor, int limit) {
+        Match after = null;
+        int window = limit + 1;
+        if (cursor != null) {
+            long[] position = CursorUtil.decode(cursor, 3);
+            after = new Match(position[1], null, Double.longBitsToDouble(position[0]));
+            window = (int) Math.max(window, Math.min(position[2], MAX_CURSOR_WINDOW));
+        }
+        Corpora indexes = corpora.get();
+        TextIndex questionIndex = indexes.questions();
+        TextIndex answerIndex = indexes.answers();
+        LongToDoubleFunction boost = questionBoost();
+        while (true) {
+            int size = window;
+            CompletableFuture<List<InvertedIndex.Hit>> answerSearch =
+                    CompletableFuture.supplyAsync(() -> answerIndex.search(query, size, null, null), searchExecutor);
+            List<InvertedIndex.Hit> questionHits = questionIndex.search(query, size, null, boost);
+            List<InvertedIndex.Hit> answerHits = answerSearch.join();
+
+            List<Match> matches = new ArrayList<>(questionHits.size() + answerHits.size());
+            questionHits.forEach(hit -> matches.add(new Match(hit.documentId(), null, hit.score())));
+            Map<Long, Long> questionIds = questionIdsOf(answerHits);
+            for (InvertedIndex.Hit hit : answerHits) {
+                Long questionId = questionIds.get(hit.documentId());
+                if (questionId != null) {
+                    matches.add(new Match(questionId, hit.documentId(), hit.score()));
+                }
+            }
+            // Stable, so a question's own hit stays ahead of an answer hit with the same score
+            matches.sort(RANKING);
+
+            // Hits cut off by the window score at most the last hit kept from that corpus, so only matches
+            // scoring above both cut-offs are final
+            boolean complete = questionHits.size() < size && answerHits.size() < size;
+            double cutOff = Math.max(cutOff(questionHits, size), cutOff(answerHits, size));
+            Set<Long> seen = new HashSet<>();
+            List<Match> page = new ArrayList<>(limit + 1);
+            for (Match match : matches) {
+                if (page.size() > limit || !complete && match.score() <= cutOff) {
+                    break;
+                }
+                // The first match of a question is its best one; later ones are its weaker hits
+                if (seen.add(match.questionId()) && (after == null || RANKING.compare(match, after) > 0)) {
+                    page.add(match);
+                }
+            }
+            if (page.size() > limit) {
+                Match last = page.get(limit - 1);
+                return new CursorPage<>(page.subList(0, limit),
+                        CursorUtil.encode(Double.doubleToLongBits(last.score()), last.questionId(), size));
+            }
+            if (complete) {
+                return new CursorPage<>(page, null);
+            }
+            window = (int) Math.min(2L * window, Integer.MAX_VALUE);
+        }
+    }
+
+    private static double cutOff(List<InvertedIndex.Hit> hits, int window) {
+        return hits.size() < window ? Double.NEGATIVE_INFINITY : hits.get(hits.size() - 1).score();
+    }
+
+    private Map<Long, Long> questionIdsOf(List<InvertedIndex.Hit> answerHits) {
+        List<Long> unknown = new ArrayList<>();
+        for (InvertedIndex.Hit hit : answerHits) {
+            if (!answerQuestions.containsKey(hit.documentId())) {
+                unknown.add(hit.documentId());
+            }
+        }
+        if (!unknown.isEmpty()) {
+            for (AnswerQuestion row : answerRepository.findQuestionIdsByIdIn(unknown)) {
+                answerQuestions.put(row.getId(), row.getQuestionId());
+            }
+        }
+        return answerQuestions;
+    }
+
+    /**
+     * The cursor is the (score, id) of the last hit, so the next page only keeps hits ranked after it.
+     * Postings added between two requests can shift scores slightly, as with any keyset over a live ranking.
+     */
+    private static CursorPage<Long> page(TextIndex index, String query, String cursor, int limit,
+                                         LongToDoubleFunction boost) {
+        InvertedIndex.Hit after = null;
+        if (cursor != null) {
+            long[] position = CursorUtil.decode(cursor, 2);
+            after = new InvertedIndex.Hit(position[1], Double.longBitsToDouble(position[0]));
+        }
+        List<InvertedIndex.Hit> hits = index.search(query, limit + 1, after, boost);
+        String nextCursor = null;
+        if (hits.size() > limit) {
+            hits = hits.subList(0, limit);
+            InvertedIndex.Hit last = hits.get(limit - 1);
+            nextCursor = CursorUtil.encode(Double.doubleToLongBits(last.score()), last.documentId());
+        }
+        List<Long> ids = new ArrayList<>(hits.size());
+        hits.forEach(hit -> ids.add(hit.documentId()));
+        return new CursorPage<>(ids, nextCursor);
+    }
+
+    private LongToDoubleFunction questionBoost() {
+        return voteWeight == 0 || !questionLeaderboard.isReady()
+                ? null
+                : questionId -> voteBoost(questionLeaderboard.scoreOf(questionId));
+    }
+
+    private double voteBoost(Long score) {
+        if (score == null || score == 0) {
+            return 0;
+        }
+        return voteWeight * Math.signum(score) * Math.log10(1 + Math.abs(score));
+    }
+
+    /**
+     * A question matching a unified search, with the answer whose hit ranked it, or null if the question's own
+     * text did.
+     */
+    public record Match(long questionId, Long answerId, double score) {
+    }
+
+    private record Corpora(TextIndex questions, TextIndex answers) {
+        Corpora() {
+            this(new TextIndex(), new TextIndex());
+        }
+    }
+}
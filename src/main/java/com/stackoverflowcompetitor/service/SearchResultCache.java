@@ -0,0 +1,177 @@
+package com.stackoverflowcompetitor.service;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.cache.CacheMeterBinder;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Caches search result pages, keyed by corpus, lower-cased term (matching ignores case, so terms differing
+ * only in case share an entry), cursor and limit. Admission and eviction are W-TinyLFU ({@link TinyLfuCache}),
+ * so the few popular terms stay cached while the long tail passes through.
+ * When a question or answer is indexed, every cached page of a term its text contains is dropped for the
+ * corpora it belongs to; a page computed while such a write was applied is not cached at all. Vote changes
+ * only move the vote boost of question rankings, so they are left to app.search.cache.ttl-ms.
+ * Exposed as the "search" cache through the standard cache.gets, cache.puts, cache.evictions and cache.size
+ * metrics, plus cache.hit.ratio and cache.invalidations.
+ */
+@Service
+@Slf4j
+public class SearchResultCache {
+
+    static final String UNIFIED = "unified";
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${app.search.cache.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.search.cache.maximum-size:10000}")
+    private int maximumSize;
+
+    @Value("${app.search.cache.ttl-ms:60000}")
+    private long ttlMs;
+
+    private TinyLfuCache<Key, Object> cache;
+    private final AtomicLong invalidations = new AtomicLong();
+    // Bumped by every write, so a page computed across a write is not cached
+    private final AtomicLong writeVersion = new AtomicLong();
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        cache = new TinyLfuCache<>(maximumSize, ttlMs, System::currentTimeMillis);
+        new Metrics(cache, invalidations).bindTo(meterRegistry);
+        log.info("Search result cache enabled with {} entries, expiring after {} ms", maximumSize, ttlMs);
+    }
+
+    /**
+     * Returns the cached page, or computes and caches it.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T get(String corpus, String term, String cursor, int limit, Supplier<T> search) {
+        if (cache == null) {
+            return search.get();
+        }
+        Key key = new Key(corpus, term.toLowerCase(Locale.ROOT), cursor, limit);
+        Object cached = cache.get(key);
+        if (cached != null) {
+            return (T) cached;
+        }
+        long version = writeVersion.get();
+        T page = search.get();
+        synchronized (this) {
+            if (version == writeVersion.get()) {
+                cache.put(key, page);
+            }
+        }
+        return page;
+    }
+
+    /**
+     * Drops the cached pages the newly indexed document can appear in: those of the corpus it was added to, and
+     * of the unified search, whose term one of its fields contains.
+     */
+    public void invalidate(String corpus, String... fields) {
+        if (cache == null) {
+            return;
+        }
+        String[] lowerCased = new String[fields.length];
+        for (int i = 0; i < fields.length; i++) {
+            lowerCased[i] = fields[i] == null ? "" : fields[i].toLowerCase(Locale.ROOT);
+        }
+        Set<String> corpora = Set.of(corpus, UNIFIED);
+        int removed;
+        synchronized (this) {
+            writeVersion.incrementAndGet();
+            removed = cache.removeIf((key, page) -> corpora.contains(key.corpus()) && containsTerm(lowerCased, key.term()));
+        }
+        invalidations.addAndGet(removed);
+    }
+
+    public void invalidateAll() {
+        if (cache == null) {
+            return;
+        }
+        synchronized (this) {
+            writeVersion.incrementAndGet();
+            cache.clear();
+        }
+    }
+
+    private static boolean containsTerm(String[] fields, String term) {
+        for (String field : fields) {
+            if (field.contains(term)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private record Key(String corpus, String term, String cursor, int limit) {
+    }
+
+    private static final class Metrics extends CacheMeterBinder<TinyLfuCache<Key, Object>> {
+
+        private final AtomicLong invalidations;
+
+        Metrics(TinyLfuCache<Key, Object> cache, AtomicLong invalidations) {
+            super(cache, "search", Tags.empty());
+            this.invalidations = invalidations;
+        }
+
+        @Override
+        protected Long size() {
+            return (long) getCache().size();
+        }
+
+        @Override
+        protected long hitCount() {
+            return getCache().hitCount();
+        }
+
+        @Override
+        protected Long missCount() {
+            return getCache().missCount();
+        }
+
+        @Override
+        protected Long evictionCount() {
+            return getCache().evictionCount();
+        }
+
+        @Override
+        protected long putCount() {
+            return getCache().putCount();
+        }
+
+        @Override
+        protected void bindImplementationSpecificMetrics(MeterRegistry registry) {
+            Gauge.builder("cache.hit.ratio", getCache(), cache -> {
+                        long requests = cache.hitCount() + cache.missCount();
+                        return requests == 0 ? 0 : (double) cache.hitCount() / requests;
+                    })
+                    .tags(getTagsWithCacheName())
+                    .description("Share of lookups answered from the cache since start-up")
+                    .register(registry);
+            FunctionCounter.builder("cache.invalidations", invalidations, AtomicLong::get)
+                    .tags(getTagsWithCacheName())
+                    .description("Entries dropped because a write changed their results")
+                    .register(registry);
+        }
+    }
+}
@@ -0,0 +1,425 @@
+package com.stackoverflowcompetitor.service;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalLong;
+import java.util.Properties;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Optional on-disk persistence for the search index, so a restart maps a few files instead of re-reading
+ * every question and answer from MySQL. Each corpus (questions, answers) is stored as a set of immutable
+ * {@link IndexSegment} files listed in a manifest, together with a watermark: the time of the last flush.
+ * Documents indexed since then are buffered and written as a new segment on every flush; once a corpus has
+ * more than app.search.segments.max-segments segments, its smaller half is merged into one. On start-up
+ * SearchIndex restores the segments and only replays rows modified since the watermark.
+ * Flushes and merges run on one background thread; the manifest is replaced atomically after the segment
+ * files it names are complete, so a crash leaves the previous state readable.
+ */
+@Service
+@Slf4j
+public class SearchSegmentStore {
+
+    static final String MANIFEST = "segments.properties";
+    private static final String SEGMENT_SUFFIX = ".seg";
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${app.search.segments.enabled:false}")
+    private boolean enabled;
+
+    @Value("${app.search.segments.directory:data/search-index}")
+    private String directory;
+
+    @Value("${app.search.segments.flush-interval-ms:30000}")
+    private long flushIntervalMs;
+
+    @Value("${app.search.segments.max-segments:8}")
+    private int maxSegments;
+
+    // documents indexed since the last flush, by corpus; guarded by itself
+    private final Map<String, Map<Long, String[]>> pending = new HashMap<>();
+    private final ReentrantLock flushLock = new ReentrantLock();
+
+    // guarded by flushLock
+    private Manifest manifest;
+    private volatile int segmentCount;
+
+    private ScheduledExecutorService scheduler;
+    private Timer flushTimer;
+    private Timer mergeTimer;
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        Gauge.builder("search.segments.count", this, SearchSegmentStore::getSegmentCount)
+                .description("Search index segment files in the current manifest")
+                .register(meterRegistry);
+        flushTimer = Timer.builder("search.segments.flush")
+                .description("Time taken to write buffered search documents as a segment")
+                .register(meterRegistry);
+        mergeTimer = Timer.builder("search.segments.merge")
+                .description("Time taken to merge search index segments")
+                .register(meterRegistry);
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "search-segment-flush");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::flushQuietly, flushIntervalMs, flushIntervalMs, TimeUnit.MILLISECONDS);
+        log.info("Search index segments enabled in {}, flushing every {} ms", directory, flushIntervalMs);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (scheduler == null) {
+            return;
+        }
+        scheduler.shutdown();
+        try {
+            scheduler.awaitTermination(30, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flushQuietly();
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Loads the segments of the current manifest into the given empty indexes, keyed by corpus name.
+     *
+     * @return (the watermark of the manifest, or empty if there is none or it could not be read completely,
+     * in which case the indexes are partially filled and must be discarded)
+     */
+    public OptionalLong restore(Map<String, TextIndex> indexes) {
+        if (!enabled) {
+            return OptionalLong.empty();
+        }
+        flushLock.lock();
+        try {
+            manifest = readManifest();
+            if (manifest == null) {
+                return OptionalLong.empty();
+            }
+            segmentCount = manifest.segmentCount();
+            for (Map.Entry<String, TextIndex> corpus : indexes.entrySet()) {
+                List<IndexSegment> segments = new ArrayList<>();
+                for (String name : manifest.segments(corpus.getKey())) {
+                    segments.add(IndexSegment.open(directory().resolve(name)));
+                }
+                // Mostly increasing id ranges keep the in-memory posting lists append-only
+                segments.sort(Comparator.comparingLong(IndexSegment::minDocumentId));
+                for (IndexSegment segment : segments) {
+                    segment.loadInto(corpus.getValue());
+                }
+            }
+            deleteUnlistedFiles();
+            return OptionalLong.of(manifest.watermark);
+        } catch (IOException | RuntimeException e) {
+            log.error("Could not restore the search index from {}, rebuilding it from the database", directory, e);
+            manifest = null;
+            segmentCount = 0;
+            return OptionalLong.empty();
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    /**
+     * Replaces all segments with one segment per corpus holding the given indexes, which no other thread may be
+     * adding to. Used after the index was rebuilt from the database.
+     *
+     * @param watermark (epoch millis at which the rebuild started)
+     */
+    public void writeBase(Map<String, TextIndex> indexes, long watermark) {
+        if (!enabled) {
+            return;
+        }
+        flushLock.lock();
+        try {
+            Files.createDirectories(directory());
+            Manifest base = new Manifest(watermark, manifest == null ? 1 : manifest.nextGeneration);
+            for (Map.Entry<String, TextIndex> corpus : indexes.entrySet()) {
+                String name = base.newSegmentName(corpus.getKey());
+                IndexSegment.write(directory().resolve(name), corpus.getValue());
+                base.segments(corpus.getKey()).add(name);
+            }
+            writeManifest(base);
+            manifest = base;
+            deleteUnlistedFiles();
+            synchronized (pending) {
+                pending.clear();
+            }
+            log.info("Wrote search index base segments for {} at watermark {}", indexes.keySet(), watermark);
+        } catch (IOException e) {
+            log.error("Could not write the search index base segments to {}", directory, e);
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    /**
+     * Remembers a newly indexed document for the next flush.
+     */
+    public void buffer(String corpus, long documentId, String... fields) {
+        if (!enabled) {
+            return;
+        }
+        synchronized (pending) {
+            pending.computeIfAbsent(corpus, c -> new LinkedHashMap<>()).put(documentId, fields);
+        }
+    }
+
+    /**
+     * Writes the documents buffered since the last flush as one new segment per corpus, advances the
+     * watermark and merges corpora that have too many segments. Documents of a failed flush are put back.
+     */
+    public void flush() {
+        if (!enabled) {
+            return;
+        }
+        flushLock.lock();
+        try {
+            if (manifest == null) {
+                // Nothing to append to until SearchIndex has restored or written a base
+                return;
+            }
+            long watermark = System.currentTimeMillis();
+            Map<String, Map<Long, String[]>> drained;
+            synchronized (pending) {
+                drained = new HashMap<>(pending);
+                pending.clear();
+            }
+            long start = System.nanoTime();
+            Manifest next = manifest.copy(watermark);
+            List<Path> written = new ArrayList<>();
+            try {
+                for (Map.Entry<String, Map<Long, String[]>> corpus : drained.entrySet()) {
+                    TextIndex delta = new TextIndex();
+                    corpus.getValue().entrySet().stream()
+                            .sorted(Map.Entry.comparingByKey())
+                            .forEach(document -> delta.add(document.getKey(), document.getValue()));
+                    String name = next.newSegmentName(corpus.getKey());
+                    IndexSegment.write(directory().resolve(name), delta);
+                    written.add(directory().resolve(name));
+                    next.segments(corpus.getKey()).add(name);
+                }
+                writeManifest(next);
+                manifest = next;
+            } catch (IOException e) {
+                log.error("Could not flush {} search index corpora, keeping them for the next flush", drained.size(), e);
+                written.forEach(SearchSegmentStore::deleteQuietly);
+                synchronized (pending) {
+                    drained.forEach((corpus, documents) ->
+                            pending.computeIfAbsent(corpus, c -> new LinkedHashMap<>()).putAll(documents));
+                }
+                return;
+            }
+            if (!drained.isEmpty()) {
+                flushTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            }
+            for (String corpus : new ArrayList<>(manifest.corpora())) {
+                if (manifest.segments(corpus).size() > maxSegments) {
+                    merge(corpus);
+                }
+            }
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    public int getSegmentCount() {
+        return segmentCount;
+    }
+
+    // Merges the smaller half of the corpus's segments, so the large base is only rewritten once the deltas
+    // have grown comparable to it
+    private void merge(String corpus) {
+        long start = System.nanoTime();
+        List<String> names = manifest.segments(corpus);
+        try {
+            List<IndexSegment> segments = new ArrayList<>();
+            for (String name : names) {
+                segments.add(IndexSegment.open(directory().resolve(name)));
+            }
+            segments.sort(Comparator.comparingInt(IndexSegment::sizeInBytes));
+            List<IndexSegment> smaller = segments.subList(0, (segments.size() + 1) / 2);
+
+            Manifest next = manifest.copy(manifest.watermark);
+            String name = next.newSegmentName(corpus);
+            IndexSegment.merge(smaller, directory().resolve(name));
+            List<String> remaining = next.segments(corpus);
+            for (IndexSegment segment : smaller) {
+                remaining.remove(segment.file().getFileName().toString());
+            }
+            remaining.add(name);
+            writeManifest(next);
+            manifest = next;
+            smaller.forEach(segment -> deleteQuietly(segment.file()));
+            mergeTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            log.info("Merged {} {} search index segments into {}", smaller.size(), corpus, name);
+        } catch (IOException e) {
+            log.error("Could not merge the {} search index segments", corpus, e);
+        }
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (Exception e) {
+            log.error("Error flushing search index segments", e);
+        }
+    }
+
+    private Path directory() {
+        return Paths.get(directory);
+    }
+
+    private Manifest readManifest() throws IOException {
+        Path file = directory().resolve(MANIFEST);
+        if (!Files.exists(file)) {
+            return null;
+        }
+        Properties properties = new Properties();
+        try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            properties.load(reader);
+        }
+        return Manifest.from(properties);
+    }
+
+    private void writeManifest(Manifest next) throws IOException {
+        Path file = directory().resolve(MANIFEST);
+        Path temporary = directory().resolve(MANIFEST + ".tmp");
+        try (Writer writer = Files.newBufferedWriter(temporary, StandardCharsets.UTF_8)) {
+            next.toProperties().store(writer, "Search index segments");
+        }
+        Files.move(temporary, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        segmentCount = next.segmentCount();
+    }
+
+    // Leftovers of a crashed flush or merge, or of segments replaced while they were still being read
+    private void deleteUnlistedFiles() throws IOException {
+        List<String> listed = new ArrayList<>();
+        for (String corpus : manifest == null ? List.<String>of() : manifest.corpora()) {
+            listed.addAll(manifest.segments(corpus));
+        }
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory(), "*" + SEGMENT_SUFFIX + "*")) {
+            for (Path file : files) {
+                if (!listed.contains(file.getFileName().toString())) {
+                    deleteQuietly(file);
+                }
+            }
+        }
+    }
+
+    private static void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.warn("Could not delete search index file {}", file, e);
+        }
+    }
+
+    /**
+     * Segment file names per corpus, the watermark and the generation used to name the next segment.
+     */
+    private static final class Manifest {
+
+        private static final int VERSION = 1;
+
+        private final long watermark;
+        private long nextGeneration;
+        private final Map<String, List<String>> segments = new LinkedHashMap<>();
+
+        Manifest(long watermark, long nextGeneration) {
+            this.watermark = watermark;
+            this.nextGeneration = nextGeneration;
+        }
+
+        static Manifest from(Properties properties) throws IOException {
+            try {
+                if (Integer.parseInt(properties.getProperty("version", "0")) != VERSION) {
+                    throw new IOException("Unsupported search index manifest version " + properties.getProperty("version"));
+                }
+                Manifest manifest = new Manifest(Long.parseLong(properties.getProperty("watermark")),
+                        Long.parseLong(properties.getProperty("generation")));
+                for (String key : properties.stringPropertyNames()) {
+                    if (key.startsWith("segments.")) {
+                        List<String> names = manifest.segments(key.substring("segments.".length()));
+                        for (String name : properties.getProperty(key).split(",")) {
+                            if (!name.isBlank()) {
+                                names.add(name.trim());
+                            }
+                        }
+                    }
+                }
+                return manifest;
+            } catch (NumberFormatException e) {
+                throw new IOException("Unreadable search index manifest", e);
+            }
+        }
+
+        Properties toProperties() {
+            Properties properties = new Properties();
+            properties.setProperty("version", String.valueOf(VERSION));
+            properties.setProperty("watermark", String.valueOf(watermark));
+            properties.setProperty("generation", String.valueOf(nextGeneration));
+            segments.forEach((corpus, names) -> properties.setProperty("segments." + corpus, String.join(",", names)));
+            return properties;
+        }
+
+        Manifest copy(long newWatermark) {
+            Manifest copy = new Manifest(newWatermark, nextGeneration);
+            segments.forEach((corpus, names) -> copy.segments.put(corpus, new ArrayList<>(names)));
+            return copy;
+        }
+
+        List<String> segments(String corpus) {
+            return segments.computeIfAbsent(corpus, c -> new ArrayList<>());
+        }
+
+        List<String> corpora() {
+            return new ArrayList<>(segments.keySet());
+        }
+
+        int segmentCount() {
+            return segments.values().stream().mapToInt(List::size).sum();
+        }
+
+        String newSegmentName(String corpus) {
+            return String.format("%s-%08d%s", corpus, nextGeneration++, SEGMENT_SUFFIX);
+        }
+    }
+}
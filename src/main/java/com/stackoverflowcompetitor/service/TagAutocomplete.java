@@ -0,0 +1,131 @@
+package com.stackoverflowcompetitor.service;
+
+import com.stackoverflowcompetitor.dto.TagSuggestion;
+import com.stackoverflowcompetitor.model.Tag;
+import com.stackoverflowcompetitor.repository.TagCount;
+import com.stackoverflowcompetitor.repository.TagRepository;
+import com.stackoverflowcompetitor.util.Constants;
+import com.stackoverflowcompetitor.util.TransactionUtil;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tag names by prefix, most used first, served from a {@link CompletionTrie} over the lower-cased names weighted
+ * by question count, so a tag picker can query on every keystroke without touching the database. Loaded at
+ * start-up; posting a question bumps the counts of its tags once committed. Tags created or renamed in the
+ * database directly, and writes made by other instances, are picked up by the reload every
+ * app.tags.suggest.refresh-interval-ms.
+ */
+@Service
+@Slf4j
+public class TagAutocomplete {
+
+    @Autowired
+    private TagRepository tagRepository;
+
+    @Value("${app.tags.suggest.refresh-interval-ms:300000}")
+    private long refreshIntervalMs;
+
+    private volatile Dictionary tags = new Dictionary();
+    private volatile boolean ready;
+    private ScheduledExecutorService scheduler;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        reload();
+        if (refreshIntervalMs > 0) {
+            scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "tag-autocomplete-refresh");
+                thread.setDaemon(true);
+                return thread;
+            });
+            scheduler.scheduleWithFixedDelay(this::reloadQuietly, refreshIntervalMs, refreshIntervalMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    public void reload() {
+        long started = System.currentTimeMillis();
+        Map<String, Long> counts = new HashMap<>();
+        Dictionary loaded = new Dictionary();
+        for (TagCount tag : tagRepository.findAllWithQuestionCounts()) {
+            String key = loaded.keyOf(tag.getName());
+            counts.merge(key, tag.getQuestionCount(), Long::sum);
+        }
+        loaded.trie.putAll(counts);
+        tags = loaded;
+        ready = true;
+        log.info("Tag autocomplete loaded with {} tags in {} ms", counts.size(), System.currentTimeMillis() - started);
+    }
+
+    private void reloadQuietly() {
+        try {
+            reload();
+        } catch (Exception e) {
+            log.error("Error reloading tag autocomplete, keeping the previous tags", e);
+        }
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * Counts a newly posted question under each of its tags once the surrounding transaction commits.
+     */
+    public void addQuestion(List<Tag> questionTags) {
+        TransactionUtil.afterCommit(() -> {
+            Dictionary current = tags;
+            for (Tag tag : questionTags) {
+                current.trie.addWeight(current.keyOf(tag.getName()), 1);
+            }
+        });
+    }
+
+    /**
+     * Returns up to {@code limit} tags whose name starts with the prefix, ignoring case, with the most questions
+     * first.
+     */
+    public List<TagSuggestion> suggest(String prefix, int limit) {
+        Dictionary current = tags;
+        return current.trie.complete(prefix.toLowerCase(Locale.ROOT), limit).stream()
+                .map(completion -> new TagSuggestion(current.spellings.getOrDefault(completion.word(), completion.word()),
+                        completion.weight()))
+                .toList();
+    }
+
+    /**
+     * The trie over lower-cased names and the spelling each name was first seen with.
+     */
+    private static final class Dictionary {
+
+        private final CompletionTrie trie = new CompletionTrie(Constants.MAX_TAG_SUGGESTION_LIMIT);
+        private final Map<String, String> spellings = new ConcurrentHashMap<>();
+
+        String keyOf(String name) {
+            String key = name.toLowerCase(Locale.ROOT);
+            spellings.putIfAbsent(key, name);
+            return key;
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package com.stackoverflowcompetitor.service;
+
+import com.stackoverflowcompetitor.model.Tag;
+import com.stackoverflowcompetitor.repository.QuestionRepository;
+import com.stackoverflowcompetitor.repository.QuestionTag;
+import com.stackoverflowcompetitor.util.TransactionUtil;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+
+/**
+ * Question ids by tag as compressed bitmaps ({@link IdBitmap}), so questions carrying all of some tags, any of
+ * others and none of a third set are found with a few bitmap operations instead of one join on question_tag per
+ * tag. Tag names are matched ignoring case. Loaded at start-up and kept current by QuestionService; each
+ * instance only sees its own writes, call {@link #reload()} to resynchronize with the database.
+ */
+@Service
+@Slf4j
+public class TagIndex {
+
+    private static final IdBitmap EMPTY = new IdBitmap();
+
+    @Autowired
+    private QuestionRepository questionRepository;
+
+    // Guarded by the lock; bitmaps are modified in place. Questions posted while it reloads are replayed into
+    // the reloaded map
+    private final ReloadableState<Map<String, IdBitmap>> questionsByTag = new ReloadableState<>(new HashMap<>());
+    private volatile boolean ready;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    public void reload() {
+        log.info("Loading tag index");
+        long started = System.currentTimeMillis();
+        long[] rows = new long[1];
+        Map<String, IdBitmap> loaded = questionsByTag.reload(() -> {
+            Map<String, IdBitmap> map = new HashMap<>();
+            try (Stream<QuestionTag> questionTags = questionRepository.streamQuestionTags()) {
+                questionTags.forEach(row -> {
+                    map.computeIfAbsent(keyOf(row.getTagName()), tag -> new IdBitmap()).add(row.getQuestionId());
+                    rows[0]++;
+                });
+            }
+            return map;
+        });
+        ready = true;
+        log.info("Tag index loaded with {} tags and {} question tags in {} ms", loaded.size(), rows[0],
+                System.currentTimeMillis() - started);
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * Adds a newly posted question under each of its tags once the surrounding transaction commits.
+     */
+    public void addQuestion(long questionId, List<Tag> tags) {
+        TransactionUtil.afterCommit(() -> questionsByTag.write(map -> {
+            lock.writeLock().lock();
+            try {
+                for (Tag tag : tags) {
+                    map.computeIfAbsent(keyOf(tag.getName()), name -> new IdBitmap()).add(questionId);
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }));
+    }
+
+    /**
+     * Returns up to {@code limit} ids lower than {@code before} of the questions tagged with every tag of
+     * {@code all}, at least one of {@code any} (unless empty) and none of {@code none}, highest first.
+     * At least one of {@code all} and {@code any} must be given.
+     */
+    public List<Long> questionIds(Collection<String> all, Collection<String> any, Collection<String> none,
+                                  long before, int limit) {
+        lock.readLock().lock();
+        try {
+            Map<String, IdBitmap> map = questionsByTag.get();
+            IdBitmap matches = null;
+            for (String tag : all) {
+                IdBitmap tagged = questionsOf(map, tag);
+                matches = matches == null ? tagged : matches.and(tagged);
+            }
+            if (!any.isEmpty()) {
+                IdBitmap anyTagged = EMPTY;
+                for (String tag : any) {
+                    anyTagged = anyTagged.or(questionsOf(map, tag));
+                }
+                matches = matches == null ? anyTagged : matches.and(anyTagged);
+            }
+            if (matches == null) {
+                throw new IllegalArgumentException("At least one tag to match is required");
+            }
+            for (String tag : none) {
+                matches = matches.andNot(questionsOf(map, tag));
+            }
+            // The result may share chunks with the index, so it is read before the lock is released
+            return matches.idsBefore(before, limit);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the number of questions with the tag.
+     */
+    public long questionCount(String tag) {
+        lock.readLock().lock();
+        try {
+            return questionsOf(questionsByTag.get(), tag).cardinality();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public boolean isTagged(long questionId, String tag) {
+        lock.readLock().lock();
+        try {
+            return questionsOf(questionsByTag.get(), tag).contains(questionId);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private static IdBitmap questionsOf(Map<String, IdBitmap> map, String tag) {
+        return map.getOrDefault(keyOf(tag), EMPTY);
+    }
+
+    private static String keyOf(String tag) {
+        return tag.trim().toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,50 @@
+package com.stackoverflowcompetitor.service;
+
+import com.stackoverflowcompetitor.dto.TagSuggestion;
+import com.stackoverflowcompetitor.repository.TagRepository;
+import com.stackoverflowcompetitor.util.Constants;
+import com.stackoverflowcompetitor.util.ValidationUtil;
+import jakarta.validation.ValidationException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+
+@Service
+@Slf4j
+public class TagService {
+
+    @Autowired
+    private TagRepository tagRepository;
+
+    @Autowired
+    private TagAutocomplete tagAutocomplete;
+
+    public List<TagSuggestion> suggest(String prefix, int limit) {
+        log.info("In a suggest method");
+        try {
+            if(ValidationUtil.validateLength(prefix, Constants.MIN_SEARCH_STRING_LENGTH, Constants.MAX_SEARCH_STRING_LENGTH)){
+                log.error("Invalid prefix length");
+                throw new ValidationException("prefix length must be between " + Constants.MIN_SEARCH_STRING_LENGTH + " and " + Constants.MAX_SEARCH_STRING_LENGTH + " characters");
+            }
+            if (ValidationUtil.validateRange(limit, Constants.MIN_PAGE_SIZE, Constants.MAX_TAG_SUGGESTION_LIMIT)) {
+                log.error("Invalid suggestion limit: {}", limit);
+                throw new ValidationException("limit must be between " + Constants.MIN_PAGE_SIZE + " and " + Constants.MAX_TAG_SUGGESTION_LIMIT);
+            }
+            if (tagAutocomplete.isReady()) {
+                return tagAutocomplete.suggest(prefix, limit);
+            }
+            log.warn("Tag autocomplete not loaded yet, querying the database");
+            return tagRepository.findByNamePrefixWithQuestionCounts(prefix, PageRequest.of(0, limit)).stream()
+                    .map(tag -> new TagSuggestion(tag.getName(), tag.getQuestionCount()))
+                    .toList();
+        } catch (ValidationException e) {
+            throw e;
+        } catch (Exception e) {
+            log.error("Error in suggesting tags for: {}", prefix);
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package com.stackoverflowcompetitor.service;
+
+import java.util.List;
+import java.util.function.LongToDoubleFunction;
+
+/**
+ * Searchable text of one kind of document: a trigram index that finds the documents containing the query,
+ * as LIKE '%query%' would, and a word index that ranks them by BM25. Both halves are always updated,
+ * persisted and restored together.
+ */
+public class TextIndex {
+
+    private final InvertedIndex words = new InvertedIndex();
+    private final TrigramIndex text = new TrigramIndex();
+
+    public void add(long documentId, String... fields) {
+        words.add(documentId, fields);
+        text.add(documentId, fields);
+    }
+
+    public boolean contains(long documentId) {
+        return text.contains(documentId);
+    }
+
+    /**
+     * Returns up to {@code limit} documents containing the query, ranked after {@code after} if given.
+     *
+     * @see InvertedIndex#topK(String, long[], int, InvertedIndex.Hit, LongToDoubleFunction)
+     */
+    public List<InvertedIndex.Hit> search(String query, int limit, InvertedIndex.Hit after, LongToDoubleFunction boost) {
+        return words.topK(query, text.search(query), limit, after, boost);
+    }
+
+    public int documentCount() {
+        return text.documentCount();
+    }
+
+    public int termCount() {
+        return words.termCount();
+    }
+
+    public int trigramCount() {
+        return text.trigramCount();
+    }
+
+    InvertedIndex words() {
+        return words;
+    }
+
+    TrigramIndex text() {
+        return text;
+    }
+}
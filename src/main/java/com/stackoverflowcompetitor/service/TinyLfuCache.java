@@ -0,0 +1,240 @@
+package com.stackoverflowcompetitor.service;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.BiPredicate;
+import java.util.function.LongSupplier;
+
+/**
+ * Bounded cache with W-TinyLFU admission and eviction. New entries go to a small LRU window (1% of the
+ * capacity); an entry leaving the window only replaces the least recent entry of the main space if it has been
+ * asked for more often, as estimated by a count-min sketch of recent key frequencies. The main space is a
+ * segmented LRU: entries hit again while on probation move to the protected segment (80% of the main space).
+ * A burst of one-off lookups therefore cannot flush the frequently used entries, which plain LRU allows.
+ * Entries also expire {@code timeToLiveMs} after they were written. All operations take one lock; the
+ * critical sections are a few hash lookups.
+ */
+class TinyLfuCache<K, V> {
+
+    private final int windowCapacity;
+    private final int mainCapacity;
+    private final int protectedCapacity;
+    private final long timeToLiveMs;
+    private final LongSupplier clock;
+    private final FrequencySketch sketch;
+
+    // Access-ordered, so the first entry of each is the least recently used
+    private final LinkedHashMap<K, Entry<V>> window = new LinkedHashMap<>(16, 0.75f, true);
+    private final LinkedHashMap<K, Entry<V>> probation = new LinkedHashMap<>(16, 0.75f, true);
+    private final LinkedHashMap<K, Entry<V>> protectedSegment = new LinkedHashMap<>(16, 0.75f, true);
+
+    private long hitCount;
+    private long missCount;
+    private long evictionCount;
+    private long putCount;
+
+    TinyLfuCache(int capacity, long timeToLiveMs, LongSupplier clock) {
+        if (capacity < 2) {
+            throw new IllegalArgumentException("Cache capacity must be at least 2");
+        }
+        this.windowCapacity = Math.max(1, capacity / 100);
+        this.mainCapacity = capacity - windowCapacity;
+        this.protectedCapacity = mainCapacity * 8 / 10;
+        this.timeToLiveMs = timeToLiveMs;
+        this.clock = clock;
+        this.sketch = new FrequencySketch(capacity);
+    }
+
+    /**
+     * Returns the cached value, or null if there is none or it has expired.
+     */
+    synchronized V get(K key) {
+        sketch.increment(key.hashCode());
+        Entry<V> entry = window.get(key);
+        if (entry == null) {
+            entry = protectedSegment.get(key);
+        }
+        if (entry == null && (entry = probation.remove(key)) != null) {
+            protectedSegment.put(key, entry);
+            if (protectedSegment.size() > protectedCapacity) {
+                Map.Entry<K, Entry<V>> demoted = eldest(protectedSegment);
+                protectedSegment.remove(demoted.getKey());
+                probation.put(demoted.getKey(), demoted.getValue());
+            }
+        }
+        if (entry == null) {
+            missCount++;
+            return null;
+        }
+        if (clock.getAsLong() >= entry.expiresAt) {
+            remove(key);
+            missCount++;
+            return null;
+        }
+        hitCount++;
+        return entry.value;
+    }
+
+    synchronized void put(K key, V value) {
+        putCount++;
+        Entry<V> entry = new Entry<>(value, clock.getAsLong() + timeToLiveMs);
+        if (window.containsKey(key)) {
+            window.put(key, entry);
+            return;
+        }
+        if (probation.containsKey(key)) {
+            probation.put(key, entry);
+            return;
+        }
+        if (protectedSegment.containsKey(key)) {
+            protectedSegment.put(key, entry);
+            return;
+        }
+        sketch.increment(key.hashCode());
+        window.put(key, entry);
+        if (window.size() > windowCapacity) {
+            Map.Entry<K, Entry<V>> candidate = eldest(window);
+            window.remove(candidate.getKey());
+            admit(candidate.getKey(), candidate.getValue());
+        }
+    }
+
+    /**
+     * Moves an entry leaving the window into the main space, evicting whichever of it and the main space's
+     * victim has been used less often.
+     */
+    private void admit(K key, Entry<V> entry) {
+        if (probation.size() + protectedSegment.size() < mainCapacity) {
+            probation.put(key, entry);
+            return;
+        }
+        LinkedHashMap<K, Entry<V>> victimSegment = probation.isEmpty() ? protectedSegment : probation;
+        K victim = eldest(victimSegment).getKey();
+        evictionCount++;
+        if (sketch.frequency(key.hashCode()) > sketch.frequency(victim.hashCode())) {
+            victimSegment.remove(victim);
+            probation.put(key, entry);
+        }
+    }
+
+    synchronized void remove(K key) {
+        if (window.remove(key) == null && probation.remove(key) == null) {
+            protectedSegment.remove(key);
+        }
+    }
+
+    /**
+     * Removes every entry for which the predicate holds, e.g. the results a write has made stale.
+     *
+     * @return the number of entries removed
+     */
+    synchronized int removeIf(BiPredicate<K, V> predicate) {
+        return removeIf(window, predicate) + removeIf(probation, predicate) + removeIf(protectedSegment, predicate);
+    }
+
+    private static <K, V> int removeIf(Map<K, Entry<V>> segment, BiPredicate<K, V> predicate) {
+        int removed = 0;
+        for (Iterator<Map.Entry<K, Entry<V>>> iterator = segment.entrySet().iterator(); iterator.hasNext(); ) {
+            Map.Entry<K, Entry<V>> entry = iterator.next();
+            if (predicate.test(entry.getKey(), entry.getValue().value)) {
+                iterator.remove();
+                removed++;
+            }
+        }
+        return removed;
+    }
+
+    synchronized void clear() {
+        window.clear();
+        probation.clear();
+        protectedSegment.clear();
+    }
+
+    synchronized int size() {
+        return window.size() + probation.size() + protectedSegment.size();
+    }
+
+    synchronized long hitCount() {
+        return hitCount;
+    }
+
+    synchronized long missCount() {
+        return missCount;
+    }
+
+    synchronized long evictionCount() {
+        return evictionCount;
+    }
+
+    synchronized long putCount() {
+        return putCount;
+    }
+
+    private static <K, V> Map.Entry<K, V> eldest(LinkedHashMap<K, V> segment) {
+        return segment.entrySet().iterator().next();
+    }
+
+    private record Entry<V>(V value, long expiresAt) {
+    }
+
+    /**
+     * Count-min sketch of 4-bit counters, four per key, packed sixteen to a long. Once the number of increments
+     * reaches ten times the capacity every counter is halved, so frequencies reflect recent use.
+     */
+    static final class FrequencySketch {
+
+        private static final long[] SEEDS = {0x97cb3127L, 0xab83f0c5L, 0xd2f2dc5bL, 0x8ccd5169L};
+        private static final long RESET_MASK = 0x7777777777777777L;
+
+        private final long[] table;
+        private final int tableMask;
+        private final int sampleSize;
+        private int additions;
+
+        FrequencySketch(int capacity) {
+            int length = Integer.highestOneBit(Math.max(2, capacity) - 1) << 1;
+            table = new long[Math.min(length, 1 << 24)];
+            tableMask = table.length - 1;
+            sampleSize = 10 * Math.max(capacity, 1);
+        }
+
+        int frequency(int hash) {
+            int frequency = Integer.MAX_VALUE;
+            for (int i = 0; i < SEEDS.length; i++) {
+                int index = indexOf(hash, i);
+                int shift = counterOffset(hash, i) << 2;
+                frequency = Math.min(frequency, (int) ((table[index] >>> shift) & 0xfL));
+            }
+            return frequency;
+        }
+
+        void increment(int hash) {
+            boolean added = false;
+            for (int i = 0; i < SEEDS.length; i++) {
+                int index = indexOf(hash, i);
+                int shift = counterOffset(hash, i) << 2;
+                if (((table[index] >>> shift) & 0xfL) != 0xfL) {
+                    table[index] += 1L << shift;
+                    added = true;
+                }
+            }
+            if (added && ++additions == sampleSize) {
+                for (int i = 0; i < table.length; i++) {
+                    table[i] = (table[i] >>> 1) & RESET_MASK;
+                }
+                additions /= 2;
+            }
+        }
+
+        private int indexOf(int hash, int row) {
+            long mixed = (hash + SEEDS[row]) * SEEDS[row];
+            return (int) (mixed ^ (mixed >>> 32)) & tableMask;
+        }
+
+        // Which of the sixteen counters of the long holds this key's counter in the given row
+        private static int counterOffset(int hash, int row) {
+            return ((hash >>> (row << 3)) & 3) + (row << 2);
+        }
+    }
+}
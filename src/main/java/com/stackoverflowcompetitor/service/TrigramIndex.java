@@ -0,0 +1,391 @@
+package com.stackoverflowcompetitor.service;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Substring index: for every three-character sequence of the lower-cased text, the ids of the documents
+ * containing it. A document can only contain a query if it contains every trigram of the query, so the
+ * trigram posting lists are intersected to find candidates, which are then checked against the stored text.
+ * A match is exactly LOWER(field) LIKE '%query%' on any one of the fields, except that % and _ in the query
+ * are taken literally. Queries shorter than a trigram are checked against every document.
+ * Posting lists are delta-encoded varints with a skip entry every {@value #SKIP_INTERVAL} postings.
+ */
+public class TrigramIndex {
+
+    static final int SKIP_INTERVAL = 64;
+
+    // joins the fields of a document; a query never contains it, so no match can span two fields
+    private static final char FIELD_SEPARATOR = '\0';
+
+    private final Map<Long, PostingList> postings = new HashMap<>();
+    private final Map<Long, String> texts = new HashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /**
+     * Indexes a document under the trigrams of each of the given fields. Documents are normally added in
+     * increasing id order, which keeps every posting list append-only.
+     */
+    public void add(long documentId, String... fields) {
+        StringBuilder joined = new StringBuilder();
+        for (String field : fields) {
+            if (field != null) {
+                if (!joined.isEmpty()) {
+                    joined.append(FIELD_SEPARATOR);
+                }
+                joined.append(field.toLowerCase(Locale.ROOT));
+            }
+        }
+        String text = joined.toString();
+        long[] trigrams = trigramsOf(text);
+        lock.writeLock().lock();
+        try {
+            for (long trigram : trigrams) {
+                postings.computeIfAbsent(trigram, t -> new PostingList()).add(documentId);
+            }
+            texts.merge(documentId, text, (existing, added) -> existing + FIELD_SEPARATOR + added);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the ids of the documents with a field containing the query, ignoring case, in increasing id order.
+     */
+    public long[] search(String query) {
+        if (query == null || query.indexOf(FIELD_SEPARATOR) >= 0) {
+            return new long[0];
+        }
+        String needle = query.toLowerCase(Locale.ROOT);
+        lock.readLock().lock();
+        try {
+            long[] candidates = candidates(needle);
+            int matchCount = 0;
+            for (long documentId : candidates) {
+                if (texts.get(documentId).contains(needle)) {
+                    candidates[matchCount++] = documentId;
+                }
+            }
+            return Arrays.copyOf(candidates, matchCount);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private long[] candidates(String needle) {
+        long[] trigrams = trigramsOf(needle);
+        if (trigrams.length == 0) {
+            long[] all = texts.keySet().stream().mapToLong(Long::longValue).toArray();
+            Arrays.sort(all);
+            return all;
+        }
+        PostingList[] lists = new PostingList[trigrams.length];
+        for (int i = 0; i < trigrams.length; i++) {
+            lists[i] = postings.get(trigrams[i]);
+            if (lists[i] == null) {
+                return new long[0];
+            }
+        }
+        Arrays.sort(lists, Comparator.comparingInt(PostingList::size));
+        long[] candidates = lists[0].toArray();
+        int candidateCount = candidates.length;
+        for (int i = 1; i < lists.length && candidateCount > 0; i++) {
+            candidateCount = lists[i].retainAll(candidates, candidateCount);
+        }
+        return Arrays.copyOf(candidates, candidateCount);
+    }
+
+    public boolean contains(long documentId) {
+        lock.readLock().lock();
+        try {
+            return texts.containsKey(documentId);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int documentCount() {
+        lock.readLock().lock();
+        try {
+            return texts.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int trigramCount() {
+        lock.readLock().lock();
+        try {
+            return postings.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the total number of postings and the bytes they are encoded in (including skip entries), to
+     * compare with the 8 bytes per posting of a plain long array.
+     */
+    public long[] postingStatistics() {
+        lock.readLock().lock();
+        try {
+            long count = 0;
+            long bytes = 0;
+            for (PostingList list : postings.values()) {
+                count += list.size;
+                bytes += list.encodedBytes();
+            }
+            return new long[]{count, bytes};
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Bulk access for IndexSegment. The exports read without copying, so only use them on an instance that
+    // no other thread is adding to.
+
+    long[] sortedDocumentIds() {
+        lock.readLock().lock();
+        try {
+            long[] documentIds = texts.keySet().stream().mapToLong(Long::longValue).toArray();
+            Arrays.sort(documentIds);
+            return documentIds;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    String text(long documentId) {
+        lock.readLock().lock();
+        try {
+            return texts.get(documentId);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    long[] sortedTrigrams() {
+        lock.readLock().lock();
+        try {
+            long[] trigrams = postings.keySet().stream().mapToLong(Long::longValue).toArray();
+            Arrays.sort(trigrams);
+            return trigrams;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    PostingList postingList(long trigram) {
+        lock.readLock().lock();
+        try {
+            return postings.get(trigram);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    void putText(long documentId, String text) {
+        lock.writeLock().lock();
+        try {
+            texts.put(documentId, text);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    void addPostings(long trigram, long[] documentIds, int count) {
+        lock.writeLock().lock();
+        try {
+            PostingList list = postings.computeIfAbsent(trigram, t -> new PostingList());
+            for (int i = 0; i < count; i++) {
+                list.add(documentIds[i]);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // distinct trigrams in increasing order, each packed as three 16-bit chars
+    static long[] trigramsOf(String text) {
+        int count = Math.max(0, text.length() - 2);
+        long[] trigrams = new long[count];
+        for (int i = 0; i < count; i++) {
+            trigrams[i] = (long) text.charAt(i) << 32 | (long) text.charAt(i + 1) << 16 | text.charAt(i + 2);
+        }
+        Arrays.sort(trigrams);
+        int distinct = 0;
+        for (int i = 0; i < count; i++) {
+            if (distinct == 0 || trigrams[distinct - 1] != trigrams[i]) {
+                trigrams[distinct++] = trigrams[i];
+            }
+        }
+        return Arrays.copyOf(trigrams, distinct);
+    }
+
+    /**
+     * Document ids in increasing order, stored as the varint-encoded gap to the previous id. Every
+     * {@value #SKIP_INTERVAL} postings start a block whose byte offset and preceding id are kept, so an
+     * intersection can jump over whole blocks instead of decoding them.
+     */
+    static final class PostingList {
+
+        private byte[] data = new byte[4];
+        private int length;
+        private int size;
+        private long lastId;
+        private long[] blockBases = new long[1];
+        private int[] blockOffsets = new int[1];
+
+        int size() {
+            return size;
+        }
+
+        long encodedBytes() {
+            return length + (long) blocks() * (Long.BYTES + Integer.BYTES);
+        }
+
+        void add(long documentId) {
+            if (size > 0 && documentId <= lastId) {
+                if (documentId != lastId) {
+                    insert(documentId);
+                }
+                return;
+            }
+            append(documentId);
+        }
+
+        long[] toArray() {
+            long[] documentIds = new long[size];
+            long current = 0;
+            int position = 0;
+            for (int i = 0; i < size; i++) {
+                long gap = 0;
+                int shift = 0;
+                byte b;
+                do {
+                    b = data[position++];
+                    gap |= (long) (b & 0x7F) << shift;
+                    shift += 7;
+                } while (b < 0);
+                current += gap;
+                documentIds[i] = current;
+            }
+            return documentIds;
+        }
+
+        /**
+         * Keeps only the candidates present in this list, compacting them at the front of the array. Before
+         * decoding towards a candidate, jumps to the last block starting below it.
+         */
+        int retainAll(long[] candidates, int candidateCount) {
+            int kept = 0;
+            int next = 0;
+            int position = 0;
+            long current = 0;
+            boolean decoded = false;
+            for (int c = 0; c < candidateCount; c++) {
+                long target = candidates[c];
+                if (!decoded || current < target) {
+                    int block = lastBlockBelow(target, next / SKIP_INTERVAL + 1);
+                    if (block >= 0) {
+                        next = block * SKIP_INTERVAL;
+                        position = blockOffsets[block];
+                        current = blockBases[block];
+                    }
+                    decoded = false;
+                    while (next < size) {
+                        long gap = 0;
+                        int shift = 0;
+                        byte b;
+                        do {
+                            b = data[position++];
+                            gap |= (long) (b & 0x7F) << shift;
+                            shift += 7;
+                        } while (b < 0);
+                        current += gap;
+                        next++;
+                        if (current >= target) {
+                            decoded = true;
+                            break;
+                        }
+                    }
+                    if (!decoded) {
+                        break;
+                    }
+                }
+                if (current == target) {
+                    candidates[kept++] = target;
+                }
+            }
+            return kept;
+        }
+
+        // the highest block at or after fromBlock whose first posting follows an id below target, or -1
+        private int lastBlockBelow(long target, int fromBlock) {
+            int low = fromBlock;
+            int high = blocks() - 1;
+            int found = -1;
+            while (low <= high) {
+                int middle = (low + high) >>> 1;
+                if (blockBases[middle] < target) {
+                    found = middle;
+                    low = middle + 1;
+                } else {
+                    high = middle - 1;
+                }
+            }
+            return found;
+        }
+
+        private int blocks() {
+            return (size + SKIP_INTERVAL - 1) / SKIP_INTERVAL;
+        }
+
+        private void append(long documentId) {
+            if (size % SKIP_INTERVAL == 0) {
+                int block = size / SKIP_INTERVAL;
+                if (block == blockBases.length) {
+                    blockBases = Arrays.copyOf(blockBases, block * 2);
+                    blockOffsets = Arrays.copyOf(blockOffsets, block * 2);
+                }
+                blockBases[block] = size == 0 ? 0 : lastId;
+                blockOffsets[block] = length;
+            }
+            long gap = documentId - (size == 0 ? 0 : lastId);
+            if (data.length - length < 10) {
+                data = Arrays.copyOf(data, data.length + (data.length >> 1) + 10);
+            }
+            while ((gap & ~0x7FL) != 0) {
+                data[length++] = (byte) (gap & 0x7F | 0x80);
+                gap >>>= 7;
+            }
+            data[length++] = (byte) gap;
+            lastId = documentId;
+            size++;
+        }
+
+        // out-of-order adds are rare (concurrent commits), so they simply re-encode the list
+        private void insert(long documentId) {
+            long[] documentIds = toArray();
+            int position = Arrays.binarySearch(documentIds, documentId);
+            if (position >= 0) {
+                return;
+            }
+            position = -position - 1;
+            length = 0;
+            size = 0;
+            for (int i = 0; i < position; i++) {
+                append(documentIds[i]);
+            }
+            append(documentId);
+            for (int i = position; i < documentIds.length; i++) {
+                append(documentIds[i]);
+            }
+        }
+    }
+}
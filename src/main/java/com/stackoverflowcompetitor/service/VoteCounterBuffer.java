@@ -0,0 +1,282 @@
+package com.stackoverflowcompetitor.service;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Optional write-behind buffer for the denormalized vote counters on Question and Answer.
+ * Deltas are summed per target in lock-striped maps and written with one JDBC batch per flush,
+ * so a burst of votes on a popular question becomes a single row update instead of one per vote.
+ * Vote rows themselves are still written by VoteService inside the request transaction.
+ */
+@Service
+@Slf4j
+public class VoteCounterBuffer {
+
+    private static final int STRIPES = 16;
+
+    private static final String UPDATE_QUESTION_COUNTERS = "UPDATE question SET upvote_count = upvote_count + ?, " +
+            "downvote_count = downvote_count + ?, score = score + ? WHERE id = ?";
+    private static final String UPDATE_ANSWER_COUNTERS = "UPDATE answer SET upvote_count = upvote_count + ?, " +
+            "downvote_count = downvote_count + ?, score = score + ? WHERE id = ?";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${app.votes.write-behind.enabled:false}")
+    private boolean enabled;
+
+    @Value("${app.votes.write-behind.flush-interval-ms:500}")
+    private long flushIntervalMs;
+
+    @Value("${app.votes.write-behind.flush-threshold:500}")
+    private int flushThreshold;
+
+    @Value("${app.votes.write-behind.capacity:10000}")
+    private int capacity;
+
+    private final Stripe[] questionStripes = newStripes();
+    private final Stripe[] answerStripes = newStripes();
+    private final AtomicInteger pendingEvents = new AtomicInteger();
+    private final AtomicBoolean flushScheduled = new AtomicBoolean();
+    private final ReentrantLock flushLock = new ReentrantLock();
+
+    private ScheduledExecutorService scheduler;
+    private Timer flushTimer;
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        Gauge.builder("votes.write_behind.pending", pendingEvents, AtomicInteger::get)
+                .description("Vote events buffered but not yet flushed")
+                .register(meterRegistry);
+        flushTimer = Timer.builder("votes.write_behind.flush")
+                .description("Time taken to flush buffered vote counters")
+                .register(meterRegistry);
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "vote-counter-flush");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::flushQuietly, flushIntervalMs, flushIntervalMs, TimeUnit.MILLISECONDS);
+        log.info("Vote write-behind enabled, flushing every {} ms or {} events", flushIntervalMs, flushThreshold);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (scheduler == null) {
+            return;
+        }
+        scheduler.shutdown();
+        try {
+            scheduler.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        log.info("Flushing {} buffered vote events on shutdown", pendingEvents.get());
+        flush();
+    }
+
+    /**
+     * Buffers a counter change for a question.
+     *
+     * @return (false if write-behind is disabled or the buffer is full, in which case the caller applies the change itself)
+     */
+    public boolean bufferQuestionDelta(Long questionId, int upvoteDelta, int downvoteDelta) {
+        return buffer(questionStripes, questionId, upvoteDelta, downvoteDelta);
+    }
+
+    /**
+     * Buffers a counter change for an answer.
+     *
+     * @return (false if write-behind is disabled or the buffer is full, in which case the caller applies the change itself)
+     */
+    public boolean bufferAnswerDelta(Long answerId, int upvoteDelta, int downvoteDelta) {
+        return buffer(answerStripes, answerId, upvoteDelta, downvoteDelta);
+    }
+
+    public int getPendingEvents() {
+        return pendingEvents.get();
+    }
+
+    /**
+     * Writes all buffered deltas to the database. Deltas of a failed batch are put back for the next flush.
+     */
+    public void flush() {
+        flushLock.lock();
+        try {
+            flushScheduled.set(false);
+            Map<Long, long[]> questionDeltas = drain(questionStripes);
+            Map<Long, long[]> answerDeltas = drain(answerStripes);
+            if (questionDeltas.isEmpty() && answerDeltas.isEmpty()) {
+                return;
+            }
+            long start = System.nanoTime();
+            try {
+                // One transaction so a failed flush can be retried without double-applying a partial batch
+                transactionTemplate.executeWithoutResult(status -> {
+                    batchUpdate(UPDATE_QUESTION_COUNTERS, questionDeltas);
+                    batchUpdate(UPDATE_ANSWER_COUNTERS, answerDeltas);
+                });
+                pendingEvents.addAndGet(-(countEvents(questionDeltas) + countEvents(answerDeltas)));
+            } catch (RuntimeException e) {
+                log.error("Failed to flush vote counters for {} questions and {} answers, keeping them for the next flush",
+                        questionDeltas.size(), answerDeltas.size(), e);
+                requeue(questionStripes, questionDeltas);
+                requeue(answerStripes, answerDeltas);
+            }
+            if (flushTimer != null) {
+                flushTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            }
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    private boolean buffer(Stripe[] stripes, Long id, int upvoteDelta, int downvoteDelta) {
+        if (!enabled) {
+            return false;
+        }
+        if (pendingEvents.incrementAndGet() > capacity) {
+            pendingEvents.decrementAndGet();
+            log.warn("Vote write-behind buffer is full, applying the change for id {} synchronously", id);
+            return false;
+        }
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            // Only count votes whose rows were actually committed
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status == STATUS_COMMITTED) {
+                        add(stripes, id, upvoteDelta, downvoteDelta);
+                    } else {
+                        pendingEvents.decrementAndGet();
+                    }
+                }
+            });
+        } else {
+            add(stripes, id, upvoteDelta, downvoteDelta);
+        }
+        return true;
+    }
+
+    private void add(Stripe[] stripes, Long id, long upvoteDelta, long downvoteDelta) {
+        stripes[stripeFor(id)].add(id, upvoteDelta, downvoteDelta, 1);
+        if (pendingEvents.get() >= flushThreshold && scheduler != null && flushScheduled.compareAndSet(false, true)) {
+            scheduler.execute(this::flushQuietly);
+        }
+    }
+
+    private Map<Long, long[]> drain(Stripe[] stripes) {
+        // Sorted by id so concurrent flushes and request transactions lock rows in the same order
+        Map<Long, long[]> drained = new TreeMap<>();
+        for (Stripe stripe : stripes) {
+            drained.putAll(stripe.drain());
+        }
+        return drained;
+    }
+
+    private void batchUpdate(String sql, Map<Long, long[]> deltas) {
+        if (deltas.isEmpty()) {
+            return;
+        }
+        List<Object[]> batch = new ArrayList<>(deltas.size());
+        deltas.forEach((id, delta) -> batch.add(new Object[]{delta[0], delta[1], delta[0] - delta[1], id}));
+        jdbcTemplate.batchUpdate(sql, batch);
+    }
+
+    private void requeue(Stripe[] stripes, Map<Long, long[]> deltas) {
+        deltas.forEach((id, delta) -> stripes[stripeFor(id)].add(id, delta[0], delta[1], delta[2]));
+    }
+
+    private static int countEvents(Map<Long, long[]> deltas) {
+        int events = 0;
+        for (long[] delta : deltas.values()) {
+            events += (int) delta[2];
+        }
+        return events;
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (Exception e) {
+            log.error("Error flushing vote counters", e);
+        }
+    }
+
+    private static int stripeFor(Long id) {
+        return (Long.hashCode(id) & Integer.MAX_VALUE) % STRIPES;
+    }
+
+    private static Stripe[] newStripes() {
+        Stripe[] stripes = new Stripe[STRIPES];
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new Stripe();
+        }
+        return stripes;
+    }
+
+    /**
+     * One lock-protected slice of the buffer; each delta is {upvotes, downvotes, events}.
+     */
+    private static final class Stripe {
+        private final ReentrantLock lock = new ReentrantLock();
+        private Map<Long, long[]> deltas = new HashMap<>();
+
+        void add(Long id, long upvoteDelta, long downvoteDelta, long events) {
+            lock.lock();
+            try {
+                long[] delta = deltas.computeIfAbsent(id, key -> new long[3]);
+                delta[0] += upvoteDelta;
+                delta[1] += downvoteDelta;
+                delta[2] += events;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        Map<Long, long[]> drain() {
+            lock.lock();
+            try {
+                Map<Long, long[]> drained = deltas;
+                deltas = new HashMap<>();
+                return drained;
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+}
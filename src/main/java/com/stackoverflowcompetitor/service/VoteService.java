@@ -1,8 +1,6 @@
 package com.stackoverflowcompetitor.service;
 
 import com.stackoverflowcompetitor.common.AuthenticatedUserDetails;
-import com.stackoverflowcompetitor.model.Answer;
-import com.stackoverflowcompetitor.model.Question;
 import com.stackoverflowcompetitor.model.User;
 import com.stackoverflowcompetitor.model.Vote;
 import com.stackoverflowcompetitor.repository.AnswerRepository;
@@ -10,16 +8,24 @@ import com.stackoverflowcompetitor.repository.QuestionRepository;
 import com.stackoverflowcompetitor.repository.VoteRepository;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.PessimisticLockingFailureException;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.server.ResponseStatusException;
 
+import java.util.function.Supplier;
+
 
 @Service
 @Slf4j
 public class VoteService {
 
+    // Affected-row count MySQL reports when ON DUPLICATE KEY UPDATE changed an existing row
+    private static final int UPSERT_UPDATED = 2;
+
     @Autowired
     private VoteRepository voteRepository;
 
@@ -32,81 +38,168 @@ public class VoteService {
     @Autowired
     private AuthenticatedUserDetails authenticatedUserDetails;
 
-    @Transactional
+    @Autowired
+    private VoteCounterBuffer voteCounterBuffer;
+
+    @Autowired
+    private QuestionLeaderboard questionLeaderboard;
+
+    @Autowired
+    private HotQuestionRanking hotQuestionRanking;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Value("${app.votes.lock-retries:3}")
+    private int lockRetries;
+
+    /**
+     * Toggles the current user's vote on a question.
+     * The unique key rules out duplicate rows. When the vote exists, the DELETE locks its row, so a concurrent
+     * toggle by the same user waits for this transaction. When it does not, concurrent DELETEs only take gap
+     * locks, which do not block each other, and the INSERTs that follow can deadlock; the transaction MySQL
+     * rolls back is then run again, up to app.votes.lock-retries times.
+     *
+     * @param questionId (the ID of the question being voted on)
+     * @param isUpvote   (whether the vote is an upvote (true) or downvote (false))
+     * @return (the Vote if it was created or changed, null if the vote was reset)
+     */
     public Vote voteForQuestion(Long questionId, boolean isUpvote) {
         log.info("In a voteForQuestion method");
-        try {
-            Question question = questionRepository.findById(questionId)
-                    .orElseThrow(() -> {
-                        log.error("Question not found with ID: {}", questionId);
-                        return new ResponseStatusException(HttpStatus.NOT_FOUND, "Question not found with id: " + questionId);
-                    });
+        return withLockRetries(() -> toggleQuestionVote(questionId, isUpvote));
+    }
 
+    private Vote toggleQuestionVote(Long questionId, boolean isUpvote) {
+        try {
             User user = authenticatedUserDetails.getAuthenticatedUser();
-            Vote existingVote = voteRepository.findByUserAndQuestion(user, question);
-
-            if (existingVote != null) {
-                log.info("Existing vote for Question: {}", existingVote.toString());
-                if (existingVote.isUpvote() == isUpvote) {
-                    log.info("Resetting the vote for question with ID: {}", questionId);
-                    voteRepository.delete(existingVote);
-                    return null; // Return null to indicate the vote was reset
-                } else {
-                    log.info("Changing the existing vote from {} to {}", existingVote.isUpvote(), isUpvote);
-                    existingVote.setUpvote(isUpvote);
-                    voteRepository.save(existingVote);
-                    return existingVote;
-                }
+
+            if (voteRepository.deleteQuestionVote(user.getId(), questionId, isUpvote) > 0) {
+                log.info("Resetting the vote for question with ID: {}", questionId);
+                applyQuestionDelta(questionId, isUpvote ? -1 : 0, isUpvote ? 0 : -1);
+                return null; // Return null to indicate the vote was reset
+            }
+
+            int affectedRows = voteRepository.upsertQuestionVote(user.getId(), questionId, isUpvote);
+            if (affectedRows == 0) {
+                log.error("Question not found with ID: {}", questionId);
+                throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Question not found with id: " + questionId);
+            }
+
+            if (affectedRows == UPSERT_UPDATED) {
+                log.info("Changing the existing vote to {} for question with ID: {}", isUpvote, questionId);
+                applyQuestionDelta(questionId, isUpvote ? 1 : -1, isUpvote ? -1 : 1);
+            } else {
+                log.info("User {} voted {} for questionId {}", user.getUsername(), isUpvote, questionId);
+                applyQuestionDelta(questionId, isUpvote ? 1 : 0, isUpvote ? 0 : 1);
             }
 
             Vote vote = new Vote();
+            vote.setId(voteRepository.lastInsertId());
             vote.setUpvote(isUpvote);
-            vote.setQuestion(question);
+            vote.setQuestion(questionRepository.getReferenceById(questionId));
             vote.setUser(user);
-            log.info("User {} voted {} for questionId {}", user.getUsername(), isUpvote, questionId);
-            return voteRepository.save(vote);
+            return vote;
         } catch (Exception e) {
             log.error("Error voting for question with ID: {}", questionId, e);
             throw e;
         }
     }
 
-    @Transactional
+    /**
+     * Toggles the current user's vote on an answer, with the same guarantees as {@link #voteForQuestion}.
+     *
+     * @param answerId (the ID of the answer being voted on)
+     * @param isUpvote (whether the vote is an upvote (true) or downvote (false))
+     * @return (the Vote if it was created or changed, null if the vote was reset)
+     */
     public Vote voteForAnswer(Long answerId, boolean isUpvote) {
         log.info("In a voteForAnswer method");
-        try {
-            Answer answer = answerRepository.findById(answerId)
-                    .orElseThrow(() -> {
-                        log.error("Answer not found with ID: {}", answerId);
-                        return new ResponseStatusException(HttpStatus.NOT_FOUND, "Answer not found with id: " + answerId);
-                    });
+        return withLockRetries(() -> toggleAnswerVote(answerId, isUpvote));
+    }
 
+    private Vote toggleAnswerVote(Long answerId, boolean isUpvote) {
+        try {
             User user = authenticatedUserDetails.getAuthenticatedUser();
-            Vote existingVote = voteRepository.findByUserAndAnswer(user, answer);
-
-            if (existingVote != null) {
-                log.info("Existing vote for Answer: {}", existingVote.toString());
-                if (existingVote.isUpvote() == isUpvote) {
-                    log.info("Resetting the vote for answer with ID: {}", answerId);
-                    voteRepository.delete(existingVote);
-                    return null; // Return null to indicate the vote was reset
-                } else {
-                    log.info("Changing the existing vote from {} to {}", existingVote.isUpvote(), isUpvote);
-                    existingVote.setUpvote(isUpvote);
-                    voteRepository.save(existingVote);
-                    return existingVote;
-                }
+
+            if (voteRepository.deleteAnswerVote(user.getId(), answerId, isUpvote) > 0) {
+                log.info("Resetting the vote for answer with ID: {}", answerId);
+                applyAnswerDelta(answerId, isUpvote ? -1 : 0, isUpvote ? 0 : -1);
+                return null; // Return null to indicate the vote was reset
+            }
+
+            int affectedRows = voteRepository.upsertAnswerVote(user.getId(), answerId, isUpvote);
+            if (affectedRows == 0) {
+                log.error("Answer not found with ID: {}", answerId);
+                throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Answer not found with id: " + answerId);
+            }
+
+            if (affectedRows == UPSERT_UPDATED) {
+                log.info("Changing the existing vote to {} for answer with ID: {}", isUpvote, answerId);
+                applyAnswerDelta(answerId, isUpvote ? 1 : -1, isUpvote ? -1 : 1);
+            } else {
+                log.info("User {} voted {} for answerId {}", user.getUsername(), isUpvote, answerId);
+                applyAnswerDelta(answerId, isUpvote ? 1 : 0, isUpvote ? 0 : 1);
             }
 
             Vote vote = new Vote();
+            vote.setId(voteRepository.lastInsertId());
             vote.setUpvote(isUpvote);
-            vote.setAnswer(answer);
+            vote.setAnswer(answerRepository.getReferenceById(answerId));
             vote.setUser(user);
-            log.info("User {} voted {} for answerId {}", user.getUsername(), isUpvote, answerId);
-            return voteRepository.save(vote);
+            return vote;
         } catch (Exception e) {
             log.error("Error voting for answer with ID: {}", answerId, e);
             throw e;
         }
     }
+
+    /**
+     * Runs the toggle in its own transaction, running it again when it lost a deadlock or timed out waiting for
+     * a lock. Inside a caller's transaction it runs once, since a rolled-back statement poisons that transaction.
+     */
+    private Vote withLockRetries(Supplier<Vote> toggle) {
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            return toggle.get();
+        }
+        for (int attempt = 0; ; attempt++) {
+            try {
+                return transactionTemplate.execute(status -> toggle.get());
+            } catch (PessimisticLockingFailureException e) {
+                if (attempt >= lockRetries) {
+                    throw e;
+                }
+                log.warn("Vote transaction lost a lock conflict, retrying ({} of {})", attempt + 1, lockRetries);
+            }
+        }
+    }
+
+    /**
+     * Applies a vote change to the denormalized counters of a question, either through the write-behind
+     * buffer or, when it is disabled or full, with a single UPDATE in the current transaction.
+     *
+     * @param questionId    (the ID of the question)
+     * @param upvoteDelta   (the change in upvotes)
+     * @param downvoteDelta (the change in downvotes)
+     */
+    private void applyQuestionDelta(Long questionId, int upvoteDelta, int downvoteDelta) {
+        if (!voteCounterBuffer.bufferQuestionDelta(questionId, upvoteDelta, downvoteDelta)) {
+            questionRepository.applyVoteDelta(questionId, upvoteDelta, downvoteDelta);
+        }
+        questionLeaderboard.adjustScore(questionId, upvoteDelta - downvoteDelta);
+        hotQuestionRanking.adjustScore(questionId, upvoteDelta - downvoteDelta);
+    }
+
+    /**
+     * Applies a vote change to the denormalized counters of an answer, either through the write-behind
+     * buffer or, when it is disabled or full, with a single UPDATE in the current transaction.
+     *
+     * @param answerId      (the ID of the answer)
+     * @param upvoteDelta   (the change in upvotes)
+     * @param downvoteDelta (the change in downvotes)
+     */
+    private void applyAnswerDelta(Long answerId, int upvoteDelta, int downvoteDelta) {
+        if (!voteCounterBuffer.bufferAnswerDelta(answerId, upvoteDelta, downvoteDelta)) {
+            answerRepository.applyVoteDelta(answerId, upvoteDelta, downvoteDelta);
+        }
+    }
 }
@@ -0,0 +1,34 @@
+package com.stackoverflowcompetitor.util;
+
+/**
+ * Builds materialized paths for the answer reply hierarchy. A path is the chain of ancestor ids from the
+ * top-level answer down to the answer itself, each zero-padded to a fixed width and terminated by a slash,
+ * e.g. {@code 0000000012/0000000034/}. Fixed-width segments keep lexicographic order equal to tree order,
+ * so a subtree is one contiguous range of the path index.
+ */
+public class AnswerPathUtil {
+
+    public static final int SEGMENT_LENGTH = 11;
+    public static final int MAX_PATH_LENGTH = SEGMENT_LENGTH * (Constants.MAX_REPLY_DEPTH + 1);
+
+    private static final char SEPARATOR = '/';
+
+    private AnswerPathUtil() {
+    }
+
+    public static String rootPath(long answerId) {
+        return String.format("%010d", answerId) + SEPARATOR;
+    }
+
+    public static String childPath(String parentPath, long answerId) {
+        return parentPath + rootPath(answerId);
+    }
+
+    /**
+     * Returns the exclusive upper bound of the subtree range: the path with its trailing slash replaced by the
+     * next character, which sorts after every descendant path.
+     */
+    public static String subtreeEnd(String path) {
+        return path.substring(0, path.length() - 1) + (char) (SEPARATOR + 1);
+    }
+}
@@ -11,4 +11,15 @@ public class Constants {
     public static final int MAX_USERNAME_LENGTH = 20;
     public static final int MIN_PASSWORD_LENGTH = 7;
     public static final int MAX_PASSWORD_LENGTH = 15;
+    public static final int MIN_PAGE_SIZE = 1;
+    public static final int MAX_PAGE_SIZE = 100;
+    public static final int DEFAULT_SEARCH_LIMIT = 20;
+    public static final int DEFAULT_SUGGESTION_LIMIT = 5;
+    public static final int MAX_TAG_SUGGESTION_LIMIT = 10;
+    public static final int EXPORT_FLUSH_ROWS = 100;
+    public static final int EXCERPT_LENGTH = 200;
+    public static final int SNIPPET_LENGTH = 160;
+    public static final int MAX_REPLY_DEPTH = 50;
+    public static final String SORT_NEWEST = "newest";
+    public static final String SORT_SCORE = "score";
 }
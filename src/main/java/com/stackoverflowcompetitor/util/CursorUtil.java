@@ -0,0 +1,45 @@
+package com.stackoverflowcompetitor.util;
+
+import jakarta.validation.ValidationException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Encodes keyset pagination positions (e.g. score and id of the last row) as opaque URL-safe cursors.
+ */
+public class CursorUtil {
+
+    private static final String SEPARATOR = ":";
+
+    private CursorUtil() {
+    }
+
+    public static String encode(long... parts) {
+        StringBuilder raw = new StringBuilder();
+        for (long part : parts) {
+            if (!raw.isEmpty()) {
+                raw.append(SEPARATOR);
+            }
+            raw.append(part);
+        }
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static long[] decode(String cursor, int expectedParts) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            String[] tokens = raw.split(SEPARATOR);
+            if (tokens.length != expectedParts) {
+                throw new ValidationException("Invalid cursor");
+            }
+            long[] parts = new long[expectedParts];
+            for (int i = 0; i < expectedParts; i++) {
+                parts[i] = Long.parseLong(tokens[i]);
+            }
+            return parts;
+        } catch (IllegalArgumentException e) {
+            throw new ValidationException("Invalid cursor");
+        }
+    }
+}
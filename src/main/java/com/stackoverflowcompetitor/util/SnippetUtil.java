@@ -0,0 +1,78 @@
+package com.stackoverflowcompetitor.util;
+
+import com.stackoverflowcompetitor.dto.SearchResult;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Cuts the part of a text around the first occurrence of a search query and marks every occurrence inside it.
+ * Occurrences are found ignoring case, as the search index matches them.
+ */
+public class SnippetUtil {
+
+    private static final String ELLIPSIS = "...";
+
+    private SnippetUtil() {
+    }
+
+    public record Snippet(String text, List<SearchResult.Highlight> highlights) {
+    }
+
+    public static boolean contains(String text, String query) {
+        return indexOf(text, query, 0) >= 0;
+    }
+
+    /**
+     * Returns at most {@code length} characters of the text (plus ellipses where it was cut), with the first
+     * occurrence of the query roughly in the middle. Without an occurrence the snippet is the start of the text.
+     */
+    public static Snippet snippet(String text, String query, int length) {
+        if (text == null) {
+            return new Snippet("", List.of());
+        }
+        int match = indexOf(text, query, 0);
+        int start = 0;
+        if (match > 0) {
+            start = Math.max(0, match - Math.max(0, length - query.length()) / 2);
+        }
+        int end = Math.min(text.length(), start + length);
+        start = Math.max(0, end - length);
+        // Never split a surrogate pair
+        if (start > 0 && Character.isLowSurrogate(text.charAt(start))) {
+            start++;
+        }
+        if (end < text.length() && Character.isHighSurrogate(text.charAt(end - 1))) {
+            end--;
+        }
+
+        StringBuilder snippet = new StringBuilder();
+        if (start > 0) {
+            snippet.append(ELLIPSIS);
+        }
+        int offset = snippet.length() - start;
+        snippet.append(text, start, end);
+        if (end < text.length()) {
+            snippet.append(ELLIPSIS);
+        }
+        List<SearchResult.Highlight> highlights = new ArrayList<>();
+        for (int at = match < 0 ? -1 : indexOf(text, query, start);
+             at >= 0 && at + query.length() <= end;
+             at = indexOf(text, query, at + query.length())) {
+            highlights.add(new SearchResult.Highlight(at + offset, at + query.length() + offset));
+        }
+        return new Snippet(snippet.toString(), highlights);
+    }
+
+    private static int indexOf(String text, String query, int from) {
+        if (text == null || query == null || query.isEmpty()) {
+            return -1;
+        }
+        for (int at = from; at + query.length() <= text.length(); at++) {
+            if (text.regionMatches(true, at, query, 0, query.length())) {
+                return at;
+            }
+        }
+        return -1;
+    }
+}
@@ -8,4 +8,8 @@ public class ValidationUtil {
     public static boolean validateLength(String input, int min, int max) {
         return (input.length() < min || input.length() > max);
     }
+
+    public static boolean validateRange(int value, int min, int max) {
+        return (value < min || value > max);
+    }
 }
@@ -0,0 +1,82 @@
+package com.stackoverflowcompetitor.benchmark;
+
+import com.stackoverflowcompetitor.service.CompletionTrie;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Measures tag autocompletion over 100k tags with Zipf-like question counts: loading the trie, completing
+ * prefixes of 1 to 4 characters of existing tags as a tag picker does on each keystroke, and counting a new
+ * question under a tag.
+ * Run with: mvn test -Pbenchmark -Dtest=CompletionTrieBenchmark
+ */
+@Tag("benchmark")
+class CompletionTrieBenchmark {
+
+    private static final int TAGS = 100_000;
+    private static final int QUERIES = 200_000;
+    private static final int LIMIT = 10;
+
+    @Test
+    void benchmarkCompletion() {
+        Random random = new Random(42);
+        Map<String, Long> counts = new HashMap<>();
+        while (counts.size() < TAGS) {
+            counts.put(tag(random), (long) Math.floor(Math.pow(100_000, random.nextDouble())));
+        }
+        List<String> tags = new ArrayList<>(counts.keySet());
+
+        long start = System.nanoTime();
+        CompletionTrie trie = new CompletionTrie(LIMIT);
+        trie.putAll(counts);
+        long loadMillis = (System.nanoTime() - start) / 1_000_000;
+
+        String[] prefixes = new String[QUERIES];
+        for (int q = 0; q < QUERIES; q++) {
+            String tag = tags.get(random.nextInt(TAGS));
+            prefixes[q] = tag.substring(0, Math.min(tag.length(), 1 + random.nextInt(4)));
+        }
+        for (String prefix : prefixes) {
+            trie.complete(prefix, LIMIT);
+        }
+        long[] nanos = new long[QUERIES];
+        for (int q = 0; q < QUERIES; q++) {
+            long started = System.nanoTime();
+            trie.complete(prefixes[q], LIMIT);
+            nanos[q] = System.nanoTime() - started;
+        }
+        Arrays.sort(nanos);
+
+        long[] updateNanos = new long[10_000];
+        for (int u = 0; u < updateNanos.length; u++) {
+            String tag = tags.get(random.nextInt(TAGS));
+            long started = System.nanoTime();
+            trie.addWeight(tag, 1);
+            updateNanos[u] = System.nanoTime() - started;
+        }
+        Arrays.sort(updateNanos);
+
+        System.out.printf("%d tags loaded in %d ms%n", TAGS, loadMillis);
+        System.out.printf("complete: mean %.1f us, p99 %.1f us, p99.9 %.1f us, max %.1f us%n",
+                Arrays.stream(nanos).average().orElse(0) / 1_000, nanos[QUERIES * 99 / 100] / 1_000.0,
+                nanos[QUERIES * 999 / 1000] / 1_000.0, nanos[QUERIES - 1] / 1_000.0);
+        System.out.printf("count a question: mean %.1f us, p99 %.1f us%n",
+                Arrays.stream(updateNanos).average().orElse(0) / 1_000, updateNanos[updateNanos.length * 99 / 100] / 1_000.0);
+    }
+
+    private static String tag(Random random) {
+        String letters = "eeeeeeeeeeeeaaaaaaaaaooooooooiiiiiiiinnnnnnnsssssssrrrrrrtttttttllllcccddduummpphhggbbyfwkvxzjq-";
+        StringBuilder tag = new StringBuilder();
+        for (int i = 0, length = 2 + random.nextInt(14); i < length; i++) {
+            tag.append(letters.charAt(random.nextInt(letters.length())));
+        }
+        return tag.toString();
+    }
+}
@@ -0,0 +1,85 @@
+package com.stackoverflowcompetitor.benchmark;
+
+import com.stackoverflowcompetitor.service.FuzzyLookup;
+import com.stackoverflowcompetitor.service.FuzzyTrie;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Measures typo-tolerant lookups over dictionaries the size of the tag list and of the title vocabulary, with
+ * queries that are dictionary words with two random edits. Words are synthetic, with English-like lengths and
+ * letter frequencies, so they are denser than a real vocabulary and the lookups slower. "by length" is the
+ * budget {@link FuzzyLookup} applies: two edits for words of six characters or more, one for shorter words.
+ * Run with: mvn test -Pbenchmark -Dtest=FuzzyTrieBenchmark
+ */
+@Tag("benchmark")
+class FuzzyTrieBenchmark {
+
+    private static final int[] DICTIONARY_SIZES = {10_000, 100_000};
+    private static final int QUERIES = 5_000;
+
+    @Test
+    void benchmarkFuzzyLookup() {
+        System.out.printf("%10s %10s %12s %12s %12s %10s%n", "words", "edits", "mean us", "p99 us", "max us", "matches");
+        for (int size : DICTIONARY_SIZES) {
+            Random random = new Random(42);
+            FuzzyTrie trie = new FuzzyTrie();
+            List<String> words = new ArrayList<>();
+            while (words.size() < size) {
+                String word = word(random);
+                if (trie.add(word)) {
+                    words.add(word);
+                }
+            }
+            for (int maxDistance = 1; maxDistance <= 3; maxDistance++) {
+                String[] queries = new String[QUERIES];
+                for (int q = 0; q < QUERIES; q++) {
+                    queries[q] = typo(typo(words.get(random.nextInt(size)), random), random);
+                }
+                // 3 stands for the budget by query length
+                int[] budgets = new int[QUERIES];
+                for (int q = 0; q < QUERIES; q++) {
+                    budgets[q] = maxDistance < 3 ? maxDistance : FuzzyLookup.maxEditsFor(queries[q]);
+                    trie.search(queries[q], budgets[q]);
+                }
+                long[] nanos = new long[QUERIES];
+                long matches = 0;
+                for (int q = 0; q < QUERIES; q++) {
+                    long start = System.nanoTime();
+                    matches += trie.search(queries[q], budgets[q]).size();
+                    nanos[q] = System.nanoTime() - start;
+                }
+                Arrays.sort(nanos);
+                System.out.printf("%10d %10s %12.1f %12.1f %12.1f %10.2f%n", size,
+                        maxDistance < 3 ? String.valueOf(maxDistance) : "by length",
+                        Arrays.stream(nanos).average().orElse(0) / 1_000, nanos[QUERIES * 99 / 100] / 1_000.0,
+                        nanos[QUERIES - 1] / 1_000.0, (double) matches / QUERIES);
+            }
+        }
+    }
+
+    private static String word(Random random) {
+        String letters = "eeeeeeeeeeeeaaaaaaaaaooooooooiiiiiiiinnnnnnnsssssssrrrrrrtttttttllllcccddduummpphhggbbyfwkvxzjq-";
+        StringBuilder word = new StringBuilder();
+        for (int i = 0, length = 4 + random.nextInt(9); i < length; i++) {
+            word.append(letters.charAt(random.nextInt(letters.length())));
+        }
+        return word.toString();
+    }
+
+    private static String typo(String word, Random random) {
+        StringBuilder typo = new StringBuilder(word);
+        int position = random.nextInt(typo.length());
+        switch (random.nextInt(3)) {
+            case 0 -> typo.deleteCharAt(position);
+            case 1 -> typo.insert(position, (char) ('a' + random.nextInt(26)));
+            default -> typo.setCharAt(position, (char) ('a' + random.nextInt(26)));
+        }
+        return typo.toString();
+    }
+}
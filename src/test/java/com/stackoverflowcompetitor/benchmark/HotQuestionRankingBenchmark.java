@@ -0,0 +1,82 @@
+package com.stackoverflowcompetitor.benchmark;
+
+import com.stackoverflowcompetitor.repository.QuestionActivity;
+import com.stackoverflowcompetitor.repository.QuestionRepository;
+import com.stackoverflowcompetitor.service.HotQuestionRanking;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.AbstractList;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+
+import static org.mockito.Mockito.*;
+
+/**
+ * Shows that the cost of a hot-ranking update and of reading the first page stays flat as the
+ * number of questions grows. Run with: mvn test -Pbenchmark -Dtest=HotQuestionRankingBenchmark
+ */
+@Tag("benchmark")
+class HotQuestionRankingBenchmark {
+
+    private static final int UPDATES = 500_000;
+    private static final int PAGE_READS = 20_000;
+
+    @Test
+    void benchmarkRankingCostByQuestionCount() {
+        System.out.printf("%12s %18s %18s%n", "questions", "ns/update", "ns/page(20)");
+        for (int questions : new int[]{10_000, 100_000, 1_000_000, 2_000_000}) {
+            HotQuestionRanking ranking = load(questions);
+            Random random = new Random(7);
+
+            long start = System.nanoTime();
+            for (int i = 0; i < UPDATES; i++) {
+                ranking.adjustScore((long) random.nextInt(questions) + 1, random.nextBoolean() ? 1 : -1);
+            }
+            double updateNanos = (System.nanoTime() - start) / (double) UPDATES;
+
+            start = System.nanoTime();
+            long checksum = 0;
+            for (int i = 0; i < PAGE_READS; i++) {
+                checksum += ranking.hotQuestionIds(0, 20).get(0);
+            }
+            double pageNanos = (System.nanoTime() - start) / (double) PAGE_READS;
+
+            System.out.printf("%12d %18.0f %18.0f   (checksum %d)%n", questions, updateNanos, pageNanos, checksum);
+        }
+    }
+
+    private static HotQuestionRanking load(int questions) {
+        long now = System.currentTimeMillis();
+        Random random = new Random(questions);
+        List<QuestionActivity> rows = new AbstractList<>() {
+            @Override
+            public QuestionActivity get(int index) {
+                long id = index + 1L;
+                long score = random.nextInt(200) - 20;
+                long answers = random.nextInt(10);
+                Date created = new Date(now - random.nextInt(30 * 24 * 3600) * 1000L);
+                return new QuestionActivity() {
+                    public Long getId() { return id; }
+                    public long getScore() { return score; }
+                    public Date getCreatedTime() { return created; }
+                    public long getAnswerCount() { return answers; }
+                };
+            }
+
+            @Override
+            public int size() {
+                return questions;
+            }
+        };
+
+        QuestionRepository questionRepository = mock(QuestionRepository.class);
+        when(questionRepository.findAllActivity()).thenReturn(rows);
+        HotQuestionRanking ranking = new HotQuestionRanking();
+        ReflectionTestUtils.setField(ranking, "questionRepository", questionRepository);
+        ranking.reload();
+        return ranking;
+    }
+}
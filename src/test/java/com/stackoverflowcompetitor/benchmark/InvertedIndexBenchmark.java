@@ -0,0 +1,96 @@
+package com.stackoverflowcompetitor.benchmark;
+
+import com.stackoverflowcompetitor.service.InvertedIndex;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Compares word search through the inverted index with a full scan that lower-cases every document and
+ * looks for the term as a substring, which is the work LIKE '%term%' over LOWER(title), LOWER(content)
+ * does on every search (before any I/O), and times one ranked page of 20 (BM25 top-k) for the same queries.
+ * Documents are synthetic, with a Zipf-like word distribution.
+ * Run with: mvn test -Pbenchmark -Dtest=InvertedIndexBenchmark
+ */
+@Tag("benchmark")
+class InvertedIndexBenchmark {
+
+    private static final int DOCUMENTS = 1_000_000;
+    private static final int VOCABULARY = 50_000;
+    private static final int WORDS_PER_DOCUMENT = 16;
+    private static final int SCAN_REPEATS = 3;
+    private static final int INDEX_REPEATS = 200;
+
+    @Test
+    void benchmarkSearchOnOneMillionDocuments() {
+        Random random = new Random(42);
+        String[] documents = new String[DOCUMENTS];
+        InvertedIndex index = new InvertedIndex();
+
+        long start = System.nanoTime();
+        for (int id = 0; id < DOCUMENTS; id++) {
+            StringBuilder text = new StringBuilder();
+            for (int w = 0; w < WORDS_PER_DOCUMENT; w++) {
+                text.append(word(random)).append(' ');
+            }
+            documents[id] = text.toString();
+            index.add(id, documents[id]);
+        }
+        System.out.printf("indexed %d documents, %d terms in %d ms%n",
+                DOCUMENTS, index.termCount(), (System.nanoTime() - start) / 1_000_000);
+
+        String[] queries = {"term3", "term250", "term9000", "term49000", "term3 term250", "term250 term9000"};
+        for (int i = 0; i < INDEX_REPEATS; i++) {
+            for (String query : queries) {
+                index.search(query);
+                index.topK(query, 20, null, null);
+            }
+        }
+
+        System.out.printf("%-24s %10s %16s %16s %16s %10s%n",
+                "query", "matches", "index us/query", "top20 us/query", "scan us/query", "speed-up");
+        for (String query : queries) {
+            long matches = 0;
+            start = System.nanoTime();
+            for (int i = 0; i < INDEX_REPEATS; i++) {
+                matches = index.search(query).length;
+            }
+            double indexMicros = (System.nanoTime() - start) / 1_000.0 / INDEX_REPEATS;
+
+            start = System.nanoTime();
+            for (int i = 0; i < INDEX_REPEATS; i++) {
+                index.topK(query, 20, null, null);
+            }
+            double topMicros = (System.nanoTime() - start) / 1_000.0 / INDEX_REPEATS;
+
+            String[] terms = query.split(" ");
+            long scanned = 0;
+            start = System.nanoTime();
+            for (int i = 0; i < SCAN_REPEATS; i++) {
+                scanned = 0;
+                for (String document : documents) {
+                    String lower = document.toLowerCase(Locale.ROOT);
+                    boolean all = true;
+                    for (String term : terms) {
+                        all &= lower.contains(term + " ");
+                    }
+                    if (all) {
+                        scanned++;
+                    }
+                }
+            }
+            double scanMicros = (System.nanoTime() - start) / 1_000.0 / SCAN_REPEATS;
+
+            System.out.printf("%-24s %10d %16.1f %16.1f %16.0f %9.0fx   (scan matches %d)%n",
+                    query, matches, indexMicros, topMicros, scanMicros, scanMicros / indexMicros, scanned);
+        }
+    }
+
+    // Zipf-like: low-numbered terms are far more common than high-numbered ones
+    private static String word(Random random) {
+        int rank = (int) Math.floor(Math.pow(VOCABULARY, random.nextDouble()));
+        return "term" + (rank - 1);
+    }
+}
@@ -0,0 +1,173 @@
+package com.stackoverflowcompetitor.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.stackoverflowcompetitor.model.Answer;
+import com.stackoverflowcompetitor.model.Question;
+import com.stackoverflowcompetitor.model.Tag;
+import com.stackoverflowcompetitor.model.User;
+import com.stackoverflowcompetitor.model.Vote;
+import com.stackoverflowcompetitor.repository.AnswerRepository;
+import com.stackoverflowcompetitor.repository.QuestionRepository;
+import com.stackoverflowcompetitor.repository.TagRepository;
+import com.stackoverflowcompetitor.repository.UserRepository;
+import com.stackoverflowcompetitor.repository.VoteRepository;
+import com.stackoverflowcompetitor.service.QuestionLeaderboard;
+import com.stackoverflowcompetitor.service.QuestionService;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Compares one top-voted page served as the Question entity graph with the same page served as
+ * QuestionSummary rows: response bytes and SQL statements per request. Each request runs in one
+ * transaction, like a request under open-session-in-view. Needs the MySQL instance from
+ * application.properties. Run with: mvn test -Pbenchmark -Dtest=QuestionListPayloadBenchmark
+ */
+@org.junit.jupiter.api.Tag("benchmark")
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@EnabledIfEnvironmentVariable(named = "MYSQL_PASSWORD", matches = ".*")
+class QuestionListPayloadBenchmark {
+
+    private static final int QUESTIONS = 20;
+    private static final int ANSWERS_PER_QUESTION = 5;
+    private static final int REPLIES_PER_ANSWER = 2;
+    private static final int VOTERS = 5;
+
+    @Autowired
+    private QuestionService questionService;
+
+    @Autowired
+    private QuestionRepository questionRepository;
+
+    @Autowired
+    private AnswerRepository answerRepository;
+
+    @Autowired
+    private VoteRepository voteRepository;
+
+    @Autowired
+    private TagRepository tagRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private QuestionLeaderboard questionLeaderboard;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private final List<User> users = new ArrayList<>();
+    private final List<Tag> tags = new ArrayList<>();
+    private final List<Question> questions = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        String prefix = UUID.randomUUID().toString().substring(0, 8);
+        for (int i = 0; i < VOTERS; i++) {
+            User user = new User();
+            user.setUsername("pb" + prefix + i);
+            user.setPassword("password");
+            users.add(userRepository.save(user));
+        }
+        for (int i = 0; i < 3; i++) {
+            Tag tag = new Tag();
+            tag.setName("pb" + prefix + i);
+            tags.add(tagRepository.save(tag));
+        }
+        for (int q = 0; q < QUESTIONS; q++) {
+            Question question = new Question();
+            question.setTitle("Payload benchmark question " + q);
+            question.setContent("Payload benchmark content ".repeat(20));
+            question.setUser(users.get(q % VOTERS));
+            question.setTags(tags);
+            question.setScore(1_000_000L + q);
+            question = questionRepository.save(question);
+            questions.add(question);
+
+            for (int a = 0; a < ANSWERS_PER_QUESTION; a++) {
+                Answer answer = saveAnswer(question, null, users.get(a % VOTERS));
+                for (int r = 0; r < REPLIES_PER_ANSWER; r++) {
+                    saveAnswer(question, answer, users.get(r % VOTERS));
+                }
+            }
+            for (User user : users) {
+                Vote vote = new Vote();
+                vote.setUser(user);
+                vote.setQuestion(question);
+                vote.setUpvote(true);
+                voteRepository.save(vote);
+            }
+        }
+        questionLeaderboard.reload();
+    }
+
+    @AfterEach
+    void tearDown() {
+        transactionTemplate.executeWithoutResult(status -> questionRepository.deleteAllById(
+                questions.stream().map(Question::getId).toList()));
+        tagRepository.deleteAll(tags);
+        userRepository.deleteAll(users);
+        questionLeaderboard.reload();
+    }
+
+    @Test
+    void benchmarkTopVotedPagePayload() {
+        PageRequest pageable = PageRequest.of(0, QUESTIONS);
+        Measurement entities = measure(() -> questionRepository.findTopVotedQuestions(pageable));
+        Measurement summaries = measure(() -> questionService.getTopVotedQuestions(pageable));
+
+        System.out.printf("%-22s %12s %12s%n", "top-voted page(" + QUESTIONS + ")", "bytes", "statements");
+        System.out.printf("%-22s %12d %12d%n", "entity graph", entities.bytes, entities.statements);
+        System.out.printf("%-22s %12d %12d%n", "QuestionSummary", summaries.bytes, summaries.statements);
+
+        assertTrue(summaries.bytes < entities.bytes);
+        assertTrue(summaries.statements <= 2);
+    }
+
+    private Measurement measure(Supplier<Object> request) {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        return transactionTemplate.execute(status -> {
+            statistics.clear();
+            try {
+                byte[] body = objectMapper.writeValueAsBytes(request.get());
+                return new Measurement(body.length, statistics.getPrepareStatementCount());
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        });
+    }
+
+    private Answer saveAnswer(Question question, Answer parent, User user) {
+        Answer answer = new Answer();
+        answer.setContent("Payload benchmark answer ".repeat(10));
+        answer.setQuestion(question);
+        answer.setParentAnswer(parent);
+        answer.setUser(user);
+        return answerRepository.save(answer);
+    }
+
+    private record Measurement(long bytes, long statements) {
+    }
+}
@@ -0,0 +1,87 @@
+package com.stackoverflowcompetitor.benchmark;
+
+import com.stackoverflowcompetitor.service.IndexSegment;
+import com.stackoverflowcompetitor.service.TextIndex;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Compares restoring the question search index from a memory-mapped segment with rebuilding it from the
+ * document text, which is what start-up does after streaming every row from MySQL (the database read itself
+ * is not included, so the real gap is larger). Documents are synthetic, with a Zipf-like word distribution.
+ * Run with: mvn test -Pbenchmark -Dtest=SearchSegmentBenchmark
+ */
+@Tag("benchmark")
+class SearchSegmentBenchmark {
+
+    private static final int DOCUMENTS = 200_000;
+    private static final int VOCABULARY = 50_000;
+    private static final int WORDS_PER_DOCUMENT = 40;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void benchmarkRestoreVersusRebuild() throws IOException {
+        Random random = new Random(42);
+        String[] titles = new String[DOCUMENTS];
+        String[] contents = new String[DOCUMENTS];
+        for (int id = 0; id < DOCUMENTS; id++) {
+            titles[id] = sentence(random, 8);
+            contents[id] = sentence(random, WORDS_PER_DOCUMENT);
+        }
+
+        long start = System.nanoTime();
+        TextIndex rebuilt = new TextIndex();
+        for (int id = 0; id < DOCUMENTS; id++) {
+            rebuilt.add(id, titles[id], contents[id]);
+        }
+        long rebuildMillis = (System.nanoTime() - start) / 1_000_000;
+
+        Path file = directory.resolve("questions.seg");
+        start = System.nanoTime();
+        IndexSegment.write(file, rebuilt);
+        long writeMillis = (System.nanoTime() - start) / 1_000_000;
+
+        start = System.nanoTime();
+        IndexSegment segment = IndexSegment.open(file);
+        TextIndex restored = new TextIndex();
+        segment.loadInto(restored);
+        long restoreMillis = (System.nanoTime() - start) / 1_000_000;
+
+        TextIndex even = new TextIndex();
+        TextIndex odd = new TextIndex();
+        for (int id = 0; id < DOCUMENTS; id++) {
+            (id % 2 == 0 ? even : odd).add(id, titles[id], contents[id]);
+        }
+        IndexSegment.write(directory.resolve("even.seg"), even);
+        IndexSegment.write(directory.resolve("odd.seg"), odd);
+        start = System.nanoTime();
+        IndexSegment.merge(List.of(IndexSegment.open(directory.resolve("even.seg")), IndexSegment.open(directory.resolve("odd.seg"))),
+                directory.resolve("merged.seg"));
+        long mergeMillis = (System.nanoTime() - start) / 1_000_000;
+
+        System.out.printf("%d documents, %d terms, %d trigrams, segment %.1f MB%n", DOCUMENTS,
+                restored.termCount(), restored.trigramCount(), segment.sizeInBytes() / 1e6);
+        System.out.printf("rebuild from text %6d ms%n", rebuildMillis);
+        System.out.printf("write segment     %6d ms%n", writeMillis);
+        System.out.printf("restore segment   %6d ms  (%.1fx faster than rebuilding)%n",
+                restoreMillis, (double) rebuildMillis / restoreMillis);
+        System.out.printf("merge 2 halves    %6d ms%n", mergeMillis);
+    }
+
+    private static String sentence(Random random, int words) {
+        StringBuilder text = new StringBuilder();
+        for (int w = 0; w < words; w++) {
+            int rank = (int) Math.floor(Math.pow(VOCABULARY, random.nextDouble()));
+            text.append("term").append(rank - 1).append(' ');
+        }
+        return text.toString();
+    }
+}
@@ -0,0 +1,66 @@
+package com.stackoverflowcompetitor.benchmark;
+
+import com.stackoverflowcompetitor.service.IdBitmap;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Measures multi-tag queries over the tag bitmaps for 1M questions with 1 to 5 tags each, drawn from 10k tags
+ * with Zipf-like popularity: the first page of 20 ids for "both of two popular tags but not a third" and for
+ * "any of three mid-popularity tags", as TagIndex evaluates them.
+ * Run with: mvn test -Pbenchmark -Dtest=TagIndexBenchmark
+ */
+@Tag("benchmark")
+class TagIndexBenchmark {
+
+    private static final int QUESTIONS = 1_000_000;
+    private static final int TAGS = 10_000;
+    private static final int QUERIES = 2_000;
+
+    @Test
+    void benchmarkTagQueries() {
+        Random random = new Random(42);
+        IdBitmap[] questionsByTag = new IdBitmap[TAGS];
+        for (int tag = 0; tag < TAGS; tag++) {
+            questionsByTag[tag] = new IdBitmap();
+        }
+        for (int id = 1; id <= QUESTIONS; id++) {
+            for (int i = 0, tags = 1 + random.nextInt(5); i < tags; i++) {
+                questionsByTag[popularTag(random)].add(id);
+            }
+        }
+        System.out.printf("%d questions, java-like tag has %d, 10th tag %d, 100th tag %d%n", QUESTIONS,
+                questionsByTag[0].cardinality(), questionsByTag[9].cardinality(), questionsByTag[99].cardinality());
+
+        report("all=2 popular, none=1", QUERIES, q -> {
+            int first = q % 10;
+            return questionsByTag[first].and(questionsByTag[(first + 1) % 10]).andNot(questionsByTag[10 + q % 20])
+                    .idsBefore(Long.MAX_VALUE, 21).size();
+        });
+        report("any=3 mid-popularity", QUERIES, q -> questionsByTag[50 + q % 50].or(questionsByTag[100 + q % 50])
+                .or(questionsByTag[150 + q % 50]).idsBefore(Long.MAX_VALUE, 21).size());
+    }
+
+    private static void report(String query, int queries, java.util.function.IntUnaryOperator run) {
+        for (int q = 0; q < queries; q++) {
+            run.applyAsInt(q);
+        }
+        long[] nanos = new long[queries];
+        for (int q = 0; q < queries; q++) {
+            long start = System.nanoTime();
+            run.applyAsInt(q);
+            nanos[q] = System.nanoTime() - start;
+        }
+        Arrays.sort(nanos);
+        System.out.printf("%-24s mean %8.1f us, p99 %8.1f us%n", query,
+                Arrays.stream(nanos).average().orElse(0) / 1_000, nanos[queries * 99 / 100] / 1_000.0);
+    }
+
+    // Tag rank r is used with probability roughly proportional to 1 / r
+    private static int popularTag(Random random) {
+        return (int) Math.floor(Math.pow(TAGS, random.nextDouble())) - 1;
+    }
+}
@@ -0,0 +1,86 @@
+package com.stackoverflowcompetitor.benchmark;
+
+import com.stackoverflowcompetitor.service.TrigramIndex;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Compares substring search through the trigram index with a full scan that lower-cases every document and
+ * looks for the query as a substring, which is the work LIKE '%query%' over LOWER(content) does on every
+ * search (before any I/O). Also reports the size of the compressed posting lists against plain long arrays.
+ * Documents are synthetic, with a Zipf-like word distribution.
+ * Run with: mvn test -Pbenchmark -Dtest=TrigramIndexBenchmark
+ */
+@Tag("benchmark")
+class TrigramIndexBenchmark {
+
+    private static final int DOCUMENTS = 200_000;
+    private static final int VOCABULARY = 50_000;
+    private static final int WORDS_PER_DOCUMENT = 16;
+    private static final int SCAN_REPEATS = 5;
+    private static final int INDEX_REPEATS = 50;
+
+    @Test
+    void benchmarkSubstringSearch() {
+        Random random = new Random(42);
+        String[] documents = new String[DOCUMENTS];
+        TrigramIndex index = new TrigramIndex();
+
+        long start = System.nanoTime();
+        for (int id = 0; id < DOCUMENTS; id++) {
+            StringBuilder text = new StringBuilder();
+            for (int w = 0; w < WORDS_PER_DOCUMENT; w++) {
+                text.append(word(random)).append(' ');
+            }
+            documents[id] = text.toString();
+            index.add(id, documents[id]);
+        }
+        long[] statistics = index.postingStatistics();
+        System.out.printf("indexed %d documents, %d trigrams in %d ms%n",
+                DOCUMENTS, index.trigramCount(), (System.nanoTime() - start) / 1_000_000);
+        System.out.printf("%d postings: %.1f MB compressed, %.1f MB as long[] (%.2f bytes/posting)%n",
+                statistics[0], statistics[1] / 1e6, statistics[0] * 8 / 1e6, (double) statistics[1] / statistics[0]);
+
+        String[] queries = {"Term49", "rm250 ", "m9000 term", "erm4900", "48761", "t"};
+        for (int i = 0; i < INDEX_REPEATS; i++) {
+            for (String query : queries) {
+                index.search(query);
+            }
+        }
+
+        System.out.printf("%-16s %10s %16s %16s %10s%n", "query", "matches", "index us/query", "scan us/query", "speed-up");
+        for (String query : queries) {
+            long matches = 0;
+            start = System.nanoTime();
+            for (int i = 0; i < INDEX_REPEATS; i++) {
+                matches = index.search(query).length;
+            }
+            double indexMicros = (System.nanoTime() - start) / 1_000.0 / INDEX_REPEATS;
+
+            String needle = query.toLowerCase(Locale.ROOT);
+            long scanned = 0;
+            start = System.nanoTime();
+            for (int i = 0; i < SCAN_REPEATS; i++) {
+                scanned = 0;
+                for (String document : documents) {
+                    if (document.toLowerCase(Locale.ROOT).contains(needle)) {
+                        scanned++;
+                    }
+                }
+            }
+            double scanMicros = (System.nanoTime() - start) / 1_000.0 / SCAN_REPEATS;
+
+            System.out.printf("%-16s %10d %16.1f %16.0f %9.0fx   (scan matches %d)%n",
+                    "'" + query + "'", matches, indexMicros, scanMicros, scanMicros / indexMicros, scanned);
+        }
+    }
+
+    // Zipf-like: low-numbered terms are far more common than high-numbered ones
+    private static String word(Random random) {
+        int rank = (int) Math.floor(Math.pow(VOCABULARY, random.nextDouble()));
+        return "term" + (rank - 1);
+    }
+}
@@ -1,5 +1,7 @@
 package com.stackoverflowcompetitor.controller;
 
+import com.stackoverflowcompetitor.dto.AnswerNode;
+import com.stackoverflowcompetitor.dto.CursorPage;
 import com.stackoverflowcompetitor.model.Answer;
 import com.stackoverflowcompetitor.service.AnswerService;
 import org.junit.jupiter.api.BeforeEach;
@@ -42,7 +44,7 @@ class AnswerControllerTest {
         answer.setId(1L);
         answer.setContent("Test content");
 
-        when(answerService.answerQuestion(anyLong(), anyString(), any())).thenReturn(answer);
+        when(answerService.answerQuestion(anyLong(), anyString(), any(), any())).thenReturn(answer);
 
         MockMultipartFile media = new MockMultipartFile("media", "test.txt", "text/plain", "test content".getBytes());
 
@@ -54,12 +56,12 @@ class AnswerControllerTest {
                 .andExpect(jsonPath("$.id", is(1)))
                 .andExpect(jsonPath("$.content", is("Test content")));
 
-        verify(answerService, times(1)).answerQuestion(anyLong(), anyString(), any());
+        verify(answerService, times(1)).answerQuestion(anyLong(), anyString(), any(), any());
     }
 
     @Test
     void testAnswerQuestion_Failure() throws Exception {
-        when(answerService.answerQuestion(anyLong(), anyString(), any())).thenThrow(new RuntimeException("Error"));
+        when(answerService.answerQuestion(anyLong(), anyString(), any(), any())).thenThrow(new RuntimeException("Error"));
 
         MockMultipartFile media = new MockMultipartFile("media", "test.txt", "text/plain", "test content".getBytes());
 
@@ -69,7 +71,7 @@ class AnswerControllerTest {
                         .contentType(MediaType.MULTIPART_FORM_DATA))
                 .andExpect(status().isInternalServerError());
 
-        verify(answerService, times(1)).answerQuestion(anyLong(), anyString(), any());
+        verify(answerService, times(1)).answerQuestion(anyLong(), anyString(), any(), any());
     }
 
     @Test
@@ -78,7 +80,7 @@ class AnswerControllerTest {
         answer.setId(1L);
         answer.setContent("Test reply");
 
-        when(answerService.answerToAnswer(anyLong(), anyString(), any(), anyLong())).thenReturn(answer);
+        when(answerService.answerToAnswer(anyLong(), anyString(), any(), any(), anyLong())).thenReturn(answer);
 
         MockMultipartFile media = new MockMultipartFile("media", "test.txt", "text/plain", "test content".getBytes());
 
@@ -90,12 +92,12 @@ class AnswerControllerTest {
                 .andExpect(jsonPath("$.id", is(1)))
                 .andExpect(jsonPath("$.content", is("Test reply")));
 
-        verify(answerService, times(1)).answerToAnswer(anyLong(), anyString(), any(), anyLong());
+        verify(answerService, times(1)).answerToAnswer(anyLong(), anyString(), any(), any(), anyLong());
     }
 
     @Test
     void testAnswerToAnswer_Failure() throws Exception {
-        when(answerService.answerToAnswer(anyLong(), anyString(), any(), anyLong())).thenThrow(new RuntimeException("Error"));
+        when(answerService.answerToAnswer(anyLong(), anyString(), any(), any(), anyLong())).thenThrow(new RuntimeException("Error"));
 
         MockMultipartFile media = new MockMultipartFile("media", "test.txt", "text/plain", "test content".getBytes());
 
@@ -105,7 +107,7 @@ class AnswerControllerTest {
                         .contentType(MediaType.MULTIPART_FORM_DATA))
                 .andExpect(status().isInternalServerError());
 
-        verify(answerService, times(1)).answerToAnswer(anyLong(), anyString(), any(), anyLong());
+        verify(answerService, times(1)).answerToAnswer(anyLong(), anyString(), any(), any(), anyLong());
     }
 
     @Test
@@ -114,28 +116,51 @@ class AnswerControllerTest {
         answer.setId(1L);
         answer.setContent("Test answer");
 
-        when(answerService.searchAnswers(anyString())).thenReturn(Collections.singletonList(answer));
+        when(answerService.searchAnswers(anyString(), any(), anyInt())).thenReturn(new CursorPage<>(Collections.singletonList(answer), null));
 
         mockMvc.perform(get("/answers/search")
                         .param("searchTerm", "Test")
                         .contentType(MediaType.APPLICATION_JSON))
                 .andExpect(status().isOk())
-                .andExpect(jsonPath("$", hasSize(1)))
-                .andExpect(jsonPath("$[0].id", is(1)))
-                .andExpect(jsonPath("$[0].content", is("Test answer")));
+                .andExpect(jsonPath("$.content", hasSize(1)))
+                .andExpect(jsonPath("$.content[0].id", is(1)))
+                .andExpect(jsonPath("$.content[0].content", is("Test answer")));
 
-        verify(answerService, times(1)).searchAnswers(anyString());
+        verify(answerService, times(1)).searchAnswers(anyString(), any(), anyInt());
     }
 
     @Test
     void testSearchAnswers_Failure() throws Exception {
-        when(answerService.searchAnswers(anyString())).thenThrow(new RuntimeException("Error"));
+        when(answerService.searchAnswers(anyString(), any(), anyInt())).thenThrow(new RuntimeException("Error"));
 
         mockMvc.perform(get("/answers/search")
                         .param("searchTerm", "Test")
                         .contentType(MediaType.APPLICATION_JSON))
                 .andExpect(status().isInternalServerError());
 
-        verify(answerService, times(1)).searchAnswers(anyString());
+        verify(answerService, times(1)).searchAnswers(anyString(), any(), anyInt());
+    }
+
+    @Test
+    void testGetReplies_Success() throws Exception {
+        AnswerNode root = new AnswerNode(1L, "Answer", null, 2, 2, 0, "testuser", null);
+        root.replies().add(new AnswerNode(2L, "Reply", null, 0, 0, 0, "replier", null));
+
+        when(answerService.getReplySubtree(1L, 3)).thenReturn(root);
+
+        mockMvc.perform(get("/answers/1/replies")
+                        .param("maxDepth", "3"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.id", is(1)))
+                .andExpect(jsonPath("$.replies[0].id", is(2)));
+    }
+
+    @Test
+    void testCountReplies_Success() throws Exception {
+        when(answerService.countReplies(1L)).thenReturn(4L);
+
+        mockMvc.perform(get("/answers/1/reply-count"))
+                .andExpect(status().isOk())
+                .andExpect(content().string("4"));
     }
 }
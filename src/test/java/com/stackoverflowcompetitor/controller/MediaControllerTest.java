@@ -0,0 +1,290 @@
+package com.stackoverflowcompetitor.controller;
+
+import com.stackoverflowcompetitor.dto.MediaInfo;
+import com.stackoverflowcompetitor.dto.MediaStatus;
+import com.stackoverflowcompetitor.dto.UploadStatus;
+import com.stackoverflowcompetitor.service.MediaProcessor;
+import com.stackoverflowcompetitor.service.MediaService;
+import com.stackoverflowcompetitor.service.MediaService.StoredMedia;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.nio.file.Files;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.head;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+class MediaControllerTest {
+
+    private static final String ID = "a".repeat(64);
+    private static final String ETAG = "\"" + ID + "\"";
+    private static final long LAST_MODIFIED = 1_700_000_000_000L;
+
+    @TempDir
+    Path directory;
+
+    @Mock
+    private MediaService mediaService;
+
+    @Mock
+    private MediaProcessor mediaProcessor;
+
+    @InjectMocks
+    private MediaController mediaController;
+
+    private MockMvc mockMvc;
+    private Path file;
+    private byte[] content;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        MockitoAnnotations.openMocks(this);
+        mockMvc = MockMvcBuilders.standaloneSetup(mediaController).build();
+        content = new byte[100_000];
+        for (int i = 0; i < content.length; i++) {
+            content[i] = (byte) (i % 251);
+        }
+        file = Files.write(directory.resolve(ID), content);
+        when(mediaService.find(ID)).thenReturn(Optional.of(
+                new StoredMedia(file, content.length, LAST_MODIFIED, ETAG, MediaType.parseMediaType("video/mp4"))));
+    }
+
+    @Test
+    void testGetMedia_WholeFile() throws Exception {
+        mockMvc.perform(get("/media/" + ID))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("video/mp4"))
+                .andExpect(content().bytes(content))
+                .andExpect(header().longValue(HttpHeaders.CONTENT_LENGTH, content.length))
+                .andExpect(header().string(HttpHeaders.ETAG, ETAG))
+                .andExpect(header().exists(HttpHeaders.LAST_MODIFIED))
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, MediaController.CACHE_CONTROL))
+                .andExpect(header().string(HttpHeaders.ACCEPT_RANGES, "bytes"))
+                .andExpect(header().string("Content-Security-Policy", "sandbox"))
+                .andExpect(header().doesNotExist(HttpHeaders.CONTENT_DISPOSITION));
+    }
+
+    @Test
+    void testGetMedia_ActiveContentIsDownloaded() throws Exception {
+        byte[] page = "<script>alert(document.cookie)</script>".getBytes();
+        String id = "0b9d8c5e-3f6a-4a2b-9c1d-7e6f5a4b3c2d_page.html";
+        Path pageFile = Files.write(directory.resolve(id), page);
+        when(mediaService.find(id)).thenReturn(Optional.of(
+                new StoredMedia(pageFile, page.length, LAST_MODIFIED, "\"" + id + "\"", MediaType.TEXT_HTML)));
+
+        mockMvc.perform(get("/media/" + id))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_OCTET_STREAM))
+                .andExpect(header().string(HttpHeaders.CONTENT_DISPOSITION, "attachment"))
+                .andExpect(header().string("Content-Security-Policy", "sandbox"))
+                .andExpect(content().bytes(page));
+    }
+
+    @Test
+    void testGetMedia_Range() throws Exception {
+        byte[] expected = new byte[100];
+        System.arraycopy(content, 1000, expected, 0, 100);
+
+        mockMvc.perform(get("/media/" + ID).header(HttpHeaders.RANGE, "bytes=1000-1099"))
+                .andExpect(status().isPartialContent())
+                .andExpect(header().string(HttpHeaders.CONTENT_RANGE, "bytes 1000-1099/100000"))
+                .andExpect(header().longValue(HttpHeaders.CONTENT_LENGTH, 100))
+                .andExpect(content().bytes(expected));
+    }
+
+    @Test
+    void testGetMedia_SuffixRange() throws Exception {
+        mockMvc.perform(get("/media/" + ID).header(HttpHeaders.RANGE, "bytes=-10"))
+                .andExpect(status().isPartialContent())
+                .andExpect(header().string(HttpHeaders.CONTENT_RANGE, "bytes 99990-99999/100000"));
+    }
+
+    @Test
+    void testGetMedia_UnsatisfiableRange() throws Exception {
+        mockMvc.perform(get("/media/" + ID).header(HttpHeaders.RANGE, "bytes=200000-"))
+                .andExpect(status().isRequestedRangeNotSatisfiable())
+                .andExpect(header().string(HttpHeaders.CONTENT_RANGE, "bytes */100000"));
+    }
+
+    @Test
+    void testGetMedia_SeveralRangesGetWholeFile() throws Exception {
+        mockMvc.perform(get("/media/" + ID).header(HttpHeaders.RANGE, "bytes=0-9,20-29"))
+                .andExpect(status().isOk())
+                .andExpect(content().bytes(content));
+    }
+
+    @Test
+    void testGetMedia_IfRangeForAnotherVersion() throws Exception {
+        mockMvc.perform(get("/media/" + ID).header(HttpHeaders.RANGE, "bytes=0-9").header(HttpHeaders.IF_RANGE, "\"old\""))
+                .andExpect(status().isOk())
+                .andExpect(content().bytes(content));
+    }
+
+    @Test
+    void testGetMedia_IfNoneMatch() throws Exception {
+        mockMvc.perform(get("/media/" + ID).header(HttpHeaders.IF_NONE_MATCH, ETAG))
+                .andExpect(status().isNotModified())
+                .andExpect(content().bytes(new byte[0]));
+    }
+
+    @Test
+    void testGetMedia_IfModifiedSince() throws Exception {
+        mockMvc.perform(get("/media/" + ID).header(HttpHeaders.IF_MODIFIED_SINCE, "Tue, 14 Nov 2023 22:13:20 GMT"))
+                .andExpect(status().isNotModified());
+    }
+
+    @Test
+    void testGetMedia_Sendfile() throws Exception {
+        mockMvc.perform(get("/media/" + ID).header(HttpHeaders.RANGE, "bytes=0-59999")
+                        .requestAttr("org.apache.tomcat.sendfile.support", true))
+                .andExpect(status().isPartialContent())
+                .andExpect(request().attribute("org.apache.tomcat.sendfile.filename", file.toRealPath().toString()))
+                .andExpect(request().attribute("org.apache.tomcat.sendfile.start", 0L))
+                .andExpect(request().attribute("org.apache.tomcat.sendfile.end", 60000L))
+                .andExpect(content().bytes(new byte[0]));
+    }
+
+    @Test
+    void testGetMedia_SmallBodyWrittenWithoutSendfile() throws Exception {
+        mockMvc.perform(get("/media/" + ID).header(HttpHeaders.RANGE, "bytes=0-99")
+                        .requestAttr("org.apache.tomcat.sendfile.support", true))
+                .andExpect(status().isPartialContent())
+                .andExpect(request().attribute("org.apache.tomcat.sendfile.filename", (Object) null))
+                .andExpect(header().longValue(HttpHeaders.CONTENT_LENGTH, 100));
+    }
+
+    @Test
+    void testGetMedia_Head() throws Exception {
+        mockMvc.perform(head("/media/" + ID))
+                .andExpect(status().isOk())
+                .andExpect(header().longValue(HttpHeaders.CONTENT_LENGTH, content.length))
+                .andExpect(content().bytes(new byte[0]));
+    }
+
+    @Test
+    void testGetMedia_NotFound() throws Exception {
+        when(mediaService.find(anyString())).thenReturn(Optional.empty());
+
+        mockMvc.perform(get("/media/missing"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void testGetMedia_Error() throws Exception {
+        when(mediaService.find(anyString())).thenThrow(new RuntimeException("Error"));
+
+        mockMvc.perform(get("/media/" + ID))
+                .andExpect(status().isInternalServerError());
+    }
+
+    @Test
+    void testGetMediaInfo() throws Exception {
+        when(mediaProcessor.info(ID)).thenReturn(Optional.of(
+                new MediaInfo(ID, MediaStatus.DONE, 640, 480, "png", "/media/" + ID + "/thumbnail", null)));
+
+        mockMvc.perform(get("/media/" + ID + "/info"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.status").value("DONE"))
+                .andExpect(jsonPath("$.width").value(640))
+                .andExpect(jsonPath("$.height").value(480))
+                .andExpect(jsonPath("$.thumbnailUrl").value("/media/" + ID + "/thumbnail"));
+    }
+
+    @Test
+    void testGetMediaInfo_NotFound() throws Exception {
+        when(mediaProcessor.info(anyString())).thenReturn(Optional.empty());
+
+        mockMvc.perform(get("/media/missing/info"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void testGetThumbnail() throws Exception {
+        byte[] thumbnail = {(byte) 0xFF, (byte) 0xD8, (byte) 0xFF, 1, 2, 3};
+        Path thumbnailFile = Files.write(directory.resolve(ID + ".thumb.jpg"), thumbnail);
+        when(mediaProcessor.thumbnail(ID)).thenReturn(Optional.of(
+                new StoredMedia(thumbnailFile, thumbnail.length, LAST_MODIFIED, "\"" + ID + "-thumb\"", MediaType.IMAGE_JPEG)));
+
+        mockMvc.perform(get("/media/" + ID + "/thumbnail"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.IMAGE_JPEG))
+                .andExpect(content().bytes(thumbnail))
+                .andExpect(header().string(HttpHeaders.ETAG, "\"" + ID + "-thumb\""))
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, MediaController.CACHE_CONTROL));
+    }
+
+    @Test
+    void testGetThumbnail_NotYetMade() throws Exception {
+        when(mediaProcessor.thumbnail(anyString())).thenReturn(Optional.empty());
+
+        mockMvc.perform(get("/media/" + ID + "/thumbnail"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void testStartUpload() throws Exception {
+        when(mediaService.startUpload(10_000_000L, "clip.mp4"))
+                .thenReturn(new UploadStatus("u1", 10_000_000L, 8_388_608, 2, List.of(0, 1), null));
+
+        mockMvc.perform(post("/media/uploads").param("size", "10000000").param("filename", "clip.mp4"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.uploadId").value("u1"))
+                .andExpect(jsonPath("$.chunkSize").value(8_388_608))
+                .andExpect(jsonPath("$.missingChunks[1]").value(1));
+    }
+
+    @Test
+    void testAppendChunk() throws Exception {
+        when(mediaService.appendChunk(eq("u1"), eq(1), eq("1a2b3c4d"), any(InputStream.class)))
+                .thenReturn(new UploadStatus("u1", 10L, 8, 2, List.of(0), null));
+
+        mockMvc.perform(put("/media/uploads/u1/chunks/1").header(MediaController.CHUNK_CHECKSUM, "1a2b3c4d")
+                        .contentType(MediaType.APPLICATION_OCTET_STREAM).content(new byte[]{1, 2}))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.missingChunks[0]").value(0));
+        verify(mediaService).appendChunk(eq("u1"), eq(1), eq("1a2b3c4d"), any(InputStream.class));
+    }
+
+    @Test
+    void testAppendChunk_ChecksumRequired() throws Exception {
+        mockMvc.perform(put("/media/uploads/u1/chunks/1").content(new byte[]{1, 2}))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void testCompleteUpload() throws Exception {
+        when(mediaService.completeUpload("u1")).thenReturn(new UploadStatus("u1", 10L, 8, 2, List.of(), "/media/" + ID));
+
+        mockMvc.perform(post("/media/uploads/u1/complete"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.mediaUrl").value("/media/" + ID));
+    }
+
+    @Test
+    void testCompleteUpload_Error() throws Exception {
+        when(mediaService.completeUpload("u1")).thenThrow(new RuntimeException("Error"));
+
+        mockMvc.perform(post("/media/uploads/u1/complete"))
+                .andExpect(status().isInternalServerError());
+    }
+}
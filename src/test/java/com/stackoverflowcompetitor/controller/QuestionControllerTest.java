@@ -1,7 +1,13 @@
 package com.stackoverflowcompetitor.controller;
 
+import com.stackoverflowcompetitor.dto.AnswerNode;
+import com.stackoverflowcompetitor.dto.CursorPage;
+import com.stackoverflowcompetitor.dto.QuestionDetail;
+import com.stackoverflowcompetitor.dto.QuestionSummary;
+import com.stackoverflowcompetitor.dto.TaggedQuestions;
 import com.stackoverflowcompetitor.model.Question;
 import com.stackoverflowcompetitor.service.QuestionService;
+import com.stackoverflowcompetitor.util.Constants;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
@@ -9,13 +15,19 @@ import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
+import org.springframework.test.util.ReflectionTestUtils;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.server.ResponseStatusException;
 
+import java.io.OutputStream;
 import java.util.Arrays;
 import java.util.List;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.Mockito.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
@@ -34,9 +46,14 @@ class QuestionControllerTest {
     @BeforeEach
     void setUp() {
         MockitoAnnotations.openMocks(this);
+        ReflectionTestUtils.setField(questionController, "exportTimeoutMs", 3_600_000L);
         mockMvc = MockMvcBuilders.standaloneSetup(questionController).build();
     }
 
+    private static QuestionSummary summary(long id, String title) {
+        return new QuestionSummary(id, title, "Excerpt", List.of("java"), 0, 0, "testuser");
+    }
+
     @Test
     void testPostQuestion_Success() throws Exception {
         Question question = new Question();
@@ -73,16 +90,12 @@ class QuestionControllerTest {
 
     @Test
     void testGetTopVotedQuestions_Success() throws Exception {
-        Question question1 = new Question();
-        question1.setId(1L);
-        question1.setTitle("Question 1");
+        QuestionSummary question1 = summary(1L, "Question 1");
 
-        Question question2 = new Question();
-        question2.setId(2L);
-        question2.setTitle("Question 2");
+        QuestionSummary question2 = summary(2L, "Question 2");
 
-        List<Question> questionList = Arrays.asList(question1, question2);
-        Page<Question> page = new PageImpl<>(questionList);
+        List<QuestionSummary> questionList = Arrays.asList(question1, question2);
+        Page<QuestionSummary> page = new PageImpl<>(questionList);
 
         when(questionService.getTopVotedQuestions(any())).thenReturn(page);
 
@@ -111,52 +124,79 @@ class QuestionControllerTest {
     }
 
     @Test
-    void testGetQuestionsByTag_Success() throws Exception {
-        Question question1 = new Question();
-        question1.setId(1L);
-        question1.setTitle("Question 1");
+    void testGetHotQuestions_Success() throws Exception {
+        QuestionSummary question = summary(1L, "Question 1");
 
-        Question question2 = new Question();
-        question2.setId(2L);
-        question2.setTitle("Question 2");
+        when(questionService.getHotQuestions(any())).thenReturn(new PageImpl<>(List.of(question)));
 
-        List<Question> questionList = Arrays.asList(question1, question2);
+        mockMvc.perform(get("/questions/hot")
+                        .param("page", "0")
+                        .param("size", "5"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content[0].id").value(1))
+                .andExpect(jsonPath("$.content[0].title").value("Question 1"));
+
+        verify(questionService, times(1)).getHotQuestions(any());
+    }
+
+    @Test
+    void testGetHotQuestions_Failure() throws Exception {
+        when(questionService.getHotQuestions(any())).thenThrow(new RuntimeException("Error"));
+
+        mockMvc.perform(get("/questions/hot"))
+                .andExpect(status().isInternalServerError());
+    }
+
+    @Test
+    void testGetQuestionsByTag_Success() throws Exception {
+        TaggedQuestions page = new TaggedQuestions("java", 42, List.of(summary(1L, "Question 1"), summary(2L, "Question 2")), "next");
 
-        when(questionService.findByTagName(anyString())).thenReturn(questionList);
+        when(questionService.findByTag("java", Constants.SORT_SCORE, "abc", 2)).thenReturn(page);
 
         mockMvc.perform(get("/questions/by-tag")
-                        .param("tag", "java"))
+                        .param("tag", "java")
+                        .param("sort", "score")
+                        .param("cursor", "abc")
+                        .param("size", "2"))
                 .andExpect(status().isOk())
-                .andExpect(jsonPath("$[0].id").value(1))
-                .andExpect(jsonPath("$[0].title").value("Question 1"))
-                .andExpect(jsonPath("$[1].id").value(2))
-                .andExpect(jsonPath("$[1].title").value("Question 2"));
-
-        verify(questionService, times(1)).findByTagName(anyString());
+                .andExpect(jsonPath("$.tag").value("java"))
+                .andExpect(jsonPath("$.questionCount").value(42))
+                .andExpect(jsonPath("$.content[0].id").value(1))
+                .andExpect(jsonPath("$.content[1].title").value("Question 2"))
+                .andExpect(jsonPath("$.nextCursor").value("next"));
     }
 
     @Test
     void testGetQuestionsByTag_Failure() throws Exception {
-        when(questionService.findByTagName(anyString())).thenThrow(new RuntimeException("Error"));
+        when(questionService.findByTag(anyString(), anyString(), any(), anyInt())).thenThrow(new RuntimeException("Error"));
 
         mockMvc.perform(get("/questions/by-tag")
                         .param("tag", "java"))
                 .andExpect(status().isInternalServerError());
 
-        verify(questionService, times(1)).findByTagName(anyString());
+        verify(questionService, times(1)).findByTag("java", Constants.SORT_NEWEST, null, 5);
+    }
+
+    @Test
+    void testGetQuestionsByTags_Success() throws Exception {
+        when(questionService.findByTags(List.of("java", "spring"), List.of(), List.of("kotlin"), null, 5))
+                .thenReturn(new CursorPage<>(List.of(summary(1L, "Question 1")), "next"));
+
+        mockMvc.perform(get("/questions/by-tags")
+                        .param("all", "java,spring")
+                        .param("none", "kotlin"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content[0].id").value(1))
+                .andExpect(jsonPath("$.nextCursor").value("next"));
     }
 
     @Test
     void testGetAllQuestions_Success() throws Exception {
-        Question question1 = new Question();
-        question1.setId(1L);
-        question1.setTitle("Question 1");
+        QuestionSummary question1 = summary(1L, "Question 1");
 
-        Question question2 = new Question();
-        question2.setId(2L);
-        question2.setTitle("Question 2");
+        QuestionSummary question2 = summary(2L, "Question 2");
 
-        List<Question> questionList = Arrays.asList(question1, question2);
+        List<QuestionSummary> questionList = Arrays.asList(question1, question2);
 
         when(questionService.getAllQuestions()).thenReturn(questionList);
 
@@ -180,39 +220,107 @@ class QuestionControllerTest {
         verify(questionService, times(1)).getAllQuestions();
     }
 
+    @Test
+    void testGetAllQuestionsByCursor_Success() throws Exception {
+        QuestionSummary question = summary(1L, "Question 1");
+
+        when(questionService.getAllQuestions("abc", 1)).thenReturn(new CursorPage<>(List.of(question), "next"));
+
+        mockMvc.perform(get("/questions/all/cursor")
+                        .param("cursor", "abc")
+                        .param("size", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content[0].id").value(1))
+                .andExpect(jsonPath("$.content[0].tags[0]").value("java"))
+                .andExpect(jsonPath("$.content[0].answers").doesNotExist())
+                .andExpect(jsonPath("$.nextCursor").value("next"));
+
+        verify(questionService, times(1)).getAllQuestions("abc", 1);
+    }
+
+    @Test
+    void testGetTopVotedQuestionsByCursor_Failure() throws Exception {
+        when(questionService.getTopVotedQuestions(isNull(), eq(5))).thenThrow(new RuntimeException("Error"));
+
+        mockMvc.perform(get("/questions/top-voted/cursor"))
+                .andExpect(status().isInternalServerError());
+    }
+
+    @Test
+    void testGetQuestion_Success() throws Exception {
+        AnswerNode reply = new AnswerNode(3L, "Reply", null, 1, 1, 0, "replier", null);
+        AnswerNode answer = new AnswerNode(2L, "Answer", null, 5, 5, 0, "answerer", null);
+        answer.replies().add(reply);
+        QuestionDetail detail = new QuestionDetail(1L, "Question 1", "Content", 2, 2, 0, "testuser",
+                List.of("java"), null, List.of(answer));
+
+        when(questionService.getQuestionDetail(1L)).thenReturn(detail);
+
+        mockMvc.perform(get("/questions/1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.title").value("Question 1"))
+                .andExpect(jsonPath("$.answers[0].score").value(5))
+                .andExpect(jsonPath("$.answers[0].replies[0].id").value(3));
+    }
+
+    @Test
+    void testGetQuestion_NotFound() throws Exception {
+        when(questionService.getQuestionDetail(9L)).thenThrow(new ResponseStatusException(HttpStatus.NOT_FOUND, "Question not found with id: 9"));
+
+        mockMvc.perform(get("/questions/9"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void testExportQuestions_Success() throws Exception {
+        when(questionService.exportQuestions(any())).thenAnswer(invocation -> {
+            invocation.<OutputStream>getArgument(0).write("{\"id\":1}\n".getBytes());
+            return 1L;
+        });
+
+        MvcResult result = mockMvc.perform(get("/questions/export"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        assertEquals(3_600_000L, result.getRequest().getAsyncContext().getTimeout());
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_NDJSON))
+                .andExpect(content().string("{\"id\":1}\n"));
+    }
+
     @Test
     void testSearchQuestions_Success() throws Exception {
-        Question question1 = new Question();
-        question1.setId(1L);
-        question1.setTitle("Question 1");
+        QuestionSummary question1 = summary(1L, "Question 1");
 
-        Question question2 = new Question();
-        question2.setId(2L);
-        question2.setTitle("Question 2");
+        QuestionSummary question2 = summary(2L, "Question 2");
 
-        List<Question> questionList = Arrays.asList(question1, question2);
+        List<QuestionSummary> questionList = Arrays.asList(question1, question2);
 
-        when(questionService.searchQuestions(anyString())).thenReturn(questionList);
+        when(questionService.searchQuestions("java", "abc", 2)).thenReturn(new CursorPage<>(questionList, "next"));
 
         mockMvc.perform(get("/questions/search")
-                        .param("searchTerm", "java"))
+                        .param("searchTerm", "java")
+                        .param("cursor", "abc")
+                        .param("limit", "2"))
                 .andExpect(status().isOk())
-                .andExpect(jsonPath("$[0].id").value(1))
-                .andExpect(jsonPath("$[0].title").value("Question 1"))
-                .andExpect(jsonPath("$[1].id").value(2))
-                .andExpect(jsonPath("$[1].title").value("Question 2"));
+                .andExpect(jsonPath("$.content[0].id").value(1))
+                .andExpect(jsonPath("$.content[0].title").value("Question 1"))
+                .andExpect(jsonPath("$.content[1].id").value(2))
+                .andExpect(jsonPath("$.content[1].title").value("Question 2"))
+                .andExpect(jsonPath("$.nextCursor").value("next"));
 
-        verify(questionService, times(1)).searchQuestions(anyString());
+        verify(questionService, times(1)).searchQuestions("java", "abc", 2);
     }
 
     @Test
     void testSearchQuestions_Failure() throws Exception {
-        when(questionService.searchQuestions(anyString())).thenThrow(new RuntimeException("Error"));
+        when(questionService.searchQuestions(anyString(), isNull(), eq(Constants.DEFAULT_SEARCH_LIMIT))).thenThrow(new RuntimeException("Error"));
 
         mockMvc.perform(get("/questions/search")
                         .param("searchTerm", "java"))
                 .andExpect(status().isInternalServerError());
 
-        verify(questionService, times(1)).searchQuestions(anyString());
+        verify(questionService, times(1)).searchQuestions(anyString(), isNull(), eq(Constants.DEFAULT_SEARCH_LIMIT));
     }
 }
@@ -0,0 +1,78 @@
+package com.stackoverflowcompetitor.controller;
+
+import com.stackoverflowcompetitor.dto.CursorPage;
+import com.stackoverflowcompetitor.dto.QuestionSummary;
+import com.stackoverflowcompetitor.dto.SearchResult;
+import com.stackoverflowcompetitor.dto.Suggestions;
+import com.stackoverflowcompetitor.service.QuestionService;
+import com.stackoverflowcompetitor.util.Constants;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+class SearchControllerTest {
+
+    @Mock
+    private QuestionService questionService;
+
+    @InjectMocks
+    private SearchController searchController;
+
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        mockMvc = MockMvcBuilders.standaloneSetup(searchController).build();
+    }
+
+    @Test
+    void testSearch_Success() throws Exception {
+        QuestionSummary question = new QuestionSummary(1L, "Spring Boot", "Excerpt", List.of("java"), 3, 1, "testuser");
+        SearchResult result = new SearchResult(question, 7L, 1.5, "Use Spring Data",
+                List.of(new SearchResult.Highlight(4, 10)));
+        when(questionService.search("spring", "abc", 2)).thenReturn(new CursorPage<>(List.of(result), "next"));
+
+        mockMvc.perform(get("/search")
+                        .param("searchTerm", "spring")
+                        .param("cursor", "abc")
+                        .param("limit", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content[0].question.id").value(1))
+                .andExpect(jsonPath("$.content[0].answerId").value(7))
+                .andExpect(jsonPath("$.content[0].snippet").value("Use Spring Data"))
+                .andExpect(jsonPath("$.content[0].highlights[0].start").value(4))
+                .andExpect(jsonPath("$.content[0].highlights[0].end").value(10))
+                .andExpect(jsonPath("$.nextCursor").value("next"));
+    }
+
+    @Test
+    void testSearch_Failure() throws Exception {
+        when(questionService.search(anyString(), isNull(), eq(Constants.DEFAULT_SEARCH_LIMIT))).thenThrow(new RuntimeException("Error"));
+
+        mockMvc.perform(get("/search").param("searchTerm", "spring"))
+                .andExpect(status().isInternalServerError());
+    }
+
+    @Test
+    void testSuggest_Success() throws Exception {
+        when(questionService.suggest("sprng", Constants.DEFAULT_SUGGESTION_LIMIT))
+                .thenReturn(new Suggestions("sprng", List.of("spring"), List.of("spring", "sprint")));
+
+        mockMvc.perform(get("/search/suggestions").param("term", "sprng"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.tags[0]").value("spring"))
+                .andExpect(jsonPath("$.titleWords[1]").value("sprint"));
+    }
+}
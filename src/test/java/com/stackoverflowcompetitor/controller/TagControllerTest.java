@@ -0,0 +1,56 @@
+package com.stackoverflowcompetitor.controller;
+
+import com.stackoverflowcompetitor.dto.TagSuggestion;
+import com.stackoverflowcompetitor.service.TagService;
+import com.stackoverflowcompetitor.util.Constants;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+class TagControllerTest {
+
+    @Mock
+    private TagService tagService;
+
+    @InjectMocks
+    private TagController tagController;
+
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        mockMvc = MockMvcBuilders.standaloneSetup(tagController).build();
+    }
+
+    @Test
+    void testSuggest_Success() throws Exception {
+        when(tagService.suggest("ja", Constants.DEFAULT_SUGGESTION_LIMIT))
+                .thenReturn(List.of(new TagSuggestion("javascript", 60), new TagSuggestion("java", 40)));
+
+        mockMvc.perform(get("/tags/suggest").param("prefix", "ja"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].name").value("javascript"))
+                .andExpect(jsonPath("$[0].questionCount").value(60))
+                .andExpect(jsonPath("$[1].name").value("java"));
+    }
+
+    @Test
+    void testSuggest_Error() throws Exception {
+        when(tagService.suggest(anyString(), anyInt())).thenThrow(new RuntimeException("Error"));
+
+        mockMvc.perform(get("/tags/suggest").param("prefix", "ja"))
+                .andExpect(status().isInternalServerError());
+    }
+}
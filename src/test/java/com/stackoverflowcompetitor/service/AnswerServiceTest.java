@@ -1,10 +1,14 @@
 package com.stackoverflowcompetitor.service;
 
 import com.stackoverflowcompetitor.common.AuthenticatedUserDetails;
+import com.stackoverflowcompetitor.dto.AnswerNode;
+import com.stackoverflowcompetitor.dto.CursorPage;
 import com.stackoverflowcompetitor.model.Answer;
 import com.stackoverflowcompetitor.model.Question;
 import com.stackoverflowcompetitor.model.User;
+import com.stackoverflowcompetitor.repository.AnswerPath;
 import com.stackoverflowcompetitor.repository.AnswerRepository;
+import com.stackoverflowcompetitor.repository.AnswerRow;
 import com.stackoverflowcompetitor.repository.QuestionRepository;
 import com.stackoverflowcompetitor.util.Constants;
 import jakarta.validation.ValidationException;
@@ -13,11 +17,13 @@ import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.http.HttpStatus;
 import org.springframework.web.multipart.MultipartFile;
 import org.springframework.web.server.ResponseStatusException;
 
 import java.io.IOException;
+import java.util.Date;
 import java.util.List;
 import java.util.Optional;
 
@@ -39,6 +45,12 @@ class AnswerServiceTest {
     @Mock
     private MediaService mediaService;
 
+    @Mock
+    private HotQuestionRanking hotQuestionRanking;
+
+    @Mock
+    private SearchIndex searchIndex;
+
     @InjectMocks
     private AnswerService answerService;
 
@@ -59,6 +71,7 @@ class AnswerServiceTest {
         parentAnswer = new Answer();
         parentAnswer.setId(1L);
         parentAnswer.setQuestion(question);
+        parentAnswer.setPath("0000000001/");
     }
 
     @Test
@@ -70,15 +83,45 @@ class AnswerServiceTest {
         when(questionRepository.findById(1L)).thenReturn(Optional.of(question));
         when(authenticatedUserDetails.getAuthenticatedUser()).thenReturn(user);
         when(mediaService.uploadFile(media)).thenReturn(mediaUrl);
-        when(answerRepository.save(any(Answer.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        when(answerRepository.save(any(Answer.class))).thenAnswer(invocation -> withId(invocation.getArgument(0), 7L));
 
-        Answer result = answerService.answerQuestion(1L, content, media);
+        Answer result = answerService.answerQuestion(1L, content, media, null);
 
         assertNotNull(result);
         assertEquals(content, result.getContent());
         assertEquals(question, result.getQuestion());
         assertEquals(user, result.getUser());
         assertEquals(mediaUrl, result.getMediaUrl());
+        assertEquals("0000000007/", result.getPath());
+        assertEquals(0, result.getDepth());
+        verify(hotQuestionRanking, times(1)).addAnswer(1L);
+        verify(searchIndex, times(1)).addAnswer(7L, 1L, content);
+    }
+
+    @Test
+    void testAnswerQuestion_WithCompletedUpload() throws IOException {
+        when(questionRepository.findById(1L)).thenReturn(Optional.of(question));
+        when(authenticatedUserDetails.getAuthenticatedUser()).thenReturn(user);
+        when(mediaService.completedUpload("upload-1")).thenReturn("/media/video");
+        when(answerRepository.save(any(Answer.class))).thenAnswer(invocation -> withId(invocation.getArgument(0), 7L));
+
+        Answer result = answerService.answerQuestion(1L, "Test answer content", null, "upload-1");
+
+        assertEquals("/media/video", result.getMediaUrl());
+        verify(mediaService, never()).uploadFile(any());
+        verify(mediaService, times(1)).forgetUpload("upload-1");
+    }
+
+    @Test
+    void testAnswerQuestion_MediaAndUpload() throws IOException {
+        MultipartFile media = mock(MultipartFile.class);
+        when(questionRepository.findById(1L)).thenReturn(Optional.of(question));
+
+        ValidationException exception = assertThrows(ValidationException.class,
+                () -> answerService.answerQuestion(1L, "Test answer content", media, "upload-1"));
+
+        assertEquals("Attach either a media file or an upload, not both", exception.getMessage());
+        verify(answerRepository, never()).save(any());
     }
 
     @Test
@@ -86,7 +129,7 @@ class AnswerServiceTest {
         String content = ""; // Invalid content length
 
         ValidationException exception = assertThrows(ValidationException.class, () -> {
-            answerService.answerQuestion(1L, content, null);
+            answerService.answerQuestion(1L, content, null, null);
         });
 
         assertEquals("Content length must be between " + Constants.MIN_CONTENT_LENGTH + " and " + Constants.MAX_CONTENT_LENGTH + " characters", exception.getMessage());
@@ -97,7 +140,7 @@ class AnswerServiceTest {
         when(questionRepository.findById(1L)).thenReturn(Optional.empty());
 
         ResponseStatusException exception = assertThrows(ResponseStatusException.class, () -> {
-            answerService.answerQuestion(1L, "Test content", null);
+            answerService.answerQuestion(1L, "Test content", null, null);
         });
 
         assertEquals(HttpStatus.NOT_FOUND, exception.getStatusCode());
@@ -115,9 +158,9 @@ class AnswerServiceTest {
         when(questionRepository.findById(1L)).thenReturn(Optional.of(question));
         when(authenticatedUserDetails.getAuthenticatedUser()).thenReturn(user);
         when(mediaService.uploadFile(media)).thenReturn(mediaUrl);
-        when(answerRepository.save(any(Answer.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        when(answerRepository.save(any(Answer.class))).thenAnswer(invocation -> withId(invocation.getArgument(0), 7L));
 
-        Answer result = answerService.answerToAnswer(1L, content, media, 1L);
+        Answer result = answerService.answerToAnswer(1L, content, media, null, 1L);
 
         assertNotNull(result);
         assertEquals(content, result.getContent());
@@ -125,6 +168,92 @@ class AnswerServiceTest {
         assertEquals(user, result.getUser());
         assertEquals(parentAnswer, result.getParentAnswer());
         assertEquals(mediaUrl, result.getMediaUrl());
+        assertEquals("0000000001/0000000007/", result.getPath());
+        assertEquals(1, result.getDepth());
+    }
+
+    @Test
+    void testAnswerToAnswer_DepthLimit() {
+        parentAnswer.setDepth(Constants.MAX_REPLY_DEPTH);
+        when(answerRepository.findById(1L)).thenReturn(Optional.of(parentAnswer));
+
+        assertThrows(ValidationException.class, () -> answerService.answerToAnswer(1L, "Test reply content", null, null, 1L));
+        verify(answerRepository, never()).save(any(Answer.class));
+    }
+
+    @Test
+    void testGetReplySubtree() {
+        String path = "0000000001/";
+        when(answerRepository.findPathById(1L)).thenReturn(Optional.of(answerPath(1L, path)));
+        when(answerRepository.findSubtree(path, "0000000001" + (char) ('/' + 1), 2)).thenReturn(List.of(
+                answerRow(1L, null), answerRow(2L, 1L), answerRow(3L, 2L), answerRow(4L, 1L)));
+
+        AnswerNode root = answerService.getReplySubtree(1L, 2);
+
+        assertEquals(1L, root.id());
+        assertEquals(List.of(2L, 4L), root.replies().stream().map(AnswerNode::id).toList());
+        assertEquals(3L, root.replies().get(0).replies().get(0).id());
+    }
+
+    @Test
+    void testGetReplySubtree_InvalidDepth() {
+        assertThrows(ValidationException.class, () -> answerService.getReplySubtree(1L, -1));
+        assertThrows(ValidationException.class, () -> answerService.getReplySubtree(1L, Constants.MAX_REPLY_DEPTH + 1));
+    }
+
+    @Test
+    void testCountReplies() {
+        String path = "0000000001/0000000005/";
+        when(answerRepository.findPathById(5L)).thenReturn(Optional.of(answerPath(5L, path)));
+        when(answerRepository.countDescendants(path, "0000000001/0000000005" + (char) ('/' + 1))).thenReturn(12L);
+
+        assertEquals(12L, answerService.countReplies(5L));
+    }
+
+    @Test
+    void testCountReplies_AnswerNotFound() {
+        when(answerRepository.findPathById(5L)).thenReturn(Optional.empty());
+
+        ResponseStatusException exception = assertThrows(ResponseStatusException.class, () -> answerService.countReplies(5L));
+
+        assertEquals(HttpStatus.NOT_FOUND, exception.getStatusCode());
+    }
+
+    @Test
+    void testCountReplies_PathNotBackfilled() {
+        when(answerRepository.findPathById(5L)).thenReturn(Optional.of(answerPath(5L, null)));
+
+        ResponseStatusException exception = assertThrows(ResponseStatusException.class, () -> answerService.countReplies(5L));
+
+        assertEquals(HttpStatus.CONFLICT, exception.getStatusCode());
+        assertThrows(ResponseStatusException.class, () -> answerService.getReplySubtree(5L, 1));
+        verify(answerRepository, never()).countDescendants(any(), any());
+    }
+
+    private static AnswerPath answerPath(Long id, String path) {
+        return new AnswerPath() {
+            public Long getId() { return id; }
+            public String getPath() { return path; }
+        };
+    }
+
+    private static Answer withId(Answer answer, Long id) {
+        answer.setId(id);
+        return answer;
+    }
+
+    private static AnswerRow answerRow(Long id, Long parentAnswerId) {
+        return new AnswerRow() {
+            public Long getId() { return id; }
+            public Long getParentAnswerId() { return parentAnswerId; }
+            public String getContent() { return "Answer " + id; }
+            public String getMediaUrl() { return null; }
+            public long getScore() { return 0; }
+            public long getUpvoteCount() { return 0; }
+            public long getDownvoteCount() { return 0; }
+            public String getAuthor() { return "testuser"; }
+            public Date getCreatedTime() { return new Date(id); }
+        };
     }
 
     @Test
@@ -132,7 +261,7 @@ class AnswerServiceTest {
         String content = ""; // Invalid content length
 
         ValidationException exception = assertThrows(ValidationException.class, () -> {
-            answerService.answerToAnswer(1L, content, null, 1L);
+            answerService.answerToAnswer(1L, content, null, null, 1L);
         });
 
         assertEquals("Content length must be between " + Constants.MIN_CONTENT_LENGTH + " and " + Constants.MAX_CONTENT_LENGTH + " characters", exception.getMessage());
@@ -148,7 +277,7 @@ class AnswerServiceTest {
         when(mediaService.uploadFile(media)).thenThrow(new IOException("Error uploading media"));
 
         ResponseStatusException exception = assertThrows(ResponseStatusException.class, () -> {
-            answerService.answerQuestion(1L, content, media);
+            answerService.answerQuestion(1L, content, media, null);
         });
 
         assertEquals(HttpStatus.INTERNAL_SERVER_ERROR, exception.getStatusCode());
@@ -161,7 +290,7 @@ class AnswerServiceTest {
         when(answerRepository.findById(1L)).thenReturn(Optional.empty());
 
         ResponseStatusException exception = assertThrows(ResponseStatusException.class, () -> {
-            answerService.answerToAnswer(1L, "Test content", null, 1L);
+            answerService.answerToAnswer(1L, "Test content", null, null, 1L);
         });
 
         assertEquals(HttpStatus.NOT_FOUND, exception.getStatusCode());
@@ -174,7 +303,7 @@ class AnswerServiceTest {
         when(questionRepository.findById(1L)).thenReturn(Optional.empty());
 
         ResponseStatusException exception = assertThrows(ResponseStatusException.class, () -> {
-            answerService.answerToAnswer(1L, "Test content", null, 1L);
+            answerService.answerToAnswer(1L, "Test content", null, null, 1L);
         });
 
         assertEquals(HttpStatus.NOT_FOUND, exception.getStatusCode());
@@ -190,7 +319,7 @@ class AnswerServiceTest {
         when(answerRepository.findById(1L)).thenReturn(Optional.of(parentAnswer));
 
         ResponseStatusException exception = assertThrows(ResponseStatusException.class, () -> {
-            answerService.answerToAnswer(1L, "Test content", null, 1L);
+            answerService.answerToAnswer(1L, "Test content", null, null, 1L);
         });
 
         assertEquals(HttpStatus.CONFLICT, exception.getStatusCode());
@@ -200,12 +329,34 @@ class AnswerServiceTest {
     @Test
     void testSearchAnswers_Success() {
         String searchTerm = "Test";
-        when(answerRepository.searchAnswerByContent(searchTerm)).thenReturn(List.of(new Answer(), new Answer()));
+        when(answerRepository.searchAnswerByContent(searchTerm, PageRequest.of(0, 20))).thenReturn(List.of(new Answer(), new Answer()));
 
-        List<Answer> result = answerService.searchAnswers(searchTerm);
+        CursorPage<Answer> result = answerService.searchAnswers(searchTerm, null, 20);
 
         assertNotNull(result);
-        assertEquals(2, result.size());
+        assertEquals(2, result.content().size());
+        assertNull(result.nextCursor());
+    }
+
+    @Test
+    void testSearchAnswers_FromIndex() {
+        Answer first = withId(new Answer(), 3L);
+        Answer second = withId(new Answer(), 9L);
+        when(searchIndex.isReady()).thenReturn(true);
+        when(searchIndex.searchAnswers("pageable", "abc", 2)).thenReturn(new CursorPage<>(List.of(9L, 3L), "next"));
+        when(answerRepository.findAllById(List.of(9L, 3L))).thenReturn(List.of(first, second));
+
+        CursorPage<Answer> result = answerService.searchAnswers("pageable", "abc", 2);
+
+        assertEquals(List.of(second, first), result.content());
+        assertEquals("next", result.nextCursor());
+        verify(answerRepository, never()).searchAnswerByContent(any(), any());
+    }
+
+    @Test
+    void testSearchAnswers_InvalidLimit() {
+        assertThrows(ValidationException.class, () -> answerService.searchAnswers("pageable", null, 0));
+        assertThrows(ValidationException.class, () -> answerService.searchAnswers("pageable", null, Constants.MAX_PAGE_SIZE + 1));
     }
 
     @Test
@@ -213,7 +364,7 @@ class AnswerServiceTest {
         String searchTerm = ""; // Invalid search term
 
         ValidationException exception = assertThrows(ValidationException.class, () -> {
-            answerService.searchAnswers(searchTerm);
+            answerService.searchAnswers(searchTerm, null, 20);
         });
 
         assertEquals("searchTerm length must be between " + Constants.MIN_SEARCH_STRING_LENGTH + " and " + Constants.MAX_SEARCH_STRING_LENGTH + " characters", exception.getMessage());
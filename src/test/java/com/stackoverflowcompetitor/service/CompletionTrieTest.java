@@ -0,0 +1,91 @@
+package com.stackoverflowcompetitor.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CompletionTrieTest {
+
+    @Test
+    void testComplete_HeaviestFirstThenAlphabetical() {
+        CompletionTrie trie = new CompletionTrie(3);
+        trie.put("java", 50);
+        trie.put("javascript", 80);
+        trie.put("java-stream", 5);
+        trie.put("jakarta", 5);
+        trie.put("kotlin", 30);
+
+        assertEquals(List.of(new CompletionTrie.Completion("javascript", 80), new CompletionTrie.Completion("java", 50),
+                new CompletionTrie.Completion("jakarta", 5)), trie.complete("ja", 10));
+        assertEquals(List.of(new CompletionTrie.Completion("javascript", 80)), trie.complete("javas", 10));
+        assertEquals(List.of(new CompletionTrie.Completion("javascript", 80)), trie.complete("ja", 1));
+        assertEquals(List.of(new CompletionTrie.Completion("java-stream", 5)), trie.complete("java-", 10));
+        assertTrue(trie.complete("jv", 10).isEmpty());
+        assertTrue(trie.complete("javascripts", 10).isEmpty());
+        assertEquals(5, trie.size());
+    }
+
+    @Test
+    void testAddWeight_ReranksAndLoweringAWeightReranksToo() {
+        CompletionTrie trie = new CompletionTrie(2);
+        trie.putAll(Map.of("spring", 10L, "spring-boot", 8L, "spring-data", 3L));
+
+        trie.addWeight("spring-data", 10);
+        assertEquals(List.of("spring-data", "spring"), words(trie.complete("spr", 2)));
+
+        trie.put("spring-data", 0);
+        assertEquals(List.of("spring", "spring-boot"), words(trie.complete("spr", 2)));
+
+        trie.addWeight("spring-cloud", 9);
+        assertEquals(List.of("spring", "spring-cloud"), words(trie.complete("spring", 2)));
+    }
+
+    @Test
+    void testComplete_MatchesAFullScan() {
+        Random random = new Random(7);
+        CompletionTrie trie = new CompletionTrie(5);
+        Map<String, Long> weights = new HashMap<>();
+        for (int i = 0; i < 2_000; i++) {
+            String word = word(random);
+            long weight = random.nextInt(50);
+            if (i < 1_000) {
+                weights.put(word, weight);
+            } else {
+                trie.addWeight(word, weight);
+                weights.merge(word, weight, Long::sum);
+            }
+            if (i == 999) {
+                trie.putAll(weights);
+            }
+        }
+        for (int i = 0; i < 300; i++) {
+            String prefix = word(random).substring(0, 1 + random.nextInt(3));
+            List<String> expected = weights.entrySet().stream()
+                    .filter(entry -> entry.getKey().startsWith(prefix))
+                    .sorted(Map.Entry.<String, Long>comparingByValue(Comparator.reverseOrder())
+                            .thenComparing(Map.Entry.comparingByKey()))
+                    .limit(5)
+                    .map(Map.Entry::getKey)
+                    .toList();
+            assertEquals(expected, words(trie.complete(prefix, 5)), "prefix " + prefix);
+        }
+    }
+
+    private static List<String> words(List<CompletionTrie.Completion> completions) {
+        return completions.stream().map(CompletionTrie.Completion::word).toList();
+    }
+
+    private static String word(Random random) {
+        StringBuilder word = new StringBuilder();
+        for (int i = 0, length = 3 + random.nextInt(6); i < length; i++) {
+            word.append((char) ('a' + random.nextInt(4)));
+        }
+        return word.toString();
+    }
+}
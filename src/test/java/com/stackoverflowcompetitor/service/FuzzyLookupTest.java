@@ -0,0 +1,67 @@
+package com.stackoverflowcompetitor.service;
+
+import com.stackoverflowcompetitor.repository.QuestionRepository;
+import com.stackoverflowcompetitor.repository.TagRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class FuzzyLookupTest {
+
+    @Mock
+    private QuestionRepository questionRepository;
+
+    @Mock
+    private TagRepository tagRepository;
+
+    @InjectMocks
+    private FuzzyLookup fuzzyLookup;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        when(tagRepository.findAllNames()).thenReturn(List.of("spring-boot", "spring", "Java", "javascript"));
+        when(questionRepository.streamTitles()).thenReturn(Stream.of("Spring Boot startup", "Hibernate lazy loading",
+                "Spring Data paging"));
+    }
+
+    @Test
+    void testClosestTags_ToleratesTypos() {
+        assertFalse(fuzzyLookup.isReady());
+        fuzzyLookup.reload();
+
+        assertTrue(fuzzyLookup.isReady());
+        assertEquals(List.of("spring-boot"), fuzzyLookup.closestTags("sprng-boot", 2, 5));
+        assertEquals(List.of("Java"), fuzzyLookup.closestTags("JAVE", 1, 5));
+        assertEquals(List.of("spring"), fuzzyLookup.closestTags("sprin", 1, 5));
+        assertTrue(fuzzyLookup.closestTags("python", 2, 5).isEmpty());
+    }
+
+    @Test
+    void testClosestTitleWords_MostUsedFirstAtEqualDistance() {
+        fuzzyLookup.reload();
+
+        assertEquals(List.of("spring"), fuzzyLookup.closestTitleWords("sprnig", 2, 5));
+        assertEquals(List.of("paging", "loading"), fuzzyLookup.closestTitleWords("pading", 2, 5));
+
+        fuzzyLookup.addTitle("Lazy loading again");
+        fuzzyLookup.addTitle("Loading twice");
+        assertEquals(List.of("loading", "paging"), fuzzyLookup.closestTitleWords("lading", 2, 5));
+        assertEquals(List.of("again"), fuzzyLookup.closestTitleWords("agian", 2, 5));
+    }
+
+    @Test
+    void testMaxEditsFor() {
+        assertEquals(0, FuzzyLookup.maxEditsFor("go"));
+        assertEquals(1, FuzzyLookup.maxEditsFor("jave"));
+        assertEquals(2, FuzzyLookup.maxEditsFor("sprng-boot"));
+    }
+}
@@ -0,0 +1,118 @@
+package com.stackoverflowcompetitor.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FuzzyTrieTest {
+
+    @Test
+    void testSearch_CountsEachKindOfEditOnce() {
+        FuzzyTrie trie = new FuzzyTrie();
+        trie.add("spring");
+        trie.add("spring-boot");
+
+        assertEquals(List.of(new FuzzyTrie.Match("spring", 0)), trie.search("spring", 0));
+        assertEquals(List.of(new FuzzyTrie.Match("spring-boot", 1)), trie.search("sprng-boot", 1));
+        assertEquals(List.of(new FuzzyTrie.Match("spring", 1)), trie.search("sprnig", 1));
+        assertEquals(List.of(new FuzzyTrie.Match("spring", 1)), trie.search("sspring", 1));
+        assertEquals(List.of(new FuzzyTrie.Match("spring", 1)), trie.search("sprint", 1));
+        assertTrue(trie.search("python", 2).isEmpty());
+    }
+
+    @Test
+    void testAdd_IgnoresDuplicates() {
+        FuzzyTrie trie = new FuzzyTrie();
+
+        assertTrue(trie.add("java"));
+        assertFalse(trie.add("java"));
+        assertTrue(trie.add("jav"));
+        assertEquals(2, trie.size());
+        assertEquals(List.of(new FuzzyTrie.Match("jav", 1), new FuzzyTrie.Match("java", 0)), trie.search("java", 1));
+    }
+
+    @Test
+    void testSearch_FindsWhatAFullScanFinds() {
+        Random random = new Random(11);
+        List<String> words = new ArrayList<>();
+        FuzzyTrie trie = new FuzzyTrie();
+        for (int i = 0; i < 3_000; i++) {
+            String word = randomWord(random);
+            if (trie.add(word)) {
+                words.add(word);
+            }
+        }
+
+        for (int q = 0; q < 200; q++) {
+            String query = q % 2 == 0 ? randomWord(random) : mutate(words.get(random.nextInt(words.size())), random);
+            for (int maxDistance = 0; maxDistance <= 2; maxDistance++) {
+                List<FuzzyTrie.Match> expected = new ArrayList<>();
+                for (String word : words) {
+                    int distance = distance(word, query);
+                    if (distance <= maxDistance) {
+                        expected.add(new FuzzyTrie.Match(word, distance));
+                    }
+                }
+                List<FuzzyTrie.Match> actual = new ArrayList<>(trie.search(query, maxDistance));
+                expected.sort(Comparator.comparing(FuzzyTrie.Match::word));
+                actual.sort(Comparator.comparing(FuzzyTrie.Match::word));
+                assertEquals(expected, actual, query);
+            }
+        }
+    }
+
+    @Test
+    void testSearch_EmptyTrie() {
+        assertTrue(new FuzzyTrie().search("java", 2).isEmpty());
+    }
+
+    // Optimal string alignment distance, straight from the full table
+    private static int distance(String a, String b) {
+        int[][] table = new int[a.length() + 1][b.length() + 1];
+        for (int i = 0; i <= a.length(); i++) {
+            for (int j = 0; j <= b.length(); j++) {
+                if (i == 0 || j == 0) {
+                    table[i][j] = i + j;
+                    continue;
+                }
+                int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                table[i][j] = Math.min(table[i - 1][j - 1] + cost, Math.min(table[i - 1][j], table[i][j - 1]) + 1);
+                if (i > 1 && j > 1 && a.charAt(i - 1) == b.charAt(j - 2) && a.charAt(i - 2) == b.charAt(j - 1)) {
+                    table[i][j] = Math.min(table[i][j], table[i - 2][j - 2] + 1);
+                }
+            }
+        }
+        return table[a.length()][b.length()];
+    }
+
+    private static String randomWord(Random random) {
+        StringBuilder word = new StringBuilder();
+        for (int i = 0, length = 3 + random.nextInt(6); i < length; i++) {
+            word.append((char) ('a' + random.nextInt(6)));
+        }
+        return word.toString();
+    }
+
+    private static String mutate(String word, Random random) {
+        StringBuilder mutated = new StringBuilder(word);
+        int position = random.nextInt(mutated.length());
+        switch (random.nextInt(4)) {
+            case 0 -> mutated.deleteCharAt(position);
+            case 1 -> mutated.insert(position, 'x');
+            case 2 -> mutated.setCharAt(position, 'z');
+            default -> {
+                if (position + 1 < mutated.length()) {
+                    char swap = mutated.charAt(position);
+                    mutated.setCharAt(position, mutated.charAt(position + 1));
+                    mutated.setCharAt(position + 1, swap);
+                }
+            }
+        }
+        return mutated.toString();
+    }
+}
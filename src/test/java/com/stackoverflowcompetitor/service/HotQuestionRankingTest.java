@@ -0,0 +1,100 @@
+package com.stackoverflowcompetitor.service;
+
+import com.stackoverflowcompetitor.repository.QuestionActivity;
+import com.stackoverflowcompetitor.repository.QuestionRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class HotQuestionRankingTest {
+
+    private static final long HOUR_MILLIS = 3_600_000L;
+
+    @Mock
+    private QuestionRepository questionRepository;
+
+    @InjectMocks
+    private HotQuestionRanking hotQuestionRanking;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+    }
+
+    @Test
+    void testHotScore_NewerQuestionWinsAtEqualVotes() {
+        long now = System.currentTimeMillis() / 1000;
+
+        assertTrue(HotQuestionRanking.hotScore(10, 0, now) > HotQuestionRanking.hotScore(10, 0, now - 86400));
+        assertTrue(HotQuestionRanking.hotScore(10, 0, now) > HotQuestionRanking.hotScore(1, 0, now));
+        assertTrue(HotQuestionRanking.hotScore(0, 3, now) > HotQuestionRanking.hotScore(0, 0, now));
+        assertTrue(HotQuestionRanking.hotScore(-5, 0, now) < HotQuestionRanking.hotScore(0, 0, now));
+    }
+
+    @Test
+    void testReload_OldHighlyVotedQuestionDecays() {
+        Date now = new Date();
+        Date twoDaysAgo = new Date(now.getTime() - 48 * HOUR_MILLIS);
+        when(questionRepository.findAllActivity()).thenReturn(List.of(
+                activity(1L, 100, 0, twoDaysAgo),
+                activity(2L, 5, 1, now)));
+
+        hotQuestionRanking.reload();
+
+        assertTrue(hotQuestionRanking.isReady());
+        assertEquals(List.of(2L, 1L), hotQuestionRanking.hotQuestionIds(0, 10));
+    }
+
+    @Test
+    void testIncrementalUpdates_ReorderWithoutReload() {
+        Date now = new Date();
+        when(questionRepository.findAllActivity()).thenReturn(List.of(
+                activity(1L, 0, 0, now),
+                activity(2L, 0, 0, now)));
+        hotQuestionRanking.reload();
+        assertEquals(List.of(2L, 1L), hotQuestionRanking.hotQuestionIds(0, 10));
+
+        hotQuestionRanking.adjustScore(1L, 10);
+        assertEquals(List.of(1L, 2L), hotQuestionRanking.hotQuestionIds(0, 10));
+
+        hotQuestionRanking.addAnswer(2L);
+        hotQuestionRanking.addQuestion(3L, new Date(now.getTime() + 3 * HOUR_MILLIS));
+
+        assertEquals(3, hotQuestionRanking.size());
+        assertEquals(List.of(1L), hotQuestionRanking.hotQuestionIds(0, 1));
+        assertEquals(List.of(3L, 2L), hotQuestionRanking.hotQuestionIds(1, 2));
+        verify(questionRepository, times(1)).findAllActivity();
+    }
+
+    static QuestionActivity activity(Long id, long score, long answerCount, Date createdTime) {
+        return new QuestionActivity() {
+            @Override
+            public Long getId() {
+                return id;
+            }
+
+            @Override
+            public long getScore() {
+                return score;
+            }
+
+            @Override
+            public Date getCreatedTime() {
+                return createdTime;
+            }
+
+            @Override
+            public long getAnswerCount() {
+                return answerCount;
+            }
+        };
+    }
+}
@@ -0,0 +1,94 @@
+package com.stackoverflowcompetitor.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.Random;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IdBitmapTest {
+
+    @Test
+    void testAdd_AndIdsBeforeAcrossChunks() {
+        IdBitmap bitmap = IdBitmap.of(3, 70_000, 65_535, 65_536, 1L << 40);
+
+        assertFalse(bitmap.add(3));
+        assertTrue(bitmap.contains(65_536));
+        assertFalse(bitmap.contains(4));
+        assertEquals(5, bitmap.cardinality());
+        assertEquals(List.of(1L << 40, 70_000L, 65_536L, 65_535L, 3L), bitmap.idsBefore(Long.MAX_VALUE, 10));
+        assertEquals(List.of(65_535L, 3L), bitmap.idsBefore(65_536, 10));
+        assertEquals(List.of(70_000L), bitmap.idsBefore(1_000_000, 1));
+        assertTrue(bitmap.idsBefore(3, 10).isEmpty());
+        assertThrows(IllegalArgumentException.class, () -> bitmap.add(-1));
+    }
+
+    @Test
+    void testSetOperations_MatchSortedSets() {
+        Random random = new Random(11);
+        // Densities below and above 4096 per chunk, so array and bitmap chunks meet in every combination
+        for (int density : new int[]{50, 3_000, 20_000, 60_000}) {
+            for (int otherDensity : new int[]{50, 20_000}) {
+                NavigableSet<Long> left = randomIds(random, density);
+                NavigableSet<Long> right = randomIds(random, otherDensity);
+                IdBitmap leftBitmap = bitmapOf(left);
+                IdBitmap rightBitmap = bitmapOf(right);
+
+                NavigableSet<Long> and = new TreeSet<>(left);
+                and.retainAll(right);
+                NavigableSet<Long> or = new TreeSet<>(left);
+                or.addAll(right);
+                NavigableSet<Long> andNot = new TreeSet<>(left);
+                andNot.removeAll(right);
+
+                assertIds(and, leftBitmap.and(rightBitmap));
+                assertIds(or, leftBitmap.or(rightBitmap));
+                assertIds(andNot, leftBitmap.andNot(rightBitmap));
+                assertIds(left, leftBitmap);
+                assertIds(right, rightBitmap);
+            }
+        }
+    }
+
+    @Test
+    void testIdsBefore_PagesThroughEveryId() {
+        Random random = new Random(5);
+        NavigableSet<Long> expected = randomIds(random, 10_000);
+        IdBitmap bitmap = bitmapOf(expected);
+
+        long before = Long.MAX_VALUE;
+        List<Long> page;
+        NavigableSet<Long> seen = new TreeSet<>();
+        while (!(page = bitmap.idsBefore(before, 777)).isEmpty()) {
+            assertEquals(List.copyOf(expected.headSet(before, false).descendingSet()).subList(0, page.size()), page);
+            seen.addAll(page);
+            before = page.get(page.size() - 1);
+        }
+        assertEquals(expected, seen);
+    }
+
+    // Ids spread over three chunks, with about density ids in each
+    private static NavigableSet<Long> randomIds(Random random, int density) {
+        NavigableSet<Long> ids = new TreeSet<>();
+        for (long chunk : new long[]{0, 1, 5}) {
+            for (int i = 0; i < density; i++) {
+                ids.add((chunk << 16) | random.nextInt(65_536));
+            }
+        }
+        return ids;
+    }
+
+    private static IdBitmap bitmapOf(NavigableSet<Long> ids) {
+        IdBitmap bitmap = new IdBitmap();
+        ids.forEach(bitmap::add);
+        return bitmap;
+    }
+
+    private static void assertIds(NavigableSet<Long> expected, IdBitmap actual) {
+        assertEquals(expected.size(), actual.cardinality());
+        assertEquals(List.copyOf(expected.descendingSet()), actual.idsBefore(Long.MAX_VALUE, Integer.MAX_VALUE));
+    }
+}
@@ -0,0 +1,114 @@
+package com.stackoverflowcompetitor.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IndexSegmentTest {
+
+    private static final String[] QUERIES = {"w1", "w2 w3", "1 w", "w4 w", "ü", "title", "w0 w0", "zz"};
+
+    @TempDir
+    Path directory;
+
+    private final List<long[]> documents = new ArrayList<>();
+    private final List<String[]> fields = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        Random random = new Random(3);
+        long id = 0;
+        for (int d = 0; d < 500; d++) {
+            id += 1 + random.nextInt(1_000);
+            StringBuilder content = new StringBuilder();
+            for (int w = 0, words = random.nextInt(12); w < words; w++) {
+                content.append('w').append(Math.min(random.nextInt(20), random.nextInt(20))).append(random.nextInt(10) == 0 ? "ü " : " ");
+            }
+            documents.add(new long[]{id});
+            fields.add(new String[]{"Title " + d, content.toString()});
+        }
+    }
+
+    @Test
+    void testWriteAndLoad_RoundTripsTheIndex() throws IOException {
+        TextIndex original = indexOf(0, 1);
+        Path file = directory.resolve("questions-1.seg");
+        IndexSegment.write(file, original);
+
+        IndexSegment segment = IndexSegment.open(file);
+        TextIndex restored = new TextIndex();
+        segment.loadInto(restored);
+
+        assertEquals(documents.size(), segment.documentCount());
+        assertEquals(documents.get(0)[0], segment.minDocumentId());
+        assertEquals(documents.get(documents.size() - 1)[0], segment.maxDocumentId());
+        assertEquals(original.documentCount(), restored.documentCount());
+        assertEquals(original.termCount(), restored.termCount());
+        assertEquals(original.trigramCount(), restored.trigramCount());
+        assertSameResults(original, restored);
+        assertFalse(Files.exists(directory.resolve("questions-1.seg.tmp")));
+    }
+
+    @Test
+    void testMerge_EqualsOneSegmentOfEveryDocument() throws IOException {
+        List<IndexSegment> segments = new ArrayList<>();
+        for (int part = 0; part < 3; part++) {
+            Path file = directory.resolve("part-" + part + ".seg");
+            IndexSegment.write(file, indexOf(part, 3));
+            segments.add(IndexSegment.open(file));
+        }
+        Path merged = directory.resolve("merged.seg");
+        IndexSegment.merge(segments, merged);
+
+        TextIndex restored = new TextIndex();
+        IndexSegment.open(merged).loadInto(restored);
+        assertSameResults(indexOf(0, 1), restored);
+        assertEquals(documents.size(), IndexSegment.open(merged).documentCount());
+    }
+
+    @Test
+    void testOpen_RejectsFilesThatAreNotSegments() throws IOException {
+        Path garbage = Files.write(directory.resolve("garbage.seg"), new byte[200]);
+        assertThrows(IOException.class, () -> IndexSegment.open(garbage));
+
+        Path file = directory.resolve("truncated.seg");
+        IndexSegment.write(file, indexOf(0, 1));
+        byte[] bytes = Files.readAllBytes(file);
+        Files.write(file, java.util.Arrays.copyOf(bytes, bytes.length - 1));
+        assertThrows(IOException.class, () -> IndexSegment.open(file));
+    }
+
+    @Test
+    void testWrite_EmptyIndex() throws IOException {
+        Path file = directory.resolve("empty.seg");
+        IndexSegment.write(file, new TextIndex());
+
+        TextIndex restored = new TextIndex();
+        IndexSegment.open(file).loadInto(restored);
+        assertEquals(0, restored.documentCount());
+    }
+
+    // every stride-th document starting at offset
+    private TextIndex indexOf(int offset, int stride) {
+        TextIndex index = new TextIndex();
+        for (int d = offset; d < documents.size(); d += stride) {
+            index.add(documents.get(d)[0], fields.get(d));
+        }
+        return index;
+    }
+
+    private static void assertSameResults(TextIndex expected, TextIndex actual) {
+        for (String query : QUERIES) {
+            assertEquals(expected.search(query, 1_000, null, null), actual.search(query, 1_000, null, null), query);
+        }
+    }
+}
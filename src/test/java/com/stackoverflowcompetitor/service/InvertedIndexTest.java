@@ -0,0 +1,161 @@
+package com.stackoverflowcompetitor.service;
+
+import com.stackoverflowcompetitor.util.TextTokenizer;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InvertedIndexTest {
+
+    @Test
+    void testTokenize_LowerCasesWordsAndDropsPunctuation() {
+        assertEquals(List.of("nullpointerexception", "in", "java", "17", "spring"),
+                TextTokenizer.tokenize("NullPointerException in Java-17 (Spring)!"));
+        assertTrue(TextTokenizer.tokenize(null).isEmpty());
+    }
+
+    @Test
+    void testSearch_MatchesAllTermsAcrossFields() {
+        InvertedIndex index = new InvertedIndex();
+        index.add(1, "Spring Boot startup", "Context fails to load");
+        index.add(2, "Java streams", "Collect a stream to a map in Java");
+        index.add(3, "Spring security", "Java config for spring security");
+
+        assertArrayEquals(new long[]{1, 3}, index.search("spring"));
+        assertArrayEquals(new long[]{3}, index.search("JAVA spring"));
+        assertArrayEquals(new long[]{2}, index.search("stream map"));
+        assertArrayEquals(new long[0], index.search("spring kotlin"));
+        assertArrayEquals(new long[0], index.search("  ?! "));
+    }
+
+    @Test
+    void testDocumentFrequency() {
+        InvertedIndex index = new InvertedIndex();
+        index.add(1, "java java java");
+        index.add(2, "java");
+        index.add(3, "kotlin");
+
+        assertEquals(2, index.documentFrequency("java"));
+        assertEquals(0, index.documentFrequency("scala"));
+        assertEquals(3, index.documentCount());
+        assertEquals(2, index.termCount());
+    }
+
+    @Test
+    void testSearch_OutOfOrderAddsStaySorted() {
+        InvertedIndex index = new InvertedIndex();
+        index.add(10, "alpha");
+        index.add(3, "alpha beta");
+        index.add(7, "alpha beta");
+
+        assertArrayEquals(new long[]{3, 7, 10}, index.search("alpha"));
+        assertArrayEquals(new long[]{3, 7}, index.search("beta alpha"));
+    }
+
+    @Test
+    void testSearch_MatchesBruteForceOnRandomDocuments() {
+        Random random = new Random(11);
+        InvertedIndex index = new InvertedIndex();
+        List<String> documents = new ArrayList<>();
+        for (int id = 0; id < 2_000; id++) {
+            StringBuilder text = new StringBuilder();
+            for (int w = 0; w < 8; w++) {
+                text.append('w').append(Math.min(random.nextInt(50), random.nextInt(50))).append(' ');
+            }
+            documents.add(text.toString());
+            index.add(id, text.toString());
+        }
+
+        for (int q = 0; q < 200; q++) {
+            String first = "w" + random.nextInt(50);
+            String second = "w" + random.nextInt(50);
+            List<Long> expected = new ArrayList<>();
+            for (int id = 0; id < documents.size(); id++) {
+                List<String> tokens = TextTokenizer.tokenize(documents.get(id));
+                if (tokens.contains(first) && tokens.contains(second)) {
+                    expected.add((long) id);
+                }
+            }
+            assertArrayEquals(expected.stream().mapToLong(Long::longValue).toArray(), index.search(first + " " + second));
+        }
+    }
+
+    @Test
+    void testTopK_RanksByBm25() {
+        InvertedIndex index = new InvertedIndex();
+        index.add(1, "java spring spring");
+        index.add(2, "java spring and a much longer body about many other things");
+        index.add(3, "java kotlin");
+        index.add(4, "java");
+
+        List<InvertedIndex.Hit> spring = index.topK("spring", 10, null, null);
+        assertEquals(List.of(1L, 2L), spring.stream().map(InvertedIndex.Hit::documentId).toList());
+        assertTrue(spring.get(0).score() > spring.get(1).score());
+
+        // "kotlin" occurs in one document and "java" in all four, so kotlin decides the order
+        List<InvertedIndex.Hit> mixed = index.topK("java kotlin", 10, null, null);
+        assertEquals(List.of(3L), mixed.stream().map(InvertedIndex.Hit::documentId).toList());
+        assertTrue(index.topK("kotlin", 1, null, null).get(0).score() > index.topK("java", 1, null, null).get(0).score());
+    }
+
+    @Test
+    void testTopK_BoostChangesOrder() {
+        InvertedIndex index = new InvertedIndex();
+        index.add(1, "spring spring");
+        index.add(2, "spring");
+
+        assertEquals(1L, index.topK("spring", 1, null, null).get(0).documentId());
+        assertEquals(2L, index.topK("spring", 1, null, id -> id == 2 ? 10 : 0).get(0).documentId());
+    }
+
+    @Test
+    void testTopK_PagesMatchFullRanking() {
+        Random random = new Random(7);
+        InvertedIndex index = new InvertedIndex();
+        for (int id = 0; id < 3_000; id++) {
+            StringBuilder text = new StringBuilder();
+            for (int w = 0, words = 3 + random.nextInt(12); w < words; w++) {
+                text.append('w').append(Math.min(random.nextInt(20), random.nextInt(20))).append(' ');
+            }
+            index.add(id, text.toString());
+        }
+
+        for (String query : new String[]{"w0", "w1 w2", "w5 w0 w3"}) {
+            List<InvertedIndex.Hit> full = index.topK(query, 3_000, null, null);
+            assertEquals(index.search(query).length, full.size());
+
+            List<InvertedIndex.Hit> paged = new ArrayList<>();
+            InvertedIndex.Hit after = null;
+            List<InvertedIndex.Hit> page;
+            do {
+                page = index.topK(query, 37, after, null);
+                paged.addAll(page);
+                after = page.isEmpty() ? null : page.get(page.size() - 1);
+            } while (page.size() == 37);
+            assertEquals(full, paged);
+        }
+    }
+
+    @Test
+    void testTopK_RanksGivenCandidates() {
+        InvertedIndex index = new InvertedIndex();
+        index.add(1, "spring spring boot");
+        index.add(2, "springframework");
+        index.add(3, "spring");
+        index.add(4, "unrelated");
+
+        // candidates without the whole word score zero and fall back to newest first
+        List<InvertedIndex.Hit> hits = index.topK("spring", new long[]{1, 2, 3}, 10, null, null);
+        assertEquals(List.of(3L, 1L, 2L), hits.stream().map(InvertedIndex.Hit::documentId).toList());
+        assertEquals(0, hits.get(2).score());
+
+        assertEquals(List.of(3L, 2L), index.topK("sprin", new long[]{2, 3}, 10, null, null).stream()
+                .map(InvertedIndex.Hit::documentId).toList());
+        assertEquals(List.of(2L), index.topK("spring", new long[]{1, 2, 3}, 10, hits.get(1), null).stream()
+                .map(InvertedIndex.Hit::documentId).toList());
+    }
+}
@@ -0,0 +1,238 @@
+package com.stackoverflowcompetitor.service;
+
+import com.stackoverflowcompetitor.dto.MediaInfo;
+import com.stackoverflowcompetitor.dto.MediaStatus;
+import com.stackoverflowcompetitor.service.MediaService.StoredMedia;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.http.MediaType;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.when;
+
+class MediaProcessorTest {
+
+    @TempDir
+    Path directory;
+
+    @Mock
+    private MediaService mediaService;
+
+    @InjectMocks
+    private MediaProcessor mediaProcessor;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        MockitoAnnotations.openMocks(this);
+        meterRegistry = new SimpleMeterRegistry();
+        ReflectionTestUtils.setField(mediaProcessor, "meterRegistry", meterRegistry);
+        ReflectionTestUtils.setField(mediaProcessor, "enabled", true);
+        ReflectionTestUtils.setField(mediaProcessor, "threads", 1);
+        ReflectionTestUtils.setField(mediaProcessor, "queueCapacity", 10);
+        ReflectionTestUtils.setField(mediaProcessor, "enqueueTimeoutMs", 10L);
+        ReflectionTestUtils.setField(mediaProcessor, "thumbnailSize", 32);
+        ReflectionTestUtils.setField(mediaProcessor, "maxPixels", 1_000_000L);
+        when(mediaService.find(anyString())).thenReturn(Optional.empty());
+        when(mediaService.derivedFile(anyString(), anyString()))
+                .thenAnswer(invocation -> directory.resolve(invocation.<String>getArgument(0) + invocation.<String>getArgument(1)));
+    }
+
+    @AfterEach
+    void tearDown() {
+        mediaProcessor.stop();
+    }
+
+    @Test
+    void testProcess_ImageGetsThumbnailAndInfo() throws IOException {
+        mediaProcessor.start();
+        storeImage("photo", 200, 100);
+
+        mediaProcessor.process("photo");
+
+        MediaInfo info = mediaProcessor.info("photo").orElseThrow();
+        assertEquals(MediaStatus.DONE, info.status());
+        assertEquals(200, info.width());
+        assertEquals(100, info.height());
+        assertEquals("png", info.format());
+        assertEquals("/media/photo/thumbnail", info.thumbnailUrl());
+        StoredMedia thumbnail = mediaProcessor.thumbnail("photo").orElseThrow();
+        assertEquals(MediaType.IMAGE_JPEG, thumbnail.contentType());
+        BufferedImage image = ImageIO.read(thumbnail.path().toFile());
+        assertEquals(32, image.getWidth());
+        assertEquals(16, image.getHeight());
+    }
+
+    @Test
+    void testProcess_SmallImageIsNotEnlarged() throws IOException {
+        mediaProcessor.start();
+        storeImage("icon", 10, 20);
+
+        mediaProcessor.process("icon");
+
+        BufferedImage image = ImageIO.read(mediaProcessor.thumbnail("icon").orElseThrow().path().toFile());
+        assertEquals(10, image.getWidth());
+        assertEquals(20, image.getHeight());
+    }
+
+    @Test
+    void testProcess_TooManyPixels() throws IOException {
+        mediaProcessor.start();
+        ReflectionTestUtils.setField(mediaProcessor, "maxPixels", 100L);
+        storeImage("huge", 20, 10);
+
+        mediaProcessor.process("huge");
+
+        MediaInfo info = mediaProcessor.info("huge").orElseThrow();
+        assertEquals(MediaStatus.FAILED, info.status());
+        assertEquals(20, info.width());
+        assertNotNull(info.error());
+        assertTrue(mediaProcessor.thumbnail("huge").isEmpty());
+    }
+
+    @Test
+    void testProcess_CorruptImage() throws IOException {
+        mediaProcessor.start();
+        store("broken", new byte[]{(byte) 0x89, 'P', 'N', 'G', 1, 2, 3}, MediaType.IMAGE_PNG);
+
+        mediaProcessor.process("broken");
+
+        assertNotEquals(MediaStatus.DONE, mediaProcessor.info("broken").orElseThrow().status());
+        assertTrue(mediaProcessor.thumbnail("broken").isEmpty());
+    }
+
+    @Test
+    void testInfo_NotAnImage() throws IOException {
+        mediaProcessor.start();
+        store("clip", new byte[]{1, 2, 3}, MediaType.parseMediaType("video/mp4"));
+
+        assertEquals(MediaStatus.UNSUPPORTED, mediaProcessor.info("clip").orElseThrow().status());
+        assertTrue(mediaProcessor.thumbnail("clip").isEmpty());
+    }
+
+    @Test
+    void testInfo_UnknownId() throws IOException {
+        mediaProcessor.start();
+
+        assertTrue(mediaProcessor.info("missing").isEmpty());
+        assertTrue(mediaProcessor.thumbnail("missing").isEmpty());
+    }
+
+    @Test
+    void testInfo_ResultOutlivesRestart() throws IOException {
+        mediaProcessor.start();
+        storeImage("photo", 64, 64);
+        mediaProcessor.process("photo");
+        mediaProcessor.stop();
+
+        MediaProcessor restarted = new MediaProcessor();
+        ReflectionTestUtils.setField(restarted, "mediaService", mediaService);
+        ReflectionTestUtils.setField(restarted, "enabled", false);
+
+        MediaInfo info = restarted.info("photo").orElseThrow();
+        assertEquals(MediaStatus.DONE, info.status());
+        assertEquals(64, info.width());
+    }
+
+    @Test
+    void testOnMediaStored_ProcessesInBackground() throws Exception {
+        mediaProcessor.start();
+        storeImage("photo", 100, 100);
+
+        mediaProcessor.onMediaStored(new MediaStoredEvent("photo"));
+
+        assertEquals(MediaStatus.DONE, awaitProcessed("photo").status());
+        assertEquals(1, meterRegistry.get("media.processing.time").timer().count());
+    }
+
+    @Test
+    void testSubmit_SkipsWhenQueueStaysFull() throws Exception {
+        ReflectionTestUtils.setField(mediaProcessor, "queueCapacity", 1);
+        mediaProcessor.start();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        StoredMedia blocking = storeImage("first", 10, 10);
+        when(mediaService.find("first")).thenAnswer(invocation -> {
+            started.countDown();
+            release.await();
+            return Optional.of(blocking);
+        });
+        storeImage("second", 10, 10);
+        storeImage("third", 10, 10);
+
+        assertEquals(MediaStatus.QUEUED, mediaProcessor.submit("first"));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        assertEquals(MediaStatus.QUEUED, mediaProcessor.submit("second"));
+        assertEquals(MediaStatus.SKIPPED, mediaProcessor.submit("third"));
+        assertEquals(1.0, meterRegistry.get("media.processing.rejected").counter().count());
+        assertEquals(1.0, meterRegistry.get("media.processing.queue.size").gauge().value());
+        release.countDown();
+
+        assertEquals(MediaStatus.DONE, awaitProcessed("second").status());
+        // Asking for a skipped image queues it again
+        assertEquals(MediaStatus.QUEUED, mediaProcessor.info("third").orElseThrow().status());
+        assertEquals(MediaStatus.DONE, awaitProcessed("third").status());
+    }
+
+    @Test
+    void testSubmit_Disabled() throws IOException {
+        ReflectionTestUtils.setField(mediaProcessor, "enabled", false);
+        mediaProcessor.start();
+        storeImage("photo", 10, 10);
+
+        assertEquals(MediaStatus.SKIPPED, mediaProcessor.submit("photo"));
+        assertEquals(MediaStatus.SKIPPED, mediaProcessor.info("photo").orElseThrow().status());
+    }
+
+    private MediaInfo awaitProcessed(String id) throws Exception {
+        long deadline = System.currentTimeMillis() + 5_000;
+        MediaInfo info = mediaProcessor.info(id).orElseThrow();
+        while ((info.status() == MediaStatus.QUEUED || info.status() == MediaStatus.PROCESSING)
+                && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+            info = mediaProcessor.info(id).orElseThrow();
+        }
+        return info;
+    }
+
+    private StoredMedia storeImage(String id, int width, int height) throws IOException {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        for (int x = 0; x < width; x++) {
+            for (int y = 0; y < height; y++) {
+                image.setRGB(x, y, 0xFF000000 | (x * 255 / width) << 16 | (y * 255 / height) << 8);
+            }
+        }
+        Path file = directory.resolve(id);
+        ImageIO.write(image, "png", file.toFile());
+        return register(id, file, MediaType.IMAGE_PNG);
+    }
+
+    private StoredMedia store(String id, byte[] content, MediaType contentType) throws IOException {
+        return register(id, Files.write(directory.resolve(id), content), contentType);
+    }
+
+    private StoredMedia register(String id, Path file, MediaType contentType) throws IOException {
+        StoredMedia media = new StoredMedia(file, Files.size(file), Files.getLastModifiedTime(file).toMillis(),
+                "\"" + id + "\"", contentType);
+        when(mediaService.find(id)).thenReturn(Optional.of(media));
+        return media;
+    }
+}
@@ -1,42 +1,87 @@
 package com.stackoverflowcompetitor.service;
 
+import com.stackoverflowcompetitor.common.AuthenticatedUserDetails;
+import com.stackoverflowcompetitor.dto.UploadStatus;
+import com.stackoverflowcompetitor.model.User;
+import com.stackoverflowcompetitor.repository.AnswerRepository;
+import com.stackoverflowcompetitor.repository.MediaReference;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.validation.ValidationException;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.mock.web.MockMultipartFile;
-import org.springframework.util.FileSystemUtils;
+import org.springframework.test.util.ReflectionTestUtils;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.server.ResponseStatusException;
 
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.IOException;
-import java.lang.reflect.Field;
 import java.nio.file.Files;
-import java.nio.file.Paths;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 
 class MediaServiceTest {
 
+    @TempDir
+    Path uploadDir;
+
+    @Mock
+    private AnswerRepository answerRepository;
+
+    @Mock
+    private AuthenticatedUserDetails authenticatedUserDetails;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @InjectMocks
     private MediaService mediaService;
-    private String uploadDir;
 
     @BeforeEach
     void setUp() throws Exception {
         MockitoAnnotations.openMocks(this);
-        mediaService = new MediaService();
-
-        // Use reflection to access the private UPLOAD_DIR field
-        Field uploadDirField = MediaService.class.getDeclaredField("UPLOAD_DIR");
-        uploadDirField.setAccessible(true);
-        uploadDir = (String) uploadDirField.get(mediaService);
-
-        // Clean up and create the upload directory
-        FileSystemUtils.deleteRecursively(new File(uploadDir));
-        new File(uploadDir).mkdirs();
+        ReflectionTestUtils.setField(mediaService, "meterRegistry", new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(mediaService, "uploadDir", uploadDir.toString());
+        ReflectionTestUtils.setField(mediaService, "streaming", true);
+        ReflectionTestUtils.setField(mediaService, "multipartLocation", uploadDir.toString());
+        ReflectionTestUtils.setField(mediaService, "sweepIntervalMs", 0L);
+        ReflectionTestUtils.setField(mediaService, "sweepGraceMs", 60_000L);
+        ReflectionTestUtils.setField(mediaService, "uploadChunkSize", 4);
+        ReflectionTestUtils.setField(mediaService, "maxUploadSize", 1_000L);
+        ReflectionTestUtils.setField(mediaService, "maxUploadsPerUser", 2);
+        ReflectionTestUtils.setField(mediaService, "uploadExpiryMs", 60_000L);
+        when(authenticatedUserDetails.getAuthenticatedUser()).thenReturn(user(1L));
     }
 
     @Test
     void testUploadFile_Success() throws IOException {
+        mediaService.start();
         MultipartFile file = new MockMultipartFile(
                 "file",
                 "test.txt",
@@ -44,14 +89,479 @@ class MediaServiceTest {
                 "Hello, World!".getBytes()
         );
 
-        String filePath = mediaService.uploadFile(file);
+        String mediaUrl = mediaService.uploadFile(file);
+
+        assertTrue(mediaUrl.startsWith("/media/"));
+        assertTrue(mediaUrl.endsWith("_test.txt"));
+        assertEquals(uploadDir, stored(mediaUrl).getParent());
+        assertEquals("Hello, World!", Files.readString(stored(mediaUrl)));
+        verify(eventPublisher).publishEvent(new MediaStoredEvent(stored(mediaUrl).getFileName().toString()));
+    }
+
+    @Test
+    void testUploadFile_ChannelTransferWhenBufferedOnAnotherFilesystem() throws IOException {
+        ReflectionTestUtils.setField(mediaService, "multipartLocation", uploadDir.resolve("missing").toString());
+        mediaService.start();
+        byte[] content = new byte[3 * 1024 * 1024 + 17];
+        for (int i = 0; i < content.length; i++) {
+            content[i] = (byte) i;
+        }
+        MultipartFile file = new MockMultipartFile("file", "video.mp4", "video/mp4", content);
+
+        String mediaUrl = mediaService.uploadFile(file);
+
+        assertArrayEquals(content, Files.readAllBytes(stored(mediaUrl)));
+        try (Stream<Path> files = Files.list(uploadDir)) {
+            assertEquals(1, files.filter(Files::isRegularFile).count());
+        }
+    }
+
+    @Test
+    void testUploadFile_CopyWhenStreamingDisabled() throws IOException {
+        ReflectionTestUtils.setField(mediaService, "streaming", false);
+        mediaService.start();
+        MultipartFile file = new MockMultipartFile("file", "test.txt", "text/plain", "Hello, World!".getBytes());
+
+        String mediaUrl = mediaService.uploadFile(file);
+
+        assertEquals("Hello, World!", Files.readString(stored(mediaUrl)));
+    }
+
+    @Test
+    void testUploadFile_PartialWriteNeverVisible() throws IOException {
+        mediaService.start();
+        MultipartFile file = new MockMultipartFile("file", "clip.mp4", "video/mp4", new byte[]{1, 2, 3}) {
+            @Override
+            public void transferTo(File dest) throws IOException {
+                Files.write(dest.toPath(), new byte[]{1});
+                throw new IOException("Connection reset");
+            }
+        };
+
+        assertThrows(IOException.class, () -> mediaService.uploadFile(file));
+
+        try (Stream<Path> files = Files.list(uploadDir)) {
+            assertEquals(0, files.filter(Files::isRegularFile).count());
+        }
+    }
+
+    @Test
+    void testUploadFile_CreatesUploadDirectory() throws IOException {
+        Path nested = uploadDir.resolve("media/answers");
+        ReflectionTestUtils.setField(mediaService, "uploadDir", nested.toString());
+        mediaService.start();
+        MultipartFile file = new MockMultipartFile("file", "test.txt", "text/plain", "Hello, World!".getBytes());
+
+        String mediaUrl = mediaService.uploadFile(file);
+
+        assertEquals(nested, stored(mediaUrl).getParent());
+    }
+
+    @Test
+    void testUploadFile_StripsPathFromFilename() throws IOException {
+        mediaService.start();
+        MultipartFile file = new MockMultipartFile("file", "../../etc/pass wd", "text/plain", "x".getBytes());
+
+        String mediaUrl = mediaService.uploadFile(file);
+
+        assertEquals(uploadDir, stored(mediaUrl).getParent());
+        assertTrue(mediaUrl.endsWith("_pass_wd"));
+    }
+
+    @Test
+    void testUploadFile_ContentAddressedStoresDuplicatesOnce() throws IOException {
+        ReflectionTestUtils.setField(mediaService, "contentAddressed", true);
+        mediaService.start();
+        String hash = "dffd6021bb2bd5b0af676290809ec3a53191dd81c7f70a4b28688a362182986f";
+
+        String first = mediaService.uploadFile(new MockMultipartFile("file", "a.txt", "text/plain", "Hello, World!".getBytes()));
+        String second = mediaService.uploadFile(new MockMultipartFile("file", "b.log", "text/plain", "Hello, World!".getBytes()));
+
+        assertEquals("/media/" + hash, first);
+        assertEquals(first, second);
+        Path blob = uploadDir.resolve("df/fd/" + hash);
+        assertEquals(blob, mediaService.blobPath(hash));
+        assertEquals("Hello, World!", Files.readString(blob));
+        try (Stream<Path> files = Files.walk(uploadDir)) {
+            assertEquals(1, files.filter(Files::isRegularFile).count());
+        }
+    }
+
+    @Test
+    void testUploadFile_ContentAddressedHashesWhileTransferring() throws IOException {
+        ReflectionTestUtils.setField(mediaService, "contentAddressed", true);
+        ReflectionTestUtils.setField(mediaService, "multipartLocation", uploadDir.resolve("missing").toString());
+        mediaService.start();
+
+        String url = mediaService.uploadFile(new MockMultipartFile("file", "a.txt", "text/plain", "Hello, World!".getBytes()));
+
+        assertEquals("/media/dffd6021bb2bd5b0af676290809ec3a53191dd81c7f70a4b28688a362182986f", url);
+    }
+
+    @Test
+    void testSweep_DeletesOnlyOldUnreferencedBlobs() throws IOException {
+        ReflectionTestUtils.setField(mediaService, "contentAddressed", true);
+        mediaService.start();
+        String referenced = mediaService.uploadFile(new MockMultipartFile("file", "a", "text/plain", "referenced".getBytes()));
+        String orphan = mediaService.uploadFile(new MockMultipartFile("file", "b", "text/plain", "orphan".getBytes()));
+        String recent = mediaService.uploadFile(new MockMultipartFile("file", "c", "text/plain", "recent".getBytes()));
+        Path stale = Files.writeString(uploadDir.resolve(".incoming-crashed"), "partial");
+        FileTime old = FileTime.fromMillis(System.currentTimeMillis() - 120_000);
+        for (Path file : List.of(blob(referenced), blob(orphan), stale)) {
+            Files.setLastModifiedTime(file, old);
+        }
+        when(answerRepository.countByMediaUrlIn(any())).thenAnswer(invocation -> {
+            Collection<String> urls = invocation.getArgument(0);
+            assertFalse(urls.contains(recent));
+            return urls.contains(referenced) ? List.of(reference(referenced, 2)) : List.of();
+        });
+
+        assertEquals(1, mediaService.sweep());
+
+        assertTrue(Files.exists(blob(referenced)));
+        assertFalse(Files.exists(blob(orphan)));
+        assertTrue(Files.exists(blob(recent)));
+        assertFalse(Files.exists(stale));
+    }
+
+    @Test
+    void testSweep_SkipsFilesDeletedDuringTheWalk() throws Exception {
+        ReflectionTestUtils.setField(mediaService, "contentAddressed", true);
+        mediaService.start();
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        AtomicBoolean sweeping = new AtomicBoolean(true);
+        // Temp files come and go as uploads run
+        Future<?> uploads = executor.submit(() -> {
+            for (int i = 0; sweeping.get(); i++) {
+                Path incoming = Files.writeString(uploadDir.resolve(".incoming-" + i), "partial");
+                Files.delete(incoming);
+            }
+            return null;
+        });
+
+        try {
+            for (int i = 0; i < 200; i++) {
+                assertEquals(0, mediaService.sweep());
+            }
+        } finally {
+            sweeping.set(false);
+        }
+        uploads.get(5, TimeUnit.SECONDS);
+        executor.shutdown();
+    }
+
+    @Test
+    void testSweep_KeepsBlobUploadedAgain() throws IOException {
+        ReflectionTestUtils.setField(mediaService, "contentAddressed", true);
+        mediaService.start();
+        String url = mediaService.uploadFile(new MockMultipartFile("file", "a", "text/plain", "again".getBytes()));
+        Files.setLastModifiedTime(blob(url), FileTime.fromMillis(System.currentTimeMillis() - 120_000));
+        when(answerRepository.countByMediaUrlIn(any())).thenAnswer(invocation -> {
+            // The same content is uploaded while the sweep is looking up references
+            mediaService.uploadFile(new MockMultipartFile("file", "a", "text/plain", "again".getBytes()));
+            return List.of();
+        });
+
+        assertEquals(0, mediaService.sweep());
+        assertTrue(Files.exists(blob(url)));
+    }
+
+    @Test
+    void testFind_DescribesStoredFile() throws IOException {
+        ReflectionTestUtils.setField(mediaService, "contentAddressed", true);
+        mediaService.start();
+        byte[] png = {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n', 0, 0, 0, 0};
+        String mediaUrl = mediaService.uploadFile(new MockMultipartFile("file", "shot", "image/png", png));
+        String id = mediaUrl.substring("/media/".length());
+
+        MediaService.StoredMedia media = mediaService.find(id).orElseThrow();
+
+        assertEquals(blob(mediaUrl), media.path());
+        assertEquals(png.length, media.size());
+        assertEquals("\"" + id + "\"", media.etag());
+        assertEquals(MediaType.IMAGE_PNG, media.contentType());
+    }
+
+    @Test
+    void testFind_TypeFromStoredName() throws IOException {
+        mediaService.start();
+        String mediaUrl = mediaService.uploadFile(new MockMultipartFile("file", "notes.txt", "text/plain", "x".getBytes()));
+
+        MediaService.StoredMedia media = mediaService.find(mediaUrl.substring("/media/".length())).orElseThrow();
+
+        assertEquals(MediaType.TEXT_PLAIN, media.contentType());
+    }
+
+    @Test
+    void testFind_ActiveContentIsNotServedInline() throws IOException {
+        mediaService.start();
+        String html = mediaService.uploadFile(new MockMultipartFile("file", "page.html", "text/html",
+                "<script>alert(document.cookie)</script>".getBytes()));
+        String svg = mediaService.uploadFile(new MockMultipartFile("file", "logo.svg", "image/svg+xml",
+                "<svg xmlns=\"http://www.w3.org/2000/svg\" onload=\"alert(1)\"/>".getBytes()));
+
+        assertEquals(MediaType.APPLICATION_OCTET_STREAM,
+                mediaService.find(html.substring("/media/".length())).orElseThrow().contentType());
+        assertEquals(MediaType.APPLICATION_OCTET_STREAM,
+                mediaService.find(svg.substring("/media/".length())).orElseThrow().contentType());
+        assertFalse(MediaService.isInline(MediaType.TEXT_HTML));
+        assertFalse(MediaService.isInline(MediaType.parseMediaType("image/svg+xml")));
+        assertTrue(MediaService.isInline(MediaType.parseMediaType("text/plain;charset=UTF-8")));
+    }
+
+    @Test
+    void testMigrateLegacyMediaUrls() throws IOException {
+        mediaService.start();
+        Path legacyDir = Files.createDirectories(uploadDir.resolve("static/media"));
+        String uuid = "0b9d8c5e-3f6a-4a2b-9c1d-7e6f5a4b3c2d";
+        Path photo = Files.writeString(legacyDir.resolve(uuid + "_my photo.png"), "photo");
+        Path alreadyMoved = legacyDir.resolve("1c0e9d6f-4a7b-4b3c-8d2e-8f7a6b5c4d3e_clip.mp4");
+        Files.writeString(uploadDir.resolve(alreadyMoved.getFileName()), "clip");
+        Path gone = legacyDir.resolve("2d1fae70-5b8c-4c4d-9e3f-907b8c6d5e4f_gone.txt");
+        when(answerRepository.findLegacyMediaUrls())
+                .thenReturn(List.of(photo.toString(), alreadyMoved.toString(), gone.toString()));
+        when(answerRepository.updateMediaUrl(any(), any())).thenReturn(2, 1);
+
+        assertEquals(3, mediaService.migrateLegacyMediaUrls());
+
+        String photoId = uuid + "_my_photo.png";
+        verify(answerRepository).updateMediaUrl(photo.toString(), "/media/" + photoId);
+        verify(answerRepository).updateMediaUrl(alreadyMoved.toString(), "/media/" + alreadyMoved.getFileName());
+        verify(answerRepository, times(2)).updateMediaUrl(any(), any());
+        assertFalse(Files.exists(photo));
+        assertEquals("photo", Files.readString(mediaService.find(photoId).orElseThrow().path()));
+    }
+
+    @Test
+    void testFind_UnknownOrMalformedId() throws IOException {
+        mediaService.start();
+        Files.writeString(uploadDir.resolve("secret.txt"), "x");
+
+        assertTrue(mediaService.find("0".repeat(64)).isEmpty());
+        assertTrue(mediaService.find("secret.txt").isEmpty());
+        assertTrue(mediaService.find("..").isEmpty());
+    }
+
+    @Test
+    void testChunkedUpload_ChunksInAnyOrder() throws IOException {
+        mediaService.start();
+        byte[] content = "Hello, chunks".getBytes();
+
+        UploadStatus started = mediaService.startUpload(content.length, "clip.mp4");
+        assertEquals(4, started.chunkCount());
+        assertEquals(List.of(0, 1, 2, 3), started.missingChunks());
+        String uploadId = started.uploadId();
+        sendChunk(uploadId, content, 3);
+        sendChunk(uploadId, content, 1);
+        sendChunk(uploadId, content, 0);
+        UploadStatus beforeLast = mediaService.uploadStatus(uploadId);
+        assertEquals(List.of(2), beforeLast.missingChunks());
+        assertNull(beforeLast.mediaUrl());
+        sendChunk(uploadId, content, 2);
+        UploadStatus completed = mediaService.completeUpload(uploadId);
+
+        assertTrue(completed.missingChunks().isEmpty());
+        assertTrue(completed.mediaUrl().endsWith("_clip.mp4"));
+        assertArrayEquals(content, Files.readAllBytes(stored(completed.mediaUrl())));
+        assertEquals(completed, mediaService.completeUpload(uploadId));
+        assertEquals(completed.mediaUrl(), mediaService.completedUpload(uploadId));
+        verify(eventPublisher, times(1)).publishEvent(any(MediaStoredEvent.class));
+        try (Stream<Path> files = Files.list(uploadDir)) {
+            assertEquals(1, files.filter(Files::isRegularFile).count());
+        }
+    }
+
+    @Test
+    void testChunkedUpload_ContentAddressed() throws IOException {
+        ReflectionTestUtils.setField(mediaService, "contentAddressed", true);
+        mediaService.start();
+        byte[] content = "Hello, World!".getBytes();
+        String single = mediaService.uploadFile(new MockMultipartFile("file", "a.txt", "text/plain", content));
+
+        String uploadId = mediaService.startUpload(content.length, "a.txt").uploadId();
+        for (int index = 0; index < 4; index++) {
+            sendChunk(uploadId, content, index);
+        }
+
+        assertEquals(single, mediaService.completeUpload(uploadId).mediaUrl());
+        try (Stream<Path> files = Files.walk(uploadDir)) {
+            assertEquals(1, files.filter(Files::isRegularFile).count());
+        }
+    }
+
+    @Test
+    void testChunkedUpload_ChecksumMismatchLeavesChunkMissing() throws IOException {
+        mediaService.start();
+        String uploadId = mediaService.startUpload(8, "a").uploadId();
+
+        ValidationException exception = assertThrows(ValidationException.class,
+                () -> mediaService.appendChunk(uploadId, 0, "deadbeef", new ByteArrayInputStream("abcd".getBytes())));
+
+        assertEquals("Checksum mismatch for chunk 0", exception.getMessage());
+        assertEquals(List.of(0, 1), mediaService.uploadStatus(uploadId).missingChunks());
+        assertThrows(ValidationException.class,
+                () -> mediaService.appendChunk(uploadId, 0, "not hex", new ByteArrayInputStream("abcd".getBytes())));
+    }
+
+    @Test
+    void testChunkedUpload_CorruptResendOfReceivedChunk() throws IOException {
+        mediaService.start();
+        byte[] content = "abcdefgh".getBytes();
+        String uploadId = mediaService.startUpload(content.length, "a").uploadId();
+        sendChunk(uploadId, content, 0);
+        sendChunk(uploadId, content, 1);
+
+        assertThrows(ValidationException.class, () -> mediaService.appendChunk(uploadId, 0, crc("abcd".getBytes()),
+                new ByteArrayInputStream("abXd".getBytes())));
+
+        assertEquals(List.of(0), mediaService.uploadStatus(uploadId).missingChunks());
+        assertThrows(ValidationException.class, () -> mediaService.completeUpload(uploadId));
+        sendChunk(uploadId, content, 0);
+        assertArrayEquals(content, Files.readAllBytes(stored(mediaService.completeUpload(uploadId).mediaUrl())));
+    }
+
+    @Test
+    void testChunkedUpload_ConcurrentCompletion() throws Exception {
+        mediaService.start();
+        byte[] content = "Hello, chunks".getBytes();
+        String uploadId = mediaService.startUpload(content.length, "clip.mp4").uploadId();
+        for (int index = 0; index < 4; index++) {
+            sendChunk(uploadId, content, index);
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<UploadStatus>> completions = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            completions.add(executor.submit(() -> {
+                start.await();
+                return mediaService.completeUpload(uploadId);
+            }));
+        }
+        start.countDown();
+
+        UploadStatus first = completions.get(0).get(5, TimeUnit.SECONDS);
+        for (Future<UploadStatus> completion : completions) {
+            assertEquals(first, completion.get(5, TimeUnit.SECONDS));
+        }
+        executor.shutdown();
+        assertArrayEquals(content, Files.readAllBytes(stored(first.mediaUrl())));
+        verify(eventPublisher, times(1)).publishEvent(any(MediaStoredEvent.class));
+    }
+
+    @Test
+    void testChunkedUpload_WrongChunkLength() throws IOException {
+        mediaService.start();
+        String uploadId = mediaService.startUpload(6, "a").uploadId();
+
+        assertThrows(ValidationException.class, () -> mediaService.appendChunk(uploadId, 0, crc("abc".getBytes()),
+                new ByteArrayInputStream("abc".getBytes())));
+        assertThrows(ValidationException.class, () -> mediaService.appendChunk(uploadId, 1, crc("efg".getBytes()),
+                new ByteArrayInputStream("efg".getBytes())));
+        assertThrows(ValidationException.class, () -> mediaService.appendChunk(uploadId, 2, crc("ab".getBytes()),
+                new ByteArrayInputStream("ab".getBytes())));
+        mediaService.appendChunk(uploadId, 1, crc("ef".getBytes()), new ByteArrayInputStream("ef".getBytes()));
+        assertEquals(List.of(0), mediaService.uploadStatus(uploadId).missingChunks());
+    }
+
+    @Test
+    void testChunkedUpload_CompleteWithMissingChunks() throws IOException {
+        mediaService.start();
+        String uploadId = mediaService.startUpload(8, "a").uploadId();
+        sendChunk(uploadId, "abcdefgh".getBytes(), 1);
+
+        ValidationException exception = assertThrows(ValidationException.class, () -> mediaService.completeUpload(uploadId));
+
+        assertEquals("Upload " + uploadId + " is missing chunks [0]", exception.getMessage());
+        assertThrows(ValidationException.class, () -> mediaService.completedUpload(uploadId));
+    }
+
+    @Test
+    void testChunkedUpload_OtherUsersUploadNotFound() throws IOException {
+        mediaService.start();
+        String uploadId = mediaService.startUpload(8, "a").uploadId();
+        when(authenticatedUserDetails.getAuthenticatedUser()).thenReturn(user(2L));
+
+        ResponseStatusException exception = assertThrows(ResponseStatusException.class,
+                () -> mediaService.uploadStatus(uploadId));
+
+        assertEquals(HttpStatus.NOT_FOUND, exception.getStatusCode());
+    }
+
+    @Test
+    void testChunkedUpload_Limits() throws IOException {
+        mediaService.start();
+
+        assertThrows(ValidationException.class, () -> mediaService.startUpload(0, "a"));
+        assertThrows(ValidationException.class, () -> mediaService.startUpload(1_001, "a"));
+        mediaService.startUpload(8, "a");
+        mediaService.startUpload(8, "b");
+        ValidationException exception = assertThrows(ValidationException.class, () -> mediaService.startUpload(8, "c"));
+        assertEquals("At most 2 uploads can be in progress at once", exception.getMessage());
+    }
+
+    @Test
+    void testChunkedUpload_IdleUploadsExpire() throws IOException {
+        mediaService.start();
+        String uploadId = mediaService.startUpload(8, "a").uploadId();
+        ReflectionTestUtils.setField(mediaService, "uploadExpiryMs", -1L);
+
+        mediaService.startUpload(8, "b");
+
+        assertThrows(ResponseStatusException.class, () -> mediaService.uploadStatus(uploadId));
+        assertFalse(Files.exists(uploadDir.resolve(".incoming-" + uploadId)));
+    }
+
+    @Test
+    void testStart_DeletesLeftoverUploads() throws IOException {
+        Path leftover = Files.writeString(uploadDir.resolve(".incoming-crashed"), "partial");
+
+        mediaService.start();
+
+        assertFalse(Files.exists(leftover));
+    }
+
+    private void sendChunk(String uploadId, byte[] content, int index) throws IOException {
+        byte[] chunk = Arrays.copyOfRange(content, index * 4, Math.min(content.length, index * 4 + 4));
+        mediaService.appendChunk(uploadId, index, crc(chunk), new ByteArrayInputStream(chunk));
+    }
+
+    private static String crc(byte[] bytes) {
+        CRC32C crc = new CRC32C();
+        crc.update(bytes);
+        return Long.toHexString(crc.getValue());
+    }
+
+    private static User user(Long id) {
+        User user = new User();
+        user.setId(id);
+        return user;
+    }
+
+    private Path stored(String mediaUrl) throws IOException {
+        return mediaService.find(mediaUrl.substring("/media/".length())).orElseThrow().path();
+    }
+
+    private Path blob(String url) {
+        return mediaService.blobPath(url.substring("/media/".length()));
+    }
+
+    private static MediaReference reference(String mediaUrl, long count) {
+        return new MediaReference() {
+            @Override
+            public String getMediaUrl() {
+                return mediaUrl;
+            }
 
-        assertNotNull(filePath);
-        assertTrue(Files.exists(Paths.get(filePath)));
+            @Override
+            public long getReferenceCount() {
+                return count;
+            }
+        };
     }
 
     @Test
-    void testUploadFile_EmptyFile() {
+    void testUploadFile_EmptyFile() throws IOException {
+        mediaService.start();
         MultipartFile file = new MockMultipartFile(
                 "file",
                 "empty.txt",
@@ -0,0 +1,158 @@
+package com.stackoverflowcompetitor.service;
+
+import com.stackoverflowcompetitor.repository.QuestionRepository;
+import com.stackoverflowcompetitor.repository.QuestionScore;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.data.domain.Pageable;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class QuestionLeaderboardTest {
+
+    @Mock
+    private QuestionRepository questionRepository;
+
+    @InjectMocks
+    private QuestionLeaderboard questionLeaderboard;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+    }
+
+    @Test
+    void testReload_RanksByScoreThenId() {
+        when(questionRepository.findAllScores()).thenReturn(List.of(score(1L, 5), score(2L, 7), score(3L, 5)));
+
+        questionLeaderboard.reload();
+
+        assertTrue(questionLeaderboard.isReady());
+        assertEquals(3, questionLeaderboard.size());
+        assertEquals(List.of(2L, 3L, 1L), questionLeaderboard.topQuestionIds(0, 10));
+        assertEquals(List.of(3L), questionLeaderboard.topQuestionIds(1, 1));
+    }
+
+    @Test
+    void testAdjustScore_MovesQuestion() {
+        when(questionRepository.findAllScores()).thenReturn(List.of(score(1L, 5), score(2L, 7)));
+        questionLeaderboard.reload();
+
+        questionLeaderboard.adjustScore(1L, 3);
+        questionLeaderboard.addQuestion(3L);
+
+        assertEquals(List.of(1L, 2L, 3L), questionLeaderboard.topQuestionIds(0, 10));
+        assertEquals(3, questionLeaderboard.size());
+    }
+
+    @Test
+    void testReload_KeepsVotesCastWhileLoading() {
+        when(questionRepository.findAllScores()).thenAnswer(invocation -> {
+            // Committed after the rows were read
+            questionLeaderboard.adjustScore(1L, 3);
+            questionLeaderboard.addQuestion(3L);
+            return List.of(score(1L, 5), score(2L, 7));
+        });
+
+        questionLeaderboard.reload();
+
+        assertEquals(List.of(1L, 2L, 3L), questionLeaderboard.topQuestionIds(0, 10));
+        assertEquals(8L, questionLeaderboard.scoreOf(1L));
+    }
+
+    @Test
+    void testQuestionIdsAfter_GivesUpAfterMaxRanks() {
+        when(questionRepository.findAllScores()).thenReturn(List.of(score(1L, 5), score(2L, 4), score(3L, 3), score(4L, 2)));
+        questionLeaderboard.reload();
+
+        assertEquals(Optional.of(List.of(2L, 4L)), questionLeaderboard.questionIdsAfter(null, 2, 4, id -> id % 2 == 0));
+        assertEquals(Optional.of(List.of(4L)), questionLeaderboard.questionIdsAfter(new long[]{4L, 2L}, 2, 2, id -> id % 2 == 0));
+        assertEquals(Optional.empty(), questionLeaderboard.questionIdsAfter(null, 2, 3, id -> id % 2 == 0));
+    }
+
+    @Test
+    void testIsConsistentWithDatabase() {
+        when(questionRepository.findAllScores()).thenReturn(List.of(score(1L, 1), score(2L, 2)));
+        questionLeaderboard.reload();
+
+        when(questionRepository.findTopVotedQuestionIds(any(Pageable.class))).thenReturn(List.of(2L, 1L));
+        assertTrue(questionLeaderboard.isConsistentWithDatabase(2));
+
+        when(questionRepository.findTopVotedQuestionIds(any(Pageable.class))).thenReturn(List.of(1L, 2L));
+        assertFalse(questionLeaderboard.isConsistentWithDatabase(2));
+    }
+
+    @Test
+    void testConcurrentAdjustments_MatchSqlOrdering() throws InterruptedException {
+        int questions = 200;
+        List<QuestionScore> initial = new ArrayList<>();
+        for (long id = 1; id <= questions; id++) {
+            initial.add(score(id, 0));
+        }
+        when(questionRepository.findAllScores()).thenReturn(initial);
+        questionLeaderboard.reload();
+
+        Map<Long, Long> expectedScores = new HashMap<>();
+        List<long[]> deltas = new ArrayList<>();
+        Random random = new Random(42);
+        for (int i = 0; i < 20_000; i++) {
+            long id = 1 + random.nextInt(questions);
+            long delta = random.nextBoolean() ? 1 : -1;
+            deltas.add(new long[]{id, delta});
+            expectedScores.merge(id, delta, Long::sum);
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        for (int t = 0; t < 8; t++) {
+            int offset = t;
+            executor.submit(() -> {
+                for (int i = offset; i < deltas.size(); i += 8) {
+                    questionLeaderboard.adjustScore(deltas.get(i)[0], deltas.get(i)[1]);
+                }
+            });
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+
+        // Reference ranking: ORDER BY score DESC, id DESC over the same data
+        List<Long> sqlOrder = new ArrayList<>();
+        for (long id = 1; id <= questions; id++) {
+            sqlOrder.add(id);
+        }
+        sqlOrder.sort(Comparator.<Long>comparingLong(id -> expectedScores.getOrDefault(id, 0L)).reversed()
+                .thenComparing(Comparator.<Long>reverseOrder()));
+
+        assertEquals(questions, questionLeaderboard.size());
+        assertEquals(sqlOrder, questionLeaderboard.topQuestionIds(0, questions));
+    }
+
+    private static QuestionScore score(Long id, long score) {
+        return new QuestionScore() {
+            @Override
+            public Long getId() {
+                return id;
+            }
+
+            @Override
+            public long getScore() {
+                return score;
+            }
+        };
+    }
+}
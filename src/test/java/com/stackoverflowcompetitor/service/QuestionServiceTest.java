@@ -1,28 +1,57 @@
 package com.stackoverflowcompetitor.service;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.stackoverflowcompetitor.common.AuthenticatedUserDetails;
+import com.stackoverflowcompetitor.dto.AnswerNode;
+import com.stackoverflowcompetitor.dto.CursorPage;
+import com.stackoverflowcompetitor.dto.QuestionDetail;
+import com.stackoverflowcompetitor.dto.QuestionExport;
+import com.stackoverflowcompetitor.dto.QuestionSummary;
+import com.stackoverflowcompetitor.dto.TaggedQuestions;
+import com.stackoverflowcompetitor.dto.SearchResult;
+import com.stackoverflowcompetitor.dto.Suggestions;
 import com.stackoverflowcompetitor.model.Question;
 import com.stackoverflowcompetitor.model.Tag;
 import com.stackoverflowcompetitor.model.User;
+import com.stackoverflowcompetitor.repository.AnswerRepository;
 import com.stackoverflowcompetitor.repository.QuestionRepository;
+import com.stackoverflowcompetitor.repository.QuestionSummaryView;
+import com.stackoverflowcompetitor.repository.QuestionTreeRow;
+import com.stackoverflowcompetitor.repository.SearchDocument;
 import com.stackoverflowcompetitor.repository.TagRepository;
 import com.stackoverflowcompetitor.util.Constants;
+import com.stackoverflowcompetitor.util.CursorUtil;
 import jakarta.validation.ValidationException;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
 
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.AdditionalMatchers.aryEq;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.*;
 
 class QuestionServiceTest {
@@ -30,12 +59,36 @@ class QuestionServiceTest {
     @Mock
     private QuestionRepository questionRepository;
 
+    @Mock
+    private AnswerRepository answerRepository;
+
     @Mock
     private TagRepository tagRepository;
 
     @Mock
     private AuthenticatedUserDetails authenticatedUserDetails;
 
+    @Mock
+    private QuestionLeaderboard questionLeaderboard;
+
+    @Mock
+    private HotQuestionRanking hotQuestionRanking;
+
+    @Mock
+    private SearchIndex searchIndex;
+
+    @Mock
+    private FuzzyLookup fuzzyLookup;
+
+    @Mock
+    private TagAutocomplete tagAutocomplete;
+
+    @Mock
+    private TagIndex tagIndex;
+
+    @Spy
+    private ObjectMapper objectMapper = new ObjectMapper();
+
     @InjectMocks
     private QuestionService questionService;
 
@@ -59,6 +112,51 @@ class QuestionServiceTest {
         tag = new Tag();
         tag.setId(1L);
         tag.setName("testtag");
+
+        // Summaries come back in reverse id order so the tests also check that callers restore the page order
+        when(questionRepository.findSummariesByIdIn(anyCollection())).thenAnswer(invocation -> {
+            Collection<Long> ids = invocation.getArgument(0);
+            return ids.stream().sorted(Comparator.reverseOrder()).map(QuestionServiceTest::summaryView).toList();
+        });
+    }
+
+    private static QuestionSummaryView summaryView(Long id) {
+        return new QuestionSummaryView() {
+            public Long getId() { return id; }
+            public String getTitle() { return "Question " + id; }
+            public String getExcerpt() { return "Excerpt " + id; }
+            public long getScore() { return 0; }
+            public long getAnswerCount() { return 0; }
+            public String getAuthor() { return "testuser"; }
+            public String getTagNames() { return "java,spring"; }
+        };
+    }
+
+    private static QuestionTreeRow treeRow(Long answerId, Long parentAnswerId) {
+        return new QuestionTreeRow() {
+            public Long getQuestionId() { return 1L; }
+            public String getTitle() { return "Test Question"; }
+            public String getQuestionContent() { return "Test Content"; }
+            public long getQuestionScore() { return 3; }
+            public long getQuestionUpvoteCount() { return 4; }
+            public long getQuestionDownvoteCount() { return 1; }
+            public String getQuestionAuthor() { return "testuser"; }
+            public Date getQuestionCreatedTime() { return new Date(0); }
+            public String getTagNames() { return "java"; }
+            public Long getAnswerId() { return answerId; }
+            public Long getParentAnswerId() { return parentAnswerId; }
+            public String getAnswerContent() { return answerId == null ? null : "Answer " + answerId; }
+            public String getMediaUrl() { return null; }
+            public Long getAnswerScore() { return answerId == null ? null : answerId * 10; }
+            public Long getAnswerUpvoteCount() { return answerId == null ? null : 0L; }
+            public Long getAnswerDownvoteCount() { return answerId == null ? null : 0L; }
+            public String getAnswerAuthor() { return answerId == null ? null : "answerer"; }
+            public Date getAnswerCreatedTime() { return answerId == null ? null : new Date(answerId); }
+        };
+    }
+
+    private static List<Long> ids(List<QuestionSummary> summaries) {
+        return summaries.stream().map(QuestionSummary::id).toList();
     }
 
     @Test
@@ -76,6 +174,11 @@ class QuestionServiceTest {
         assertEquals(user, result.getUser());
         assertEquals(tags, result.getTags());
         verify(questionRepository, times(1)).save(question);
+        verify(questionLeaderboard, times(1)).addQuestion(1L);
+        verify(hotQuestionRanking, times(1)).addQuestion(1L, question.getCreatedTime());
+        verify(tagAutocomplete, times(1)).addQuestion(tags);
+        verify(tagIndex, times(1)).addQuestion(1L, tags);
+        verify(tagRepository, times(1)).incrementQuestionCounts(List.of(tag.getId()));
     }
 
     @Test
@@ -111,25 +214,289 @@ class QuestionServiceTest {
 
         when(questionRepository.findTopVotedQuestions(pageable)).thenReturn(page);
 
-        Page<Question> result = questionService.getTopVotedQuestions(pageable);
+        Page<QuestionSummary> result = questionService.getTopVotedQuestions(pageable);
 
         assertNotNull(result);
         assertEquals(1, result.getTotalElements());
+        assertEquals(List.of("java", "spring"), result.getContent().get(0).tags());
         verify(questionRepository, times(1)).findTopVotedQuestions(pageable);
     }
 
     @Test
-    void testFindByTagName() {
-        String tagName = "testtag";
-        List<Question> questions = List.of(question);
+    void testGetTopVotedQuestions_FromLeaderboard() {
+        Question second = new Question();
+        second.setId(2L);
+        Pageable pageable = PageRequest.of(0, 2);
+
+        when(questionLeaderboard.isReady()).thenReturn(true);
+        when(questionLeaderboard.topQuestionIds(0, 2)).thenReturn(List.of(2L, 1L));
+        when(questionLeaderboard.size()).thenReturn(5);
+        Page<QuestionSummary> result = questionService.getTopVotedQuestions(pageable);
+
+        assertEquals(List.of(2L, 1L), ids(result.getContent()));
+        assertEquals(5, result.getTotalElements());
+        verify(questionRepository, never()).findTopVotedQuestions(any());
+    }
 
-        when(questionRepository.findByTags_Name(tagName)).thenReturn(questions);
+    @Test
+    void testGetTopVotedQuestions_CursorFromDatabase() {
+        Question second = new Question();
+        second.setId(2L);
+        second.setScore(3L);
+        question.setScore(5L);
 
-        List<Question> result = questionService.findByTagName(tagName);
+        when(questionRepository.findAllByOrderByScoreDescIdDesc(PageRequest.of(0, 2))).thenReturn(List.of(question, second));
 
-        assertNotNull(result);
-        assertEquals(1, result.size());
-        verify(questionRepository, times(1)).findByTags_Name(tagName);
+        CursorPage<QuestionSummary> first = questionService.getTopVotedQuestions(null, 1);
+
+        assertEquals(List.of(1L), ids(first.content()));
+        assertArrayEquals(new long[]{5L, 1L}, CursorUtil.decode(first.nextCursor(), 2));
+
+        when(questionRepository.findTopVotedAfter(5L, 1L, PageRequest.of(0, 2))).thenReturn(List.of(second));
+
+        CursorPage<QuestionSummary> next = questionService.getTopVotedQuestions(first.nextCursor(), 1);
+
+        assertEquals(List.of(2L), ids(next.content()));
+        assertNull(next.nextCursor());
+    }
+
+    @Test
+    void testGetTopVotedQuestions_CursorFromLeaderboard() {
+        when(questionLeaderboard.isReady()).thenReturn(true);
+        when(questionLeaderboard.questionIdsAfter(7L, 3L, 2)).thenReturn(List.of(2L, 1L));
+        when(questionLeaderboard.scoreOf(2L)).thenReturn(6L);
+
+        CursorPage<QuestionSummary> result = questionService.getTopVotedQuestions(CursorUtil.encode(7L, 3L), 1);
+
+        assertEquals(List.of(2L), ids(result.content()));
+        assertArrayEquals(new long[]{6L, 2L}, CursorUtil.decode(result.nextCursor(), 2));
+        verify(questionRepository, never()).findTopVotedAfter(anyLong(), anyLong(), any());
+    }
+
+    @Test
+    void testGetTopVotedQuestions_InvalidCursor() {
+        assertThrows(ValidationException.class, () -> questionService.getTopVotedQuestions("not-a-cursor", 5));
+        assertThrows(ValidationException.class, () -> questionService.getTopVotedQuestions(CursorUtil.encode(1L), 5));
+    }
+
+    @Test
+    void testGetAllQuestions_InvalidPageSize() {
+        assertThrows(ValidationException.class, () -> questionService.getAllQuestions(null, 0));
+        assertThrows(ValidationException.class, () -> questionService.getAllQuestions(null, Constants.MAX_PAGE_SIZE + 1));
+    }
+
+    @Test
+    void testGetAllQuestions_Cursor() {
+        Date createdTime = new Date(1_700_000_000_000L);
+        question.setCreatedTime(createdTime);
+
+        when(questionRepository.findNewestAfter(new Date(1_800_000_000_000L), 9L, PageRequest.of(0, 2))).thenReturn(List.of(question));
+
+        CursorPage<QuestionSummary> result = questionService.getAllQuestions(CursorUtil.encode(1_800_000_000_000L, 9L), 1);
+
+        assertEquals(List.of(1L), ids(result.content()));
+        assertNull(result.nextCursor());
+    }
+
+    @Test
+    void testFindByTags_FromTheIndex() {
+        when(tagIndex.isReady()).thenReturn(true);
+        when(tagIndex.questionIds(List.of("java", "spring"), List.of(), List.of("kotlin"), 9L, 3))
+                .thenReturn(List.of(8L, 5L, 2L));
+
+        CursorPage<QuestionSummary> result = questionService.findByTags(List.of("Java", " spring", "java"), List.of(""),
+                List.of("kotlin"), CursorUtil.encode(9L), 2);
+
+        assertEquals(List.of(8L, 5L), ids(result.content()));
+        assertArrayEquals(new long[]{5L}, CursorUtil.decode(result.nextCursor(), 1));
+    }
+
+    @Test
+    void testFindByTags_InTheDatabaseUntilTheIndexIsLoaded() {
+        when(questionRepository.findIdsByTagsBefore(false, List.of(""), 0, true, List.of("java", "kotlin"),
+                List.of(""), Long.MAX_VALUE, PageRequest.of(0, 3))).thenReturn(List.of(4L));
+
+        CursorPage<QuestionSummary> result = questionService.findByTags(List.of(), List.of("java", "kotlin"), List.of(),
+                null, 2);
+
+        assertEquals(List.of(4L), ids(result.content()));
+        assertNull(result.nextCursor());
+    }
+
+    @Test
+    void testFindByTags_RequiresATagToMatch() {
+        assertThrows(ValidationException.class,
+                () -> questionService.findByTags(List.of(), List.of(), List.of("kotlin"), null, 5));
+        verifyNoInteractions(tagIndex);
+    }
+
+    @Test
+    void testGetHotQuestions() {
+        Pageable pageable = PageRequest.of(0, 1);
+
+        when(hotQuestionRanking.isReady()).thenReturn(true);
+        when(hotQuestionRanking.hotQuestionIds(0, 1)).thenReturn(List.of(1L));
+        when(hotQuestionRanking.size()).thenReturn(3);
+        Page<QuestionSummary> result = questionService.getHotQuestions(pageable);
+
+        assertEquals(List.of(1L), ids(result.getContent()));
+        assertEquals(3, result.getTotalElements());
+    }
+
+    @Test
+    void testGetQuestionDetail_BuildsAnswerTree() {
+        when(questionRepository.findQuestionTree(1L)).thenReturn(List.of(
+                treeRow(10L, null), treeRow(11L, null), treeRow(12L, 10L), treeRow(13L, 12L), treeRow(14L, 10L)));
+
+        QuestionDetail detail = questionService.getQuestionDetail(1L);
+
+        assertEquals("Test Question", detail.title());
+        assertEquals(3, detail.score());
+        assertEquals(List.of("java"), detail.tags());
+        assertEquals(List.of(10L, 11L), detail.answers().stream().map(AnswerNode::id).toList());
+        AnswerNode answer = detail.answers().get(0);
+        assertEquals(100, answer.score());
+        assertEquals(List.of(12L, 14L), answer.replies().stream().map(AnswerNode::id).toList());
+        assertEquals(13L, answer.replies().get(0).replies().get(0).id());
+        assertTrue(detail.answers().get(1).replies().isEmpty());
+        verify(questionRepository, times(1)).findQuestionTree(1L);
+    }
+
+    @Test
+    void testGetQuestionDetail_NoAnswers() {
+        when(questionRepository.findQuestionTree(1L)).thenReturn(List.of(treeRow(null, null)));
+
+        QuestionDetail detail = questionService.getQuestionDetail(1L);
+
+        assertEquals(1L, detail.id());
+        assertTrue(detail.answers().isEmpty());
+    }
+
+    @Test
+    void testGetQuestionDetail_NotFound() {
+        when(questionRepository.findQuestionTree(99L)).thenReturn(List.of());
+
+        ResponseStatusException exception = assertThrows(ResponseStatusException.class, () -> questionService.getQuestionDetail(99L));
+
+        assertEquals(HttpStatus.NOT_FOUND, exception.getStatusCode());
+    }
+
+    @Test
+    void testFindByTag_NewestFromTheTagIndex() {
+        when(tagRepository.findQuestionCountByName("java")).thenReturn(Optional.of(3L));
+        when(tagIndex.isReady()).thenReturn(true);
+        when(tagIndex.questionIds(List.of("java"), List.of(), List.of(), Long.MAX_VALUE, 3)).thenReturn(List.of(9L, 7L, 4L));
+
+        TaggedQuestions result = questionService.findByTag("java", Constants.SORT_NEWEST, null, 2);
+
+        assertEquals("java", result.tag());
+        assertEquals(3, result.questionCount());
+        assertEquals(List.of(9L, 7L), ids(result.content()));
+        assertArrayEquals(new long[]{7L}, CursorUtil.decode(result.nextCursor(), 1));
+    }
+
+    @Test
+    void testFindByTag_ByScoreWalksTheLeaderboardForACommonTag() {
+        when(tagRepository.findQuestionCountByName("java")).thenReturn(Optional.of(50L));
+        when(tagIndex.isReady()).thenReturn(true);
+        when(questionLeaderboard.isReady()).thenReturn(true);
+        when(tagIndex.questionCount("java")).thenReturn(50L);
+        when(questionLeaderboard.size()).thenReturn(1_000);
+        when(questionLeaderboard.questionIdsAfter(aryEq(new long[]{5L, 9L}), eq(3), eq(1_200L), any()))
+                .thenReturn(Optional.of(List.of(8L, 6L, 2L)));
+        when(questionLeaderboard.scoreOf(6L)).thenReturn(4L);
+
+        TaggedQuestions result = questionService.findByTag("java", Constants.SORT_SCORE, CursorUtil.encode(5L, 9L), 2);
+
+        assertEquals(List.of(8L, 6L), ids(result.content()));
+        assertArrayEquals(new long[]{4L, 6L}, CursorUtil.decode(result.nextCursor(), 2));
+    }
+
+    @Test
+    void testFindByTag_ByScoreSortsWhenTheWalkFindsTooFew() {
+        when(tagRepository.findQuestionCountByName("java")).thenReturn(Optional.of(50L));
+        when(tagIndex.isReady()).thenReturn(true);
+        when(questionLeaderboard.isReady()).thenReturn(true);
+        when(tagIndex.questionCount("java")).thenReturn(50L);
+        when(questionLeaderboard.size()).thenReturn(1_000);
+        when(questionLeaderboard.questionIdsAfter(isNull(), eq(3), eq(1_200L), any())).thenReturn(Optional.empty());
+        when(tagIndex.questionIds(List.of("java"), List.of(), List.of(), Long.MAX_VALUE, Integer.MAX_VALUE))
+                .thenReturn(List.of(3L, 2L, 1L));
+        when(questionLeaderboard.scoreOf(1L)).thenReturn(5L);
+
+        TaggedQuestions result = questionService.findByTag("java", Constants.SORT_SCORE, null, 2);
+
+        assertEquals(List.of(1L, 3L), ids(result.content()));
+        assertArrayEquals(new long[]{0L, 3L}, CursorUtil.decode(result.nextCursor(), 2));
+    }
+
+    @Test
+    void testFindByTag_ByScoreSortsTheQuestionsOfARareTag() {
+        when(tagRepository.findQuestionCountByName("rust")).thenReturn(Optional.of(3L));
+        when(tagIndex.isReady()).thenReturn(true);
+        when(questionLeaderboard.isReady()).thenReturn(true);
+        when(tagIndex.questionCount("rust")).thenReturn(3L);
+        when(questionLeaderboard.size()).thenReturn(1_000);
+        when(tagIndex.questionIds(List.of("rust"), List.of(), List.of(), Long.MAX_VALUE, Integer.MAX_VALUE))
+                .thenReturn(List.of(3L, 2L, 1L));
+        when(questionLeaderboard.scoreOf(1L)).thenReturn(5L);
+        when(questionLeaderboard.scoreOf(2L)).thenReturn(10L);
+        when(questionLeaderboard.scoreOf(3L)).thenReturn(5L);
+
+        TaggedQuestions first = questionService.findByTag("rust", Constants.SORT_SCORE, null, 2);
+        TaggedQuestions second = questionService.findByTag("rust", Constants.SORT_SCORE, first.nextCursor(), 2);
+
+        assertEquals(List.of(2L, 3L), ids(first.content()));
+        assertArrayEquals(new long[]{5L, 3L}, CursorUtil.decode(first.nextCursor(), 2));
+        assertEquals(List.of(1L), ids(second.content()));
+        assertNull(second.nextCursor());
+    }
+
+    @Test
+    void testFindByTag_ByScoreInTheDatabaseUntilLoaded() {
+        Question second = new Question();
+        second.setId(2L);
+        second.setScore(3);
+        when(tagRepository.findQuestionCountByName("java")).thenReturn(Optional.of(2L));
+        when(questionRepository.findByTagNameOrderByScore("java", PageRequest.of(0, 2))).thenReturn(List.of(question, second));
+
+        TaggedQuestions result = questionService.findByTag("java", Constants.SORT_SCORE, null, 1);
+
+        assertEquals(List.of(1L), ids(result.content()));
+        assertArrayEquals(new long[]{0L, 1L}, CursorUtil.decode(result.nextCursor(), 2));
+    }
+
+    @Test
+    void testFindByTag_FallsBackToTheClosestTag() {
+        when(tagRepository.findQuestionCountByName("sprng-boot")).thenReturn(Optional.empty());
+        when(tagRepository.findQuestionCountByName("spring-boot")).thenReturn(Optional.of(1L));
+        when(fuzzyLookup.isReady()).thenReturn(true);
+        when(fuzzyLookup.closestTags("sprng-boot", 2, 1)).thenReturn(List.of("spring-boot"));
+        when(questionRepository.findByTags_NameOrderByIdDesc("spring-boot", PageRequest.of(0, 6))).thenReturn(List.of(question));
+
+        TaggedQuestions result = questionService.findByTag("sprng-boot", Constants.SORT_NEWEST, null, 5);
+
+        assertEquals("spring-boot", result.tag());
+        assertEquals(1, result.questionCount());
+        assertEquals(List.of(1L), ids(result.content()));
+    }
+
+    @Test
+    void testFindByTag_NoCloseTag() {
+        when(tagRepository.findQuestionCountByName("python")).thenReturn(Optional.empty());
+        when(fuzzyLookup.isReady()).thenReturn(true);
+        when(fuzzyLookup.closestTags("python", 2, 1)).thenReturn(List.of());
+
+        TaggedQuestions result = questionService.findByTag("python", Constants.SORT_NEWEST, null, 5);
+
+        assertEquals("python", result.tag());
+        assertEquals(0, result.questionCount());
+        assertTrue(result.content().isEmpty());
+    }
+
+    @Test
+    void testFindByTag_InvalidSort() {
+        assertThrows(ValidationException.class, () -> questionService.findByTag("java", "oldest", null, 5));
     }
 
     @Test
@@ -148,15 +515,33 @@ class QuestionServiceTest {
 
     @Test
     void testGetAllQuestions() {
-        List<Question> questions = List.of(question);
-
-        when(questionRepository.findAll()).thenReturn(questions);
+        when(questionRepository.findAllSummaries()).thenReturn(List.of(summaryView(1L)));
 
-        List<Question> result = questionService.getAllQuestions();
+        List<QuestionSummary> result = questionService.getAllQuestions();
 
         assertNotNull(result);
         assertEquals(1, result.size());
-        verify(questionRepository, times(1)).findAll();
+        assertEquals("Question 1", result.get(0).title());
+        verify(questionRepository, times(1)).findAllSummaries();
+        verify(questionRepository, never()).findAll();
+    }
+
+    @Test
+    void testExportQuestions() throws Exception {
+        QuestionExport first = new QuestionExport(1L, "Question 1", "Content", 4L, 4L, 0L, null, null);
+        QuestionExport second = new QuestionExport(2L, "Second", "Second Content", 0L, 0L, 0L, null, null);
+
+        when(questionRepository.streamExports()).thenReturn(Stream.of(first, second));
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+
+        long written = questionService.exportQuestions(outputStream);
+
+        String[] lines = outputStream.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(2, written);
+        assertEquals(2, lines.length);
+        assertEquals(1L, objectMapper.readTree(lines[0]).get("id").asLong());
+        assertEquals(4L, objectMapper.readTree(lines[0]).get("score").asLong());
+        assertEquals("Second", objectMapper.readTree(lines[1]).get("title").asText());
     }
 
     @Test
@@ -164,13 +549,26 @@ class QuestionServiceTest {
         String searchTerm = "Test";
         List<Question> questions = List.of(question);
 
-        when(questionRepository.searchQuestionsByTitleOrContent(searchTerm)).thenReturn(questions);
+        when(questionRepository.searchQuestionsByTitleOrContent(searchTerm, PageRequest.of(0, 20))).thenReturn(questions);
 
-        List<Question> result = questionService.searchQuestions(searchTerm);
+        CursorPage<QuestionSummary> result = questionService.searchQuestions(searchTerm, null, 20);
 
         assertNotNull(result);
-        assertEquals(1, result.size());
-        verify(questionRepository, times(1)).searchQuestionsByTitleOrContent(searchTerm);
+        assertEquals(1, result.content().size());
+        assertNull(result.nextCursor());
+        verify(questionRepository, times(1)).searchQuestionsByTitleOrContent(searchTerm, PageRequest.of(0, 20));
+    }
+
+    @Test
+    void testSearchQuestions_FromIndex() {
+        when(searchIndex.isReady()).thenReturn(true);
+        when(searchIndex.searchQuestions("spring", null, 2)).thenReturn(new CursorPage<>(List.of(5L, 2L), "next"));
+
+        CursorPage<QuestionSummary> result = questionService.searchQuestions("spring", null, 2);
+
+        assertEquals(List.of(5L, 2L), ids(result.content()));
+        assertEquals("next", result.nextCursor());
+        verify(questionRepository, never()).searchQuestionsByTitleOrContent(anyString(), any());
     }
 
     @Test
@@ -178,10 +576,69 @@ class QuestionServiceTest {
         String searchTerm = ""; // Set invalid search term
 
         ValidationException exception = assertThrows(ValidationException.class, () -> {
-            questionService.searchQuestions(searchTerm);
+            questionService.searchQuestions(searchTerm, null, 20);
         });
 
         assertEquals("searchTerm length must be between " + Constants.MIN_SEARCH_STRING_LENGTH + " and " + Constants.MAX_SEARCH_STRING_LENGTH + " characters", exception.getMessage());
-        verify(questionRepository, never()).searchQuestionsByTitleOrContent(anyString());
+        verify(questionRepository, never()).searchQuestionsByTitleOrContent(anyString(), any());
+    }
+
+    @Test
+    void testSearch_ReturnsSnippetsOfTheMatchedText() {
+        String content = "Some context before. ".repeat(10) + "Then the Spring Boot startup fails.";
+        when(searchIndex.isReady()).thenReturn(true);
+        when(searchIndex.search("spring", null, 3)).thenReturn(new CursorPage<>(List.of(
+                new SearchIndex.Match(2L, 7L, 3.0), new SearchIndex.Match(1L, null, 2.0),
+                new SearchIndex.Match(4L, null, 1.0)), "next"));
+        when(answerRepository.findSearchDocumentsByIdIn(List.of(7L))).thenReturn(List.of(document(7L, "", content)));
+        when(questionRepository.findSearchDocumentsByIdIn(List.of(1L, 4L))).thenReturn(List.of(
+                document(1L, "SPRING data", "spring content"), document(4L, "Title", "Paging with spring and spring")));
+
+        CursorPage<SearchResult> result = questionService.search("spring", null, 3);
+
+        assertEquals("next", result.nextCursor());
+        assertEquals(List.of(2L, 1L, 4L), result.content().stream().map(r -> r.question().id()).toList());
+        SearchResult answerMatch = result.content().get(0);
+        assertEquals(7L, answerMatch.answerId());
+        assertTrue(answerMatch.snippet().startsWith("..."));
+        assertTrue(answerMatch.snippet().length() <= Constants.SNIPPET_LENGTH + 3);
+        SearchResult.Highlight highlight = answerMatch.highlights().get(0);
+        assertEquals("Spring", answerMatch.snippet().substring(highlight.start(), highlight.end()));
+        assertEquals("SPRING data", result.content().get(1).snippet());
+        assertEquals(List.of(new SearchResult.Highlight(0, 6)), result.content().get(1).highlights());
+        assertEquals(List.of(new SearchResult.Highlight(12, 18), new SearchResult.Highlight(23, 29)),
+                result.content().get(2).highlights());
+        verify(questionRepository, never()).searchQuestionsByTitleOrContent(anyString(), any());
+    }
+
+    @Test
+    void testSearch_InvalidLimit() {
+        assertThrows(ValidationException.class, () -> questionService.search("spring", null, Constants.MAX_PAGE_SIZE + 1));
+        verify(searchIndex, never()).search(anyString(), any(), anyInt());
+    }
+
+    @Test
+    void testSuggest() {
+        when(fuzzyLookup.isReady()).thenReturn(true);
+        when(fuzzyLookup.closestTags("sprnig", 2, 5)).thenReturn(List.of("spring"));
+        when(fuzzyLookup.closestTitleWords("sprnig", 2, 5)).thenReturn(List.of("spring", "sprint"));
+
+        Suggestions suggestions = questionService.suggest("sprnig", 5);
+
+        assertEquals(new Suggestions("sprnig", List.of("spring"), List.of("spring", "sprint")), suggestions);
+    }
+
+    @Test
+    void testSuggest_InvalidTermLength() {
+        assertThrows(ValidationException.class, () -> questionService.suggest("", 5));
+        verify(fuzzyLookup, never()).closestTags(anyString(), anyInt(), anyInt());
+    }
+
+    private static SearchDocument document(Long id, String title, String content) {
+        return new SearchDocument() {
+            public Long getId() { return id; }
+            public String getTitle() { return title; }
+            public String getContent() { return content; }
+        };
     }
 }
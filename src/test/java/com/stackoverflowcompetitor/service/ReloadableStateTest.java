@@ -0,0 +1,79 @@
+package com.stackoverflowcompetitor.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReloadableStateTest {
+
+    @Test
+    void testReload_ReplaysWritesMadeWhileLoading() {
+        ReloadableState<List<String>> state = new ReloadableState<>(new ArrayList<>(List.of("old")));
+        state.write(list -> list.add("before"));
+
+        List<String> loaded = state.reload(() -> {
+            state.write(list -> list.add("during"));
+            return new ArrayList<>(List.of("loaded"));
+        });
+        state.write(list -> list.add("after"));
+
+        assertSame(loaded, state.get());
+        assertEquals(List.of("loaded", "during", "after"), state.get());
+    }
+
+    @Test
+    void testReload_FailedLoadKeepsLiveCopy() {
+        List<String> live = new ArrayList<>(List.of("old"));
+        ReloadableState<List<String>> state = new ReloadableState<>(live);
+
+        assertThrows(IllegalStateException.class, () -> state.reload(() -> {
+            state.write(list -> list.add("during"));
+            throw new IllegalStateException("Database down");
+        }));
+        state.write(list -> list.add("after"));
+
+        assertSame(live, state.get());
+        assertEquals(List.of("old", "during", "after"), state.get());
+    }
+
+    @Test
+    void testReload_KeepsWritesFromOtherThreads() throws Exception {
+        ReloadableState<List<Integer>> state = new ReloadableState<>(new CopyOnWriteArrayList<>());
+        int writes = 1_000;
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch written = new CountDownLatch(writes / 2);
+        CompletableFuture<Void> writer = CompletableFuture.runAsync(() -> {
+            try {
+                assertTrue(loading.await(5, TimeUnit.SECONDS));
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+            for (int i = 0; i < writes; i++) {
+                int value = i;
+                state.write(list -> list.add(value));
+                written.countDown();
+            }
+        });
+
+        state.reload(() -> {
+            loading.countDown();
+            try {
+                // The swap races the rest of the writes
+                assertTrue(written.await(5, TimeUnit.SECONDS));
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+            return new CopyOnWriteArrayList<>();
+        });
+        writer.get(5, TimeUnit.SECONDS);
+
+        assertEquals(writes, state.get().size());
+    }
+}
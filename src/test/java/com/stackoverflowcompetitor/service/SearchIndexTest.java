@@ -0,0 +1,296 @@
+package com.stackoverflowcompetitor.service;
+
+import com.stackoverflowcompetitor.dto.CursorPage;
+import com.stackoverflowcompetitor.repository.AnswerQuestion;
+import com.stackoverflowcompetitor.repository.AnswerRepository;
+import com.stackoverflowcompetitor.repository.QuestionRepository;
+import com.stackoverflowcompetitor.repository.SearchDocument;
+import com.stackoverflowcompetitor.util.CursorUtil;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalLong;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class SearchIndexTest {
+
+    @Mock
+    private QuestionRepository questionRepository;
+
+    @Mock
+    private AnswerRepository answerRepository;
+
+    @Mock
+    private QuestionLeaderboard questionLeaderboard;
+
+    @Mock
+    private SearchSegmentStore segmentStore;
+
+    @Spy
+    private SearchResultCache resultCache = new SearchResultCache();
+
+    @InjectMocks
+    private SearchIndex searchIndex;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        ReflectionTestUtils.setField(searchIndex, "searchThreads", 2);
+        searchIndex.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        searchIndex.stop();
+    }
+
+    @Test
+    void testReload_IndexesBothTables() {
+        when(questionRepository.streamSearchDocuments()).thenReturn(Stream.of(
+                document(1L, "Spring Boot", "Startup fails"), document(2L, "Spring Data", "Paging question")));
+        when(answerRepository.streamSearchDocuments()).thenReturn(Stream.of(document(5L, "", "Use a Pageable")));
+
+        assertFalse(searchIndex.isReady());
+        searchIndex.reload();
+
+        assertTrue(searchIndex.isReady());
+        assertEquals(List.of(2L, 1L), searchIndex.searchQuestions("spring", null, 10).content());
+        assertEquals(List.of(1L), searchIndex.searchQuestions("startup", null, 10).content());
+        assertEquals(List.of(5L), searchIndex.searchAnswers("pageable", null, 10).content());
+        assertTrue(searchIndex.searchAnswers("spring", null, 10).content().isEmpty());
+    }
+
+    @Test
+    void testReload_WritesBaseSegmentsWhenNothingToRestore() {
+        when(questionRepository.streamSearchDocuments()).thenReturn(Stream.of(document(1L, "Spring", "Boot")));
+        when(answerRepository.streamSearchDocuments()).thenReturn(Stream.empty());
+
+        searchIndex.reload();
+
+        verify(segmentStore).writeBase(argThat(indexes -> indexes.get(SearchIndex.QUESTIONS).contains(1L)
+                && indexes.get(SearchIndex.ANSWERS).documentCount() == 0), anyLong());
+        verify(questionRepository, never()).streamSearchDocumentsModifiedSince(any());
+    }
+
+    @Test
+    void testReload_RestoresSegmentsAndReplaysOnlyMissingRows() {
+        when(segmentStore.restore(anyMap())).thenAnswer(invocation -> {
+            Map<String, TextIndex> indexes = invocation.getArgument(0);
+            indexes.get(SearchIndex.QUESTIONS).add(1L, "Spring Boot", "Startup fails");
+            return OptionalLong.of(100_000L);
+        });
+        when(questionRepository.streamSearchDocumentsModifiedSince(any())).thenReturn(Stream.of(
+                document(1L, "Spring Boot", "Startup fails"), document(2L, "Spring Data", "Paging")));
+        when(answerRepository.streamSearchDocumentsModifiedSince(any())).thenReturn(Stream.of(document(5L, "", "Use a Pageable")));
+
+        searchIndex.reload();
+
+        assertEquals(List.of(2L, 1L), searchIndex.searchQuestions("spring", null, 10).content());
+        assertEquals(List.of(5L), searchIndex.searchAnswers("pageable", null, 10).content());
+        verify(questionRepository, never()).streamSearchDocuments();
+        verify(questionRepository).streamSearchDocumentsModifiedSince(new Date(100_000L));
+        verify(segmentStore).buffer(SearchIndex.QUESTIONS, 2L, "Spring Data", "Paging");
+        verify(segmentStore).buffer(SearchIndex.ANSWERS, 5L, "Use a Pageable");
+        verify(segmentStore, never()).buffer(eq(SearchIndex.QUESTIONS), eq(1L), any(String[].class));
+        verify(segmentStore, never()).writeBase(any(), anyLong());
+    }
+
+    @Test
+    void testAdd_OutsideTransactionIsVisibleImmediately() {
+        when(questionRepository.streamSearchDocuments()).thenReturn(Stream.empty());
+        when(answerRepository.streamSearchDocuments()).thenReturn(Stream.empty());
+        searchIndex.reload();
+
+        searchIndex.addQuestion(3L, "Hibernate lazy loading", "LazyInitializationException");
+        searchIndex.addAnswer(4L, 3L, "Open the session in view");
+
+        assertEquals(List.of(3L), searchIndex.searchQuestions("lazyinitializationexception", null, 10).content());
+        assertEquals(List.of(4L), searchIndex.searchAnswers("session", null, 10).content());
+        verify(segmentStore).buffer(SearchIndex.QUESTIONS, 3L, "Hibernate lazy loading", "LazyInitializationException");
+        verify(segmentStore).buffer(SearchIndex.ANSWERS, 4L, "Open the session in view");
+    }
+
+    @Test
+    void testReload_KeepsDocumentsAddedWhileLoading() {
+        Stream<SearchDocument> questions = Stream.of(document(1L, "Spring Boot", "Startup fails"));
+        when(questionRepository.streamSearchDocuments()).thenAnswer(invocation -> {
+            searchIndex.addQuestion(3L, "Spring Data", "Paging question");
+            searchIndex.addAnswer(4L, 3L, "Use a Pageable");
+            return questions;
+        });
+        when(answerRepository.streamSearchDocuments()).thenReturn(Stream.empty());
+
+        searchIndex.reload();
+
+        assertEquals(List.of(3L, 1L), searchIndex.searchQuestions("spring", null, 10).content());
+        assertEquals(List.of(4L), searchIndex.searchAnswers("pageable", null, 10).content());
+    }
+
+    @Test
+    void testSearch_MatchesSubstringsLikeTheLikeScan() {
+        when(questionRepository.streamSearchDocuments()).thenReturn(Stream.of(
+                document(1L, "NullPointerException in Spring", "Stack trace"), document(2L, "Spring Data", "Paging")));
+        when(answerRepository.streamSearchDocuments()).thenReturn(Stream.of(document(5L, "", "Use a Pageable")));
+        searchIndex.reload();
+
+        assertEquals(List.of(1L), searchIndex.searchQuestions("pointerExc", null, 10).content());
+        assertEquals(List.of(2L, 1L), searchIndex.searchQuestions("ring", null, 10).content());
+        assertEquals(List.of(5L), searchIndex.searchAnswers("pageab", null, 10).content());
+        assertTrue(searchIndex.searchQuestions("spring data paging", null, 10).content().isEmpty());
+    }
+
+    @Test
+    void testSearch_CursorWalksEveryHitOnce() {
+        when(questionRepository.streamSearchDocuments()).thenReturn(Stream.empty());
+        when(answerRepository.streamSearchDocuments()).thenReturn(Stream.empty());
+        searchIndex.reload();
+        for (long id = 1; id <= 5; id++) {
+            searchIndex.addQuestion(id, "Spring", "spring ".repeat((int) id));
+        }
+
+        CursorPage<Long> first = searchIndex.searchQuestions("spring", null, 2);
+        CursorPage<Long> second = searchIndex.searchQuestions("spring", first.nextCursor(), 2);
+        CursorPage<Long> third = searchIndex.searchQuestions("spring", second.nextCursor(), 2);
+
+        assertEquals(List.of(5L, 4L), first.content());
+        assertEquals(List.of(3L, 2L), second.content());
+        assertEquals(List.of(1L), third.content());
+        assertNull(third.nextCursor());
+    }
+
+    @Test
+    void testSearch_GroupsAnswersUnderTheirQuestion() {
+        when(questionRepository.streamSearchDocuments()).thenReturn(Stream.of(
+                document(1L, "Spring Boot", "Startup fails"), document(2L, "Hibernate", "Lazy loading")));
+        when(answerRepository.streamSearchDocuments()).thenReturn(Stream.empty());
+        searchIndex.reload();
+        searchIndex.addAnswer(10L, 2L, "Spring spring spring with open session in view");
+        searchIndex.addAnswer(11L, 1L, "Check the spring logs");
+        searchIndex.addAnswer(12L, 3L, "Unrelated");
+
+        List<SearchIndex.Match> matches = searchIndex.search("spring", null, 10).content();
+
+        // Question 1 matches through its title and through answer 11, but is listed once
+        assertEquals(2, matches.size());
+        assertEquals(Set.of(1L, 2L), matches.stream().map(SearchIndex.Match::questionId).collect(Collectors.toSet()));
+        SearchIndex.Match throughAnswer = matches.stream().filter(match -> match.questionId() == 2L).findFirst().orElseThrow();
+        assertEquals(10L, throughAnswer.answerId());
+        assertEquals(List.of(2L), searchIndex.search("lazy", null, 10).content().stream().map(SearchIndex.Match::questionId).toList());
+        assertNull(searchIndex.search("lazy", null, 10).content().get(0).answerId());
+        verify(answerRepository, never()).findQuestionIdsByIdIn(any());
+    }
+
+    @Test
+    void testSearch_CursorWalksEveryQuestionOnce() {
+        when(questionRepository.streamSearchDocuments()).thenReturn(Stream.empty());
+        when(answerRepository.streamSearchDocuments()).thenReturn(Stream.empty());
+        searchIndex.reload();
+        for (long id = 1; id <= 20; id++) {
+            searchIndex.addQuestion(id, "Question " + id, "spring ".repeat((int) (id % 7) + 1));
+            for (long answer = 0; answer < id % 4; answer++) {
+                searchIndex.addAnswer(id * 100 + answer, id, "spring ".repeat((int) ((id + answer) % 5) + 1));
+            }
+        }
+
+        List<Long> walked = new ArrayList<>();
+        List<Double> scores = new ArrayList<>();
+        String cursor = null;
+        do {
+            CursorPage<SearchIndex.Match> page = searchIndex.search("spring", cursor, 3);
+            page.content().forEach(match -> {
+                walked.add(match.questionId());
+                scores.add(match.score());
+            });
+            cursor = page.nextCursor();
+        } while (cursor != null);
+
+        assertEquals(20, walked.size());
+        assertEquals(20, walked.stream().distinct().count());
+        for (int i = 1; i < scores.size(); i++) {
+            assertTrue(scores.get(i - 1) >= scores.get(i));
+        }
+    }
+
+    @Test
+    void testSearch_CursorWindowIsBounded() {
+        when(questionRepository.streamSearchDocuments()).thenReturn(Stream.empty());
+        when(answerRepository.streamSearchDocuments()).thenReturn(Stream.empty());
+        searchIndex.reload();
+        for (long id = 1; id <= 5; id++) {
+            searchIndex.addQuestion(id, "Question " + id, "spring");
+        }
+        String forged = CursorUtil.encode(Double.doubleToLongBits(Double.POSITIVE_INFINITY), Long.MAX_VALUE,
+                Integer.MAX_VALUE);
+
+        CursorPage<SearchIndex.Match> page = searchIndex.search("spring", forged, 2);
+
+        assertEquals(List.of(5L, 4L), page.content().stream().map(SearchIndex.Match::questionId).toList());
+        assertEquals(SearchIndex.MAX_CURSOR_WINDOW, CursorUtil.decode(page.nextCursor(), 3)[2]);
+    }
+
+    @Test
+    void testSearch_LooksUpQuestionsOfRestoredAnswersOnce() {
+        when(questionRepository.streamSearchDocuments()).thenReturn(Stream.empty());
+        when(answerRepository.streamSearchDocuments()).thenReturn(Stream.of(document(5L, "", "Use a Pageable")));
+        when(answerRepository.findQuestionIdsByIdIn(List.of(5L))).thenReturn(List.of(answerQuestion(5L, 1L)));
+        searchIndex.reload();
+
+        assertEquals(1L, searchIndex.search("pageable", null, 10).content().get(0).questionId());
+        assertEquals(1L, searchIndex.search("pageable", null, 10).content().get(0).questionId());
+        verify(answerRepository, times(1)).findQuestionIdsByIdIn(any());
+    }
+
+    @Test
+    void testAdd_InvalidatesCachedPagesOfMatchingTerms() {
+        ReflectionTestUtils.setField(resultCache, "meterRegistry", new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(resultCache, "enabled", true);
+        ReflectionTestUtils.setField(resultCache, "maximumSize", 100);
+        ReflectionTestUtils.setField(resultCache, "ttlMs", 60_000L);
+        resultCache.start();
+        when(questionRepository.streamSearchDocuments()).thenReturn(Stream.of(document(1L, "Spring Boot", "Startup fails")));
+        when(answerRepository.streamSearchDocuments()).thenReturn(Stream.empty());
+        searchIndex.reload();
+
+        assertEquals(List.of(1L), searchIndex.searchQuestions("spring", null, 10).content());
+        assertEquals(List.of(1L), searchIndex.searchQuestions("Spring", null, 10).content());
+        searchIndex.addQuestion(2L, "Spring Data", "Paging");
+        searchIndex.addAnswer(3L, 1L, "Spring answer");
+
+        assertEquals(List.of(2L, 1L), searchIndex.searchQuestions("spring", null, 10).content());
+        assertEquals(List.of(3L), searchIndex.searchAnswers("spring", null, 10).content());
+        verify(resultCache).invalidate(SearchIndex.QUESTIONS, "Spring Data", "Paging");
+        verify(resultCache).invalidate(SearchIndex.ANSWERS, "Spring answer");
+    }
+
+    private static AnswerQuestion answerQuestion(Long id, Long questionId) {
+        return new AnswerQuestion() {
+            public Long getId() { return id; }
+            public Long getQuestionId() { return questionId; }
+        };
+    }
+
+    private static SearchDocument document(Long id, String title, String content) {
+        return new SearchDocument() {
+            public Long getId() { return id; }
+            public String getTitle() { return title; }
+            public String getContent() { return content; }
+        };
+    }
+}
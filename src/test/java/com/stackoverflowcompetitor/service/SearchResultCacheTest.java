@@ -0,0 +1,89 @@
+package com.stackoverflowcompetitor.service;
+
+import com.stackoverflowcompetitor.dto.CursorPage;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SearchResultCacheTest {
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final SearchResultCache cache = new SearchResultCache();
+    private final AtomicInteger searches = new AtomicInteger();
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(cache, "meterRegistry", meterRegistry);
+        ReflectionTestUtils.setField(cache, "enabled", true);
+        ReflectionTestUtils.setField(cache, "maximumSize", 100);
+        ReflectionTestUtils.setField(cache, "ttlMs", 60_000L);
+        cache.start();
+    }
+
+    @Test
+    void testGet_SharesPagesAcrossCaseButNotAcrossPages() {
+        assertEquals(List.of(1L), search(SearchIndex.QUESTIONS, "Spring", null).content());
+        search(SearchIndex.QUESTIONS, "SPRING", null);
+        search(SearchIndex.QUESTIONS, "spring", "next");
+        search(SearchIndex.ANSWERS, "spring", null);
+
+        assertEquals(3, searches.get());
+        assertEquals(1, meterRegistry.get("cache.gets").tag("cache", "search").tag("result", "hit").functionCounter().count());
+        assertEquals(3, meterRegistry.get("cache.gets").tag("result", "miss").functionCounter().count());
+        assertEquals(0.25, meterRegistry.get("cache.hit.ratio").gauge().value());
+        assertEquals(3, meterRegistry.get("cache.size").gauge().value());
+    }
+
+    @Test
+    void testInvalidate_DropsPagesOfContainedTermsInTheWrittenCorpus() {
+        search(SearchIndex.QUESTIONS, "spring", null);
+        search(SearchIndex.QUESTIONS, "hibernate", null);
+        search(SearchIndex.ANSWERS, "spring", null);
+        search(SearchResultCache.UNIFIED, "spring", null);
+
+        cache.invalidate(SearchIndex.QUESTIONS, "Spring Boot", "Startup fails");
+        searches.set(0);
+        search(SearchIndex.QUESTIONS, "spring", null);
+        search(SearchIndex.QUESTIONS, "hibernate", null);
+        search(SearchIndex.ANSWERS, "spring", null);
+        search(SearchResultCache.UNIFIED, "spring", null);
+
+        assertEquals(2, searches.get(), "the question and unified pages for spring were searched again");
+        assertEquals(2, meterRegistry.get("cache.invalidations").functionCounter().count());
+    }
+
+    @Test
+    void testGet_DoesNotCacheAPageComputedAcrossAWrite() {
+        cache.get(SearchIndex.QUESTIONS, "spring", null, 10, () -> {
+            cache.invalidate(SearchIndex.QUESTIONS, "Spring Boot");
+            return new CursorPage<>(List.of(), null);
+        });
+
+        search(SearchIndex.QUESTIONS, "spring", null);
+        assertEquals(1, searches.get());
+    }
+
+    @Test
+    void testDisabled_AlwaysSearches() {
+        SearchResultCache disabled = new SearchResultCache();
+        disabled.get(SearchIndex.QUESTIONS, "spring", null, 10, searches::incrementAndGet);
+        disabled.get(SearchIndex.QUESTIONS, "spring", null, 10, searches::incrementAndGet);
+        disabled.invalidate(SearchIndex.QUESTIONS, "spring");
+
+        assertEquals(2, searches.get());
+    }
+
+    private CursorPage<Long> search(String corpus, String term, String cursor) {
+        return cache.get(corpus, term, cursor, 10, () -> {
+            searches.incrementAndGet();
+            return new CursorPage<>(List.of(1L), null);
+        });
+    }
+}
@@ -0,0 +1,139 @@
+package com.stackoverflowcompetitor.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalLong;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SearchSegmentStoreTest {
+
+    @TempDir
+    Path directory;
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final List<SearchSegmentStore> stores = new ArrayList<>();
+
+    @AfterEach
+    void tearDown() {
+        stores.forEach(SearchSegmentStore::stop);
+    }
+
+    @Test
+    void testRestore_NothingToRestore() {
+        SearchSegmentStore store = newStore();
+
+        assertTrue(store.restore(indexes(new TextIndex(), new TextIndex())).isEmpty());
+        store.flush();
+        assertEquals(0, store.getSegmentCount());
+    }
+
+    @Test
+    void testRestore_BaseAndFlushedDocuments() {
+        SearchSegmentStore store = newStore();
+        TextIndex questions = new TextIndex();
+        questions.add(1, "Spring Boot", "Startup fails");
+        TextIndex answers = new TextIndex();
+        answers.add(7, "Use a Pageable");
+        store.writeBase(indexes(questions, answers), 1_000L);
+
+        store.buffer(SearchIndex.QUESTIONS, 2, "Spring Data", "Paging");
+        store.buffer(SearchIndex.ANSWERS, 8, "Open the session in view");
+        store.flush();
+        assertEquals(4, store.getSegmentCount());
+
+        TextIndex restoredQuestions = new TextIndex();
+        TextIndex restoredAnswers = new TextIndex();
+        OptionalLong watermark = newStore().restore(indexes(restoredQuestions, restoredAnswers));
+
+        assertTrue(watermark.isPresent());
+        assertTrue(watermark.getAsLong() > 1_000L);
+        assertEquals(List.of(2L, 1L), ids(restoredQuestions.search("spring", 10, null, null)));
+        assertEquals(List.of(8L), ids(restoredAnswers.search("SESSION", 10, null, null)));
+        assertEquals(List.of(7L), ids(restoredAnswers.search("pageab", 10, null, null)));
+    }
+
+    @Test
+    void testFlush_MergesWhenTooManySegments() throws IOException {
+        SearchSegmentStore store = newStore();
+        store.writeBase(indexes(new TextIndex(), new TextIndex()), 1_000L);
+        for (long id = 1; id <= 6; id++) {
+            store.buffer(SearchIndex.QUESTIONS, id, "Question " + id, "spring");
+            store.flush();
+        }
+
+        assertTrue(store.getSegmentCount() <= 4, "questions were merged back under the limit");
+        try (Stream<Path> files = Files.list(directory)) {
+            assertEquals(store.getSegmentCount(), files.filter(file -> file.toString().endsWith(".seg")).count());
+        }
+        TextIndex restored = new TextIndex();
+        newStore().restore(indexes(restored, new TextIndex()));
+        assertEquals(List.of(6L, 5L, 4L, 3L, 2L, 1L), ids(restored.search("spring", 10, null, null)));
+    }
+
+    @Test
+    void testFlush_KeepsBufferedDocumentsUntilThereIsABase() {
+        SearchSegmentStore store = newStore();
+        store.buffer(SearchIndex.QUESTIONS, 1, "Spring", "Boot");
+        store.flush();
+        assertEquals(0, store.getSegmentCount());
+        assertFalse(Files.exists(directory.resolve(SearchSegmentStore.MANIFEST)));
+    }
+
+    @Test
+    void testRestore_UnreadableSegmentFallsBack() throws IOException {
+        SearchSegmentStore store = newStore();
+        TextIndex questions = new TextIndex();
+        questions.add(1, "Spring", "Boot");
+        store.writeBase(indexes(questions, new TextIndex()), 1_000L);
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : files.filter(file -> file.toString().endsWith(".seg")).toList()) {
+                Files.write(file, new byte[100]);
+            }
+        }
+
+        assertTrue(newStore().restore(indexes(new TextIndex(), new TextIndex())).isEmpty());
+    }
+
+    @Test
+    void testDisabled_DoesNothing() {
+        SearchSegmentStore store = newStore();
+        ReflectionTestUtils.setField(store, "enabled", false);
+        store.writeBase(indexes(new TextIndex(), new TextIndex()), 1_000L);
+
+        assertTrue(store.restore(indexes(new TextIndex(), new TextIndex())).isEmpty());
+        assertFalse(Files.exists(directory.resolve(SearchSegmentStore.MANIFEST)));
+    }
+
+    private SearchSegmentStore newStore() {
+        SearchSegmentStore store = new SearchSegmentStore();
+        ReflectionTestUtils.setField(store, "meterRegistry", meterRegistry);
+        ReflectionTestUtils.setField(store, "enabled", true);
+        ReflectionTestUtils.setField(store, "directory", directory.toString());
+        ReflectionTestUtils.setField(store, "flushIntervalMs", 3_600_000L);
+        ReflectionTestUtils.setField(store, "maxSegments", 3);
+        store.start();
+        stores.add(store);
+        return store;
+    }
+
+    private static Map<String, TextIndex> indexes(TextIndex questions, TextIndex answers) {
+        return Map.of(SearchIndex.QUESTIONS, questions, SearchIndex.ANSWERS, answers);
+    }
+
+    private static List<Long> ids(List<InvertedIndex.Hit> hits) {
+        return hits.stream().map(InvertedIndex.Hit::documentId).toList();
+    }
+}
@@ -0,0 +1,97 @@
+package com.stackoverflowcompetitor.service;
+
+import com.stackoverflowcompetitor.model.Tag;
+import com.stackoverflowcompetitor.repository.QuestionRepository;
+import com.stackoverflowcompetitor.repository.QuestionTag;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class TagIndexTest {
+
+    @Mock
+    private QuestionRepository questionRepository;
+
+    @InjectMocks
+    private TagIndex tagIndex;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        when(questionRepository.streamQuestionTags()).thenReturn(Stream.of(
+                row(1L, "java"), row(1L, "spring"),
+                row(2L, "Java"), row(2L, "spring"), row(2L, "kotlin"),
+                row(3L, "java"),
+                row(4L, "python"), row(4L, "spring")));
+    }
+
+    @Test
+    void testQuestionIds_CombinesAllAnyAndNone() {
+        assertFalse(tagIndex.isReady());
+        tagIndex.reload();
+
+        assertTrue(tagIndex.isReady());
+        assertEquals(List.of(2L, 1L), tagIndex.questionIds(List.of("java", "spring"), List.of(), List.of(), Long.MAX_VALUE, 10));
+        assertEquals(List.of(1L), tagIndex.questionIds(List.of("JAVA", "spring"), List.of(), List.of("kotlin"), Long.MAX_VALUE, 10));
+        assertEquals(List.of(3L), tagIndex.questionIds(List.of(), List.of("python", "java"), List.of("spring", "kotlin"),
+                Long.MAX_VALUE, 10));
+        assertEquals(List.of(4L, 1L), tagIndex.questionIds(List.of("spring"), List.of("python", "java"), List.of("kotlin"),
+                Long.MAX_VALUE, 10));
+        assertEquals(List.of(1L), tagIndex.questionIds(List.of("spring"), List.of(), List.of(), 2L, 10));
+        assertTrue(tagIndex.questionIds(List.of("java", "rust"), List.of(), List.of(), Long.MAX_VALUE, 10).isEmpty());
+        assertThrows(IllegalArgumentException.class,
+                () -> tagIndex.questionIds(List.of(), List.of(), List.of("java"), Long.MAX_VALUE, 10));
+    }
+
+    @Test
+    void testAddQuestion_IsFoundByItsTags() {
+        tagIndex.reload();
+        Tag java = new Tag();
+        java.setName("Java");
+        Tag rust = new Tag();
+        rust.setName("rust");
+
+        tagIndex.addQuestion(5L, List.of(java, rust));
+
+        assertEquals(List.of(5L), tagIndex.questionIds(List.of("java", "rust"), List.of(), List.of(), Long.MAX_VALUE, 10));
+        assertEquals(List.of(5L, 3L, 2L, 1L), tagIndex.questionIds(List.of("java"), List.of(), List.of(), Long.MAX_VALUE, 10));
+    }
+
+    @Test
+    void testReload_KeepsQuestionsPostedWhileLoading() {
+        Tag rust = new Tag();
+        rust.setName("rust");
+        Stream<QuestionTag> rows = Stream.of(row(1L, "java"));
+        when(questionRepository.streamQuestionTags()).thenAnswer(invocation -> {
+            tagIndex.addQuestion(5L, List.of(rust));
+            return rows;
+        });
+
+        tagIndex.reload();
+
+        assertEquals(List.of(5L), tagIndex.questionIds(List.of("rust"), List.of(), List.of(), Long.MAX_VALUE, 10));
+        assertEquals(List.of(1L), tagIndex.questionIds(List.of("java"), List.of(), List.of(), Long.MAX_VALUE, 10));
+    }
+
+    private static QuestionTag row(Long questionId, String tagName) {
+        return new QuestionTag() {
+            @Override
+            public Long getQuestionId() {
+                return questionId;
+            }
+
+            @Override
+            public String getTagName() {
+                return tagName;
+            }
+        };
+    }
+}
@@ -0,0 +1,94 @@
+package com.stackoverflowcompetitor.service;
+
+import com.stackoverflowcompetitor.dto.TagSuggestion;
+import com.stackoverflowcompetitor.model.Tag;
+import com.stackoverflowcompetitor.repository.TagCount;
+import com.stackoverflowcompetitor.repository.TagRepository;
+import jakarta.validation.ValidationException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class TagServiceTest {
+
+    @Mock
+    private TagRepository tagRepository;
+
+    @InjectMocks
+    private TagAutocomplete tagAutocomplete;
+
+    private TagService tagService;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        tagService = new TagService();
+        ReflectionTestUtils.setField(tagService, "tagRepository", tagRepository);
+        ReflectionTestUtils.setField(tagService, "tagAutocomplete", tagAutocomplete);
+        when(tagRepository.findAllWithQuestionCounts()).thenReturn(List.of(tagCount("Java", 40),
+                tagCount("javascript", 60), tagCount("jakarta-ee", 0), tagCount("kotlin", 10)));
+    }
+
+    @Test
+    void testSuggest_FromTheTrieMostUsedFirst() {
+        tagAutocomplete.reload();
+
+        assertEquals(List.of(new TagSuggestion("javascript", 60), new TagSuggestion("Java", 40)),
+                tagService.suggest("JAV", 5));
+        assertEquals(List.of(new TagSuggestion("javascript", 60)), tagService.suggest("ja", 1));
+        verify(tagRepository, never()).findByNamePrefixWithQuestionCounts(anyString(), any());
+    }
+
+    @Test
+    void testSuggest_CountsPostedQuestions() {
+        tagAutocomplete.reload();
+        Tag java = new Tag();
+        java.setName("Java");
+
+        for (int i = 0; i < 25; i++) {
+            tagAutocomplete.addQuestion(List.of(java));
+        }
+
+        assertEquals(List.of(new TagSuggestion("Java", 65), new TagSuggestion("javascript", 60)),
+                tagService.suggest("java", 5));
+    }
+
+    @Test
+    void testSuggest_QueriesTheDatabaseUntilLoaded() {
+        when(tagRepository.findByNamePrefixWithQuestionCounts("ko", PageRequest.of(0, 5)))
+                .thenReturn(List.of(tagCount("kotlin", 10)));
+
+        assertEquals(List.of(new TagSuggestion("kotlin", 10)), tagService.suggest("ko", 5));
+    }
+
+    @Test
+    void testSuggest_InvalidInput() {
+        assertThrows(ValidationException.class, () -> tagService.suggest("", 5));
+        assertThrows(ValidationException.class, () -> tagService.suggest("java", 0));
+        assertThrows(ValidationException.class, () -> tagService.suggest("java", 11));
+    }
+
+    private static TagCount tagCount(String name, long questionCount) {
+        return new TagCount() {
+            @Override
+            public String getName() {
+                return name;
+            }
+
+            @Override
+            public long getQuestionCount() {
+                return questionCount;
+            }
+        };
+    }
+}
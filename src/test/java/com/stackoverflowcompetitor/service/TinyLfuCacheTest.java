@@ -0,0 +1,87 @@
+package com.stackoverflowcompetitor.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TinyLfuCacheTest {
+
+    private final AtomicLong clock = new AtomicLong();
+
+    @Test
+    void testGet_ReturnsWhatWasPut() {
+        TinyLfuCache<String, Integer> cache = new TinyLfuCache<>(100, 1_000, clock::get);
+        cache.put("spring", 1);
+
+        assertEquals(1, cache.get("spring"));
+        assertNull(cache.get("hibernate"));
+        assertEquals(1, cache.hitCount());
+        assertEquals(1, cache.missCount());
+        assertEquals(1, cache.putCount());
+    }
+
+    @Test
+    void testGet_ExpiresAfterTimeToLive() {
+        TinyLfuCache<String, Integer> cache = new TinyLfuCache<>(100, 1_000, clock::get);
+        cache.put("spring", 1);
+
+        clock.set(999);
+        assertEquals(1, cache.get("spring"));
+        clock.set(1_000);
+        assertNull(cache.get("spring"));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void testPut_FrequentKeysSurviveOneOffKeys() {
+        // Every hot key comes back after 120 other keys, too late for an LRU cache of 100 to still hold it
+        TinyLfuCache<Integer, Integer> cache = new TinyLfuCache<>(100, 1_000_000, clock::get);
+        int hotHits = 0;
+        for (int step = 0; step < 12_000; step++) {
+            int hot = step % 60;
+            if (cache.get(hot) == null) {
+                cache.put(hot, hot);
+            } else if (step >= 6_000) {
+                hotHits++;
+            }
+            int oneOff = 1_000 + step;
+            cache.get(oneOff);
+            cache.put(oneOff, oneOff);
+        }
+
+        assertEquals(6_000, hotHits);
+        assertTrue(cache.size() <= 100);
+        assertTrue(cache.evictionCount() >= 12_000 - 100);
+    }
+
+    @Test
+    void testRemoveIf_DropsMatchingEntriesOnly() {
+        TinyLfuCache<String, Integer> cache = new TinyLfuCache<>(100, 1_000, clock::get);
+        cache.put("spring boot", 1);
+        cache.put("spring data", 2);
+        cache.put("hibernate", 3);
+        cache.get("spring boot");
+        cache.get("spring boot");
+
+        assertEquals(2, cache.removeIf((key, value) -> key.startsWith("spring")));
+        assertNull(cache.get("spring boot"));
+        assertEquals(3, cache.get("hibernate"));
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    void testFrequencySketch_HalvesCountersAfterTheSample() {
+        TinyLfuCache.FrequencySketch sketch = new TinyLfuCache.FrequencySketch(16);
+        for (int i = 0; i < 20; i++) {
+            sketch.increment(42);
+        }
+        assertEquals(15, sketch.frequency(42));
+
+        for (int key = 0; key < 200; key++) {
+            sketch.increment(1_000 + key);
+        }
+        assertTrue(sketch.frequency(42) < 15);
+    }
+}
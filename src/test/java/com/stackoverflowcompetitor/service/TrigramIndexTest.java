@@ -0,0 +1,106 @@
+package com.stackoverflowcompetitor.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TrigramIndexTest {
+
+    @Test
+    void testSearch_MatchesSubstringsIgnoringCase() {
+        TrigramIndex index = new TrigramIndex();
+        index.add(1, "NullPointerException in Spring", "Stack trace: NPE at line 42");
+        index.add(2, "Error code E1234", "Build fails with E12345");
+        index.add(3, "snake_case names", null);
+
+        assertArrayEquals(new long[]{1}, index.search("pointerexc"));
+        assertArrayEquals(new long[]{1}, index.search("NULLPOINTER"));
+        assertArrayEquals(new long[]{2}, index.search("e1234"));
+        assertArrayEquals(new long[]{1, 2}, index.search("4"));
+        assertArrayEquals(new long[]{3}, index.search("e_c"));
+        assertArrayEquals(new long[0], index.search("kotlin"));
+    }
+
+    @Test
+    void testSearch_DoesNotMatchAcrossFields() {
+        TrigramIndex index = new TrigramIndex();
+        index.add(1, "spring", "boot");
+
+        assertArrayEquals(new long[]{1}, index.search("ring"));
+        assertArrayEquals(new long[]{1}, index.search("boo"));
+        assertArrayEquals(new long[0], index.search("springboot"));
+        assertArrayEquals(new long[0], index.search("g\0b"));
+    }
+
+    @Test
+    void testSearch_OutOfOrderAddsStaySorted() {
+        TrigramIndex index = new TrigramIndex();
+        for (long id = 0; id < 200; id += 2) {
+            index.add(id, "common text");
+        }
+        index.add(51, "common text");
+        index.add(51, "again");
+        index.add(7, "common");
+
+        long[] matches = index.search("common");
+        assertEquals(102, matches.length);
+        for (int i = 1; i < matches.length; i++) {
+            assertTrue(matches[i - 1] < matches[i]);
+        }
+        assertArrayEquals(new long[]{51}, index.search("again"));
+        assertEquals(102, index.documentCount());
+    }
+
+    @Test
+    void testSearch_MatchesBruteForceOnRandomDocuments() {
+        Random random = new Random(5);
+        String alphabet = "abcdeABC_-. 0123";
+        TrigramIndex index = new TrigramIndex();
+        List<String> documents = new ArrayList<>();
+        for (int id = 0; id < 3_000; id++) {
+            StringBuilder text = new StringBuilder();
+            for (int c = 0, length = random.nextInt(60); c < length; c++) {
+                text.append(alphabet.charAt(Math.min(random.nextInt(alphabet.length()), random.nextInt(alphabet.length()))));
+            }
+            documents.add(text.toString());
+            index.add(id * 3L, text.toString());
+        }
+
+        for (int q = 0; q < 300; q++) {
+            String document = documents.get(random.nextInt(documents.size()));
+            int length = 1 + random.nextInt(6);
+            String query = document.length() <= length ? document : document.substring(random.nextInt(document.length() - length));
+            query = query.substring(0, Math.min(length, query.length()));
+            if (random.nextBoolean()) {
+                query = query.toUpperCase(Locale.ROOT);
+            }
+            List<Long> expected = new ArrayList<>();
+            for (int id = 0; id < documents.size(); id++) {
+                if (documents.get(id).toLowerCase(Locale.ROOT).contains(query.toLowerCase(Locale.ROOT))) {
+                    expected.add(id * 3L);
+                }
+            }
+            assertArrayEquals(expected.stream().mapToLong(Long::longValue).toArray(), index.search(query), query);
+        }
+    }
+
+    @Test
+    void testPostingList_CompressesAndSkips() {
+        TrigramIndex.PostingList list = new TrigramIndex.PostingList();
+        for (long id = 1_000_000; id < 1_010_000; id++) {
+            list.add(id);
+        }
+        assertEquals(10_000, list.size());
+        assertTrue(list.encodedBytes() < 10_000 * 2, "one byte per consecutive id plus skip entries");
+
+        long[] candidates = {5, 1_000_000, 1_004_999, 1_005_000, 1_009_999, 1_010_000, 2_000_000};
+        assertEquals(4, list.retainAll(candidates, candidates.length));
+        assertArrayEquals(new long[]{1_000_000, 1_004_999, 1_005_000, 1_009_999}, Arrays.copyOf(candidates, 4));
+    }
+}
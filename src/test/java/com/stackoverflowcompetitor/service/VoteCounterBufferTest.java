@@ -0,0 +1,141 @@
+package com.stackoverflowcompetitor.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class VoteCounterBufferTest {
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    @Spy
+    private MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @InjectMocks
+    private VoteCounterBuffer voteCounterBuffer;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        ReflectionTestUtils.setField(voteCounterBuffer, "enabled", true);
+        ReflectionTestUtils.setField(voteCounterBuffer, "flushIntervalMs", 60_000L);
+        ReflectionTestUtils.setField(voteCounterBuffer, "flushThreshold", 1_000_000);
+        ReflectionTestUtils.setField(voteCounterBuffer, "capacity", 1_000_000);
+        doAnswer(invocation -> {
+            Consumer<Object> action = invocation.getArgument(0);
+            action.accept(null);
+            return null;
+        }).when(transactionTemplate).executeWithoutResult(any());
+        voteCounterBuffer.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        voteCounterBuffer.stop();
+    }
+
+    @Test
+    void testBuffer_Disabled() {
+        ReflectionTestUtils.setField(voteCounterBuffer, "enabled", false);
+
+        assertFalse(voteCounterBuffer.bufferQuestionDelta(1L, 1, 0));
+        assertEquals(0, voteCounterBuffer.getPendingEvents());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testFlush_AggregatesDeltasPerTarget() {
+        assertTrue(voteCounterBuffer.bufferQuestionDelta(1L, 1, 0));
+        assertTrue(voteCounterBuffer.bufferQuestionDelta(1L, 1, 0));
+        assertTrue(voteCounterBuffer.bufferQuestionDelta(1L, -1, 1));
+        assertTrue(voteCounterBuffer.bufferAnswerDelta(5L, 0, 1));
+        assertEquals(4, voteCounterBuffer.getPendingEvents());
+        assertEquals(4.0, meterRegistry.get("votes.write_behind.pending").gauge().value());
+
+        voteCounterBuffer.flush();
+
+        ArgumentCaptor<List<Object[]>> questionBatch = ArgumentCaptor.forClass(List.class);
+        verify(jdbcTemplate).batchUpdate(startsWith("UPDATE question"), questionBatch.capture());
+        assertArrayEquals(new Object[]{1L, 1L, 0L, 1L}, questionBatch.getValue().get(0));
+
+        ArgumentCaptor<List<Object[]>> answerBatch = ArgumentCaptor.forClass(List.class);
+        verify(jdbcTemplate).batchUpdate(startsWith("UPDATE answer"), answerBatch.capture());
+        assertArrayEquals(new Object[]{0L, 1L, -1L, 5L}, answerBatch.getValue().get(0));
+
+        assertEquals(0, voteCounterBuffer.getPendingEvents());
+        assertEquals(1, meterRegistry.get("votes.write_behind.flush").timer().count());
+    }
+
+    @Test
+    void testBuffer_FullFallsBackToCaller() {
+        ReflectionTestUtils.setField(voteCounterBuffer, "capacity", 2);
+
+        assertTrue(voteCounterBuffer.bufferQuestionDelta(1L, 1, 0));
+        assertTrue(voteCounterBuffer.bufferQuestionDelta(2L, 1, 0));
+        assertFalse(voteCounterBuffer.bufferQuestionDelta(3L, 1, 0));
+        assertEquals(2, voteCounterBuffer.getPendingEvents());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testFlush_FailureKeepsDeltasForRetry() {
+        voteCounterBuffer.bufferQuestionDelta(1L, 1, 0);
+        when(jdbcTemplate.batchUpdate(anyString(), anyList())).thenThrow(new RuntimeException("Database down"));
+
+        voteCounterBuffer.flush();
+        assertEquals(1, voteCounterBuffer.getPendingEvents());
+
+        reset(jdbcTemplate);
+        voteCounterBuffer.flush();
+
+        ArgumentCaptor<List<Object[]>> batch = ArgumentCaptor.forClass(List.class);
+        verify(jdbcTemplate).batchUpdate(startsWith("UPDATE question"), batch.capture());
+        assertArrayEquals(new Object[]{1L, 0L, 1L, 1L}, batch.getValue().get(0));
+        assertEquals(0, voteCounterBuffer.getPendingEvents());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testBuffer_ConcurrentVotesAreNotLost() throws InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        for (int t = 0; t < 8; t++) {
+            executor.submit(() -> {
+                for (int i = 0; i < 1000; i++) {
+                    voteCounterBuffer.bufferQuestionDelta(1L, 1, 0);
+                }
+            });
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+
+        voteCounterBuffer.flush();
+
+        ArgumentCaptor<List<Object[]>> batch = ArgumentCaptor.forClass(List.class);
+        verify(jdbcTemplate).batchUpdate(startsWith("UPDATE question"), batch.capture());
+        assertArrayEquals(new Object[]{8000L, 0L, 8000L, 1L}, batch.getValue().get(0));
+    }
+}
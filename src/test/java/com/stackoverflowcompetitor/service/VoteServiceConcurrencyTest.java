@@ -0,0 +1,128 @@
+package com.stackoverflowcompetitor.service;
+
+import com.stackoverflowcompetitor.model.Question;
+import com.stackoverflowcompetitor.model.User;
+import com.stackoverflowcompetitor.repository.QuestionRepository;
+import com.stackoverflowcompetitor.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs parallel vote toggles against the real database to check that the unique keys and the
+ * delete/upsert toggle never leave duplicate rows or counters that disagree with the vote table.
+ * Needs the MySQL instance from application.properties, like StackoverflowcompetitorApplicationTests.
+ */
+@SpringBootTest
+@EnabledIfEnvironmentVariable(named = "MYSQL_PASSWORD", matches = ".*")
+class VoteServiceConcurrencyTest {
+
+    private static final int USERS = 4;
+    private static final int THREADS_PER_USER = 4;
+    private static final int VOTES_PER_THREAD = 25;
+
+    @Autowired
+    private VoteService voteService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private QuestionRepository questionRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private QuestionLeaderboard questionLeaderboard;
+
+    private final List<User> users = new ArrayList<>();
+    private Question question;
+
+    @BeforeEach
+    void setUp() {
+        for (int i = 0; i < USERS; i++) {
+            User user = new User();
+            user.setUsername("vt" + UUID.randomUUID().toString().substring(0, 12));
+            user.setPassword("password");
+            users.add(userRepository.save(user));
+        }
+
+        question = new Question();
+        question.setTitle("Concurrent votes");
+        question.setContent("Parallel voting test content");
+        question.setUser(users.get(0));
+        question = questionRepository.save(question);
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.update("DELETE FROM vote WHERE question_id = ?", question.getId());
+        questionRepository.deleteById(question.getId());
+        userRepository.deleteAll(users);
+    }
+
+    @Test
+    void testParallelVoting_NoDuplicateRows() throws InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(USERS * THREADS_PER_USER);
+        Queue<RuntimeException> failures = new ConcurrentLinkedQueue<>();
+        CountDownLatch start = new CountDownLatch(1);
+
+        for (User user : users) {
+            for (int t = 0; t < THREADS_PER_USER; t++) {
+                boolean isUpvote = t % 2 == 0;
+                executor.submit(() -> {
+                    SecurityContextHolder.getContext().setAuthentication(
+                            new UsernamePasswordAuthenticationToken(user.getUsername(), null));
+                    start.await();
+                    for (int v = 0; v < VOTES_PER_THREAD; v++) {
+                        try {
+                            voteService.voteForQuestion(question.getId(), isUpvote);
+                        } catch (RuntimeException e) {
+                            failures.add(e);
+                        }
+                    }
+                    return null;
+                });
+            }
+        }
+        start.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(2, TimeUnit.MINUTES));
+        // Deadlocks between first votes are retried inside voteForQuestion, so no call may fail
+        assertTrue(failures.isEmpty(), () -> "Votes failed: " + failures);
+
+        List<Integer> rowsPerUser = jdbcTemplate.queryForList(
+                "SELECT COUNT(*) FROM vote WHERE question_id = ? GROUP BY user_id", Integer.class, question.getId());
+        rowsPerUser.forEach(rows -> assertEquals(1, rows));
+
+        Integer upvotes = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM vote WHERE question_id = ? AND is_upvote = 1", Integer.class, question.getId());
+        Integer downvotes = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM vote WHERE question_id = ? AND is_upvote = 0", Integer.class, question.getId());
+        Question reloaded = questionRepository.findById(question.getId()).orElseThrow();
+
+        assertEquals(upvotes.longValue(), reloaded.getUpvoteCount());
+        assertEquals(downvotes.longValue(), reloaded.getDownvoteCount());
+        assertEquals(upvotes - downvotes, reloaded.getScore());
+        assertTrue(questionLeaderboard.isConsistentWithDatabase(50));
+    }
+}
@@ -13,13 +13,17 @@ import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.springframework.dao.CannotAcquireLockException;
 import org.springframework.http.HttpStatus;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.server.ResponseStatusException;
 
-import java.util.Optional;
-
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.Mockito.*;
 
 class VoteServiceTest {
@@ -36,6 +40,18 @@ class VoteServiceTest {
     @Mock
     private AuthenticatedUserDetails authenticatedUserDetails;
 
+    @Mock
+    private QuestionLeaderboard questionLeaderboard;
+
+    @Mock
+    private HotQuestionRanking hotQuestionRanking;
+
+    @Mock
+    private VoteCounterBuffer voteCounterBuffer;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
     @InjectMocks
     private VoteService voteService;
 
@@ -58,77 +74,112 @@ class VoteServiceTest {
         answer = new Answer();
         answer.setId(1L);
         answer.setContent("Test Answer");
+
+        when(authenticatedUserDetails.getAuthenticatedUser()).thenReturn(user);
+        when(questionRepository.getReferenceById(1L)).thenReturn(question);
+        when(answerRepository.getReferenceById(1L)).thenReturn(answer);
+        when(voteRepository.lastInsertId()).thenReturn(7L);
+        when(transactionTemplate.execute(any())).thenAnswer(invocation ->
+                invocation.<TransactionCallback<?>>getArgument(0).doInTransaction(null));
+        ReflectionTestUtils.setField(voteService, "lockRetries", 2);
     }
 
     @Test
     void testVoteForQuestion_NewVote() {
-        when(questionRepository.findById(1L)).thenReturn(java.util.Optional.of(question));
-        when(authenticatedUserDetails.getAuthenticatedUser()).thenReturn(user);
-        when(voteRepository.findByUserAndQuestion(user, question)).thenReturn(null);
-        when(voteRepository.save(any(Vote.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        when(voteRepository.deleteQuestionVote(1L, 1L, true)).thenReturn(0);
+        when(voteRepository.upsertQuestionVote(1L, 1L, true)).thenReturn(1);
 
         Vote result = voteService.voteForQuestion(1L, true);
 
         assertNotNull(result);
+        assertEquals(7L, result.getId());
         assertTrue(result.isUpvote());
         assertEquals(question, result.getQuestion());
         assertEquals(user, result.getUser());
+        verify(questionRepository, times(1)).applyVoteDelta(1L, 1, 0);
     }
 
     @Test
     void testVoteForQuestion_ExistingVote_Reset() {
-        Vote existingVote = new Vote();
-        existingVote.setUpvote(true);
-        existingVote.setQuestion(question);
-        existingVote.setUser(user);
-
-        when(questionRepository.findById(1L)).thenReturn(java.util.Optional.of(question));
-        when(authenticatedUserDetails.getAuthenticatedUser()).thenReturn(user);
-        when(voteRepository.findByUserAndQuestion(user, question)).thenReturn(existingVote);
+        when(voteRepository.deleteQuestionVote(1L, 1L, true)).thenReturn(1);
 
         Vote result = voteService.voteForQuestion(1L, true);
 
         assertNull(result);
-        verify(voteRepository, times(1)).delete(existingVote);
+        verify(voteRepository, never()).upsertQuestionVote(anyLong(), anyLong(), anyBoolean());
+        verify(questionRepository, times(1)).applyVoteDelta(1L, -1, 0);
+        verify(questionLeaderboard, times(1)).adjustScore(1L, -1);
     }
 
     @Test
     void testVoteForQuestion_ExistingVote_Change() {
-        Vote existingVote = new Vote();
-        existingVote.setUpvote(false);
-        existingVote.setQuestion(question);
-        existingVote.setUser(user);
-
-        when(questionRepository.findById(1L)).thenReturn(java.util.Optional.of(question));
-        when(authenticatedUserDetails.getAuthenticatedUser()).thenReturn(user);
-        when(voteRepository.findByUserAndQuestion(user, question)).thenReturn(existingVote);
-        when(voteRepository.save(any(Vote.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        when(voteRepository.deleteQuestionVote(1L, 1L, true)).thenReturn(0);
+        when(voteRepository.upsertQuestionVote(1L, 1L, true)).thenReturn(2);
 
         Vote result = voteService.voteForQuestion(1L, true);
 
         assertNotNull(result);
         assertTrue(result.isUpvote());
-        verify(voteRepository, times(1)).save(existingVote);
+        verify(questionRepository, times(1)).applyVoteDelta(1L, 1, -1);
+        verify(questionLeaderboard, times(1)).adjustScore(1L, 2);
+        verify(hotQuestionRanking, times(1)).adjustScore(1L, 2);
     }
 
     @Test
     void testVoteForQuestion_QuestionNotFound() {
-        when(questionRepository.findById(1L)).thenReturn(Optional.empty());
+        when(voteRepository.deleteQuestionVote(1L, 1L, true)).thenReturn(0);
+        when(voteRepository.upsertQuestionVote(1L, 1L, true)).thenReturn(0);
 
         ResponseStatusException exception = assertThrows(ResponseStatusException.class, () -> {
             voteService.voteForQuestion(1L, true);
         });
 
         assertEquals(HttpStatus.NOT_FOUND, exception.getStatusCode());
-        verify(voteRepository, never()).save(any(Vote.class));
+        verify(questionRepository, never()).applyVoteDelta(anyLong(), anyLong(), anyLong());
+    }
+
+    @Test
+    void testVoteForQuestion_NewDownvote() {
+        when(voteRepository.deleteQuestionVote(1L, 1L, false)).thenReturn(0);
+        when(voteRepository.upsertQuestionVote(1L, 1L, false)).thenReturn(1);
+
+        Vote result = voteService.voteForQuestion(1L, false);
+
+        assertNotNull(result);
+        assertFalse(result.isUpvote());
+        verify(questionRepository, times(1)).applyVoteDelta(1L, 0, 1);
+    }
+
+    @Test
+    void testVoteForQuestion_RetriesDeadlock() {
+        when(voteRepository.deleteQuestionVote(1L, 1L, true)).thenReturn(0);
+        when(voteRepository.upsertQuestionVote(1L, 1L, true))
+                .thenThrow(new CannotAcquireLockException("Deadlock found when trying to get lock"))
+                .thenReturn(1);
+
+        Vote result = voteService.voteForQuestion(1L, true);
+
+        assertNotNull(result);
+        verify(transactionTemplate, times(2)).execute(any());
+        verify(questionRepository, times(1)).applyVoteDelta(1L, 1, 0);
+    }
+
+    @Test
+    void testVoteForQuestion_GivesUpAfterRetries() {
+        when(voteRepository.deleteQuestionVote(1L, 1L, true)).thenReturn(0);
+        when(voteRepository.upsertQuestionVote(1L, 1L, true))
+                .thenThrow(new CannotAcquireLockException("Deadlock found when trying to get lock"));
+
+        assertThrows(CannotAcquireLockException.class, () -> voteService.voteForQuestion(1L, true));
+
+        verify(transactionTemplate, times(3)).execute(any());
+        verify(questionRepository, never()).applyVoteDelta(anyLong(), anyLong(), anyLong());
     }
 
     @Test
     void testVoteForAnswer_NewVote() {
-        when(answerRepository.findById(1L)).thenReturn(java.util.Optional.of(answer));
-        when(authenticatedUserDetails.getAuthenticatedUser()).thenReturn(user);
-        when(voteRepository.findByUserAndAnswer(user, answer)).thenReturn(null);
-        when(voteRepository.save(any(Vote.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        when(voteRepository.deleteAnswerVote(1L, 1L, true)).thenReturn(0);
+        when(voteRepository.upsertAnswerVote(1L, 1L, true)).thenReturn(1);
 
         Vote result = voteService.voteForAnswer(1L, true);
 
@@ -136,54 +187,55 @@ class VoteServiceTest {
         assertTrue(result.isUpvote());
         assertEquals(answer, result.getAnswer());
         assertEquals(user, result.getUser());
-        verify(voteRepository, times(1)).save(any(Vote.class));
+        verify(answerRepository, times(1)).applyVoteDelta(1L, 1, 0);
     }
 
     @Test
     void testVoteForAnswer_ExistingVote_Reset() {
-        Vote existingVote = new Vote();
-        existingVote.setUpvote(true);
-        existingVote.setAnswer(answer);
-        existingVote.setUser(user);
-
-        when(answerRepository.findById(1L)).thenReturn(java.util.Optional.of(answer));
-        when(authenticatedUserDetails.getAuthenticatedUser()).thenReturn(user);
-        when(voteRepository.findByUserAndAnswer(user, answer)).thenReturn(existingVote);
+        when(voteRepository.deleteAnswerVote(1L, 1L, true)).thenReturn(1);
 
         Vote result = voteService.voteForAnswer(1L, true);
 
         assertNull(result);
-        verify(voteRepository, times(1)).delete(existingVote);
+        verify(voteRepository, never()).upsertAnswerVote(anyLong(), anyLong(), anyBoolean());
+        verify(answerRepository, times(1)).applyVoteDelta(1L, -1, 0);
     }
 
     @Test
     void testVoteForAnswer_ExistingVote_Change() {
-        Vote existingVote = new Vote();
-        existingVote.setUpvote(false);
-        existingVote.setAnswer(answer);
-        existingVote.setUser(user);
-
-        when(answerRepository.findById(1L)).thenReturn(java.util.Optional.of(answer));
-        when(authenticatedUserDetails.getAuthenticatedUser()).thenReturn(user);
-        when(voteRepository.findByUserAndAnswer(user, answer)).thenReturn(existingVote);
-        when(voteRepository.save(any(Vote.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        when(voteRepository.deleteAnswerVote(1L, 1L, false)).thenReturn(0);
+        when(voteRepository.upsertAnswerVote(1L, 1L, false)).thenReturn(2);
 
-        Vote result = voteService.voteForAnswer(1L, true);
+        Vote result = voteService.voteForAnswer(1L, false);
 
         assertNotNull(result);
-        assertTrue(result.isUpvote());
-        verify(voteRepository, times(1)).save(existingVote);
+        assertFalse(result.isUpvote());
+        verify(answerRepository, times(1)).applyVoteDelta(1L, -1, 1);
     }
 
     @Test
     void testVoteForAnswer_AnswerNotFound() {
-        when(answerRepository.findById(1L)).thenReturn(Optional.empty());
+        when(voteRepository.deleteAnswerVote(1L, 1L, true)).thenReturn(0);
+        when(voteRepository.upsertAnswerVote(1L, 1L, true)).thenReturn(0);
 
         ResponseStatusException exception = assertThrows(ResponseStatusException.class, () -> {
             voteService.voteForAnswer(1L, true);
         });
 
         assertEquals(HttpStatus.NOT_FOUND, exception.getStatusCode());
-        verify(voteRepository, never()).save(any(Vote.class));
+        verify(answerRepository, never()).applyVoteDelta(anyLong(), anyLong(), anyLong());
+    }
+
+    @Test
+    void testVoteForQuestion_WriteBehindBuffered() {
+        when(voteRepository.deleteQuestionVote(1L, 1L, true)).thenReturn(0);
+        when(voteRepository.upsertQuestionVote(1L, 1L, true)).thenReturn(1);
+        when(voteCounterBuffer.bufferQuestionDelta(1L, 1, 0)).thenReturn(true);
+
+        Vote result = voteService.voteForQuestion(1L, true);
+
+        assertNotNull(result);
+        verify(voteCounterBuffer, times(1)).bufferQuestionDelta(1L, 1, 0);
+        verify(questionRepository, never()).applyVoteDelta(anyLong(), anyLong(), anyLong());
     }
 }